@@ -1,14 +1,66 @@
 package org.jgroups.opentelemetry.impl;
 
 import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableDoubleMeasurement;
+import io.opentelemetry.api.metrics.ObservableLongMeasurement;
+import org.jgroups.opentelemetry.impl.util.StaggeredCollection;
 import org.jgroups.opentelemetry.spi.InstrumentationContext;
 import org.jgroups.stack.Protocol;
 
+import java.util.function.Consumer;
+
 /**
  * Basic implementation of {@link InstrumentationContext}.
  * This immutable implementation holds all dependencies needed to register metrics for a protocol.
+ * The optional collection group, if not null, spreads the invocation of the asynchronous callbacks of the protocol
+ * across the export interval (see {@link StaggeredCollection}).
  *
  * @author Radoslav Husar
  */
-public record BasicInstrumentationContext(Protocol protocol, Meter meter, boolean exposeConfigurationMetrics) implements InstrumentationContext {
+public record BasicInstrumentationContext(Protocol protocol, Meter meter, InstrumentationOptions options,
+                                          StaggeredCollection.Group collectionGroup) implements InstrumentationContext {
+
+    public BasicInstrumentationContext(Protocol protocol, Meter meter, boolean exposeConfigurationMetrics) {
+        this(protocol, meter, InstrumentationOptions.builder().setExposeConfigurationMetrics(exposeConfigurationMetrics).build(), null);
+    }
+
+    @Override
+    public boolean exposeConfigurationMetrics() {
+        return options.exposeConfigurationMetrics();
+    }
+
+    @Override
+    public int attributeCardinalityLimit() {
+        return options.attributeCardinalityLimit();
+    }
+
+    @Override
+    public int durationSamplingInterval() {
+        return options.durationSamplingInterval();
+    }
+
+    @Override
+    public boolean perMemberMetrics() {
+        return options.perMemberMetrics();
+    }
+
+    @Override
+    public boolean isMetricEnabled(String name) {
+        return options.metricFilter().test(name);
+    }
+
+    @Override
+    public ConfigurationMetricsMode configurationMetricsMode() {
+        return options.configurationMetricsMode();
+    }
+
+    @Override
+    public Consumer<ObservableLongMeasurement> adaptLongCallback(Consumer<ObservableLongMeasurement> callback) {
+        return (collectionGroup != null) ? collectionGroup.longCallback(callback) : callback;
+    }
+
+    @Override
+    public Consumer<ObservableDoubleMeasurement> adaptDoubleCallback(Consumer<ObservableDoubleMeasurement> callback) {
+        return (collectionGroup != null) ? collectionGroup.doubleCallback(callback) : callback;
+    }
 }
@@ -0,0 +1,157 @@
+package org.jgroups.opentelemetry.impl;
+
+import org.jgroups.opentelemetry.impl.util.MetricFilter;
+import org.jgroups.opentelemetry.impl.util.StaggeredCollection;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.opentelemetry.spi.InstrumentationContext.ConfigurationMetricsMode;
+
+import java.util.function.Predicate;
+
+/**
+ * Immutable options applied to the instrumentation of all protocols of a stack by {@link MetricsRegistrar},
+ * and exposed to each instrumentation via its {@link BasicInstrumentationContext}.
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * InstrumentationOptions options = InstrumentationOptions.builder()
+ *         .setExposeConfigurationMetrics(true)
+ *         .setPerMemberMetrics(true)
+ *         .build();
+ * }</pre>
+ *
+ * @author Radoslav Husar
+ */
+public final class InstrumentationOptions {
+
+    private final boolean exposeConfigurationMetrics;
+    private final int attributeCardinalityLimit;
+    private final int durationSamplingInterval;
+    private final boolean perMemberMetrics;
+    private final Predicate<String> metricFilter;
+    private final ConfigurationMetricsMode configurationMetricsMode;
+    private final StaggeredCollection collection;
+
+    private InstrumentationOptions(Builder builder) {
+        this.exposeConfigurationMetrics = builder.exposeConfigurationMetrics;
+        this.attributeCardinalityLimit = builder.attributeCardinalityLimit;
+        this.durationSamplingInterval = Math.max(1, builder.durationSamplingInterval);
+        this.perMemberMetrics = builder.perMemberMetrics;
+        this.metricFilter = builder.metricFilter;
+        this.configurationMetricsMode = builder.configurationMetricsMode;
+        this.collection = builder.collection;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return whether protocol configuration values are exposed as metrics
+     */
+    public boolean exposeConfigurationMetrics() {
+        return exposeConfigurationMetrics;
+    }
+
+    /**
+     * @return the maximum number of distinct values of a per-entity attribute reported by a single metric
+     */
+    public int attributeCardinalityLimit() {
+        return attributeCardinalityLimit;
+    }
+
+    /**
+     * @return the sampling interval of sampled duration histograms, at least 1
+     */
+    public int durationSamplingInterval() {
+        return durationSamplingInterval;
+    }
+
+    /**
+     * @return whether metrics with a per-member attribute are registered
+     */
+    public boolean perMemberMetrics() {
+        return perMemberMetrics;
+    }
+
+    /**
+     * @return the filter deciding by full metric name which metrics are registered
+     */
+    public Predicate<String> metricFilter() {
+        return metricFilter;
+    }
+
+    /**
+     * @return how configuration metrics are reported
+     */
+    public ConfigurationMetricsMode configurationMetricsMode() {
+        return configurationMetricsMode;
+    }
+
+    /**
+     * @return the staggered collection receiving a group per instrumented protocol, or null to invoke callbacks on collection
+     */
+    public StaggeredCollection collection() {
+        return collection;
+    }
+
+    /**
+     * Builder of {@link InstrumentationOptions}, initialized with the defaults.
+     */
+    public static final class Builder {
+        private boolean exposeConfigurationMetrics;
+        private int attributeCardinalityLimit = InstrumentationContext.DEFAULT_ATTRIBUTE_CARDINALITY_LIMIT;
+        private int durationSamplingInterval = InstrumentationContext.DEFAULT_DURATION_SAMPLING_INTERVAL;
+        private boolean perMemberMetrics;
+        private Predicate<String> metricFilter = MetricFilter.ALL;
+        private ConfigurationMetricsMode configurationMetricsMode = ConfigurationMetricsMode.GAUGES;
+        private StaggeredCollection collection;
+
+        private Builder() {
+        }
+
+        public Builder setExposeConfigurationMetrics(boolean exposeConfigurationMetrics) {
+            this.exposeConfigurationMetrics = exposeConfigurationMetrics;
+            return this;
+        }
+
+        public Builder setAttributeCardinalityLimit(int attributeCardinalityLimit) {
+            this.attributeCardinalityLimit = attributeCardinalityLimit;
+            return this;
+        }
+
+        /**
+         * Sets the sampling interval of sampled duration histograms; values below 1 record every operation.
+         *
+         * @param durationSamplingInterval the sampling interval
+         * @return this builder
+         */
+        public Builder setDurationSamplingInterval(int durationSamplingInterval) {
+            this.durationSamplingInterval = durationSamplingInterval;
+            return this;
+        }
+
+        public Builder setPerMemberMetrics(boolean perMemberMetrics) {
+            this.perMemberMetrics = perMemberMetrics;
+            return this;
+        }
+
+        public Builder setMetricFilter(Predicate<String> metricFilter) {
+            this.metricFilter = metricFilter;
+            return this;
+        }
+
+        public Builder setConfigurationMetricsMode(ConfigurationMetricsMode configurationMetricsMode) {
+            this.configurationMetricsMode = configurationMetricsMode;
+            return this;
+        }
+
+        public Builder setCollection(StaggeredCollection collection) {
+            this.collection = collection;
+            return this;
+        }
+
+        public InstrumentationOptions build() {
+            return new InstrumentationOptions(this);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.metrics.Meter;
 import org.jgroups.logging.Log;
 import org.jgroups.logging.LogFactory;
+import org.jgroups.opentelemetry.impl.util.StaggeredCollection;
 import org.jgroups.opentelemetry.spi.InstrumentationContext;
 import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
 import org.jgroups.stack.Protocol;
@@ -35,6 +36,19 @@ public class MetricsRegistrar {
      * @param exposeConfigurationMetrics Whether to expose protocol configuration values as metrics
      */
     public static void registerMetrics(OpenTelemetry openTelemetry, ProtocolStack protocolStack, String instrumentationScopeName, boolean exposeConfigurationMetrics) {
+        registerMetrics(openTelemetry, protocolStack, instrumentationScopeName, InstrumentationOptions.builder().setExposeConfigurationMetrics(exposeConfigurationMetrics).build());
+    }
+
+    /**
+     * Registers metrics for all protocols in the given protocol stack.
+     * Discovers instrumentation via ServiceLoader and matches them to protocols.
+     *
+     * @param openTelemetry The OpenTelemetry instance to create the meter from
+     * @param protocolStack The protocol stack containing protocols to instrument
+     * @param instrumentationScopeName The instrumentation scope name for the OpenTelemetry meter
+     * @param options The options applied to the instrumentation of all protocols
+     */
+    public static void registerMetrics(OpenTelemetry openTelemetry, ProtocolStack protocolStack, String instrumentationScopeName, InstrumentationOptions options) {
         Meter meter = openTelemetry.getMeter(instrumentationScopeName);
         List<Protocol> protocols = protocolStack.getProtocols();
         // Load all available MetricsInstrumentation providers and create a map
@@ -66,14 +80,14 @@ public class MetricsRegistrar {
                 // Use specific instrumentation if available
                 log.debug("found protocol %s, registering specific metrics instrumentation", protocol.getClass().getSimpleName());
 
-                InstrumentationContext context = new BasicInstrumentationContext(protocol, meter, exposeConfigurationMetrics);
+                InstrumentationContext context = createContext(protocol, meter, options);
                 instrumentation.registerMetrics(context);
                 registeredCount++;
             } else if (genericInstrumentation != null) {
                 // Fall back to generic @Observable processor
                 log.trace("no specific instrumentation for protocol %s, using generic @Observable processor", protocol.getClass().getSimpleName());
 
-                InstrumentationContext context = new BasicInstrumentationContext(protocol, meter, exposeConfigurationMetrics);
+                InstrumentationContext context = createContext(protocol, meter, options);
                 genericInstrumentation.registerMetrics(context);
                 genericCount++;
             }
@@ -85,4 +99,9 @@ public class MetricsRegistrar {
             log.debug("registered %d specific and %d generic instrumentation(s)", registeredCount, genericCount);
         }
     }
+
+    private static InstrumentationContext createContext(Protocol protocol, Meter meter, InstrumentationOptions options) {
+        StaggeredCollection collection = options.collection();
+        return new BasicInstrumentationContext(protocol, meter, options, (collection != null) ? collection.createGroup() : null);
+    }
 }
@@ -1,10 +1,13 @@
 package org.jgroups.opentelemetry.impl;
 
 import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableLongMeasurement;
 import org.jgroups.logging.Log;
 import org.jgroups.annotations.observability.Observable;
 import org.jgroups.annotations.observability.ObservableScope;
+import org.jgroups.annotations.observability.ObservableType;
 import org.jgroups.logging.LogFactory;
+import org.jgroups.opentelemetry.impl.util.ConfigurationMetrics;
 import org.jgroups.opentelemetry.spi.InstrumentationContext;
 import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
 import org.jgroups.stack.Protocol;
@@ -18,6 +21,7 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * Generic instrumentation processor that scans @Observable annotations on protocol classes
@@ -46,14 +50,17 @@ public class ObservableMetricsInstrumentationProcessor implements MetricsInstrum
     public void registerMetrics(InstrumentationContext context) {
         Protocol protocol = context.protocol();
         Meter meter = context.meter();
+        ConfigurationMetrics configuration = new ConfigurationMetrics(context, getMetricPrefix(protocol));
 
         int count = 0;
 
         // Process annotated fields
-        count += processFields(protocol, meter, context);
+        count += processFields(protocol, meter, configuration, context);
 
         // Process annotated methods
-        count += processMethods(protocol, meter, context);
+        count += processMethods(protocol, meter, configuration, context);
+
+        configuration.register();
 
         if (count > 0) {
             log.debug("registered %d @Observable metrics for %s", count, protocol.getClass().getSimpleName());
@@ -63,7 +70,7 @@ public class ObservableMetricsInstrumentationProcessor implements MetricsInstrum
     /**
      * Processes fields annotated with @Observable.
      */
-    private int processFields(Protocol protocol, Meter meter, InstrumentationContext context) {
+    private int processFields(Protocol protocol, Meter meter, ConfigurationMetrics configuration, InstrumentationContext context) {
         int count = 0;
         Class<?> clazz = protocol.getClass();
 
@@ -76,9 +83,13 @@ public class ObservableMetricsInstrumentationProcessor implements MetricsInstrum
                              clazz.getSimpleName(), field.getName());
                     continue;
                 }
+                if (!context.isMetricEnabled(getMetricName(protocol, annotation, field.getName()))) {
+                    log.trace("skipping filtered metric for field %s.%s", clazz.getSimpleName(), field.getName());
+                    continue;
+                }
 
                 try {
-                    registerFieldMetric(protocol, meter, field, annotation);
+                    registerFieldMetric(protocol, meter, configuration, field, annotation);
                     count++;
                 } catch (Exception e) {
                     log.warn("failed to register metric for field %s.%s: %s",
@@ -93,7 +104,7 @@ public class ObservableMetricsInstrumentationProcessor implements MetricsInstrum
     /**
      * Processes methods annotated with @Observable.
      */
-    private int processMethods(Protocol protocol, Meter meter, InstrumentationContext context) {
+    private int processMethods(Protocol protocol, Meter meter, ConfigurationMetrics configuration, InstrumentationContext context) {
         int count = 0;
         Class<?> clazz = protocol.getClass();
 
@@ -106,9 +117,13 @@ public class ObservableMetricsInstrumentationProcessor implements MetricsInstrum
                              clazz.getSimpleName(), method.getName());
                     continue;
                 }
+                if (!context.isMetricEnabled(getMetricName(protocol, annotation, method.getName()))) {
+                    log.trace("skipping filtered metric for method %s.%s", clazz.getSimpleName(), method.getName());
+                    continue;
+                }
 
                 try {
-                    registerMethodMetric(protocol, meter, method, annotation);
+                    registerMethodMetric(protocol, meter, configuration, method, annotation);
                     count++;
                 } catch (Exception e) {
                     log.warn("failed to register metric for method %s.%s: %s",
@@ -123,12 +138,18 @@ public class ObservableMetricsInstrumentationProcessor implements MetricsInstrum
     /**
      * Registers a metric for an annotated field.
      */
-    private static void registerFieldMetric(Protocol protocol, Meter meter, Field field, Observable annotation) throws IllegalAccessException {
+    private static void registerFieldMetric(Protocol protocol, Meter meter, ConfigurationMetrics configuration, Field field, Observable annotation) throws IllegalAccessException {
         field.setAccessible(true);
         String metricName = getMetricName(protocol, annotation, field.getName());
         String description = annotation.description();
         String unit = annotation.unit().toString();
 
+        // Configuration metrics are reported according to the configuration metrics mode
+        if (annotation.scope() == ObservableScope.CONFIGURATION && annotation.type() != ObservableType.HISTOGRAM) {
+            configuration.registerLongGauge(metricName, description, unit, fieldCallback(protocol, field));
+            return;
+        }
+
         switch (annotation.type()) {
             case GAUGE:
                 registerGaugeForField(protocol, meter, field, metricName, description, unit);
@@ -146,11 +167,17 @@ public class ObservableMetricsInstrumentationProcessor implements MetricsInstrum
     /**
      * Registers a metric for an annotated method.
      */
-    private static void registerMethodMetric(Protocol protocol, Meter meter, Method method, Observable annotation) {
+    private static void registerMethodMetric(Protocol protocol, Meter meter, ConfigurationMetrics configuration, Method method, Observable annotation) {
         String metricName = getMetricName(protocol, annotation, method.getName());
         String description = annotation.description();
         String unit = annotation.unit().toString();
 
+        // Configuration metrics are reported according to the configuration metrics mode
+        if (annotation.scope() == ObservableScope.CONFIGURATION && annotation.type() != ObservableType.HISTOGRAM) {
+            configuration.registerLongGauge(metricName, description, unit, methodCallback(protocol, method));
+            return;
+        }
+
         switch (annotation.type()) {
             case GAUGE:
                 registerGaugeForMethod(protocol, meter, method, metricName, description, unit);
@@ -173,14 +200,21 @@ public class ObservableMetricsInstrumentationProcessor implements MetricsInstrum
             .setDescription(description)
             .setUnit(unit)
             .ofLongs()
-            .buildWithCallback(measurement -> {
-                try {
-                    long value = extractLongValue(field.get(protocol));
-                    measurement.record(value);
-                } catch (Exception e) {
-                    log.trace("failed to read field %s: %s", field.getName(), e.getMessage());
-                }
-            });
+            .buildWithCallback(fieldCallback(protocol, field));
+    }
+
+    /**
+     * Returns the callback recording the value of a field.
+     */
+    private static Consumer<ObservableLongMeasurement> fieldCallback(Protocol protocol, Field field) {
+        return measurement -> {
+            try {
+                long value = extractLongValue(field.get(protocol));
+                measurement.record(value);
+            } catch (Exception e) {
+                log.trace("failed to read field %s: %s", field.getName(), e.getMessage());
+            }
+        };
     }
 
     /**
@@ -191,16 +225,23 @@ public class ObservableMetricsInstrumentationProcessor implements MetricsInstrum
             .setDescription(description)
             .setUnit(unit)
             .ofLongs()
-            .buildWithCallback(measurement -> {
-                try {
-                    method.setAccessible(true);
-                    Object result = method.invoke(protocol);
-                    long value = extractLongValue(result);
-                    measurement.record(value);
-                } catch (Exception e) {
-                    log.trace("failed to invoke method %s: %s", method.getName(), e.getMessage());
-                }
-            });
+            .buildWithCallback(methodCallback(protocol, method));
+    }
+
+    /**
+     * Returns the callback recording the result of a method.
+     */
+    private static Consumer<ObservableLongMeasurement> methodCallback(Protocol protocol, Method method) {
+        return measurement -> {
+            try {
+                method.setAccessible(true);
+                Object result = method.invoke(protocol);
+                long value = extractLongValue(result);
+                measurement.record(value);
+            } catch (Exception e) {
+                log.trace("failed to invoke method %s: %s", method.getName(), e.getMessage());
+            }
+        };
     }
 
     /**
@@ -252,8 +293,7 @@ public class ObservableMetricsInstrumentationProcessor implements MetricsInstrum
      * Automatically adds the jgroups.{protocol}. prefix.
      */
     private static String getMetricName(Protocol protocol, Observable annotation, String defaultName) {
-        String protocolName = protocol.getClass().getSimpleName().toLowerCase();
-        String prefix = "org.jgroups." + protocolName + ".";
+        String prefix = getMetricPrefix(protocol);
 
         String suffix;
         if (annotation.name() != null && !annotation.name().isEmpty()) {
@@ -266,6 +306,13 @@ public class ObservableMetricsInstrumentationProcessor implements MetricsInstrum
         return prefix + suffix;
     }
 
+    /**
+     * Gets the org.jgroups.{protocol}. prefix of the metric names of a protocol.
+     */
+    private static String getMetricPrefix(Protocol protocol) {
+        return "org.jgroups." + protocol.getClass().getSimpleName().toLowerCase() + ".";
+    }
+
     /**
      * Gets all fields from a class and its superclasses.
      */
@@ -0,0 +1,321 @@
+package org.jgroups.opentelemetry.impl.aggregation;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableDoubleMeasurement;
+import org.jgroups.Address;
+import org.jgroups.util.Bits;
+import org.jgroups.util.ByteArrayDataInputStream;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merges the metric snapshots sent by the members to the coordinator into cluster-level aggregates, which are
+ * exported by the coordinator only. For each metric name and set of attributes, the coordinator reports a series per
+ * aggregation, identified by the {@code aggregation} attribute:
+ * <ul>
+ *   <li>counters and gauges: {@code sum}, {@code min}, {@code max}, {@code p50}, {@code p90} and {@code p99} of the
+ *   values of the members,</li>
+ *   <li>histograms: {@code count}, {@code sum}, {@code p50}, {@code p90} and {@code p99} of the merged buckets of
+ *   the members, interpolated within the buckets,</li>
+ *   <li>{@code outlier}: the values (means for histograms) of the members deviating most from the median,
+ *   with a {@code node} attribute identifying the member.</li>
+ * </ul>
+ * Aggregates are reported as gauges, so that the state of members which left the cluster drops out of them.
+ *
+ * <p>Snapshots are applied by the threads receiving them, while the aggregates are computed by the thread collecting
+ * the metrics of the coordinator; both synchronize on the aggregator.</p>
+ *
+ * @author Radoslav Husar
+ */
+public class ClusterMetricsAggregator {
+
+    /**
+     * Attribute key identifying the aggregation of an aggregated series.
+     */
+    public static final AttributeKey<String> AGGREGATION = AttributeKey.stringKey("aggregation");
+
+    /**
+     * Name of the metric reporting the number of members whose snapshots are aggregated.
+     */
+    public static final String MEMBERS_METRIC_NAME = "jgroups.opentelemetry.aggregation.members";
+
+    private static final String[] NUMERIC_AGGREGATIONS = {"sum", "min", "max", "p50", "p90", "p99", "outlier"};
+    private static final String[] HISTOGRAM_AGGREGATIONS = {"count", "sum", "p50", "p90", "p99", "outlier"};
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+
+    private final Meter meter;
+    private final int outliers;
+    private final Map<Address, MemberMetrics> members = new HashMap<>();
+    private final Set<String> registered = new HashSet<>();
+    private Map<String, List<Group>> groups = Map.of();
+    private boolean dirty;
+    private volatile boolean active;
+
+    /**
+     * Creates an aggregator registering the aggregated metrics with the given meter.
+     *
+     * @param meter the meter of the exported metrics
+     * @param outliers the maximum number of members reported as outliers per series
+     */
+    public ClusterMetricsAggregator(Meter meter, int outliers) {
+        this.meter = meter;
+        this.outliers = outliers;
+
+        meter.gaugeBuilder(MEMBERS_METRIC_NAME)
+            .setDescription("Number of members whose metric snapshots are aggregated by this coordinator")
+            .setUnit("1")
+            .ofLongs()
+            .buildWithCallback(measurement -> {
+                if (!active) return;
+                synchronized (this) {
+                    measurement.record(members.size());
+                }
+            });
+    }
+
+    /**
+     * Starts aggregating, or retains only the members of the new view if already aggregating.
+     *
+     * @param view the members of the current view
+     */
+    public synchronized void activate(Collection<Address> view) {
+        active = true;
+        if (members.keySet().retainAll(view)) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Stops aggregating and discards the snapshots, e.g. after this member is no longer the coordinator.
+     */
+    public synchronized void deactivate() {
+        active = false;
+        members.clear();
+        groups = Map.of();
+        dirty = false;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Applies a snapshot of a member. Snapshots received while not aggregating and stale snapshots are ignored.
+     *
+     * @param member the member which sent the snapshot
+     * @param header the header of the snapshot
+     * @param buffer the buffer holding the encoded snapshot
+     * @param offset the offset of the snapshot in the buffer
+     * @param length the length of the snapshot
+     * @return false if the snapshot is a delta which cannot be applied, as a previous snapshot was missed, and a keyframe
+     *         has to be requested; true otherwise
+     * @throws IOException if the snapshot cannot be decoded
+     */
+    public synchronized boolean apply(Address member, ClusterMetricsHeader header, byte[] buffer, int offset, int length) throws IOException {
+        if (!active) return true;
+        MemberMetrics state = members.get(member);
+        DataInput in = new ByteArrayDataInputStream(buffer, offset, length);
+
+        if (header.getType() == ClusterMetricsHeader.KEYFRAME) {
+            if (state != null && header.getSeqno() <= state.seqno) return true;
+            int size = Bits.readIntCompressed(in);
+            Series[] series = new Series[size];
+            Sample[] samples = new Sample[size];
+            for (int i = 0; i < size; i++) {
+                series[i] = Series.readFrom(in);
+                samples[i] = Sample.readFrom(series[i], in);
+                register(series[i]);
+            }
+            members.put(member, new MemberMetrics(member.toString(), header.getSeqno(), series, samples));
+            dirty = true;
+            return true;
+        }
+
+        if (state == null) return false;
+        if (header.getSeqno() <= state.seqno) return true;
+        if (header.getSeqno() != state.seqno + 1) return false;
+        int changed = Bits.readIntCompressed(in);
+        for (int i = 0; i < changed; i++) {
+            int index = Bits.readIntCompressed(in);
+            if (index < 0 || index >= state.samples.length) {
+                throw new IOException("Invalid series index " + index + " in snapshot of " + member);
+            }
+            state.samples[index] = Sample.readDeltaFrom(state.samples[index], in);
+        }
+        state.seqno = header.getSeqno();
+        return true;
+    }
+
+    private void register(Series series) {
+        String name = series.name();
+        if (!registered.add(name)) return;
+        meter.gaugeBuilder(name)
+            .setDescription(series.description())
+            .setUnit(series.unit())
+            .buildWithCallback(measurement -> record(name, measurement));
+    }
+
+    private synchronized void record(String name, ObservableDoubleMeasurement measurement) {
+        if (!active) return;
+        if (dirty) {
+            groups = group(members.values());
+            dirty = false;
+        }
+        for (Group group : groups.getOrDefault(name, List.of())) {
+            if (group.histogram) {
+                recordHistogram(group, measurement);
+            } else {
+                recordNumeric(group, measurement);
+            }
+        }
+    }
+
+    private void recordNumeric(Group group, ObservableDoubleMeasurement measurement) {
+        double[] values = new double[group.entries.size()];
+        double sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = group.entries.get(i).sample().doubleValue();
+            sum += values[i];
+        }
+        Arrays.sort(values);
+        measurement.record(sum, group.attributes[0]);
+        measurement.record(values[0], group.attributes[1]);
+        measurement.record(values[values.length - 1], group.attributes[2]);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            measurement.record(values[(int) Math.ceil(PERCENTILES[i] * values.length) - 1], group.attributes[3 + i]);
+        }
+        recordOutliers(group, values[(int) Math.ceil(0.5 * values.length) - 1], measurement);
+    }
+
+    private void recordHistogram(Group group, ObservableDoubleMeasurement measurement) {
+        long[] counts = new long[group.boundaries.size() + 1];
+        double sum = 0;
+        for (Entry entry : group.entries) {
+            Sample.HistogramSample sample = (Sample.HistogramSample) entry.sample();
+            // Members with different bucket boundaries cannot be merged
+            if (sample.counts().length != counts.length || !entry.series().boundaries().equals(group.boundaries)) continue;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += sample.counts()[i];
+            }
+            sum += sample.sum();
+        }
+        long count = Arrays.stream(counts).sum();
+        measurement.record(count, group.attributes[0]);
+        measurement.record(sum, group.attributes[1]);
+        if (count == 0) return;
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            measurement.record(percentile(group.boundaries, counts, count, PERCENTILES[i]), group.attributes[2 + i]);
+        }
+        double[] means = group.entries.stream().mapToDouble(entry -> entry.sample().doubleValue()).sorted().toArray();
+        recordOutliers(group, means[(int) Math.ceil(0.5 * means.length) - 1], measurement);
+    }
+
+    private void recordOutliers(Group group, double median, ObservableDoubleMeasurement measurement) {
+        if (outliers <= 0 || group.entries.size() < 2) return;
+        Attributes outlier = group.attributes[group.attributes.length - 1];
+        group.entries.stream()
+            .filter(entry -> entry.sample().doubleValue() != median)
+            .sorted(Comparator.comparingDouble((Entry entry) -> Math.abs(entry.sample().doubleValue() - median)).reversed())
+            .limit(outliers)
+            .forEach(entry -> measurement.record(entry.sample().doubleValue(), outlier.toBuilder().put(Series.NODE, entry.member.name).build()));
+    }
+
+    /**
+     * Estimates a percentile of merged histogram buckets by linear interpolation within the bucket containing it.
+     */
+    static double percentile(List<Double> boundaries, long[] counts, long count, double percentile) {
+        double rank = percentile * count;
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0 || cumulative + counts[i] < rank) {
+                cumulative += counts[i];
+                continue;
+            }
+            // The overflow bucket has no upper bound, so report its lower bound
+            if (i == boundaries.size()) return boundaries.isEmpty() ? 0 : boundaries.get(i - 1);
+            double upper = boundaries.get(i);
+            double lower = (i == 0) ? Math.min(0, upper) : boundaries.get(i - 1);
+            return lower + (upper - lower) * (rank - cumulative) / counts[i];
+        }
+        return boundaries.isEmpty() ? 0 : boundaries.get(boundaries.size() - 1);
+    }
+
+    private static Map<String, List<Group>> group(Collection<MemberMetrics> members) {
+        Map<String, Map<Attributes, Group>> groups = new HashMap<>();
+        for (MemberMetrics member : members) {
+            for (int i = 0; i < member.series.length; i++) {
+                Series series = member.series[i];
+                groups.computeIfAbsent(series.name(), name -> new LinkedHashMap<>())
+                    .computeIfAbsent(series.attributes(), attributes -> new Group(series))
+                    .entries.add(new Entry(member, i));
+            }
+        }
+        Map<String, List<Group>> result = new HashMap<>();
+        groups.forEach((name, byAttributes) -> result.put(name, List.copyOf(byAttributes.values())));
+        return result;
+    }
+
+    /**
+     * Snapshot state of a member.
+     */
+    private static final class MemberMetrics {
+        final String name;
+        final Series[] series;
+        final Sample[] samples;
+        long seqno;
+
+        MemberMetrics(String name, long seqno, Series[] series, Sample[] samples) {
+            this.name = name;
+            this.seqno = seqno;
+            this.series = series;
+            this.samples = samples;
+        }
+    }
+
+    /**
+     * Series of a member, reading the current sample of the member.
+     */
+    private record Entry(MemberMetrics member, int index) {
+
+        Series series() {
+            return member.series[index];
+        }
+
+        Sample sample() {
+            return member.samples[index];
+        }
+    }
+
+    /**
+     * Series with the same name and attributes across members, with the attributes of the aggregated series.
+     */
+    private static final class Group {
+        final boolean histogram;
+        final List<Double> boundaries;
+        final Attributes[] attributes;
+        final List<Entry> entries = new ArrayList<>();
+
+        Group(Series series) {
+            this.histogram = series.type() == Sample.Type.HISTOGRAM;
+            this.boundaries = series.boundaries();
+            String[] aggregations = histogram ? HISTOGRAM_AGGREGATIONS : NUMERIC_AGGREGATIONS;
+            this.attributes = new Attributes[aggregations.length];
+            for (int i = 0; i < aggregations.length; i++) {
+                attributes[i] = series.attributes().toBuilder().put(AGGREGATION, aggregations[i]).build();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.jgroups.opentelemetry.impl.aggregation;
+
+import org.jgroups.Header;
+import org.jgroups.util.Bits;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Header of the messages exchanged between the members and the coordinator for cluster metric aggregation.
+ * Snapshot messages carry the encoded metric snapshot of the sender as payload.
+ *
+ * @author Radoslav Husar
+ */
+public class ClusterMetricsHeader extends Header {
+
+    /**
+     * Magic number of this header.
+     */
+    public static final short MAGIC_ID = 2100;
+
+    /**
+     * Full snapshot of the series and values of a member.
+     */
+    public static final byte KEYFRAME = 1;
+
+    /**
+     * Changes of the values of a member since its previous snapshot.
+     */
+    public static final byte DELTA = 2;
+
+    /**
+     * Request from the coordinator to a member to send a keyframe, e.g. after it missed a snapshot.
+     */
+    public static final byte RESEND = 3;
+
+    protected byte type;
+    protected long seqno;
+
+    public ClusterMetricsHeader() {
+    }
+
+    public ClusterMetricsHeader(byte type, long seqno) {
+        this.type = type;
+        this.seqno = seqno;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    /**
+     * Returns the sequence number of the snapshot; a delta applies to the snapshot with the preceding sequence number.
+     */
+    public long getSeqno() {
+        return seqno;
+    }
+
+    @Override
+    public short getMagicId() {
+        return MAGIC_ID;
+    }
+
+    @Override
+    public Supplier<? extends Header> create() {
+        return ClusterMetricsHeader::new;
+    }
+
+    @Override
+    public int serializedSize() {
+        return Byte.BYTES + Bits.size(seqno);
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(type);
+        Bits.writeLongCompressed(seqno, out);
+    }
+
+    @Override
+    public void readFrom(DataInput in) throws IOException {
+        type = in.readByte();
+        seqno = Bits.readLongCompressed(in);
+    }
+
+    @Override
+    public String toString() {
+        return switch (type) {
+            case KEYFRAME -> "KEYFRAME";
+            case DELTA -> "DELTA";
+            case RESEND -> "RESEND";
+            default -> "n/a";
+        } + ", seqno=" + seqno;
+    }
+}
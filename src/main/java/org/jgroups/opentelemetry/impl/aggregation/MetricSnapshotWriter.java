@@ -0,0 +1,156 @@
+package org.jgroups.opentelemetry.impl.aggregation;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.metrics.data.DoublePointData;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.data.MetricDataType;
+import org.jgroups.util.Bits;
+import org.jgroups.util.ByteArray;
+import org.jgroups.util.ByteArrayDataOutputStream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the metrics collected on a member into compact snapshots sent to the coordinator. A keyframe carries
+ * all series with their values; the following deltas carry only the indices and changes of the values which changed
+ * since the previous snapshot. A keyframe is sent instead of a delta when the set of series changed, when requested
+ * (e.g. after the coordinator changed or missed a snapshot), and periodically to bound the effect of lost snapshots.
+ *
+ * <p>Only accessed by the thread sending the snapshots, apart from {@link #requestKeyframe()}.</p>
+ *
+ * @author Radoslav Husar
+ */
+public class MetricSnapshotWriter {
+
+    /**
+     * Maximum number of deltas sent between two keyframes.
+     */
+    static final int KEYFRAME_INTERVAL = 10;
+
+    private Map<Series, Integer> index = Map.of();
+    private Sample[] previous = new Sample[0];
+    private long seqno;
+    private int deltas;
+    private volatile boolean keyframeRequired = true;
+
+    /**
+     * Snapshot to send to the coordinator.
+     *
+     * @param header the header identifying the type and sequence number of the snapshot
+     * @param payload the encoded snapshot
+     */
+    public record Snapshot(ClusterMetricsHeader header, ByteArray payload) {
+    }
+
+    /**
+     * Requests the next snapshot to be a keyframe.
+     */
+    public void requestKeyframe() {
+        keyframeRequired = true;
+    }
+
+    /**
+     * Encodes the collected metrics as the next snapshot.
+     *
+     * @param metrics the metrics collected on this member
+     * @return the snapshot
+     */
+    public Snapshot write(Collection<MetricData> metrics) {
+        List<Series> series = new ArrayList<>();
+        List<Sample> samples = new ArrayList<>();
+        for (MetricData metric : metrics) {
+            read(metric, series, samples);
+        }
+
+        ByteArrayDataOutputStream out = new ByteArrayDataOutputStream(64 + series.size() * 4);
+        try {
+            Sample[] current = keyframeRequired || ++deltas >= KEYFRAME_INTERVAL ? null : match(series, samples);
+            if (current == null) {
+                keyframeRequired = false;
+                deltas = 0;
+                index = new HashMap<>();
+                Bits.writeIntCompressed(series.size(), out);
+                for (int i = 0; i < series.size(); i++) {
+                    index.put(series.get(i), i);
+                    series.get(i).writeTo(out);
+                    samples.get(i).writeTo(out);
+                }
+                previous = samples.toArray(new Sample[0]);
+                return new Snapshot(new ClusterMetricsHeader(ClusterMetricsHeader.KEYFRAME, ++seqno), out.getBuffer());
+            }
+
+            List<Integer> changed = new ArrayList<>();
+            for (int i = 0; i < current.length; i++) {
+                if (!current[i].equals(previous[i])) {
+                    changed.add(i);
+                }
+            }
+            Bits.writeIntCompressed(changed.size(), out);
+            for (int i : changed) {
+                Bits.writeIntCompressed(i, out);
+                current[i].writeDeltaTo(previous[i], out);
+            }
+            previous = current;
+            return new Snapshot(new ClusterMetricsHeader(ClusterMetricsHeader.DELTA, ++seqno), out.getBuffer());
+        } catch (IOException e) {
+            // Writing to a byte array does not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Orders the samples by the index of their series in the last keyframe, or returns null if the series differ.
+     */
+    private Sample[] match(List<Series> series, List<Sample> samples) {
+        if (series.size() != previous.length) return null;
+        Sample[] result = new Sample[previous.length];
+        for (int i = 0; i < series.size(); i++) {
+            Integer position = index.get(series.get(i));
+            if (position == null || result[position] != null) return null;
+            result[position] = samples.get(i);
+        }
+        return result;
+    }
+
+    private static void read(MetricData metric, List<Series> series, List<Sample> samples) {
+        switch (metric.getType()) {
+            case LONG_GAUGE, LONG_SUM -> {
+                Collection<LongPointData> points = metric.getType() == MetricDataType.LONG_GAUGE
+                        ? metric.getLongGaugeData().getPoints() : metric.getLongSumData().getPoints();
+                for (LongPointData point : points) {
+                    series.add(new Series(metric.getName(), metric.getDescription(), metric.getUnit(), Sample.Type.LONG, attributes(point.getAttributes()), List.of()));
+                    samples.add(new Sample.LongSample(point.getValue()));
+                }
+            }
+            case DOUBLE_GAUGE, DOUBLE_SUM -> {
+                Collection<DoublePointData> points = metric.getType() == MetricDataType.DOUBLE_GAUGE
+                        ? metric.getDoubleGaugeData().getPoints() : metric.getDoubleSumData().getPoints();
+                for (DoublePointData point : points) {
+                    series.add(new Series(metric.getName(), metric.getDescription(), metric.getUnit(), Sample.Type.DOUBLE, attributes(point.getAttributes()), List.of()));
+                    samples.add(new Sample.DoubleSample(point.getValue()));
+                }
+            }
+            case HISTOGRAM -> {
+                for (HistogramPointData point : metric.getHistogramData().getPoints()) {
+                    long[] counts = point.getCounts().stream().mapToLong(Long::longValue).toArray();
+                    series.add(new Series(metric.getName(), metric.getDescription(), metric.getUnit(), Sample.Type.HISTOGRAM, attributes(point.getAttributes()), List.copyOf(point.getBoundaries())));
+                    samples.add(new Sample.HistogramSample(point.getSum(), counts));
+                }
+            }
+            // Exponential histograms and summaries are not recorded by the instrumentation
+            default -> {
+            }
+        }
+    }
+
+    private static Attributes attributes(Attributes attributes) {
+        return attributes.get(Series.NODE) == null ? attributes : attributes.toBuilder().remove(Series.NODE).build();
+    }
+}
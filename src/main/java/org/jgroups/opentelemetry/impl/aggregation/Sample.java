@@ -0,0 +1,144 @@
+package org.jgroups.opentelemetry.impl.aggregation;
+
+import org.jgroups.util.Bits;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Value of a series of a member's metric snapshot. Keyframes carry the values, deltas carry the difference to the
+ * previous value of long values and histogram bucket counts, which are small and compress well, and the new value
+ * of double values.
+ *
+ * @author Radoslav Husar
+ */
+sealed interface Sample {
+
+    enum Type {
+        LONG, DOUBLE, HISTOGRAM
+    }
+
+    /**
+     * Returns the value of a long or double series, or the mean of a histogram series.
+     */
+    double doubleValue();
+
+    void writeTo(DataOutput out) throws IOException;
+
+    void writeDeltaTo(Sample previous, DataOutput out) throws IOException;
+
+    static Sample readFrom(Series series, DataInput in) throws IOException {
+        return switch (series.type()) {
+            case LONG -> new LongSample(Bits.readLongCompressed(in));
+            case DOUBLE -> new DoubleSample(Bits.readDouble(in));
+            case HISTOGRAM -> {
+                double sum = Bits.readDouble(in);
+                long[] counts = new long[series.boundaries().size() + 1];
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] = Bits.readLongCompressed(in);
+                }
+                yield new HistogramSample(sum, counts);
+            }
+        };
+    }
+
+    static Sample readDeltaFrom(Sample previous, DataInput in) throws IOException {
+        if (previous instanceof LongSample sample) {
+            return new LongSample(sample.value + Bits.readLongCompressed(in));
+        }
+        if (previous instanceof HistogramSample sample) {
+            double sum = Bits.readDouble(in);
+            long[] counts = new long[sample.counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = sample.counts[i] + Bits.readLongCompressed(in);
+            }
+            return new HistogramSample(sum, counts);
+        }
+        return new DoubleSample(Bits.readDouble(in));
+    }
+
+    record LongSample(long value) implements Sample {
+
+        @Override
+        public double doubleValue() {
+            return value;
+        }
+
+        @Override
+        public void writeTo(DataOutput out) throws IOException {
+            Bits.writeLongCompressed(value, out);
+        }
+
+        @Override
+        public void writeDeltaTo(Sample previous, DataOutput out) throws IOException {
+            Bits.writeLongCompressed(value - ((LongSample) previous).value, out);
+        }
+    }
+
+    record DoubleSample(double value) implements Sample {
+
+        @Override
+        public double doubleValue() {
+            return value;
+        }
+
+        @Override
+        public void writeTo(DataOutput out) throws IOException {
+            Bits.writeDouble(value, out);
+        }
+
+        @Override
+        public void writeDeltaTo(Sample previous, DataOutput out) throws IOException {
+            writeTo(out);
+        }
+    }
+
+    /**
+     * Cumulative histogram with the counts of the buckets delimited by the boundaries of its series.
+     */
+    record HistogramSample(double sum, long[] counts) implements Sample {
+
+        long count() {
+            long count = 0;
+            for (long bucket : counts) {
+                count += bucket;
+            }
+            return count;
+        }
+
+        @Override
+        public double doubleValue() {
+            long count = count();
+            return count == 0 ? 0 : sum / count;
+        }
+
+        @Override
+        public void writeTo(DataOutput out) throws IOException {
+            Bits.writeDouble(sum, out);
+            for (long count : counts) {
+                Bits.writeLongCompressed(count, out);
+            }
+        }
+
+        @Override
+        public void writeDeltaTo(Sample previous, DataOutput out) throws IOException {
+            long[] previousCounts = ((HistogramSample) previous).counts;
+            Bits.writeDouble(sum, out);
+            for (int i = 0; i < counts.length; i++) {
+                Bits.writeLongCompressed(counts[i] - previousCounts[i], out);
+            }
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof HistogramSample sample && Double.compare(sum, sample.sum) == 0 && Arrays.equals(counts, sample.counts);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Double.hashCode(sum) + Arrays.hashCode(counts);
+        }
+    }
+}
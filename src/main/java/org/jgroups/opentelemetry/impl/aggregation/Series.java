@@ -0,0 +1,53 @@
+package org.jgroups.opentelemetry.impl.aggregation;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import org.jgroups.opentelemetry.impl.util.AttributesMarshaller;
+import org.jgroups.util.Bits;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Identity of a series of a member's metric snapshot, sent only in keyframes; deltas refer to series by their index
+ * in the keyframe. The {@code node} attribute is not part of the series, as the sender identifies the member.
+ *
+ * @param name the metric name
+ * @param description the metric description
+ * @param unit the metric unit
+ * @param type the type of the values of the series
+ * @param attributes the attributes of the series
+ * @param boundaries the bucket boundaries of a histogram series, empty otherwise
+ * @author Radoslav Husar
+ */
+record Series(String name, String description, String unit, Sample.Type type, Attributes attributes, List<Double> boundaries) {
+
+    static final AttributeKey<String> NODE = AttributeKey.stringKey("node");
+
+    void writeTo(DataOutput out) throws IOException {
+        Bits.writeString(name, out);
+        Bits.writeString(description, out);
+        Bits.writeString(unit, out);
+        out.writeByte(type.ordinal());
+        AttributesMarshaller.writeTo(attributes, out);
+        Bits.writeIntCompressed(boundaries.size(), out);
+        for (double boundary : boundaries) {
+            Bits.writeDouble(boundary, out);
+        }
+    }
+
+    static Series readFrom(DataInput in) throws IOException {
+        String name = Bits.readString(in);
+        String description = Bits.readString(in);
+        String unit = Bits.readString(in);
+        Sample.Type type = Sample.Type.values()[in.readByte()];
+        Attributes attributes = AttributesMarshaller.readFrom(in);
+        Double[] boundaries = new Double[Bits.readIntCompressed(in)];
+        for (int i = 0; i < boundaries.length; i++) {
+            boundaries[i] = Bits.readDouble(in);
+        }
+        return new Series(name, description, unit, type, attributes, List.of(boundaries));
+    }
+}
@@ -0,0 +1,56 @@
+package org.jgroups.opentelemetry.impl.aggregation;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.CollectionRegistration;
+import io.opentelemetry.sdk.metrics.export.MetricReader;
+
+import java.util.Collection;
+
+/**
+ * Pull-based {@link MetricReader} collecting the metrics of a member when its snapshot for the coordinator is taken.
+ * Values are cumulative, so that the sums of counters and histograms across members are cumulative as well.
+ *
+ * @author Radoslav Husar
+ */
+public class SnapshotMetricReader implements MetricReader {
+
+    private volatile CollectionRegistration registration = CollectionRegistration.noop();
+
+    /**
+     * Collects the metrics of the meter provider this reader is registered with.
+     *
+     * @return the collected metrics
+     */
+    public Collection<MetricData> collect() {
+        return registration.collectAllMetrics();
+    }
+
+    @Override
+    public void register(CollectionRegistration registration) {
+        this.registration = registration;
+    }
+
+    @Override
+    public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+        return AggregationTemporality.CUMULATIVE;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        registration = CollectionRegistration.noop();
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotMetricReader";
+    }
+}
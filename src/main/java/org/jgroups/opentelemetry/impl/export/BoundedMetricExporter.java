@@ -0,0 +1,260 @@
+package org.jgroups.opentelemetry.impl.export;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.common.export.MemoryMode;
+import io.opentelemetry.sdk.metrics.Aggregation;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.resources.Resource;
+import org.jgroups.logging.Log;
+import org.jgroups.logging.LogFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link MetricExporter} decorator which decouples the collection from a slow or unavailable endpoint. Collected
+ * batches are put into a bounded queue and the call returns immediately, while a dedicated thread passes the batches
+ * to the delegate exporter one at a time, waiting at most the export timeout for each. If the queue is full, the
+ * {@link OverflowPolicy} decides which data is discarded, so that the memory held by pending exports stays bounded
+ * however long the endpoint degrades.
+ *
+ * <p>Since the batches outlive the export call, this exporter always requests immutable metric data from the reader.</p>
+ *
+ * @author Radoslav Husar
+ */
+public class BoundedMetricExporter implements MetricExporter {
+
+    private static final Log log = LogFactory.getLog(BoundedMetricExporter.class);
+
+    /**
+     * What to do with a batch collected while the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Discards the oldest queued batch to make room for the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * Discards the new batch, keeping the queued ones.
+         */
+        DROP_NEWEST,
+        /**
+         * Merges the new batch into the newest queued batch, replacing the metrics contained in both by their new values.
+         * No values are lost with cumulative temporality, while values of delta metrics contained in both batches are.
+         */
+        COALESCE,
+    }
+
+    private final MetricExporter delegate;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final long timeoutMillis;
+    private final Deque<Collection<MetricData>> queue = new ArrayDeque<>();
+    private final List<CompletableResultCode> pendingFlushes = new ArrayList<>();
+    private final CompletableResultCode shutdownResult = new CompletableResultCode();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private boolean exporting;
+    private boolean shutdown;
+
+    /**
+     * Creates an exporter queuing the batches for the given exporter and starts its export thread.
+     *
+     * @param delegate the exporter sending the batches to the endpoint
+     * @param capacity the maximum number of queued batches, excluding the batch being exported
+     * @param policy what to do with a batch collected while the queue is full
+     * @param timeout the maximum time to wait for the delegate to export a batch
+     */
+    public BoundedMetricExporter(MetricExporter delegate, int capacity, OverflowPolicy policy, Duration timeout) {
+        if (capacity < 1) throw new IllegalArgumentException("Export queue capacity must be positive: " + capacity);
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.timeoutMillis = timeout.toMillis();
+        Thread worker = new Thread(this::run, "BoundedMetricExporter");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<MetricData> metrics) {
+        synchronized (queue) {
+            if (shutdown) return CompletableResultCode.ofFailure();
+            if (queue.size() < capacity) {
+                queue.addLast(metrics);
+                queue.notifyAll();
+                return CompletableResultCode.ofSuccess();
+            }
+            switch (policy) {
+                case DROP_OLDEST -> {
+                    queue.pollFirst();
+                    queue.addLast(metrics);
+                    dropped.increment();
+                }
+                case DROP_NEWEST -> dropped.increment();
+                case COALESCE -> {
+                    queue.addLast(coalesce(queue.pollLast(), metrics));
+                    coalesced.increment();
+                }
+            }
+        }
+        // The overflow is reported by the counters, failing the export would only make the reader log it on every collection
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        synchronized (queue) {
+            if (!queue.isEmpty() || exporting) {
+                CompletableResultCode result = new CompletableResultCode();
+                pendingFlushes.add(result);
+                return result;
+            }
+        }
+        return delegate.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        synchronized (queue) {
+            shutdown = true;
+            queue.notifyAll();
+        }
+        return shutdownResult;
+    }
+
+    @Override
+    public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+        return delegate.getAggregationTemporality(instrumentType);
+    }
+
+    @Override
+    public Aggregation getDefaultAggregation(InstrumentType instrumentType) {
+        return delegate.getDefaultAggregation(instrumentType);
+    }
+
+    @Override
+    public MemoryMode getMemoryMode() {
+        return MemoryMode.IMMUTABLE_DATA;
+    }
+
+    /**
+     * Returns the number of batches discarded because the queue was full.
+     *
+     * @return the number of dropped batches
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of batches merged into a queued batch because the queue was full.
+     *
+     * @return the number of coalesced batches
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Returns the number of batches waiting to be exported, excluding the batch being exported.
+     *
+     * @return the number of queued batches
+     */
+    public int getQueueSize() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Collection<MetricData> metrics;
+            List<CompletableResultCode> flushes = List.of();
+            synchronized (queue) {
+                exporting = false;
+                if (queue.isEmpty() && !pendingFlushes.isEmpty()) {
+                    flushes = new ArrayList<>(pendingFlushes);
+                    pendingFlushes.clear();
+                }
+                while (queue.isEmpty() && !shutdown && flushes.isEmpty()) {
+                    try {
+                        queue.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        shutdown = true;
+                    }
+                }
+                metrics = flushes.isEmpty() ? queue.pollFirst() : null;
+                exporting = (metrics != null);
+            }
+            if (!flushes.isEmpty()) {
+                CompletableResultCode result = delegate.flush();
+                flushes.forEach(flush -> result.whenComplete(() -> complete(flush, result)));
+                continue;
+            }
+            if (metrics == null) break;
+            try {
+                CompletableResultCode result = delegate.export(metrics).join(timeoutMillis, TimeUnit.MILLISECONDS);
+                if (!result.isSuccess()) {
+                    log.debug("failed to export %d metrics", metrics.size());
+                }
+            } catch (RuntimeException e) {
+                log.warn("failed to export metrics", e);
+            }
+        }
+        synchronized (queue) {
+            // Flushes requested during the shutdown are completed by the shutdown of the delegate
+            pendingFlushes.forEach(CompletableResultCode::succeed);
+            pendingFlushes.clear();
+        }
+        CompletableResultCode result = delegate.shutdown();
+        result.whenComplete(() -> complete(shutdownResult, result));
+    }
+
+    private static void complete(CompletableResultCode target, CompletableResultCode result) {
+        if (result.isSuccess()) {
+            target.succeed();
+        } else {
+            target.fail();
+        }
+    }
+
+    private static Collection<MetricData> coalesce(Collection<MetricData> queued, Collection<MetricData> metrics) {
+        Map<MetricKey, MetricData> merged = new LinkedHashMap<>();
+        for (MetricData metric : queued) {
+            merged.put(MetricKey.of(metric), metric);
+        }
+        for (MetricData metric : metrics) {
+            merged.put(MetricKey.of(metric), metric);
+        }
+        return merged.values();
+    }
+
+    /**
+     * Identity of a metric within a batch.
+     */
+    private record MetricKey(Resource resource, InstrumentationScopeInfo scope, String name) {
+
+        static MetricKey of(MetricData metric) {
+            return new MetricKey(metric.getResource(), metric.getInstrumentationScopeInfo(), metric.getName());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedMetricExporter{delegate=" + delegate + ", capacity=" + capacity + ", policy=" + policy + "}";
+    }
+}
@@ -0,0 +1,315 @@
+package org.jgroups.opentelemetry.impl.export;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfoBuilder;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.Data;
+import io.opentelemetry.sdk.metrics.data.DoubleExemplarData;
+import io.opentelemetry.sdk.metrics.data.DoublePointData;
+import io.opentelemetry.sdk.metrics.data.GaugeData;
+import io.opentelemetry.sdk.metrics.data.HistogramData;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.LongExemplarData;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.data.MetricDataType;
+import io.opentelemetry.sdk.metrics.data.PointData;
+import io.opentelemetry.sdk.metrics.data.SumData;
+import io.opentelemetry.sdk.resources.Resource;
+import org.jgroups.opentelemetry.impl.util.AttributesMarshaller;
+import org.jgroups.util.Bits;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Binary encoding of batches of collected metrics, so that they can be stored in the {@link MetricSpool} and exported
+ * later. Gauges, sums and explicit bucket histograms are encoded, which are the types reported by the instrumentation;
+ * summaries, exponential histograms and exemplars are omitted. Decoded metrics are immutable.
+ *
+ * @author Radoslav Husar
+ */
+public final class MetricDataMarshaller {
+
+    private static final MetricDataType[] TYPES = MetricDataType.values();
+    private static final AggregationTemporality[] TEMPORALITIES = AggregationTemporality.values();
+
+    private MetricDataMarshaller() {
+    }
+
+    /**
+     * Writes the given batch of metrics.
+     *
+     * @param metrics the metrics to write
+     * @param out the output to write to
+     * @throws IOException if writing fails
+     */
+    public static void writeTo(Collection<MetricData> metrics, DataOutput out) throws IOException {
+        List<MetricData> supported = metrics.stream().filter(metric -> isSupported(metric.getType())).toList();
+        Bits.writeIntCompressed(supported.size(), out);
+        for (MetricData metric : supported) {
+            writeResource(metric.getResource(), out);
+            writeScope(metric.getInstrumentationScopeInfo(), out);
+            Bits.writeString(metric.getName(), out);
+            Bits.writeString(metric.getDescription(), out);
+            Bits.writeString(metric.getUnit(), out);
+            out.writeByte(metric.getType().ordinal());
+            switch (metric.getType()) {
+                case LONG_GAUGE -> writeLongPoints(metric.getLongGaugeData().getPoints(), out);
+                case DOUBLE_GAUGE -> writeDoublePoints(metric.getDoubleGaugeData().getPoints(), out);
+                case LONG_SUM -> {
+                    SumData<LongPointData> data = metric.getLongSumData();
+                    out.writeBoolean(data.isMonotonic());
+                    out.writeByte(data.getAggregationTemporality().ordinal());
+                    writeLongPoints(data.getPoints(), out);
+                }
+                case DOUBLE_SUM -> {
+                    SumData<DoublePointData> data = metric.getDoubleSumData();
+                    out.writeBoolean(data.isMonotonic());
+                    out.writeByte(data.getAggregationTemporality().ordinal());
+                    writeDoublePoints(data.getPoints(), out);
+                }
+                default -> {
+                    HistogramData data = metric.getHistogramData();
+                    out.writeByte(data.getAggregationTemporality().ordinal());
+                    writeHistogramPoints(data.getPoints(), out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a batch of metrics written by {@link #writeTo(Collection, DataOutput)}.
+     *
+     * @param in the input to read from
+     * @return the read metrics
+     * @throws IOException if reading fails
+     */
+    public static List<MetricData> readFrom(DataInput in) throws IOException {
+        int size = Bits.readIntCompressed(in);
+        List<MetricData> metrics = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Resource resource = readResource(in);
+            InstrumentationScopeInfo scope = readScope(in);
+            String name = Bits.readString(in);
+            String description = Bits.readString(in);
+            String unit = Bits.readString(in);
+            MetricDataType type = TYPES[in.readByte()];
+            Data<?> data = switch (type) {
+                case LONG_GAUGE -> new Gauge<>(readLongPoints(in));
+                case DOUBLE_GAUGE -> new Gauge<>(readDoublePoints(in));
+                case LONG_SUM -> {
+                    boolean monotonic = in.readBoolean();
+                    yield new Sum<>(monotonic, TEMPORALITIES[in.readByte()], readLongPoints(in));
+                }
+                case DOUBLE_SUM -> {
+                    boolean monotonic = in.readBoolean();
+                    yield new Sum<>(monotonic, TEMPORALITIES[in.readByte()], readDoublePoints(in));
+                }
+                case HISTOGRAM -> new Histogram(TEMPORALITIES[in.readByte()], readHistogramPoints(in));
+                default -> throw new IOException("Unsupported metric type " + type);
+            };
+            metrics.add(new Metric(resource, scope, name, description, unit, type, data));
+        }
+        return metrics;
+    }
+
+    private static boolean isSupported(MetricDataType type) {
+        return switch (type) {
+            case LONG_GAUGE, DOUBLE_GAUGE, LONG_SUM, DOUBLE_SUM, HISTOGRAM -> true;
+            default -> false;
+        };
+    }
+
+    private static void writeResource(Resource resource, DataOutput out) throws IOException {
+        Bits.writeString(resource.getSchemaUrl(), out);
+        AttributesMarshaller.writeTo(resource.getAttributes(), out);
+    }
+
+    private static Resource readResource(DataInput in) throws IOException {
+        String schemaUrl = Bits.readString(in);
+        return Resource.create(AttributesMarshaller.readFrom(in), schemaUrl);
+    }
+
+    private static void writeScope(InstrumentationScopeInfo scope, DataOutput out) throws IOException {
+        Bits.writeString(scope.getName(), out);
+        Bits.writeString(scope.getVersion(), out);
+        Bits.writeString(scope.getSchemaUrl(), out);
+        AttributesMarshaller.writeTo(scope.getAttributes(), out);
+    }
+
+    private static InstrumentationScopeInfo readScope(DataInput in) throws IOException {
+        InstrumentationScopeInfoBuilder builder = InstrumentationScopeInfo.builder(Bits.readString(in));
+        String version = Bits.readString(in);
+        if (version != null) builder.setVersion(version);
+        String schemaUrl = Bits.readString(in);
+        if (schemaUrl != null) builder.setSchemaUrl(schemaUrl);
+        return builder.setAttributes(AttributesMarshaller.readFrom(in)).build();
+    }
+
+    private static void writePoint(PointData point, DataOutput out) throws IOException {
+        Bits.writeLongCompressed(point.getStartEpochNanos(), out);
+        Bits.writeLongCompressed(point.getEpochNanos(), out);
+        AttributesMarshaller.writeTo(point.getAttributes(), out);
+    }
+
+    private static void writeLongPoints(Collection<LongPointData> points, DataOutput out) throws IOException {
+        Bits.writeIntCompressed(points.size(), out);
+        for (LongPointData point : points) {
+            writePoint(point, out);
+            Bits.writeLongCompressed(point.getValue(), out);
+        }
+    }
+
+    private static List<LongPointData> readLongPoints(DataInput in) throws IOException {
+        int size = Bits.readIntCompressed(in);
+        List<LongPointData> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            points.add(new LongPoint(Bits.readLongCompressed(in), Bits.readLongCompressed(in), AttributesMarshaller.readFrom(in), Bits.readLongCompressed(in)));
+        }
+        return points;
+    }
+
+    private static void writeDoublePoints(Collection<DoublePointData> points, DataOutput out) throws IOException {
+        Bits.writeIntCompressed(points.size(), out);
+        for (DoublePointData point : points) {
+            writePoint(point, out);
+            Bits.writeDouble(point.getValue(), out);
+        }
+    }
+
+    private static List<DoublePointData> readDoublePoints(DataInput in) throws IOException {
+        int size = Bits.readIntCompressed(in);
+        List<DoublePointData> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            points.add(new DoublePoint(Bits.readLongCompressed(in), Bits.readLongCompressed(in), AttributesMarshaller.readFrom(in), Bits.readDouble(in)));
+        }
+        return points;
+    }
+
+    private static void writeHistogramPoints(Collection<HistogramPointData> points, DataOutput out) throws IOException {
+        Bits.writeIntCompressed(points.size(), out);
+        for (HistogramPointData point : points) {
+            writePoint(point, out);
+            Bits.writeDouble(point.getSum(), out);
+            Bits.writeLongCompressed(point.getCount(), out);
+            out.writeBoolean(point.hasMin());
+            if (point.hasMin()) Bits.writeDouble(point.getMin(), out);
+            out.writeBoolean(point.hasMax());
+            if (point.hasMax()) Bits.writeDouble(point.getMax(), out);
+            Bits.writeIntCompressed(point.getBoundaries().size(), out);
+            for (double boundary : point.getBoundaries()) {
+                Bits.writeDouble(boundary, out);
+            }
+            // There is one more bucket than boundaries
+            for (long count : point.getCounts()) {
+                Bits.writeLongCompressed(count, out);
+            }
+        }
+    }
+
+    private static List<HistogramPointData> readHistogramPoints(DataInput in) throws IOException {
+        int size = Bits.readIntCompressed(in);
+        List<HistogramPointData> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long startEpochNanos = Bits.readLongCompressed(in);
+            long epochNanos = Bits.readLongCompressed(in);
+            Attributes attributes = AttributesMarshaller.readFrom(in);
+            double sum = Bits.readDouble(in);
+            long count = Bits.readLongCompressed(in);
+            boolean hasMin = in.readBoolean();
+            double min = hasMin ? Bits.readDouble(in) : Double.NaN;
+            boolean hasMax = in.readBoolean();
+            double max = hasMax ? Bits.readDouble(in) : Double.NaN;
+            Double[] boundaries = new Double[Bits.readIntCompressed(in)];
+            for (int j = 0; j < boundaries.length; j++) {
+                boundaries[j] = Bits.readDouble(in);
+            }
+            Long[] counts = new Long[boundaries.length + 1];
+            for (int j = 0; j < counts.length; j++) {
+                counts[j] = Bits.readLongCompressed(in);
+            }
+            points.add(new HistogramPoint(startEpochNanos, epochNanos, attributes, sum, count, hasMin, min, hasMax, max, List.of(boundaries), List.of(counts)));
+        }
+        return points;
+    }
+
+    private record Metric(Resource resource, InstrumentationScopeInfo scope, String name, String description, String unit,
+                          MetricDataType type, Data<?> data) implements MetricData {
+
+        @Override
+        public Resource getResource() {
+            return resource;
+        }
+
+        @Override
+        public InstrumentationScopeInfo getInstrumentationScopeInfo() {
+            return scope;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public String getUnit() {
+            return unit;
+        }
+
+        @Override
+        public MetricDataType getType() {
+            return type;
+        }
+
+        @Override
+        public Data<?> getData() {
+            return data;
+        }
+    }
+
+    private record Gauge<T extends PointData>(Collection<T> getPoints) implements GaugeData<T> {
+    }
+
+    private record Sum<T extends PointData>(boolean isMonotonic, AggregationTemporality getAggregationTemporality, Collection<T> getPoints) implements SumData<T> {
+    }
+
+    private record Histogram(AggregationTemporality getAggregationTemporality, Collection<HistogramPointData> getPoints) implements HistogramData {
+    }
+
+    private record LongPoint(long getStartEpochNanos, long getEpochNanos, Attributes getAttributes, long getValue) implements LongPointData {
+
+        @Override
+        public List<LongExemplarData> getExemplars() {
+            return List.of();
+        }
+    }
+
+    private record DoublePoint(long getStartEpochNanos, long getEpochNanos, Attributes getAttributes, double getValue) implements DoublePointData {
+
+        @Override
+        public List<DoubleExemplarData> getExemplars() {
+            return List.of();
+        }
+    }
+
+    private record HistogramPoint(long getStartEpochNanos, long getEpochNanos, Attributes getAttributes, double getSum, long getCount,
+                                  boolean hasMin, double getMin, boolean hasMax, double getMax,
+                                  List<Double> getBoundaries, List<Long> getCounts) implements HistogramPointData {
+
+        @Override
+        public List<DoubleExemplarData> getExemplars() {
+            return List.of();
+        }
+    }
+}
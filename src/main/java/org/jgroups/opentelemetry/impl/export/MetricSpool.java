@@ -0,0 +1,253 @@
+package org.jgroups.opentelemetry.impl.export;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Fixed-size, memory-mapped ring file of records, appended at the tail and removed from the head in order.
+ * If a record does not fit, the oldest records are discarded to make room, so the file never grows.
+ *
+ * <p>The file starts with a header holding the position and the sequence number of the head. Each record is framed
+ * by its length, a CRC32C checksum and a sequence number, and is aligned to 8 bytes; a record which does not fit
+ * before the end of the file is preceded by a wrap marker and written at the start of the data area. The tail is not
+ * stored: when the file is opened, the records are scanned from the head for as long as their frames are intact and
+ * their sequence numbers consecutive, starting with the sequence number of the head. Since sequence numbers keep
+ * increasing, a record torn by a crash, and any stale record of an earlier lap behind it, is discarded.</p>
+ *
+ * <p>Every append and removal forces the written pages of the record and the header to the storage device before
+ * returning, so it costs a synchronous write of a few pages; pages of the mapping which were not written are not forced.</p>
+ *
+ * <p>The spool is not thread-safe; the file is locked against use by other spools, also of other processes.</p>
+ *
+ * @author Radoslav Husar
+ */
+public class MetricSpool implements AutoCloseable {
+
+    private static final int MAGIC = 0x4A4D5331; // JMS1
+    private static final int HEADER_SIZE = 24; // magic, reserved, head, head seqno
+    private static final int FRAME_SIZE = 16; // length, checksum, seqno
+    private static final int WRAP = -1;
+    private static final int ALIGNMENT = 8;
+
+    private final FileChannel channel;
+    private final FileLock lock;
+    private final MappedByteBuffer buffer;
+    private final long capacity;
+    // Logical positions increasing monotonically; the physical position is the logical position modulo the capacity
+    private long head;
+    private long tail;
+    private long headSeqno;
+    private int count;
+    private long dropped;
+
+    /**
+     * Opens the spool file, creating it with the given size, and recovers its records.
+     *
+     * @param path the spool file
+     * @param size the size of the file in bytes; an existing file of a different size is reset
+     * @return the opened spool
+     * @throws IOException if the file cannot be mapped or is used by another spool
+     */
+    public static MetricSpool open(Path path, int size) throws IOException {
+        if (size < HEADER_SIZE + 2 * FRAME_SIZE) throw new IllegalArgumentException("Spool size too small: " + size);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) throw new IOException("Spool file " + path + " is in use");
+            boolean reset = channel.size() != size;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new MetricSpool(channel, lock, buffer, reset || buffer.getInt(0) != MAGIC);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private MetricSpool(FileChannel channel, FileLock lock, MappedByteBuffer buffer, boolean reset) {
+        this.channel = channel;
+        this.lock = lock;
+        this.buffer = buffer;
+        this.capacity = (buffer.capacity() - HEADER_SIZE) & -ALIGNMENT;
+        if (reset) {
+            buffer.putInt(4, 0);
+            buffer.putLong(8, 0);
+            buffer.putLong(16, 0);
+            buffer.putInt(0, MAGIC);
+            buffer.force();
+        }
+        recover();
+    }
+
+    private void recover() {
+        long position = buffer.getLong(8);
+        head = (position >= 0 && position < capacity && position % ALIGNMENT == 0) ? position : 0;
+        tail = head;
+        headSeqno = Math.max(0, buffer.getLong(16));
+        long seqno = headSeqno - 1;
+        while (tail - head < capacity) {
+            int offset = offset(tail);
+            int length = buffer.getInt(offset);
+            if (length == WRAP) {
+                tail += capacity - (tail % capacity);
+                continue;
+            }
+            if (length <= 0 || FRAME_SIZE + length > capacity - (tail % capacity) || (tail - head) + frameSize(length) > capacity) break;
+            long recordSeqno = buffer.getLong(offset + 8);
+            if (recordSeqno != seqno + 1 || buffer.getInt(offset + 4) != checksum(offset, length)) break;
+            seqno = recordSeqno;
+            tail += frameSize(length);
+            count++;
+        }
+        if (count == 0) {
+            tail = head;
+        }
+    }
+
+    /**
+     * Appends a record at the tail, discarding the oldest records if it does not fit otherwise.
+     *
+     * @param record the record to append
+     * @return false if the record is larger than the spool and was not appended, true otherwise
+     */
+    public boolean append(byte[] record) {
+        long size = frameSize(record.length);
+        if (size > capacity) return false;
+        long remaining = capacity - (tail % capacity);
+        long wrap = (size > remaining) ? remaining : 0;
+        while (count > 0 && (tail + wrap + size) - head > capacity) {
+            removeFirst();
+            dropped++;
+        }
+        if (wrap > 0) {
+            buffer.putInt(offset(tail), WRAP);
+            buffer.force(offset(tail), Integer.BYTES);
+            tail += wrap;
+        }
+        if (count == 0) {
+            head = tail;
+        }
+        writeHead();
+        int offset = offset(tail);
+        buffer.put(offset + FRAME_SIZE, record);
+        long seqno = headSeqno + count;
+        buffer.putLong(offset + 8, seqno);
+        buffer.putInt(offset + 4, checksum(offset, record.length));
+        // The length is written last, so that a torn record is not taken for an intact one
+        buffer.putInt(offset, record.length);
+        // Only the written ranges are forced, instead of all dirty pages of the mapping
+        buffer.force(offset, FRAME_SIZE + record.length);
+        forceHead();
+        tail += size;
+        count++;
+        return true;
+    }
+
+    /**
+     * Returns the record at the head without removing it.
+     *
+     * @return the oldest record, or null if the spool is empty
+     */
+    public byte[] peek() {
+        if (count == 0) return null;
+        skipWrap();
+        int offset = offset(head);
+        byte[] record = new byte[buffer.getInt(offset)];
+        buffer.get(offset + FRAME_SIZE, record);
+        return record;
+    }
+
+    /**
+     * Removes the record at the head, if any.
+     */
+    public void remove() {
+        if (count == 0) return;
+        removeFirst();
+        writeHead();
+        forceHead();
+    }
+
+    private void removeFirst() {
+        skipWrap();
+        head += frameSize(buffer.getInt(offset(head)));
+        headSeqno++;
+        count--;
+    }
+
+    private void skipWrap() {
+        if (buffer.getInt(offset(head)) == WRAP) {
+            head += capacity - (head % capacity);
+        }
+    }
+
+    private void writeHead() {
+        // A crash between both writes leaves a head whose record does not match the sequence number, discarding the records
+        buffer.putLong(8, head % capacity);
+        buffer.putLong(16, headSeqno);
+    }
+
+    private void forceHead() {
+        buffer.force(0, HEADER_SIZE);
+    }
+
+    /**
+     * Returns the number of records in the spool.
+     *
+     * @return the number of records
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes used by the records, including their framing.
+     *
+     * @return the number of used bytes
+     */
+    public long usedBytes() {
+        return tail - head;
+    }
+
+    /**
+     * Returns the number of records discarded to make room for newer records since the spool was opened.
+     *
+     * @return the number of discarded records
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        try {
+            lock.release();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private int offset(long position) {
+        return HEADER_SIZE + (int) (position % capacity);
+    }
+
+    private int checksum(int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset + 8, 8 + length));
+        return (int) crc.getValue();
+    }
+
+    private static long frameSize(int length) {
+        return (FRAME_SIZE + (long) length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+}
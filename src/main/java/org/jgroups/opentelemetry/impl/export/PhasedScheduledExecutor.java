@@ -0,0 +1,44 @@
+package org.jgroups.opentelemetry.impl.export;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded scheduled executor for a {@link io.opentelemetry.sdk.metrics.export.PeriodicMetricReader}, which
+ * starts periodic tasks at a random phase within their period instead of after a full period. Nodes started at the
+ * same time, e.g. by a rolling restart, then collect and export at different instants instead of in a burst.
+ * The first run happens no later than it would without the phase.
+ *
+ * @author Radoslav Husar
+ */
+public class PhasedScheduledExecutor extends ScheduledThreadPoolExecutor {
+
+    /**
+     * Creates an executor running its tasks on a daemon thread.
+     *
+     * @param threadName the name of the thread
+     */
+    public PhasedScheduledExecutor(String threadName) {
+        super(1, runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return super.scheduleAtFixedRate(command, phase(period), period, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        return super.scheduleWithFixedDelay(command, phase(delay), delay, unit);
+    }
+
+    private static long phase(long period) {
+        return (period > 0) ? ThreadLocalRandom.current().nextLong(period) + 1 : period;
+    }
+}
@@ -0,0 +1,132 @@
+package org.jgroups.opentelemetry.impl.export;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import org.jgroups.logging.Log;
+import org.jgroups.logging.LogFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Embedded HTTP endpoint serving the metrics of all registered {@link PrometheusMetricReader}s at {@code /metrics}.
+ * Uses the HTTP server of the JDK with a single daemon thread, as scrapes are infrequent and sequential.
+ * Metrics are collected on each scrape and the response is streamed to the scraper using chunked transfer encoding,
+ * compressed if the scraper accepts gzip.
+ *
+ * @author Radoslav Husar
+ */
+class PrometheusHttpServer {
+
+    private static final Log log = LogFactory.getLog(PrometheusHttpServer.class);
+    private static final String PATH = "/metrics";
+    private static final Map<InetSocketAddress, PrometheusHttpServer> servers = new HashMap<>();
+
+    private final InetSocketAddress key;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean openMetrics;
+    private final List<PrometheusMetricReader> readers = new CopyOnWriteArrayList<>();
+
+    private PrometheusHttpServer(InetSocketAddress key, boolean openMetrics) throws IOException {
+        this.key = key;
+        this.openMetrics = openMetrics;
+        this.server = HttpServer.create(key, 0);
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "jgroups-opentelemetry-prometheus");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext(PATH, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    static synchronized PrometheusMetricReader register(InetSocketAddress address, boolean openMetrics, Function<PrometheusHttpServer, PrometheusMetricReader> factory) throws IOException {
+        PrometheusHttpServer server = servers.get(address);
+        if (server == null) {
+            server = new PrometheusHttpServer(address, openMetrics);
+            servers.put(address, server);
+            log.info("started Prometheus metrics endpoint at http://%s:%d%s", server.getAddress().getHostString(), server.getAddress().getPort(), PATH);
+        }
+        PrometheusMetricReader reader = factory.apply(server);
+        server.readers.add(reader);
+        return reader;
+    }
+
+    void unregister(PrometheusMetricReader reader) {
+        synchronized (PrometheusHttpServer.class) {
+            if (!readers.remove(reader) || !readers.isEmpty()) return;
+            servers.remove(key, this);
+        }
+        server.stop(0);
+        executor.shutdown();
+        log.info("stopped Prometheus metrics endpoint at http://%s:%d%s", getAddress().getHostString(), getAddress().getPort(), PATH);
+    }
+
+    InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            boolean head = method.equals("HEAD");
+            if (!head && !method.equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            boolean openMetrics = this.openMetrics && accepts(exchange, "Accept", "application/openmetrics-text");
+            boolean gzip = accepts(exchange, "Accept-Encoding", "gzip");
+            exchange.getResponseHeaders().set("Content-Type", openMetrics ? PrometheusTextWriter.OPEN_METRICS_CONTENT_TYPE : PrometheusTextWriter.TEXT_CONTENT_TYPE);
+            if (head) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            List<MetricData> metrics = new ArrayList<>();
+            for (PrometheusMetricReader reader : readers) {
+                metrics.addAll(reader.collect());
+            }
+
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            // Response length 0 streams the response using chunked transfer encoding
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream body = gzip ? new GZIPOutputStream(exchange.getResponseBody(), 8192) : exchange.getResponseBody();
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), 8192)) {
+                new PrometheusTextWriter(writer, openMetrics).write(metrics);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("failed to serve metrics scrape from %s: %s", exchange.getRemoteAddress(), e);
+            throw e;
+        }
+    }
+
+    private static boolean accepts(HttpExchange exchange, String header, String value) {
+        List<String> values = exchange.getRequestHeaders().get(header);
+        if (values == null) return false;
+        for (String accepted : values) {
+            if (accepted.contains(value)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,84 @@
+package org.jgroups.opentelemetry.impl.export;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.CollectionRegistration;
+import io.opentelemetry.sdk.metrics.export.MetricReader;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Collection;
+
+/**
+ * Pull-based {@link MetricReader} which collects metrics only when the Prometheus endpoint it is registered with
+ * is scraped. Readers created for the same bind address and port share a single {@link PrometheusHttpServer},
+ * so that several channels in a JVM can be scraped via one endpoint. Shutting down the reader, e.g. by closing
+ * its meter provider, unregisters it and stops the server once no reader is left.
+ *
+ * @author Radoslav Husar
+ */
+public class PrometheusMetricReader implements MetricReader {
+
+    private final PrometheusHttpServer server;
+    private volatile CollectionRegistration registration = CollectionRegistration.noop();
+
+    /**
+     * Creates a reader and registers it with the endpoint listening on the given address, starting the endpoint
+     * if this is the first reader for the address.
+     *
+     * @param address the bind address and port of the endpoint; port 0 binds an ephemeral port
+     * @param openMetrics whether the endpoint serves the OpenMetrics format to scrapers which request it;
+     *                    only applies if the endpoint is started by this reader
+     * @return the registered reader
+     * @throws IOException if the endpoint cannot be started
+     */
+    public static PrometheusMetricReader create(InetSocketAddress address, boolean openMetrics) throws IOException {
+        return PrometheusHttpServer.register(address, openMetrics, PrometheusMetricReader::new);
+    }
+
+    PrometheusMetricReader(PrometheusHttpServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Returns the address the endpoint is listening on, e.g. to determine the port bound when port 0 was configured.
+     *
+     * @return the address of the endpoint
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    Collection<MetricData> collect() {
+        return registration.collectAllMetrics();
+    }
+
+    @Override
+    public void register(CollectionRegistration registration) {
+        this.registration = registration;
+    }
+
+    @Override
+    public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+        return AggregationTemporality.CUMULATIVE;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        server.unregister(this);
+        registration = CollectionRegistration.noop();
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public String toString() {
+        return "PrometheusMetricReader{address=" + getAddress() + "}";
+    }
+}
@@ -0,0 +1,248 @@
+package org.jgroups.opentelemetry.impl.export;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.metrics.data.DoublePointData;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.data.MetricDataType;
+import io.opentelemetry.sdk.metrics.data.PointData;
+import io.opentelemetry.sdk.metrics.data.SummaryPointData;
+import io.opentelemetry.sdk.metrics.data.ValueAtQuantile;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes metric data in the Prometheus text exposition format (version 0.0.4) or the OpenMetrics text format (version 1.0.0).
+ *
+ * <p>Metric names are converted following the Prometheus conventions for OpenTelemetry metrics: dots are replaced
+ * by underscores, the unit is appended as a suffix (e.g., {@code jgroups.ufc.blocked.duration} in {@code ms} becomes
+ * {@code jgroups_ufc_blocked_duration_milliseconds}), and monotonic counters get the {@code _total} suffix.
+ * Dimensionless units ({@code 1}) and annotations (e.g., {@code {messages}}) are not appended.
+ * Metrics of the same name collected from several sources, e.g. several channels sharing an endpoint, are written
+ * as a single metric family.</p>
+ *
+ * @author Radoslav Husar
+ */
+public class PrometheusTextWriter {
+
+    public static final String TEXT_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    public static final String OPEN_METRICS_CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private static final Map<String, String> UNIT_SUFFIXES = Map.of(
+            "ns", "nanoseconds",
+            "us", "microseconds",
+            "ms", "milliseconds",
+            "s", "seconds",
+            "By", "bytes",
+            "kBy", "kilobytes",
+            "MBy", "megabytes");
+
+    private final Writer out;
+    private final boolean openMetrics;
+
+    /**
+     * Creates a new writer.
+     *
+     * @param out the writer to write the exposition to; should be buffered
+     * @param openMetrics whether to write the OpenMetrics format instead of the Prometheus text format
+     */
+    public PrometheusTextWriter(Writer out, boolean openMetrics) {
+        this.out = out;
+        this.openMetrics = openMetrics;
+    }
+
+    /**
+     * Writes the given metrics. Does not flush or close the underlying writer.
+     *
+     * @param metrics the collected metrics
+     * @throws IOException if writing fails
+     */
+    public void write(Collection<MetricData> metrics) throws IOException {
+        Map<String, List<MetricData>> families = new LinkedHashMap<>();
+        for (MetricData metric : metrics) {
+            if (metric.getType() == MetricDataType.EXPONENTIAL_HISTOGRAM || metric.isEmpty()) continue;
+            families.computeIfAbsent(familyName(metric), name -> new ArrayList<>()).add(metric);
+        }
+        for (Map.Entry<String, List<MetricData>> family : families.entrySet()) {
+            writeFamily(family.getKey(), family.getValue());
+        }
+        if (openMetrics) {
+            out.write("# EOF\n");
+        }
+    }
+
+    private void writeFamily(String name, List<MetricData> metrics) throws IOException {
+        MetricData first = metrics.get(0);
+        String type = type(first);
+        boolean counter = type.equals("counter");
+        // The Prometheus text format names counter families including the suffix, OpenMetrics without it
+        String familyName = (counter && !openMetrics) ? name + "_total" : name;
+
+        out.write("# TYPE ");
+        out.write(familyName);
+        out.write(' ');
+        out.write(type);
+        out.write('\n');
+        if (openMetrics && hasUnitSuffix(first)) {
+            out.write("# UNIT ");
+            out.write(familyName);
+            out.write(' ');
+            out.write(UNIT_SUFFIXES.get(first.getUnit()));
+            out.write('\n');
+        }
+        if (!first.getDescription().isEmpty()) {
+            out.write("# HELP ");
+            out.write(familyName);
+            out.write(' ');
+            writeEscaped(first.getDescription(), false);
+            out.write('\n');
+        }
+
+        for (MetricData metric : metrics) {
+            // Skip metrics of a different type which happen to map to the same name
+            if (!type(metric).equals(type)) continue;
+            switch (metric.getType()) {
+                case LONG_GAUGE, LONG_SUM -> {
+                    for (PointData point : metric.getData().getPoints()) {
+                        writeSample(counter ? name + "_total" : name, point.getAttributes(), null, null, Long.toString(((LongPointData) point).getValue()));
+                    }
+                }
+                case DOUBLE_GAUGE, DOUBLE_SUM -> {
+                    for (PointData point : metric.getData().getPoints()) {
+                        writeSample(counter ? name + "_total" : name, point.getAttributes(), null, null, formatDouble(((DoublePointData) point).getValue()));
+                    }
+                }
+                case HISTOGRAM -> {
+                    for (HistogramPointData point : metric.getHistogramData().getPoints()) {
+                        writeHistogram(name, point);
+                    }
+                }
+                case SUMMARY -> {
+                    for (SummaryPointData point : metric.getSummaryData().getPoints()) {
+                        for (ValueAtQuantile quantile : point.getValues()) {
+                            writeSample(name, point.getAttributes(), "quantile", formatDouble(quantile.getQuantile()), formatDouble(quantile.getValue()));
+                        }
+                        writeSample(name + "_sum", point.getAttributes(), null, null, formatDouble(point.getSum()));
+                        writeSample(name + "_count", point.getAttributes(), null, null, Long.toString(point.getCount()));
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private void writeHistogram(String name, HistogramPointData point) throws IOException {
+        List<Double> boundaries = point.getBoundaries();
+        List<Long> counts = point.getCounts();
+        String bucket = name + "_bucket";
+        long cumulative = 0;
+        for (int i = 0; i < boundaries.size(); i++) {
+            cumulative += counts.get(i);
+            writeSample(bucket, point.getAttributes(), "le", formatDouble(boundaries.get(i)), Long.toString(cumulative));
+        }
+        writeSample(bucket, point.getAttributes(), "le", "+Inf", Long.toString(point.getCount()));
+        writeSample(name + "_sum", point.getAttributes(), null, null, formatDouble(point.getSum()));
+        writeSample(name + "_count", point.getAttributes(), null, null, Long.toString(point.getCount()));
+    }
+
+    private void writeSample(String name, Attributes attributes, String extraLabel, String extraValue, String value) throws IOException {
+        out.write(name);
+        if (!attributes.isEmpty() || extraLabel != null) {
+            out.write('{');
+            boolean[] first = { true };
+            IOException[] failure = { null };
+            attributes.forEach((key, attributeValue) -> {
+                if (failure[0] != null) return;
+                try {
+                    if (!first[0]) out.write(',');
+                    first[0] = false;
+                    out.write(sanitize(key.getKey()));
+                    out.write("=\"");
+                    writeEscaped(String.valueOf(attributeValue), true);
+                    out.write('"');
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) throw failure[0];
+            if (extraLabel != null) {
+                if (!first[0]) out.write(',');
+                out.write(extraLabel);
+                out.write("=\"");
+                out.write(extraValue);
+                out.write('"');
+            }
+            out.write('}');
+        }
+        out.write(' ');
+        out.write(value);
+        out.write('\n');
+    }
+
+    private void writeEscaped(String value, boolean quoted) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '"' -> out.write(quoted ? "\\\"" : "\"");
+                default -> out.write(c);
+            }
+        }
+    }
+
+    private static String type(MetricData metric) {
+        return switch (metric.getType()) {
+            case LONG_SUM -> metric.getLongSumData().isMonotonic() ? "counter" : "gauge";
+            case DOUBLE_SUM -> metric.getDoubleSumData().isMonotonic() ? "counter" : "gauge";
+            case HISTOGRAM -> "histogram";
+            case SUMMARY -> "summary";
+            default -> "gauge";
+        };
+    }
+
+    private static boolean hasUnitSuffix(MetricData metric) {
+        String suffix = UNIT_SUFFIXES.get(metric.getUnit());
+        return suffix != null && familyName(metric).endsWith("_" + suffix);
+    }
+
+    /**
+     * Returns the name of the metric family, i.e. the sanitized metric name with the unit suffix but without the
+     * {@code _total} suffix of counters.
+     */
+    static String familyName(MetricData metric) {
+        String name = sanitize(metric.getName());
+        String suffix = UNIT_SUFFIXES.get(metric.getUnit());
+        if (suffix != null && !name.endsWith("_" + suffix)) {
+            name = name + "_" + suffix;
+        }
+        if (name.endsWith("_total") && type(metric).equals("counter")) {
+            name = name.substring(0, name.length() - "_total".length());
+        }
+        return name;
+    }
+
+    private static String sanitize(String name) {
+        StringBuilder result = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':' || (i > 0 && c >= '0' && c <= '9');
+            result.append(valid ? c : '_');
+        }
+        return result.toString();
+    }
+
+    private static String formatDouble(double value) {
+        if (Double.isNaN(value)) return "NaN";
+        if (Double.isInfinite(value)) return (value > 0) ? "+Inf" : "-Inf";
+        return Double.toString(value);
+    }
+}
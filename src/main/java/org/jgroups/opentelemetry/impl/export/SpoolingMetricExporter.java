@@ -0,0 +1,240 @@
+package org.jgroups.opentelemetry.impl.export;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.export.MemoryMode;
+import io.opentelemetry.sdk.metrics.Aggregation;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import org.jgroups.logging.Log;
+import org.jgroups.logging.LogFactory;
+import org.jgroups.util.ByteArrayDataInputStream;
+import org.jgroups.util.ByteArrayDataOutputStream;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * {@link MetricExporter} decorator which stores the batches the delegate fails to export, e.g. while the collector
+ * is unreachable during a network partition, in a {@link MetricSpool}, and exports them in order once an export
+ * succeeds again. While the spool holds batches, new batches are appended to it, so that they are exported after the
+ * spooled ones. Replaying continues asynchronously, one batch at a time, and stops at the first failed export.
+ *
+ * <p>Batches are exported one at a time: batches passed while an export is in flight are queued in memory until
+ * it completed (which the delegate bounds by its timeout), so that a batch whose export fails is spooled before any
+ * later batch.</p>
+ *
+ * <p>Since the batches outlive the export call, this exporter always requests immutable metric data from the reader.</p>
+ *
+ * @author Radoslav Husar
+ */
+public class SpoolingMetricExporter implements MetricExporter {
+
+    private static final Log log = LogFactory.getLog(SpoolingMetricExporter.class);
+
+    private final MetricExporter delegate;
+    private final MetricSpool spool;
+    // Batches waiting for the export in flight, guarded by this
+    private final Deque<Collection<MetricData>> queued = new ArrayDeque<>();
+    private boolean exporting;
+    private long spooled;
+    private long replayed;
+    private boolean replaying;
+    private boolean shutdown;
+
+    /**
+     * Creates an exporter spooling the batches which the given exporter fails to export.
+     *
+     * @param delegate the exporter sending the batches to the endpoint
+     * @param spool the spool storing the batches, owned and closed by this exporter
+     */
+    public SpoolingMetricExporter(MetricExporter delegate, MetricSpool spool) {
+        this.delegate = delegate;
+        this.spool = spool;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<MetricData> metrics) {
+        synchronized (this) {
+            if (shutdown) return CompletableResultCode.ofFailure();
+            if (replaying || spool.size() > 0) {
+                // Keep the order of the batches, and take the export as the next attempt to replay the spool
+                append(metrics);
+                replay();
+                return CompletableResultCode.ofSuccess();
+            }
+            if (exporting) {
+                queued.add(metrics);
+                return CompletableResultCode.ofSuccess();
+            }
+            exporting = true;
+        }
+        CompletableResultCode result = new CompletableResultCode();
+        exportNext(metrics, result);
+        return result;
+    }
+
+    /**
+     * Exports the batch, then the batches queued meanwhile in order; once an export failed, the failed batch and all
+     * queued batches are spooled instead.
+     */
+    private void exportNext(Collection<MetricData> metrics, CompletableResultCode result) {
+        CompletableResultCode export = delegate.export(metrics);
+        export.whenComplete(() -> {
+            Collection<MetricData> next;
+            synchronized (this) {
+                if (!export.isSuccess() && !shutdown) {
+                    append(metrics);
+                }
+                next = queued.poll();
+                if (spool.size() > 0) {
+                    for (; next != null; next = queued.poll()) {
+                        append(next);
+                    }
+                }
+                exporting = (next != null);
+            }
+            // The batch is kept in the spool, so the export is not reported as failed
+            result.succeed();
+            if (next != null) {
+                exportNext(next, new CompletableResultCode());
+            }
+        });
+    }
+
+    private void append(Collection<MetricData> metrics) {
+        ByteArrayDataOutputStream out = new ByteArrayDataOutputStream(1024, true);
+        try {
+            MetricDataMarshaller.writeTo(metrics, out);
+        } catch (IOException e) {
+            log.warn("failed to encode metrics for the spool", e);
+            return;
+        }
+        byte[] record = new byte[out.position()];
+        System.arraycopy(out.buffer(), 0, record, 0, record.length);
+        if (spool.append(record)) {
+            spooled++;
+        } else {
+            log.warn("metric batch of %d bytes exceeds the spool size", record.length);
+        }
+    }
+
+    /**
+     * Exports the batches of the spool in order, until an export fails or does not complete immediately,
+     * in which case replaying continues once it completed successfully.
+     */
+    private void replay() {
+        while (!replaying && !shutdown) {
+            byte[] record = spool.peek();
+            if (record == null) return;
+            List<MetricData> metrics;
+            try {
+                metrics = MetricDataMarshaller.readFrom(new ByteArrayDataInputStream(record));
+            } catch (IOException | RuntimeException e) {
+                log.warn("discarding undecodable metric batch from the spool", e);
+                spool.remove();
+                continue;
+            }
+            replaying = true;
+            CompletableResultCode export = delegate.export(metrics);
+            if (!export.isDone()) {
+                export.whenComplete(() -> {
+                    synchronized (this) {
+                        replaying = false;
+                        if (replayed(export)) replay();
+                    }
+                });
+                return;
+            }
+            replaying = false;
+            if (!replayed(export)) return;
+        }
+    }
+
+    private boolean replayed(CompletableResultCode export) {
+        if (!export.isSuccess() || shutdown) return false;
+        spool.remove();
+        replayed++;
+        return true;
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return delegate.flush();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        // Spooled batches are kept in the file and replayed after a restart, as are the batches still queued
+        for (Collection<MetricData> next = queued.poll(); next != null; next = queued.poll()) {
+            append(next);
+        }
+        shutdown = true;
+        try {
+            spool.close();
+        } catch (IOException e) {
+            log.warn("failed to close the metric spool", e);
+        }
+        return delegate.shutdown();
+    }
+
+    @Override
+    public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+        return delegate.getAggregationTemporality(instrumentType);
+    }
+
+    @Override
+    public Aggregation getDefaultAggregation(InstrumentType instrumentType) {
+        return delegate.getDefaultAggregation(instrumentType);
+    }
+
+    @Override
+    public MemoryMode getMemoryMode() {
+        return MemoryMode.IMMUTABLE_DATA;
+    }
+
+    /**
+     * Returns the number of batches stored in the spool since the exporter was created.
+     *
+     * @return the number of spooled batches
+     */
+    public synchronized long getSpooled() {
+        return spooled;
+    }
+
+    /**
+     * Returns the number of spooled batches exported since the exporter was created.
+     *
+     * @return the number of replayed batches
+     */
+    public synchronized long getReplayed() {
+        return replayed;
+    }
+
+    /**
+     * Returns the number of spooled batches discarded to make room for newer batches since the exporter was created.
+     *
+     * @return the number of discarded batches
+     */
+    public synchronized long getDropped() {
+        return spool.getDropped();
+    }
+
+    /**
+     * Returns the number of batches currently held by the spool.
+     *
+     * @return the number of pending batches
+     */
+    public synchronized int getPending() {
+        return spool.size();
+    }
+
+    @Override
+    public String toString() {
+        return "SpoolingMetricExporter{delegate=" + delegate + "}";
+    }
+}
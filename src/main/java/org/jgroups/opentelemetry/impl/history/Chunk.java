@@ -0,0 +1,214 @@
+package org.jgroups.opentelemetry.impl.history;
+
+import java.util.Arrays;
+
+/**
+ * Compressed block of the samples of a series, encoded as in Facebook's Gorilla time-series database: timestamps as
+ * delta-of-deltas, which take a single bit for samples collected at a fixed interval, and values as the XOR with the
+ * previous value, which take a single bit for an unchanged value and few bits for slowly changing counters.
+ * Samples are appended until the chunk is full, and then its buffer is trimmed.
+ *
+ * <p>Not thread-safe; access is synchronized by the owning series.</p>
+ *
+ * @author Radoslav Husar
+ */
+final class Chunk {
+
+    /**
+     * Maximum number of samples of a chunk, i.e. 20 minutes of samples collected every 10 seconds.
+     */
+    static final int MAX_SAMPLES = 120;
+
+    private byte[] buffer = new byte[32];
+    private int bits;
+    private int count;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private final boolean downsampled;
+
+    // Encoder state
+    private long previousDelta;
+    private long previousValue;
+    private int previousLeading = Integer.MAX_VALUE;
+    private int previousTrailing;
+
+    Chunk(boolean downsampled) {
+        this.downsampled = downsampled;
+    }
+
+    /**
+     * Appends a sample; timestamps must not decrease.
+     */
+    void append(long timestamp, double value) {
+        long valueBits = Double.doubleToRawLongBits(value);
+        if (count == 0) {
+            firstTimestamp = timestamp;
+            write(timestamp, 64);
+            write(valueBits, 64);
+        } else {
+            long delta = timestamp - lastTimestamp;
+            writeDeltaOfDelta(delta - previousDelta);
+            previousDelta = delta;
+            writeXor(valueBits ^ previousValue);
+        }
+        lastTimestamp = timestamp;
+        previousValue = valueBits;
+        count++;
+    }
+
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            write(0b0, 1);
+        } else if (dod >= -64 && dod <= 63) {
+            write(0b10, 2);
+            write(dod, 7);
+        } else if (dod >= -256 && dod <= 255) {
+            write(0b110, 3);
+            write(dod, 9);
+        } else if (dod >= -2048 && dod <= 2047) {
+            write(0b1110, 4);
+            write(dod, 12);
+        } else {
+            write(0b1111, 4);
+            write(dod, 64);
+        }
+    }
+
+    private void writeXor(long xor) {
+        if (xor == 0) {
+            write(0b0, 1);
+            return;
+        }
+        // Leading zeros are capped to fit 5 bits
+        int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (leading >= previousLeading && trailing >= previousTrailing) {
+            // The meaningful bits fit the window of the previous value
+            write(0b10, 2);
+            write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+        } else {
+            int length = 64 - leading - trailing;
+            write(0b11, 2);
+            write(leading, 5);
+            // A length of 64 is stored as 0
+            write(length, 6);
+            write(xor >>> trailing, length);
+            previousLeading = leading;
+            previousTrailing = trailing;
+        }
+    }
+
+    private void write(long value, int length) {
+        int required = (bits + length + 7) >>> 3;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+        while (length > 0) {
+            int free = 8 - (bits & 7);
+            int take = Math.min(free, length);
+            int chunk = (int) ((value >>> (length - take)) & ((1 << take) - 1));
+            buffer[bits >>> 3] |= (byte) (chunk << (free - take));
+            bits += take;
+            length -= take;
+        }
+    }
+
+    /**
+     * Trims the buffer to the encoded samples, e.g. once the chunk is full; the buffer grows again if more samples are appended.
+     */
+    void seal() {
+        buffer = Arrays.copyOf(buffer, (bits + 7) >>> 3);
+    }
+
+    boolean isFull() {
+        return count >= MAX_SAMPLES;
+    }
+
+    boolean isDownsampled() {
+        return downsampled;
+    }
+
+    int size() {
+        return count;
+    }
+
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * Returns the number of bytes held by the chunk.
+     */
+    int bytes() {
+        return buffer.length;
+    }
+
+    /**
+     * Decodes the samples of the chunk in order.
+     */
+    void forEach(SampleConsumer consumer) {
+        Reader reader = new Reader();
+        long timestamp = 0;
+        long delta = 0;
+        long value = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                timestamp = reader.read(64);
+                value = reader.read(64);
+            } else {
+                delta += reader.readDeltaOfDelta();
+                timestamp += delta;
+                if (reader.read(1) == 1) {
+                    if (reader.read(1) == 1) {
+                        leading = (int) reader.read(5);
+                        int length = (int) reader.read(6);
+                        if (length == 0) length = 64;
+                        trailing = 64 - leading - length;
+                    }
+                    value ^= reader.read(64 - leading - trailing) << trailing;
+                }
+            }
+            consumer.accept(timestamp, Double.longBitsToDouble(value));
+        }
+    }
+
+    @FunctionalInterface
+    interface SampleConsumer {
+        void accept(long timestamp, double value);
+    }
+
+    private final class Reader {
+        private int position;
+
+        long read(int length) {
+            long result = 0;
+            while (length > 0) {
+                int available = 8 - (position & 7);
+                int take = Math.min(available, length);
+                int value = (buffer[position >>> 3] >>> (available - take)) & ((1 << take) - 1);
+                result = (result << take) | value;
+                position += take;
+                length -= take;
+            }
+            return result;
+        }
+
+        long readDeltaOfDelta() {
+            if (read(1) == 0) return 0;
+            if (read(1) == 0) return signExtend(read(7), 7);
+            if (read(1) == 0) return signExtend(read(9), 9);
+            if (read(1) == 0) return signExtend(read(12), 12);
+            return read(64);
+        }
+
+        private static long signExtend(long value, int length) {
+            return (value << (64 - length)) >> (64 - length);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.jgroups.opentelemetry.impl.history;
+
+import io.opentelemetry.sdk.common.Clock;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.export.CollectionRegistration;
+import io.opentelemetry.sdk.metrics.export.MetricReader;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pull-based {@link MetricReader} recording the metrics of a member in a {@link TimeSeriesStore} whenever
+ * {@link #collect()} is called, e.g. periodically by the timer of the transport.
+ * Values are cumulative, so that the stored counters are monotonic and a missed collection loses no increments.
+ *
+ * @author Radoslav Husar
+ */
+public class HistoryMetricReader implements MetricReader {
+
+    private final TimeSeriesStore store;
+    private final Clock clock;
+    private volatile CollectionRegistration registration = CollectionRegistration.noop();
+
+    public HistoryMetricReader(TimeSeriesStore store) {
+        this(store, Clock.getDefault());
+    }
+
+    /**
+     * Creates a reader compacting the store relative to the given clock, which should be the clock of the meter provider.
+     *
+     * @param store the store recording the collected metrics
+     * @param clock the clock
+     */
+    public HistoryMetricReader(TimeSeriesStore store, Clock clock) {
+        this.store = store;
+        this.clock = clock;
+    }
+
+    /**
+     * Collects the metrics of the meter provider this reader is registered with into the store,
+     * and compacts the store.
+     */
+    public void collect() {
+        store.append(registration.collectAllMetrics());
+        store.compact(TimeUnit.NANOSECONDS.toMillis(clock.now()));
+    }
+
+    public TimeSeriesStore getStore() {
+        return store;
+    }
+
+    @Override
+    public void register(CollectionRegistration registration) {
+        this.registration = registration;
+    }
+
+    @Override
+    public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+        return AggregationTemporality.CUMULATIVE;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        registration = CollectionRegistration.noop();
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public String toString() {
+        return "HistoryMetricReader";
+    }
+}
@@ -0,0 +1,289 @@
+package org.jgroups.opentelemetry.impl.history;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import org.jgroups.opentelemetry.impl.util.MetricFilter;
+import org.jgroups.opentelemetry.impl.util.MetricValues;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * In-process store of the recent values of the metrics of a member, e.g. for the analysis of an incident after the fact
+ * when the metrics were not exported. Each series, identified by the metric name and the attributes of a point, holds
+ * its samples in compressed {@link Chunk}s, so that a sample collected at a fixed interval with an unchanged value takes
+ * about 2 bits. Histograms are stored as the series of their count and sum, with the {@code .count} and {@code .sum}
+ * suffixes.
+ *
+ * <p>On {@link #compact(long)}, chunks older than the retention are discarded, and full chunks older than the downsample
+ * age are rewritten keeping only the last sample of every downsample interval.</p>
+ *
+ * <p>The store can be queried concurrently; samples are expected to be appended and compacted by a single collecting thread.</p>
+ *
+ * @author Radoslav Husar
+ */
+public class TimeSeriesStore {
+
+    private final Map<SeriesKey, Series> series = new ConcurrentHashMap<>();
+    private final long retention;
+    private final long downsampleAge;
+    private final long downsampleInterval;
+
+    /**
+     * Creates a store.
+     *
+     * @param retention how long samples are kept in milliseconds
+     * @param downsampleAge age in milliseconds after which samples are downsampled, or 0 to keep all samples
+     * @param downsampleInterval interval in milliseconds of which the last sample is kept when downsampling
+     */
+    public TimeSeriesStore(long retention, long downsampleAge, long downsampleInterval) {
+        if (retention <= 0) throw new IllegalArgumentException("Retention must be positive: " + retention);
+        if (downsampleAge > 0 && downsampleInterval <= 0) throw new IllegalArgumentException("Downsample interval must be positive: " + downsampleInterval);
+        this.retention = retention;
+        this.downsampleAge = downsampleAge;
+        this.downsampleInterval = downsampleInterval;
+    }
+
+    /**
+     * Appends the values of the collected metrics, timestamped with the time of their collection.
+     *
+     * @param metrics the collected metrics
+     */
+    public void append(Collection<MetricData> metrics) {
+        MetricValues.forEach(metrics, (metric, name, point, value) -> {
+            long timestamp = TimeUnit.NANOSECONDS.toMillis(point.getEpochNanos());
+            series.computeIfAbsent(new SeriesKey(name, point.getAttributes()), key -> new Series()).append(timestamp, value);
+        });
+    }
+
+    /**
+     * Discards the samples older than the retention and downsamples the samples older than the downsample age.
+     *
+     * @param now the current time in milliseconds
+     */
+    public void compact(long now) {
+        long expiry = now - retention;
+        long downsampleCutoff = (downsampleAge > 0) ? now - downsampleAge : Long.MIN_VALUE;
+        series.values().removeIf(series -> series.compact(expiry, downsampleCutoff, downsampleInterval));
+    }
+
+    /**
+     * Returns the samples of the series matching the given name pattern and attributes within the given time range.
+     *
+     * @param names comma-separated name patterns, as globs or regular expressions prefixed with {@code regex:}, or null for all metrics
+     * @param attributes attribute values the series need to have, compared by the string value of the attribute, or an empty map for all series
+     * @param from start of the range in milliseconds, inclusive
+     * @param to end of the range in milliseconds, inclusive
+     * @return the matching series with at least one sample in the range, ordered by name
+     * @throws IllegalArgumentException if a regular expression is invalid
+     */
+    public List<TimeSeries> query(String names, Map<String, String> attributes, long from, long to) {
+        Predicate<String> filter = MetricFilter.of(names, null);
+        List<TimeSeries> result = new ArrayList<>();
+        for (Map.Entry<SeriesKey, Series> entry : series.entrySet()) {
+            SeriesKey key = entry.getKey();
+            if (!filter.test(key.name()) || !matches(key.attributes(), attributes)) continue;
+            List<Sample> samples = entry.getValue().samples(from, to);
+            if (!samples.isEmpty()) {
+                result.add(new TimeSeries(key.name(), key.attributes(), samples));
+            }
+        }
+        result.sort((series1, series2) -> series1.name().equals(series2.name())
+                ? series1.attributes().toString().compareTo(series2.attributes().toString())
+                : series1.name().compareTo(series2.name()));
+        return result;
+    }
+
+    private static boolean matches(Attributes attributes, Map<String, String> values) {
+        Map<AttributeKey<?>, Object> map = attributes.asMap();
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            boolean matched = false;
+            for (Map.Entry<AttributeKey<?>, Object> attribute : map.entrySet()) {
+                if (attribute.getKey().getKey().equals(value.getKey()) && String.valueOf(attribute.getValue()).equals(value.getValue())) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of series in the store.
+     *
+     * @return the number of series
+     */
+    public int getSeriesCount() {
+        return series.size();
+    }
+
+    /**
+     * Returns the number of bytes held by the chunks of the store, excluding the bookkeeping of the series.
+     *
+     * @return the number of bytes
+     */
+    public long getBytes() {
+        long bytes = 0;
+        for (Series series : series.values()) {
+            bytes += series.bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Sample of a series.
+     *
+     * @param timestamp the time of the collection in milliseconds since the epoch
+     * @param value the value
+     */
+    public record Sample(long timestamp, double value) {
+    }
+
+    /**
+     * Samples of a series returned by a query.
+     *
+     * @param name the metric name
+     * @param attributes the attributes of the series
+     * @param samples the samples in the order of their timestamps
+     */
+    public record TimeSeries(String name, Attributes attributes, List<Sample> samples) {
+    }
+
+    private record SeriesKey(String name, Attributes attributes) {
+    }
+
+    /**
+     * Chunks of a series, oldest first; the last chunk is the one samples are appended to.
+     */
+    private static class Series {
+        private final List<Chunk> chunks = new ArrayList<>();
+        private Chunk head;
+
+        synchronized void append(long timestamp, double value) {
+            if (head != null && timestamp <= head.getLastTimestamp()) return;
+            if (head == null || head.isFull()) {
+                if (head != null) head.seal();
+                head = new Chunk(false);
+                chunks.add(head);
+            }
+            head.append(timestamp, value);
+        }
+
+        /**
+         * @return true if the series holds no more samples and is to be removed
+         */
+        synchronized boolean compact(long expiry, long downsampleCutoff, long downsampleInterval) {
+            chunks.removeIf(chunk -> chunk.getLastTimestamp() < expiry);
+            if (chunks.isEmpty()) {
+                head = null;
+                return true;
+            }
+            // Downsampled chunks are not appended to later, so that they expire no later than the chunks they were downsampled from
+            if (chunks.stream().noneMatch(chunk -> isDownsampleable(chunk, downsampleCutoff))) return false;
+            List<Chunk> compacted = new ArrayList<>(chunks.size());
+            Downsampler downsampler = null;
+            for (Chunk chunk : chunks) {
+                if (isDownsampleable(chunk, downsampleCutoff)) {
+                    if (downsampler == null) {
+                        downsampler = new Downsampler(compacted, downsampleInterval);
+                    }
+                    chunk.forEach(downsampler);
+                } else {
+                    if (downsampler != null) {
+                        downsampler.close();
+                        downsampler = null;
+                    }
+                    compacted.add(chunk);
+                }
+            }
+            if (downsampler != null) {
+                downsampler.close();
+            }
+            chunks.clear();
+            chunks.addAll(compacted);
+            return false;
+        }
+
+        private boolean isDownsampleable(Chunk chunk, long downsampleCutoff) {
+            return chunk != head && !chunk.isDownsampled() && chunk.getLastTimestamp() < downsampleCutoff;
+        }
+
+        synchronized List<Sample> samples(long from, long to) {
+            List<Sample> samples = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                if (chunk.getLastTimestamp() < from || chunk.getFirstTimestamp() > to) continue;
+                chunk.forEach((timestamp, value) -> {
+                    if (timestamp >= from && timestamp <= to) {
+                        samples.add(new Sample(timestamp, value));
+                    }
+                });
+            }
+            return samples;
+        }
+
+        synchronized long bytes() {
+            long bytes = 0;
+            for (Chunk chunk : chunks) {
+                bytes += chunk.bytes();
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Appends the last sample of every interval to new downsampled chunks.
+     * The last sample of a downsampling pass is always kept, so an interval spanning two passes may keep two samples.
+     */
+    private static class Downsampler implements Chunk.SampleConsumer {
+        private final List<Chunk> chunks;
+        private final long interval;
+        private Chunk target;
+        private boolean pending;
+        private long bucket;
+        private long timestamp;
+        private double value;
+
+        Downsampler(List<Chunk> chunks, long interval) {
+            this.chunks = chunks;
+            this.interval = interval;
+        }
+
+        @Override
+        public void accept(long timestamp, double value) {
+            long bucket = Math.floorDiv(timestamp, interval);
+            if (pending && bucket != this.bucket) {
+                flush();
+            }
+            this.pending = true;
+            this.bucket = bucket;
+            this.timestamp = timestamp;
+            this.value = value;
+        }
+
+        void flush() {
+            if (!pending) return;
+            pending = false;
+            if (target == null || target.isFull()) {
+                if (target != null) target.seal();
+                target = new Chunk(true);
+                chunks.add(target);
+            }
+            target.append(timestamp, value);
+        }
+
+        /**
+         * Appends the pending sample and trims the last chunk.
+         */
+        void close() {
+            flush();
+            if (target != null) target.seal();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.jgroups.opentelemetry.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Sampled JFR event timing a received message batch passed up the stack by the {@code OPENTELEMETRY} protocol until the application returns.
+ *
+ * @author Radoslav Husar
+ */
+@Name("org.jgroups.BatchDelivery")
+@Label("JGroups Batch Delivery")
+@Description("Sampled time from passing a received message batch up the stack until the application returns")
+@Category({ "JGroups", "Messages" })
+@StackTrace(false)
+public class BatchDeliveryEvent extends Event {
+
+    @Label("Cluster")
+    String cluster;
+
+    @Label("Sender")
+    String sender;
+
+    @Label("Destination")
+    @Description("unicast or multicast")
+    String destination;
+
+    @Label("Batch Size")
+    @Description("Number of messages in the batch")
+    int batchSize;
+
+    @Label("Size")
+    @DataAmount
+    long size;
+}
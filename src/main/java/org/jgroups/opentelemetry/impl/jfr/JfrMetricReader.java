@@ -0,0 +1,82 @@
+package org.jgroups.opentelemetry.impl.jfr;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.export.CollectionRegistration;
+import io.opentelemetry.sdk.metrics.export.MetricReader;
+import jdk.jfr.FlightRecorder;
+import org.jgroups.opentelemetry.impl.util.MetricValues;
+
+import java.util.function.Supplier;
+
+/**
+ * Pull-based {@link MetricReader} emitting a {@link MetricEvent} per series whenever the periodic event is due in a
+ * running recording, at the period of its recording settings. Without a recording enabling the event, the metrics are
+ * not collected. Values are cumulative, as exposed by the instrumentation.
+ *
+ * @author Radoslav Husar
+ */
+public class JfrMetricReader implements MetricReader {
+
+    private final Supplier<String> cluster;
+    private final Runnable hook = this::emit;
+    private volatile CollectionRegistration registration = CollectionRegistration.noop();
+
+    JfrMetricReader(Supplier<String> cluster) {
+        this.cluster = cluster;
+    }
+
+    /**
+     * Starts emitting the periodic metric events.
+     */
+    public void start() {
+        FlightRecorder.addPeriodicEvent(MetricEvent.class, hook);
+    }
+
+    /**
+     * Stops emitting the periodic metric events.
+     */
+    public void stop() {
+        FlightRecorder.removePeriodicEvent(hook);
+    }
+
+    private void emit() {
+        String cluster = this.cluster.get();
+        MetricValues.forEach(registration.collectAllMetrics(), (metric, name, point, value) -> {
+            MetricEvent event = new MetricEvent();
+            event.cluster = cluster;
+            event.metric = name;
+            event.attributes = point.getAttributes().isEmpty() ? "" : point.getAttributes().toString();
+            event.unit = metric.getUnit();
+            event.value = value;
+            event.commit();
+        });
+    }
+
+    @Override
+    public void register(CollectionRegistration registration) {
+        this.registration = registration;
+    }
+
+    @Override
+    public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+        return AggregationTemporality.CUMULATIVE;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        registration = CollectionRegistration.noop();
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public String toString() {
+        return "JfrMetricReader";
+    }
+}
@@ -0,0 +1,200 @@
+package org.jgroups.opentelemetry.impl.jfr;
+
+import org.jgroups.Address;
+import org.jgroups.Message;
+import org.jgroups.View;
+import org.jgroups.opentelemetry.impl.util.SampledStopwatch;
+import org.jgroups.util.MessageBatch;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Emits the JDK Flight Recorder events of a protocol stack: sampled {@link MessageSendEvent}s, {@link MessageDeliveryEvent}s
+ * and {@link BatchDeliveryEvent}s, {@link ViewChangeEvent}s and {@link SuspectEvent}s, and via its {@link JfrMetricReader}
+ * periodic {@link MetricEvent}s. Events are only timed and committed if enabled in a running recording, so that
+ * the cost without a recording is a check of the event state.
+ *
+ * <p>Message events are sampled: one in every {@code N} messages per thread is timed, as for the duration histograms.
+ * Whether a sampled event is committed further depends on the threshold of the event in the recording settings,
+ * e.g. to record only the deliveries taking longer than 1 ms.</p>
+ *
+ * @author Radoslav Husar
+ */
+public class JfrRecorder {
+
+    private final SampledStopwatch sampler;
+    private final Supplier<String> cluster;
+    private final JfrMetricReader metricReader;
+    private View view;
+
+    /**
+     * Creates a recorder.
+     *
+     * @param samplingInterval the sampling interval of message events; one in every {@code samplingInterval} messages is timed
+     * @param cluster supplier of the cluster name recorded by the events, only called when an event is committed
+     */
+    public JfrRecorder(int samplingInterval, Supplier<String> cluster) {
+        this.sampler = new SampledStopwatch(samplingInterval);
+        this.cluster = cluster;
+        this.metricReader = new JfrMetricReader(cluster);
+    }
+
+    /**
+     * Returns the reader which emits the periodic metric events, to be registered with the meter provider of the instrumentation.
+     *
+     * @return the metric reader
+     */
+    public JfrMetricReader getMetricReader() {
+        return metricReader;
+    }
+
+    /**
+     * Passes the message down, timing it if sampled.
+     *
+     * @param msg the message
+     * @param down passes the message down the stack
+     * @return the result of passing the message down
+     */
+    public Object down(Message msg, Function<Message, Object> down) {
+        MessageSendEvent event = new MessageSendEvent();
+        if (!event.isEnabled() || !sampler.sample()) return down.apply(msg);
+        event.begin();
+        try {
+            return down.apply(msg);
+        } finally {
+            commit(event, msg);
+        }
+    }
+
+    /**
+     * Passes the message down asynchronously, timing it until the returned future completes if sampled.
+     *
+     * @param msg the message
+     * @param async whether the message is sent asynchronously
+     * @param down passes the message down the stack
+     * @return the future completed when the message was passed down
+     */
+    public CompletableFuture<Object> down(Message msg, boolean async, BiFunction<Message, Boolean, CompletableFuture<Object>> down) {
+        MessageSendEvent event = new MessageSendEvent();
+        if (!event.isEnabled() || !sampler.sample()) return down.apply(msg, async);
+        event.begin();
+        CompletableFuture<Object> future;
+        try {
+            future = down.apply(msg, async);
+        } catch (RuntimeException | Error e) {
+            commit(event, msg);
+            throw e;
+        }
+        future.whenComplete((result, e) -> commit(event, msg));
+        return future;
+    }
+
+    private void commit(MessageSendEvent event, Message msg) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.cluster = cluster.get();
+            event.destination = destination(msg.getDest());
+            event.size = msg.getLength();
+            event.commit();
+        }
+    }
+
+    /**
+     * Passes the message up, timing it if sampled.
+     *
+     * @param msg the message
+     * @param up passes the message up the stack
+     * @return the result of passing the message up
+     */
+    public Object up(Message msg, Function<Message, Object> up) {
+        MessageDeliveryEvent event = new MessageDeliveryEvent();
+        if (!event.isEnabled() || !sampler.sample()) return up.apply(msg);
+        event.begin();
+        try {
+            return up.apply(msg);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.cluster = cluster.get();
+                event.sender = Objects.toString(msg.getSrc());
+                event.destination = destination(msg.getDest());
+                event.size = msg.getLength();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Passes the message batch up, timing it if sampled.
+     *
+     * @param batch the message batch
+     * @param up passes the batch up the stack
+     */
+    public void up(MessageBatch batch, Consumer<MessageBatch> up) {
+        BatchDeliveryEvent event = new BatchDeliveryEvent();
+        if (!event.isEnabled() || !sampler.sample()) {
+            up.accept(batch);
+            return;
+        }
+        // The batch may be drained by the protocols above
+        int batchSize = batch.size();
+        long size = batch.length();
+        event.begin();
+        try {
+            up.accept(batch);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.cluster = cluster.get();
+                event.sender = Objects.toString(batch.sender());
+                event.destination = destination(batch.dest());
+                event.batchSize = batchSize;
+                event.size = size;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Records the installation of a view, once per view.
+     *
+     * @param view the installed view
+     */
+    public synchronized void viewChange(View view) {
+        View previous = this.view;
+        if (previous != null && previous.getViewId().equals(view.getViewId())) return;
+        this.view = view;
+        ViewChangeEvent event = new ViewChangeEvent();
+        if (!event.shouldCommit()) return;
+        event.cluster = cluster.get();
+        event.view = view.getViewId().toString();
+        event.coordinator = Objects.toString(view.getCoord());
+        event.members = view.size();
+        event.joined = (previous != null) ? View.newMembers(previous, view).size() : view.size();
+        event.left = (previous != null) ? View.leftMembers(previous, view).size() : 0;
+        event.commit();
+    }
+
+    /**
+     * Records the suspicion of members.
+     *
+     * @param suspects the suspected members
+     */
+    public void suspect(Collection<Address> suspects) {
+        SuspectEvent event = new SuspectEvent();
+        if (!event.shouldCommit()) return;
+        event.cluster = cluster.get();
+        event.suspects = suspects.toString();
+        event.commit();
+    }
+
+    private static String destination(Address dest) {
+        return (dest == null) ? "multicast" : "unicast";
+    }
+}
@@ -0,0 +1,36 @@
+package org.jgroups.opentelemetry.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Sampled JFR event timing a received message passed up the stack by the {@code OPENTELEMETRY} protocol until the application returns.
+ *
+ * @author Radoslav Husar
+ */
+@Name("org.jgroups.MessageDelivery")
+@Label("JGroups Message Delivery")
+@Description("Sampled time from passing a received message up the stack until the application returns")
+@Category({ "JGroups", "Messages" })
+@StackTrace(false)
+public class MessageDeliveryEvent extends Event {
+
+    @Label("Cluster")
+    String cluster;
+
+    @Label("Sender")
+    String sender;
+
+    @Label("Destination")
+    @Description("unicast or multicast")
+    String destination;
+
+    @Label("Size")
+    @DataAmount
+    int size;
+}
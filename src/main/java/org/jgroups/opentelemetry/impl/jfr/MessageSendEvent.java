@@ -0,0 +1,33 @@
+package org.jgroups.opentelemetry.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Sampled JFR event timing a message passed down the stack by the {@code OPENTELEMETRY} protocol until the transport returns.
+ *
+ * @author Radoslav Husar
+ */
+@Name("org.jgroups.MessageSend")
+@Label("JGroups Message Send")
+@Description("Sampled time to pass a message down the stack until the transport returns")
+@Category({ "JGroups", "Messages" })
+@StackTrace(false)
+public class MessageSendEvent extends Event {
+
+    @Label("Cluster")
+    String cluster;
+
+    @Label("Destination")
+    @Description("unicast or multicast")
+    String destination;
+
+    @Label("Size")
+    @DataAmount
+    int size;
+}
@@ -0,0 +1,39 @@
+package org.jgroups.opentelemetry.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Periodic JFR event carrying the value of a series of a JGroups metric, as exposed by the instrumentation.
+ * Histograms are reported as the series of their count and sum.
+ *
+ * @author Radoslav Husar
+ */
+@Name("org.jgroups.Metric")
+@Label("JGroups Metric")
+@Description("Value of a series of a JGroups metric")
+@Category({ "JGroups", "Metrics" })
+@Period("10 s")
+@StackTrace(false)
+public class MetricEvent extends Event {
+
+    @Label("Cluster")
+    String cluster;
+
+    @Label("Metric")
+    String metric;
+
+    @Label("Attributes")
+    String attributes;
+
+    @Label("Unit")
+    String unit;
+
+    @Label("Value")
+    double value;
+}
@@ -0,0 +1,27 @@
+package org.jgroups.opentelemetry.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event recording members suspected by failure detection.
+ *
+ * @author Radoslav Husar
+ */
+@Name("org.jgroups.Suspect")
+@Label("JGroups Suspect")
+@Description("Members suspected by failure detection")
+@Category({ "JGroups", "Membership" })
+@StackTrace(false)
+public class SuspectEvent extends Event {
+
+    @Label("Cluster")
+    String cluster;
+
+    @Label("Suspects")
+    String suspects;
+}
@@ -0,0 +1,41 @@
+package org.jgroups.opentelemetry.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event recording a view installed by a member.
+ *
+ * @author Radoslav Husar
+ */
+@Name("org.jgroups.ViewChange")
+@Label("JGroups View Change")
+@Description("View installed by a member")
+@Category({ "JGroups", "Membership" })
+@StackTrace(false)
+public class ViewChangeEvent extends Event {
+
+    @Label("Cluster")
+    String cluster;
+
+    @Label("View")
+    String view;
+
+    @Label("Coordinator")
+    String coordinator;
+
+    @Label("Members")
+    int members;
+
+    @Label("Joined")
+    @Description("Number of members which joined since the previous view")
+    int joined;
+
+    @Label("Left")
+    @Description("Number of members which left since the previous view")
+    int left;
+}
@@ -0,0 +1,103 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.ASYM_ENCRYPT;
+import org.jgroups.util.Util;
+import org.kohsuke.MetaInfServices;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Metrics instrumentation for {@link ASYM_ENCRYPT} protocol.
+ * <p>
+ * ASYM_ENCRYPT encrypts messages with a secret key generated by the key server (the coordinator) and distributed
+ * to the members encrypted with their public keys. Members request the secret key from the key server and the key
+ * server installs a new secret key on the members when the membership changes, or the key is fetched by an external
+ * key exchange protocol (e.g. SSL_KEY_EXCHANGE).
+ *
+ * @author Radoslav Husar
+ */
+@MetaInfServices(MetricsInstrumentation.class)
+public class ASYM_ENCRYPTMetricsInstrumentation extends AbstractEncryptMetricsInstrumentation<ASYM_ENCRYPT> {
+
+    @Override
+    protected String[] getTrackedMetrics() {
+        String[] keyExchangeMetrics = { "key.requests.sent", "key.requests.received", "key.installs.sent", "key.installs.received", "key.external_exchanges" };
+        String[] metrics = super.getTrackedMetrics();
+        String[] result = Arrays.copyOf(metrics, metrics.length + keyExchangeMetrics.length);
+        System.arraycopy(keyExchangeMetrics, 0, result, metrics.length, keyExchangeMetrics.length);
+        return result;
+    }
+
+    @Override
+    protected void registerKeyExchangeMetrics(InstrumentationContext context, RegistrationHelper helper, ASYM_ENCRYPT protocol, EncryptionTracker tracker) {
+        Field pubMapField = Util.getField(ASYM_ENCRYPT.class, "pub_map");
+
+        helper.registerLongGauge("is_key_server",
+                "Indicates whether this member is the key server (1=key server, 0=not key server)",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.isKeyServer() ? 1 : 0));
+
+        helper.registerLongGauge("public_keys",
+                "Number of public keys of members known to this member (only maintained by the key server)",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    if (Util.getField(pubMapField, protocol) instanceof Map<?, ?> publicKeys) {
+                        measurement.record(publicKeys.size());
+                    }
+                });
+
+        helper.registerLongCounter("key.requests.sent",
+                "Number of requests for the secret key sent to the key server",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.keyRequestsSent.sum()));
+
+        helper.registerLongCounter("key.requests.received",
+                "Number of requests for the secret key received by this member as the key server",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.keyRequestsReceived.sum()));
+
+        helper.registerLongCounter("key.installs.sent",
+                "Number of messages sent by this member as the key server to install the secret key on members",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.keyInstallsSent.sum()));
+
+        helper.registerLongCounter("key.installs.received",
+                "Number of messages received from the key server to install the secret key",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.keyInstallsReceived.sum()));
+
+        helper.registerLongCounter("key.external_exchanges",
+                "Number of secret keys received via the external key exchange protocol",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.externalKeyExchanges.sum()));
+
+        // Configuration metrics
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("asym_keylength",
+                    "Length of the asymmetric key pair in bits",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(protocol.asymKeylength()));
+
+            configuration.registerLongGauge("change_key_on_leave",
+                    "Whether a new secret key is generated when a member leaves (1=enabled, 0=disabled)",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(protocol.getChangeKeyOnLeave() ? 1 : 0));
+
+            configuration.registerLongGauge("change_key_on_coord_leave",
+                    "Whether a new secret key is generated when the coordinator leaves (1=enabled, 0=disabled)",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(protocol.getChangeKeyOnCoordLeave() ? 1 : 0));
+
+            configuration.registerLongGauge("use_external_key_exchange",
+                    "Whether the secret key is fetched via an external key exchange protocol (1=enabled, 0=disabled)",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(protocol.getUseExternalKeyExchange() ? 1 : 0));
+        });
+    }
+}
@@ -1,16 +1,26 @@
 package org.jgroups.opentelemetry.impl.protocols;
 
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongHistogram;
+import org.jgroups.Event;
 import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
 import org.jgroups.opentelemetry.impl.util.ReflectionHelper;
 import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
 import org.jgroups.opentelemetry.spi.InstrumentationContext;
 import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
 import org.jgroups.protocols.Discovery;
+import org.jgroups.util.Responses;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Base class for instrumenting Discovery protocol implementations with OpenTelemetry metrics.
  * Provides shared metric registration logic that is common to all Discovery-based protocols
- * (e.g., DNS_PING, JDBC_PING, FILE_PING, TCPPING, etc.).
+ * (e.g., DNS_PING, JDBC_PING, FILE_PING, TCPPING, etc.), including the duration of discovery rounds
+ * and the number of responses collected in each round.
  *
  * <p>Subclasses should override {@link #registerMetrics(InstrumentationContext)} and call
  * {@code super.registerMetrics(context)} first to register the common Discovery metrics,
@@ -20,6 +30,20 @@ import org.jgroups.protocols.Discovery;
  */
 public abstract class AbstractDiscoveryMetricsInstrumentation<T extends Discovery> implements MetricsInstrumentation<T> {
 
+    /**
+     * Registers the histogram recording the time the protocol took to issue a discovery request, i.e. the part of
+     * {@code Discovery.findMembers} performed on the calling thread. Storage-backed protocols read the discovery
+     * information from the store within this part. Invoked once per protocol instance.
+     * Defaults to not recording the time.
+     *
+     * @param protocol the protocol instance
+     * @param helper the registration helper of the protocol
+     * @return the histogram recording the time in milliseconds, or {@code null} to not record it
+     */
+    protected DoubleHistogram registerFindMembersDuration(T protocol, RegistrationHelper helper) {
+        return null;
+    }
+
     /**
      * Registers metrics common to all Discovery protocol implementations.
      * Subclasses must call {@code super.registerMetrics(context)} first, then add their
@@ -29,7 +53,7 @@ public abstract class AbstractDiscoveryMetricsInstrumentation<T extends Discover
      */
     @Override
     public void registerMetrics(InstrumentationContext context) {
-        Discovery protocol = (Discovery) context.protocol();
+        T protocol = getProtocolClass().cast(context.protocol());
         RegistrationHelper helper = new RegistrationHelper(context);
 
         helper.registerLongGauge("is_coord",
@@ -41,5 +65,91 @@ public abstract class AbstractDiscoveryMetricsInstrumentation<T extends Discover
                 "Number of discovery requests sent",
                 ObservableUnit.UNITY,
                 measurement -> measurement.record(protocol.getNumberOfDiscoveryRequestsSent()));
+
+        // Discovery rounds - from the initial discovery request until the responses were collected
+        RoundTracker tracker = new RoundTracker(
+                helper.registerDoubleHistogram("discovery.duration",
+                        "Time in milliseconds of initial discovery rounds, from sending the discovery request until the expected responses were collected or the join timeout elapsed",
+                        ObservableUnit.MILLISECONDS),
+                helper.registerLongHistogram("discovery.responses",
+                        "Number of responses collected in initial discovery rounds",
+                        ObservableUnit.UNITY));
+        DoubleHistogram findMembersDuration = registerFindMembersDuration(protocol, helper);
+
+        boolean rounds = helper.isAnyMetricEnabled("discovery.duration", "discovery.responses", "discovery.rounds.in_progress");
+        if (rounds || findMembersDuration != null) {
+            new InterceptorProtocol()
+                    .timeDownEvent(event -> event.getType() == Event.FIND_INITIAL_MBRS || event.getType() == Event.FIND_MBRS_ASYNC, (event, result, nanos) -> {
+                        if (findMembersDuration != null) {
+                            findMembersDuration.record(nanos / 1_000_000.0);
+                        }
+                        if (rounds && event.getType() == Event.FIND_INITIAL_MBRS && result instanceof Responses responses) {
+                            tracker.started(responses, System.nanoTime() - nanos, event.getArg());
+                        }
+                    })
+                    .insertAbove(protocol);
+        }
+
+        // Responses are added by the protocol as discovery responses are received
+        if (rounds) {
+            new InterceptorProtocol()
+                    .onUpCompleted(msg -> tracker.update())
+                    .onUpBatchCompleted(batch -> tracker.update())
+                    .insertBelow(protocol);
+        }
+
+        helper.registerLongGauge("discovery.rounds.in_progress",
+                "Number of initial discovery rounds waiting for responses",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.update()));
+    }
+
+    /**
+     * Tracks initial discovery rounds until their responses are done, i.e. all expected members or the coordinator
+     * responded, or until the timeout of the round elapsed, which is the time the joining member waited.
+     */
+    private static class RoundTracker {
+        private final Queue<Round> rounds = new ConcurrentLinkedQueue<>();
+        private final DoubleHistogram duration;
+        private final LongHistogram responses;
+
+        RoundTracker(DoubleHistogram duration, LongHistogram responses) {
+            this.duration = duration;
+            this.responses = responses;
+        }
+
+        void started(Responses rsps, long start, Object timeout) {
+            long deadline = start + ((timeout instanceof Long millis) ? millis : 0) * 1_000_000;
+            rounds.add(new Round(rsps, start, deadline));
+            update();
+        }
+
+        int update() {
+            if (rounds.isEmpty()) return 0;
+            long now = System.nanoTime();
+            int inProgress = 0;
+            Iterator<Round> iterator = rounds.iterator();
+            while (iterator.hasNext()) {
+                Round round = iterator.next();
+                long end;
+                if (round.rsps.isDone()) {
+                    end = now;
+                } else if (now - round.deadline >= 0) {
+                    end = round.deadline;
+                } else {
+                    inProgress++;
+                    continue;
+                }
+                // Only record rounds removed by this thread
+                if (rounds.remove(round)) {
+                    duration.record((end - round.start) / 1_000_000.0);
+                    responses.record(round.rsps.size());
+                }
+            }
+            return inProgress;
+        }
+    }
+
+    private record Round(Responses rsps, long start, long deadline) {
     }
 }
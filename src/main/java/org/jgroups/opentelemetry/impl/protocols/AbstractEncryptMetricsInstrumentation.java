@@ -0,0 +1,378 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import org.jgroups.Event;
+import org.jgroups.Message;
+import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
+import org.jgroups.opentelemetry.impl.util.ReflectionHelper;
+import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
+import org.jgroups.opentelemetry.impl.util.SampledStopwatch;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.Encrypt;
+import org.jgroups.protocols.EncryptHeader;
+import org.jgroups.util.MessageBatch;
+import org.jgroups.util.Util;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Abstract base class for encryption protocol metrics instrumentation.
+ * Provides common metrics for all {@link Encrypt}-based protocols (SYM_ENCRYPT, ASYM_ENCRYPT).
+ *
+ * <p>The encryption protocols keep no statistics, so {@link InterceptorProtocol}s are inserted directly above and below
+ * the protocol. Encrypted messages are recognized by their {@link EncryptHeader} below the protocol, and received
+ * encrypted messages which are not passed up by the protocol are counted as dropped: as version mismatches when they
+ * were encrypted with a key version other than the current one, otherwise as decryption failures. Encryption and
+ * decryption durations are sampled according to {@link InstrumentationContext#durationSamplingInterval()} and include
+ * the time spent waiting for a cipher from the cipher pool. For message batches, the average decryption time per
+ * message of the batch is recorded. Key rotations are detected as changes of the key version of the messages encrypted
+ * and decrypted, so that each version installed while messages are passing is counted.</p>
+ *
+ * @author Radoslav Husar
+ */
+public abstract class AbstractEncryptMetricsInstrumentation<T extends Encrypt<?>> implements MetricsInstrumentation<T> {
+
+    /**
+     * Type of {@link EncryptHeader} carried by encrypted messages.
+     */
+    private static final byte ENCRYPTED = 0;
+
+    @Override
+    public void registerMetrics(InstrumentationContext context) {
+        T protocol = getProtocolClass().cast(context.protocol());
+        RegistrationHelper helper = new RegistrationHelper(context);
+
+        Field encodingCiphersField = Util.getField(Encrypt.class, "encoding_ciphers");
+        Field decodingCiphersField = Util.getField(Encrypt.class, "decoding_ciphers");
+        Field keyMapField = Util.getField(Encrypt.class, "key_map");
+
+        EncryptionTracker tracker = new EncryptionTracker(protocol, context.durationSamplingInterval(),
+                helper.registerDoubleHistogram("encrypt.duration",
+                        "Sampled time in milliseconds to encrypt a message, including waiting for a cipher",
+                        ObservableUnit.MILLISECONDS),
+                helper.registerDoubleHistogram("decrypt.duration",
+                        "Sampled time in milliseconds to decrypt a message, including waiting for a cipher",
+                        ObservableUnit.MILLISECONDS));
+
+        if (helper.isAnyMetricEnabled(getTrackedMetrics())) {
+            new InterceptorProtocol()
+                    .onDown(msg -> tracker.encryptStopwatch.start())
+                    .onUp(tracker::decryptPassed)
+                    .onUpBatch(tracker::decryptBatchPassed)
+                    .insertAbove(protocol);
+
+            new InterceptorProtocol()
+                    .onDown(tracker::sending)
+                    .onUp(tracker::receiving)
+                    .onUpCompleted(tracker::received)
+                    .onUpBatch(tracker::receivingBatch)
+                    .onUpBatchCompleted(tracker::receivedBatch)
+                    .onUpEvent(tracker::receivingEvent)
+                    .insertBelow(protocol);
+        }
+
+        // Runtime metrics (always exposed) - common to all Encrypt protocols
+        helper.registerLongCounter("messages.encrypted",
+                "Number of messages encrypted",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.encrypted.sum()));
+
+        helper.registerLongCounter("bytes.encrypted",
+                "Number of encrypted bytes produced",
+                ObservableUnit.BYTES,
+                measurement -> measurement.record(tracker.encryptedBytes.sum()));
+
+        helper.registerLongCounter("messages.decrypted",
+                "Number of messages decrypted and passed up",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.decrypted.sum()));
+
+        helper.registerLongCounter("bytes.decrypted",
+                "Number of encrypted bytes received for decryption",
+                ObservableUnit.BYTES,
+                measurement -> measurement.record(tracker.decryptedBytes.sum()));
+
+        helper.registerLongCounter("decrypt.failures",
+                "Number of received messages encrypted with the current key version which were dropped because they could not be decrypted",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.decryptFailures.sum()));
+
+        helper.registerLongCounter("version_mismatch.drops",
+                "Number of received messages which were dropped because no key matching their key version was available " +
+                        "(or their sender was not a member). *Critical*: Indicates members using different keys",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.versionMismatches.sum()));
+
+        helper.registerLongCounter("key.rotations",
+                "Number of times the shared secret key was replaced",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    // Catches up with a key replaced while no messages were passing the protocol
+                    tracker.checkKeyVersion(protocol.symVersion());
+                    measurement.record(tracker.keyRotations.sum());
+                });
+
+        helper.registerLongGauge("ciphers.encoding.available",
+                "Number of encoding ciphers currently available in the cipher pool. *Critical*: 0 indicates senders are waiting for a cipher",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    if (Util.getField(encodingCiphersField, protocol) instanceof Collection<?> ciphers) {
+                        measurement.record(ciphers.size());
+                    }
+                });
+
+        helper.registerLongGauge("ciphers.decoding.available",
+                "Number of decoding ciphers currently available in the cipher pool. *Critical*: 0 indicates receivers are waiting for a cipher",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    if (Util.getField(decodingCiphersField, protocol) instanceof Collection<?> ciphers) {
+                        measurement.record(ciphers.size());
+                    }
+                });
+
+        helper.registerLongGauge("keys.cached",
+                "Number of previous secret keys cached to decrypt messages encrypted with an older key version",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    if (Util.getField(keyMapField, protocol) instanceof Map<?, ?> keys) {
+                        measurement.record(keys.size());
+                    }
+                });
+
+        registerKeyExchangeMetrics(context, helper, protocol, tracker);
+
+        // Configuration metrics
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("cipher_pool_size",
+                    "Number of ciphers in each of the encoding and decoding cipher pools",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(ReflectionHelper.getIntValue(protocol, "cipher_pool_size")));
+
+            configuration.registerLongGauge("sym_keylength",
+                    "Length of the symmetric key in bits",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(protocol.symKeylength()));
+
+            configuration.registerLongGauge("key_map_max_size",
+                    "Maximum number of previous secret keys cached",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(ReflectionHelper.getIntValue(protocol, "key_map_max_size")));
+        });
+    }
+
+    /**
+     * Returns the name components of the metrics fed by the interceptors, which are only inserted if any of these metrics
+     * is enabled. Implementations registering key exchange metrics counted by the tracker add their names.
+     *
+     * @return the name components of the metrics recorded by the tracker
+     */
+    protected String[] getTrackedMetrics() {
+        return new String[] { "encrypt.duration", "decrypt.duration", "messages.encrypted", "bytes.encrypted", "messages.decrypted",
+                "bytes.decrypted", "decrypt.failures", "version_mismatch.drops", "key.rotations" };
+    }
+
+    /**
+     * Registers metrics of key exchanges specific to the protocol. Default implementation does nothing.
+     *
+     * @param context the instrumentation context
+     * @param helper the registration helper
+     * @param protocol the encryption protocol instance
+     * @param tracker the tracker of encrypted and key exchange messages
+     */
+    protected void registerKeyExchangeMetrics(InstrumentationContext context, RegistrationHelper helper, T protocol, EncryptionTracker tracker) {
+    }
+
+    /**
+     * Tracks messages passing the encryption protocol, observed by the interceptors above and below it.
+     */
+    protected static class EncryptionTracker {
+        private final Encrypt<?> protocol;
+        private final SampledStopwatch encryptStopwatch;
+        private final SampledStopwatch decryptStopwatch;
+        private final DoubleHistogram encryptDuration;
+        private final DoubleHistogram decryptDuration;
+        private final ThreadLocal<Decryption> decryption = ThreadLocal.withInitial(Decryption::new);
+        private volatile byte[] keyVersion;
+
+        private final LongAdder encrypted = new LongAdder();
+        private final LongAdder encryptedBytes = new LongAdder();
+        private final LongAdder decrypted = new LongAdder();
+        private final LongAdder decryptedBytes = new LongAdder();
+        private final LongAdder decryptFailures = new LongAdder();
+        private final LongAdder versionMismatches = new LongAdder();
+        private final LongAdder keyRotations = new LongAdder();
+        protected final LongAdder keyRequestsSent = new LongAdder();
+        protected final LongAdder keyRequestsReceived = new LongAdder();
+        protected final LongAdder keyInstallsSent = new LongAdder();
+        protected final LongAdder keyInstallsReceived = new LongAdder();
+        protected final LongAdder externalKeyExchanges = new LongAdder();
+
+        EncryptionTracker(Encrypt<?> protocol, int samplingInterval, DoubleHistogram encryptDuration, DoubleHistogram decryptDuration) {
+            this.protocol = protocol;
+            this.encryptStopwatch = new SampledStopwatch(samplingInterval);
+            this.decryptStopwatch = new SampledStopwatch(samplingInterval);
+            this.encryptDuration = encryptDuration;
+            this.decryptDuration = decryptDuration;
+        }
+
+        void sending(Message msg) {
+            long nanos = encryptStopwatch.stop();
+            if (msg.getHeader(protocol.getId()) instanceof EncryptHeader header) {
+                switch (header.type()) {
+                    case ENCRYPTED -> {
+                        checkKeyVersion(header.version());
+                        encrypted.increment();
+                        encryptedBytes.add(msg.getLength());
+                        if (nanos >= 0) {
+                            encryptDuration.record(nanos / 1_000_000.0);
+                        }
+                    }
+                    case EncryptHeader.FETCH_SHARED_KEY -> keyRequestsSent.increment();
+                    case EncryptHeader.INSTALL_KEYS -> keyInstallsSent.increment();
+                }
+            }
+        }
+
+        void receiving(Message msg) {
+            Decryption decryption = this.decryption.get();
+            if (decryption.batch || !(msg.getHeader(protocol.getId()) instanceof EncryptHeader header)) return;
+            switch (header.type()) {
+                case ENCRYPTED -> {
+                    decryptedBytes.add(msg.getLength());
+                    decryption.header = header;
+                    decryption.passed = false;
+                    decryptStopwatch.start();
+                }
+                case EncryptHeader.FETCH_SHARED_KEY -> keyRequestsReceived.increment();
+                case EncryptHeader.INSTALL_KEYS -> keyInstallsReceived.increment();
+            }
+        }
+
+        void decryptPassed(Message msg) {
+            Decryption decryption = this.decryption.get();
+            if (decryption.batch || decryption.header == null || decryption.passed) return;
+            decryption.passed = true;
+            decrypted.increment();
+            checkKeyVersion(protocol.symVersion());
+            long nanos = decryptStopwatch.stop();
+            if (nanos >= 0) {
+                decryptDuration.record(nanos / 1_000_000.0);
+            }
+        }
+
+        void received(Message msg) {
+            Decryption decryption = this.decryption.get();
+            if (decryption.batch) return;
+            EncryptHeader header = decryption.header;
+            if (header != null) {
+                if (!decryption.passed) {
+                    decryptStopwatch.stop();
+                    if (Arrays.equals(header.version(), protocol.symVersion())) {
+                        decryptFailures.increment();
+                    } else {
+                        versionMismatches.increment();
+                    }
+                }
+                decryption.header = null;
+            } else if (msg.getHeader(protocol.getId()) instanceof EncryptHeader installed && installed.type() == EncryptHeader.INSTALL_KEYS) {
+                checkKeyVersion(protocol.symVersion());
+            }
+        }
+
+        void receivingBatch(MessageBatch batch) {
+            Decryption decryption = this.decryption.get();
+            byte[] version = protocol.symVersion();
+            int encryptedCount = 0;
+            int mismatched = 0;
+            for (Message msg : batch) {
+                if (msg.getHeader(protocol.getId()) instanceof EncryptHeader header && header.type() == ENCRYPTED) {
+                    encryptedCount++;
+                    decryptedBytes.add(msg.getLength());
+                    if (!Arrays.equals(header.version(), version)) {
+                        mismatched++;
+                    }
+                }
+            }
+            decryption.batch = true;
+            decryption.batchEncrypted = encryptedCount;
+            decryption.batchPlain = batch.size() - encryptedCount;
+            decryption.batchMismatched = mismatched;
+            decryption.batchPassed = 0;
+            if (encryptedCount > 0) {
+                decryptStopwatch.start();
+            }
+        }
+
+        void decryptBatchPassed(MessageBatch batch) {
+            Decryption decryption = this.decryption.get();
+            if (!decryption.batch || decryption.batchEncrypted == 0) return;
+            decryption.batchPassed = Math.max(0, Math.min(decryption.batchEncrypted, batch.size() - decryption.batchPlain));
+            decrypted.add(decryption.batchPassed);
+            checkKeyVersion(protocol.symVersion());
+            long nanos = decryptStopwatch.stop();
+            if (nanos >= 0) {
+                decryptDuration.record(nanos / 1_000_000.0 / decryption.batchEncrypted);
+            }
+        }
+
+        void receivedBatch(MessageBatch batch) {
+            Decryption decryption = this.decryption.get();
+            if (decryption.batchEncrypted > 0) {
+                decryptStopwatch.stop();
+                int dropped = decryption.batchEncrypted - decryption.batchPassed;
+                int mismatched = Math.min(dropped, decryption.batchMismatched);
+                versionMismatches.add(mismatched);
+                decryptFailures.add(dropped - mismatched);
+            }
+            decryption.batch = false;
+            decryption.batchEncrypted = 0;
+        }
+
+        void receivingEvent(Event evt) {
+            if (evt.getType() == Event.SET_SECRET_KEY) {
+                externalKeyExchanges.increment();
+            }
+        }
+
+        /**
+         * Counts a key rotation if the given key version differs from the last one seen. Called for every message passing
+         * the protocol; encrypted messages carry the very array of the current version, so the check is a reference
+         * comparison unless the key was replaced.
+         *
+         * @param current the current key version, or {@code null} if no key is installed yet
+         */
+        void checkKeyVersion(byte[] current) {
+            byte[] previous = keyVersion;
+            if (current != null && current != previous) {
+                synchronized (this) {
+                    previous = keyVersion;
+                    if (current != previous && !Arrays.equals(current, previous)) {
+                        if (previous != null) {
+                            keyRotations.increment();
+                        }
+                    }
+                    keyVersion = current;
+                }
+            }
+        }
+
+        /**
+         * Per-thread state of the message or batch currently being decrypted.
+         */
+        private static class Decryption {
+            private EncryptHeader header;
+            private boolean passed;
+            private boolean batch;
+            private int batchEncrypted;
+            private int batchPlain;
+            private int batchMismatched;
+            private int batchPassed;
+        }
+    }
+}
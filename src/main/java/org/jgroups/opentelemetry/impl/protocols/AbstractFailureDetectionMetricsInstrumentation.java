@@ -0,0 +1,228 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import org.jgroups.Address;
+import org.jgroups.Event;
+import org.jgroups.View;
+import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
+import org.jgroups.opentelemetry.impl.util.ReflectionHelper;
+import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.FailureDetection;
+import org.jgroups.util.Util;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Abstract base class for heartbeat-based failure detection protocol metrics instrumentation.
+ * Provides common metrics for all {@link FailureDetection}-based protocols (FD_ALL, FD_ALL2, FD_ALL3),
+ * including the distribution of heartbeat ages relative to the timeout and the failure detection latency.
+ *
+ * @author Radoslav Husar
+ */
+public abstract class AbstractFailureDetectionMetricsInstrumentation<T extends FailureDetection> implements MetricsInstrumentation<T> {
+
+    private static final List<Double> HEARTBEAT_AGE_RATIO_BUCKETS = List.of(0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9, 1.0);
+
+    /**
+     * Function returning the time in milliseconds since the last heartbeat was received from a member.
+     */
+    @FunctionalInterface
+    protected interface HeartbeatAge {
+        /**
+         * @param member the member
+         * @param timestamp the entry of the member in the protocol's timestamps map
+         * @return the time in milliseconds since the last heartbeat, or -1 if unknown
+         */
+        long get(Address member, Object timestamp);
+    }
+
+    /**
+     * Creates the function returning the heartbeat age of members as seen by the protocol, i.e. with the resolution
+     * the protocol uses to decide whether to suspect a member. Invoked once per protocol instance.
+     *
+     * @param protocol the protocol instance
+     * @return the heartbeat age function
+     */
+    protected abstract HeartbeatAge createHeartbeatAge(T protocol);
+
+    /**
+     * Creates the function returning the precise time since the last heartbeat or message was received from a member,
+     * used for the failure detection latency and per-member metrics.
+     * Defaults to the heartbeat age as seen by the protocol.
+     *
+     * @param protocol the protocol instance
+     * @param heartbeatAge the function created by {@link #createHeartbeatAge(FailureDetection)}
+     * @return the function returning the time since the last heartbeat or message
+     */
+    protected HeartbeatAge createLastReceivedAge(T protocol, HeartbeatAge heartbeatAge) {
+        return heartbeatAge;
+    }
+
+    @Override
+    public void registerMetrics(InstrumentationContext context) {
+        T protocol = getProtocolClass().cast(context.protocol());
+        RegistrationHelper helper = new RegistrationHelper(context);
+
+        // Runtime metrics (always exposed) - common to all failure detection protocols
+        helper.registerLongCounter("heartbeats.sent",
+                "Number of heartbeats sent",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.getHeartbeatsSent()));
+
+        helper.registerLongCounter("heartbeats.received",
+                "Number of heartbeats received",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.getHeartbeatsReceived()));
+
+        helper.registerLongCounter("suspect_events",
+                "Number of suspect events sent",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.getSuspectEventsSent()));
+
+        helper.registerLongGauge("has_suspected_members",
+                "Indicates whether there are currently any suspected members (1=yes, 0=no)",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(ReflectionHelper.getBooleanValue(protocol, "has_suspected_mbrs") ? 1 : 0));
+
+        helper.registerLongGauge("timeout_checker.running",
+                "Indicates whether the timeout checker task is running (1=running, 0=stopped)",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.isTimeoutCheckerRunning() ? 1 : 0));
+
+        helper.registerLongGauge("heartbeat_sender.running",
+                "Indicates whether the heartbeat sender task is running (1=running, 0=stopped)",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.isHeartbeatSenderRunning() ? 1 : 0));
+
+        // Heartbeat ages - early warning of members approaching the timeout (e.g., due to GC pauses or network jitter)
+        Field timestampsField = Util.getField(protocol.getClass(), "timestamps");
+        // The age functions may insert an interceptor, so they are only created for the metrics using them
+        boolean ages = helper.isAnyMetricEnabled("heartbeat.age.max", "heartbeat.age.ratio");
+        boolean detection = helper.isAnyMetricEnabled("detection.duration");
+        boolean lastReceived = detection || (context.perMemberMetrics() && helper.isAnyMetricEnabled("member.heartbeat.age"));
+        HeartbeatAge heartbeatAge = (ages || lastReceived) ? createHeartbeatAge(protocol) : null;
+        HeartbeatAge lastReceivedAge = lastReceived ? createLastReceivedAge(protocol, heartbeatAge) : null;
+
+        DoubleHistogram heartbeatAgeRatio = helper.registerDoubleHistogram("heartbeat.age.ratio",
+                "Distribution of the heartbeat age of members relative to the timeout, recorded for each member at every metric collection. Values approaching 1 indicate members close to being suspected",
+                ObservableUnit.UNITY,
+                HEARTBEAT_AGE_RATIO_BUCKETS);
+
+        helper.registerCollectionHook("heartbeat.age.ratio", () -> {
+            long timeout = protocol.getTimeout();
+            if (timeout <= 0) return;
+            forEachHeartbeatAge(protocol, timestampsField, heartbeatAge, (member, age) -> heartbeatAgeRatio.record((double) age / timeout));
+        });
+
+        helper.registerLongGauge("heartbeat.age.max",
+                "Time in milliseconds since the last heartbeat was received from the member heard from least recently",
+                ObservableUnit.MILLISECONDS,
+                measurement -> {
+                    long[] max = { 0 };
+                    forEachHeartbeatAge(protocol, timestampsField, heartbeatAge, (member, age) -> max[0] = Math.max(max[0], age));
+                    measurement.record(max[0]);
+                });
+
+        DoubleHistogram detectionDuration = helper.registerDoubleHistogram("detection.duration",
+                "Time in milliseconds from the last heartbeat or message received from a member until it was suspected. Recorded by the member which raises the suspect event",
+                ObservableUnit.MILLISECONDS);
+
+        if (detection) {
+            new InterceptorProtocol()
+                    .onUpEvent(event -> {
+                        if (event.getType() != Event.SUSPECT || !(event.getArg() instanceof Collection<?> suspects)) return;
+                        Map<Address, ?> timestamps = getTimestamps(timestampsField, protocol);
+                        for (Object suspect : suspects) {
+                            long age = lastReceivedAge.get((Address) suspect, timestamps.get(suspect));
+                            if (age >= 0) {
+                                detectionDuration.record(age);
+                            }
+                        }
+                    })
+                    .insertAbove(protocol);
+        }
+
+        // Per-member metrics (opt-in)
+        helper.registerPerMemberLongGauge("member.heartbeat.age",
+                "Time in milliseconds since the last heartbeat or message was received per member",
+                ObservableUnit.MILLISECONDS,
+                RegistrationHelper.Ranking.HIGHEST_FIRST,
+                Math::max,
+                values -> forEachHeartbeatAge(protocol, timestampsField, lastReceivedAge, values));
+
+        // Configuration metrics
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("timeout",
+                    "Timeout in milliseconds after which a node is suspected if no heartbeat or data received",
+                    ObservableUnit.MILLISECONDS,
+                    measurement -> measurement.record(protocol.getTimeout()));
+
+            configuration.registerLongGauge("interval",
+                    "Interval in milliseconds at which a heartbeat is sent to the cluster",
+                    ObservableUnit.MILLISECONDS,
+                    measurement -> measurement.record(protocol.getInterval()));
+        });
+    }
+
+    /**
+     * Tracks the time the last message was received from each member by inserting an interceptor directly below
+     * the protocol, for protocols which do not keep the time of the last heartbeat themselves.
+     *
+     * @param protocol the protocol instance
+     * @return the function returning the time in milliseconds since the last message was received from a member
+     */
+    protected static HeartbeatAge trackLastReceived(FailureDetection protocol) {
+        Map<Address, Long> lastReceived = new ConcurrentHashMap<>();
+        new InterceptorProtocol()
+                .onUp(msg -> {
+                    Address sender = msg.getSrc();
+                    if (sender != null) {
+                        lastReceived.put(sender, System.nanoTime());
+                    }
+                })
+                .onUpBatch(batch -> {
+                    Address sender = batch.sender();
+                    if (sender != null) {
+                        lastReceived.put(sender, System.nanoTime());
+                    }
+                })
+                .onDownEvent(event -> {
+                    if (event.getType() == Event.VIEW_CHANGE) {
+                        lastReceived.keySet().retainAll(((View) event.getArg()).getMembers());
+                    }
+                })
+                .insertBelow(protocol);
+
+        return (member, timestamp) -> {
+            Long received = lastReceived.get(member);
+            return (received != null) ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - received) : -1;
+        };
+    }
+
+    /**
+     * Passes the known age of each member other than this one to the given consumer.
+     */
+    private static void forEachHeartbeatAge(FailureDetection protocol, Field timestampsField, HeartbeatAge heartbeatAge, ObjLongConsumer<Address> consumer) {
+        for (Map.Entry<Address, ?> entry : getTimestamps(timestampsField, protocol).entrySet()) {
+            if (entry.getKey().equals(protocol.getAddress())) continue;
+            long age = heartbeatAge.get(entry.getKey(), entry.getValue());
+            if (age >= 0) {
+                consumer.accept(entry.getKey(), age);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Address, ?> getTimestamps(Field timestampsField, FailureDetection protocol) {
+        return (timestampsField != null && Util.getField(timestampsField, protocol) instanceof Map<?, ?> timestamps) ? (Map<Address, ?>) timestamps : Map.of();
+    }
+}
@@ -1,6 +1,9 @@
 package org.jgroups.opentelemetry.impl.protocols;
 
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import org.jgroups.Event;
 import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
 import org.jgroups.opentelemetry.impl.util.ReflectionHelper;
 import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
 import org.jgroups.opentelemetry.spi.InstrumentationContext;
@@ -11,7 +14,8 @@ import org.jgroups.protocols.FILE_PING;
  * Provides shared metric registration logic that is common to all FILE_PING-based protocols
  * (e.g., JDBC_PING, JDBC_PING2, RACKSPACE_PING, SWIFT_PING).
  *
- * <p>FILE_PING extends Discovery and adds file-based storage metrics (writes, reads).
+ * <p>FILE_PING extends Discovery and adds file-based storage metrics (writes, reads) and the time spent
+ * reading and writing the discovery information.
  * Subclasses should override {@link #registerMetrics(InstrumentationContext)} and call
  * {@code super.registerMetrics(context)} first to register the common FILE_PING metrics,
  * then add their protocol-specific metrics.</p>
@@ -20,6 +24,16 @@ import org.jgroups.protocols.FILE_PING;
  */
 public abstract class AbstractFilePingMetricsInstrumentation<T extends FILE_PING> extends AbstractDiscoveryMetricsInstrumentation<T> {
 
+    @Override
+    protected DoubleHistogram registerFindMembersDuration(T protocol, RegistrationHelper helper) {
+        // With asynchronous discovery the store is read on a separate thread
+        if (ReflectionHelper.getBooleanValue(protocol, "async_discovery") || !helper.isAnyMetricEnabled("read.duration")) return null;
+
+        return helper.registerDoubleHistogram("read.duration",
+                "Time in milliseconds to read the discovery information from the store and send the discovery requests in a discovery round",
+                ObservableUnit.MILLISECONDS);
+    }
+
     /**
      * Registers metrics common to all FILE_PING protocol implementations.
      * Subclasses must call {@code super.registerMetrics(context)} first, then add their
@@ -45,5 +59,26 @@ public abstract class AbstractFilePingMetricsInstrumentation<T extends FILE_PING
                 "Number of times discovery information was read",
                 ObservableUnit.UNITY,
                 measurement -> measurement.record(ReflectionHelper.getIntValue(protocol, "reads")));
+
+        // The coordinator updates the store on the thread installing the view, after the view was passed down the stack
+        DoubleHistogram writeDuration = helper.registerDoubleHistogram("write.duration",
+                "Time in milliseconds to update the discovery information in the store on a view change, recorded by the coordinator",
+                ObservableUnit.MILLISECONDS);
+
+        if (helper.isAnyMetricEnabled("write.duration")) {
+            // The time spent in the protocols below is subtracted, leaving the store update done once the view returns;
+            // views are installed one at a time by the same thread passing them through both interceptors
+            long[] belowNanos = new long[1];
+            new InterceptorProtocol()
+                    .timeDownEvent(event -> event.getType() == Event.VIEW_CHANGE, (event, result, nanos) -> belowNanos[0] = nanos)
+                    .insertBelow(protocol);
+            new InterceptorProtocol()
+                    .timeDownEvent(event -> event.getType() == Event.VIEW_CHANGE, (event, result, nanos) -> {
+                        if (ReflectionHelper.getBooleanValue(protocol, "is_coord")) {
+                            writeDuration.record(Math.max(nanos - belowNanos[0], 0) / 1_000_000.0);
+                        }
+                    })
+                    .insertAbove(protocol);
+        }
     }
 }
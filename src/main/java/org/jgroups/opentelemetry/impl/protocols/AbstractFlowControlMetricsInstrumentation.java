@@ -1,22 +1,51 @@
 package org.jgroups.opentelemetry.impl.protocols;
 
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import org.jgroups.Address;
+import org.jgroups.Message;
 import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
 import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
 import org.jgroups.opentelemetry.spi.InstrumentationContext;
 import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.FcHeader;
 import org.jgroups.protocols.FlowControl;
 
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToLongFunction;
+
 /**
  * Abstract base class for flow control protocol metrics instrumentation.
- * Provides common metrics for all {@link FlowControl}-based protocols (UFC, MFC).
+ * Provides common metrics for all {@link FlowControl}-based protocols (UFC, MFC), including the time senders
+ * were blocked waiting for credits and the lowest credits of any receiver, i.e. how close the slowest receiver
+ * is to throttling the senders. The receivers themselves are only reported by the opt-in per-member metrics.
  *
  * @author Radoslav Husar
  */
 public abstract class AbstractFlowControlMetricsInstrumentation<T extends FlowControl> implements MetricsInstrumentation<T> {
 
+    /**
+     * Creates the function returning the credits available to send the given message, i.e. a message longer than
+     * the returned credits blocks, or -1 if the message is not subject to flow control by the protocol.
+     * Invoked once per protocol instance.
+     *
+     * @param protocol the protocol instance
+     * @return the function returning the available credits in bytes
+     */
+    protected abstract ToLongFunction<Message> createAvailableCredits(T protocol);
+
+    /**
+     * Passes the remaining credits of each receiver, as seen by this member as a sender, to the given consumer.
+     *
+     * @param protocol the protocol instance
+     * @param credits the consumer accepting the receiver and its remaining credits in bytes
+     */
+    protected abstract void forEachSenderCredits(T protocol, ObjLongConsumer<Address> credits);
+
     @Override
     public void registerMetrics(InstrumentationContext context) {
-        T protocol = (T) context.protocol();
+        T protocol = getProtocolClass().cast(context.protocol());
         RegistrationHelper helper = new RegistrationHelper(context);
 
         // Runtime metrics (always exposed) - common to all FlowControl protocols
@@ -40,37 +69,106 @@ public abstract class AbstractFlowControlMetricsInstrumentation<T extends FlowCo
                 ObservableUnit.UNITY,
                 measurement -> measurement.record(protocol.getNumberOfCreditResponsesSent()));
 
-        helper.registerLongGauge("blocked",
+        helper.registerLongCounter("blocked",
                 "Number of times flow control blocked a sender waiting for credits",
                 ObservableUnit.UNITY,
                 measurement -> measurement.record(protocol.getNumberOfBlockings()));
 
+        // Blocked senders - measured between interceptors above and below the protocol on the sending thread
+        BlockingTracker tracker = new BlockingTracker(protocol, createAvailableCredits(protocol),
+                helper.registerDoubleHistogram("blocked.duration",
+                        "Time in milliseconds a message was blocked waiting for credits",
+                        ObservableUnit.MILLISECONDS));
+
+        if (helper.isAnyMetricEnabled("blocked.duration", "blocked.credit.requests")) {
+            new InterceptorProtocol()
+                    .onDown(tracker::start)
+                    .insertAbove(protocol);
+
+            new InterceptorProtocol()
+                    .onDown(tracker::stop)
+                    .insertBelow(protocol);
+        }
+
+        helper.registerLongCounter("blocked.credit.requests",
+                "Number of credit requests sent by blocked senders which waited max_block_time without receiving credits",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.creditRequests.sum()));
+
+        // Slow receivers - credits below min_credits cause senders to request credits and eventually block
+        helper.registerLongGauge("credits.lowest",
+                "Lowest remaining credits in bytes of any receiver",
+                ObservableUnit.BYTES,
+                measurement -> {
+                    boolean[] found = { false };
+                    long[] min = { Long.MAX_VALUE };
+                    forEachSenderCredits(protocol, (member, credits) -> {
+                        min[0] = Math.min(min[0], credits);
+                        found[0] = true;
+                    });
+                    if (found[0]) {
+                        measurement.record(min[0]);
+                    }
+                });
+
+        helper.registerLongGauge("credits.low.members",
+                "Number of receivers whose remaining credits are below min_credits",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    long minCredits = protocol.getMinCredits();
+                    long[] count = { 0 };
+                    forEachSenderCredits(protocol, (member, credits) -> {
+                        if (credits < minCredits) {
+                            count[0]++;
+                        }
+                    });
+                    measurement.record(count[0]);
+                });
+
+        // Per-member metrics (opt-in)
+        helper.registerPerMemberLongGauge("member.credits",
+                "Remaining credits in bytes per receiving member. *Critical*: 0 indicates senders to the member are blocked",
+                ObservableUnit.BYTES,
+                RegistrationHelper.Ranking.LOWEST_FIRST,
+                Math::min,
+                values -> forEachSenderCredits(protocol, values));
+
+        helper.registerPerMemberLongGauge("member.credits.low",
+                "Indicates whether the remaining credits of the receiving member are below min_credits (1=below, 0=sufficient)",
+                ObservableUnit.UNITY,
+                RegistrationHelper.Ranking.HIGHEST_FIRST,
+                Math::max,
+                values -> {
+                    long minCredits = protocol.getMinCredits();
+                    forEachSenderCredits(protocol, (member, credits) -> values.accept(member, credits < minCredits ? 1 : 0));
+                });
+
         // Average time blocked - subclasses may override if unit conversion is needed
         // since these use different unites per implementation
         registerAverageTimeBlocked(helper, protocol);
 
         // Configuration metrics
-        if (context.exposeConfigurationMetrics()) {
-            helper.registerLongGauge("credits.max",
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("credits.max",
                     "Maximum number of bytes to send per receiver before credits must be replenished",
                     ObservableUnit.BYTES,
                     measurement -> measurement.record(protocol.getMaxCredits()));
 
-            helper.registerLongGauge("credits.min",
+            configuration.registerLongGauge("credits.min",
                     "Threshold at which a receiver sends more credits to a sender",
                     ObservableUnit.BYTES,
                     measurement -> measurement.record(protocol.getMinCredits()));
 
-            helper.registerDoubleGauge("credits.threshold.min",
+            configuration.registerDoubleGauge("credits.threshold.min",
                     "Threshold (as percentage of max_credits) at which a receiver sends more credits",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(protocol.getMinThreshold()));
 
-            helper.registerLongGauge("blocked.max",
+            configuration.registerLongGauge("blocked.max",
                     "Maximum time in milliseconds to block waiting for credits before sending a replenishment request",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(protocol.getMaxBlockTime()));
-        }
+        });
     }
 
     /**
@@ -86,4 +184,59 @@ public abstract class AbstractFlowControlMetricsInstrumentation<T extends FlowCo
                 ObservableUnit.MILLISECONDS,
                 measurement -> measurement.record(protocol.getAverageTimeBlocked()));
     }
+
+    /**
+     * Times the messages subject to flow control on the sending thread. A message is considered blocked if the credits
+     * available when it entered the protocol did not suffice to send it, or if the protocol sent a credit request on
+     * its thread while it was blocked. Both are determined per message, as the number of blockings kept by the
+     * protocol is shared by all sending threads.
+     */
+    private static class BlockingTracker {
+        private final short id;
+        private final ToLongFunction<Message> availableCredits;
+        private final DoubleHistogram blockedDuration;
+        private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+        final LongAdder creditRequests = new LongAdder();
+
+        BlockingTracker(FlowControl protocol, ToLongFunction<Message> availableCredits, DoubleHistogram blockedDuration) {
+            this.id = protocol.getId();
+            this.availableCredits = availableCredits;
+            this.blockedDuration = blockedDuration;
+        }
+
+        void start(Message msg) {
+            int length = msg.getLength();
+            if (msg.isFlagSet(Message.Flag.NO_FC) || length == 0) return;
+            long available = availableCredits.applyAsLong(msg);
+            if (available < 0) return;
+            State state = this.state.get();
+            state.msg = msg;
+            state.blocked = available < length;
+            state.start = System.nanoTime();
+        }
+
+        void stop(Message msg) {
+            State state = this.state.get();
+            if (state.msg == null) return;
+            if (state.msg != msg) {
+                // Messages with a flow control header passing down while a message is in the protocol are the credit requests
+                // sent by the blocked thread whenever it waited max_block_time; replenishments are only sent by receiving threads
+                if (msg.getHeader(id) instanceof FcHeader) {
+                    creditRequests.increment();
+                    state.blocked = true;
+                }
+                return;
+            }
+            state.msg = null;
+            if (state.blocked) {
+                blockedDuration.record((System.nanoTime() - state.start) / 1_000_000.0);
+            }
+        }
+
+        private static class State {
+            private Message msg;
+            private boolean blocked;
+            private long start;
+        }
+    }
 }
@@ -0,0 +1,224 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import org.jgroups.Address;
+import org.jgroups.Event;
+import org.jgroups.Message;
+import org.jgroups.View;
+import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
+import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.Fragmentation;
+import org.jgroups.util.Util;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Abstract base class for fragmentation protocol metrics instrumentation.
+ * Provides common metrics for all {@link Fragmentation}-based protocols (FRAG2, FRAG3, FRAG4).
+ *
+ * <p>Fragment counts and the reassembly table are read from the protocol. Counts of fragmented and
+ * reassembled messages and the reassembly duration are not tracked by the protocols themselves, so an
+ * {@link InterceptorProtocol} is inserted directly below the fragmentation protocol to observe fragments.
+ * The reassembly duration is measured from the arrival of the first fragment to the arrival of the last one.</p>
+ *
+ * @author Radoslav Husar
+ */
+public abstract class AbstractFragmentationMetricsInstrumentation<T extends Fragmentation> implements MetricsInstrumentation<T> {
+
+    @Override
+    public void registerMetrics(InstrumentationContext context) {
+        T protocol = getProtocolClass().cast(context.protocol());
+        RegistrationHelper helper = new RegistrationHelper(context);
+
+        Field fragmentListField = Util.getField(protocol.getClass(), "fragment_list");
+
+        ReassemblyTracker tracker = new ReassemblyTracker(helper.registerDoubleHistogram("reassembly.duration",
+                "Time in milliseconds from the arrival of the first fragment of a message to the arrival of its last fragment",
+                ObservableUnit.MILLISECONDS));
+
+        if (helper.isAnyMetricEnabled("reassembly.duration", "messages.fragmented", "messages.reassembled")) {
+            new InterceptorProtocol()
+                    .onDown(msg -> {
+                        Fragment fragment = getFragment(protocol, msg);
+                        if (fragment != null && fragment.fragId() == 0) {
+                            tracker.fragmented.increment();
+                        }
+                    })
+                    .onUp(msg -> {
+                        Fragment fragment = getFragment(protocol, msg);
+                        if (fragment != null) {
+                            tracker.fragmentReceived(msg.getSrc(), fragment);
+                        }
+                    })
+                    .onDownEvent(evt -> {
+                        if (evt.getType() == Event.VIEW_CHANGE) {
+                            tracker.retainAll(evt.getArg());
+                        }
+                    })
+                    .insertBelow(protocol);
+        }
+
+        // Runtime metrics (always exposed) - common to all Fragmentation protocols
+        helper.registerLongCounter("fragments.sent",
+                "Number of fragments sent",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.getNumberOfSentFragments()));
+
+        helper.registerLongCounter("fragments.received",
+                "Number of fragments received",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.getNumberOfReceivedFragments()));
+
+        helper.registerLongCounter("messages.fragmented",
+                "Number of messages which were fragmented before sending",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.fragmented.sum()));
+
+        helper.registerLongCounter("messages.reassembled",
+                "Number of messages which were reassembled from received fragments",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.reassembled.sum()));
+
+        helper.registerLongGauge("reassembly.entries",
+                "Number of partially received messages awaiting reassembly",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    long[] total = new long[1];
+                    forEachSender(protocol, fragmentListField, (sender, entries) -> total[0] += entries.size());
+                    measurement.record(total[0]);
+                });
+
+        helper.registerLongGauge("reassembly.bytes",
+                "Estimated number of bytes held in reassembly buffers of partially received messages",
+                ObservableUnit.BYTES,
+                measurement -> {
+                    long[] total = new long[1];
+                    forEachSender(protocol, fragmentListField, (sender, entries) -> total[0] += getReassemblyBufferSize(entries));
+                    measurement.record(total[0]);
+                });
+
+        // Per-member metrics (opt-in)
+        helper.registerPerMemberLongGauge("member.reassembly.entries",
+                "Number of partially received messages awaiting reassembly per sending member",
+                ObservableUnit.UNITY,
+                RegistrationHelper.Ranking.HIGHEST_FIRST,
+                Long::sum,
+                values -> forEachSender(protocol, fragmentListField, (sender, entries) -> values.accept(sender, entries.size())));
+
+        helper.registerPerMemberLongGauge("member.reassembly.bytes",
+                "Estimated number of bytes held in reassembly buffers of partially received messages per sending member",
+                ObservableUnit.BYTES,
+                RegistrationHelper.Ranking.HIGHEST_FIRST,
+                Long::sum,
+                values -> forEachSender(protocol, fragmentListField, (sender, entries) -> values.accept(sender, getReassemblyBufferSize(entries))));
+
+        // Configuration metrics
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("frag_size",
+                    "Maximum number of bytes in a message; larger messages are fragmented",
+                    ObservableUnit.BYTES,
+                    measurement -> measurement.record(protocol.getFragSize()));
+        });
+    }
+
+    /**
+     * Returns the fragment information carried by the given message.
+     *
+     * @param protocol the fragmentation protocol instance
+     * @param msg the message passing below the fragmentation protocol
+     * @return the fragment information, or {@code null} if the message is not a fragment
+     */
+    protected abstract Fragment getFragment(T protocol, Message msg);
+
+    /**
+     * Returns an estimate of the number of bytes held by an entry of the protocol's reassembly table.
+     *
+     * @param entry the reassembly table entry
+     * @return the estimated number of bytes held by the entry
+     */
+    protected abstract long getReassemblyBufferSize(Object entry);
+
+    private long getReassemblyBufferSize(Map<?, ?> entries) {
+        long bytes = 0;
+        for (Object entry : entries.values()) {
+            bytes += getReassemblyBufferSize(entry);
+        }
+        return bytes;
+    }
+
+    private static void forEachSender(Fragmentation protocol, Field fragmentListField, SenderEntriesConsumer consumer) {
+        Object value = Util.getField(fragmentListField, protocol);
+        if (value instanceof Map<?, ?> fragmentList) {
+            for (Map.Entry<?, ?> entry : fragmentList.entrySet()) {
+                if (entry.getKey() instanceof Address sender && entry.getValue() instanceof Map<?, ?> entries && !entries.isEmpty()) {
+                    consumer.accept(sender, entries);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface SenderEntriesConsumer {
+        void accept(Address sender, Map<?, ?> entries);
+    }
+
+    /**
+     * Fragment information extracted from a fragmentation protocol header.
+     *
+     * @param id the identifier of the fragmented message (unique per sender)
+     * @param fragId the index of this fragment
+     * @param numFrags the total number of fragments of the message
+     */
+    protected record Fragment(long id, int fragId, int numFrags) {
+    }
+
+    /**
+     * Tracks in-flight reassemblies to measure the time between the first and the last received fragment.
+     */
+    private static class ReassemblyTracker {
+        private final ConcurrentMap<Key, Reassembly> pending = new ConcurrentHashMap<>();
+        private final LongAdder fragmented = new LongAdder();
+        private final LongAdder reassembled = new LongAdder();
+        private final DoubleHistogram duration;
+
+        ReassemblyTracker(DoubleHistogram duration) {
+            this.duration = duration;
+        }
+
+        void fragmentReceived(Address sender, Fragment fragment) {
+            long now = System.nanoTime();
+            Key key = new Key(sender, fragment.id());
+            Reassembly reassembly = pending.computeIfAbsent(key, k -> new Reassembly(now));
+            if (reassembly.received.incrementAndGet() == fragment.numFrags()) {
+                pending.remove(key);
+                reassembled.increment();
+                duration.record((now - reassembly.start) / 1_000_000.0);
+            }
+        }
+
+        void retainAll(View view) {
+            // Fragments from members which left are discarded by the protocol and never complete
+            pending.keySet().removeIf(key -> !view.containsMember(key.sender()));
+        }
+
+        private record Key(Address sender, long id) {
+        }
+
+        private static class Reassembly {
+            private final long start;
+            private final AtomicInteger received = new AtomicInteger();
+
+            Reassembly(long start) {
+                this.start = start;
+            }
+        }
+    }
+}
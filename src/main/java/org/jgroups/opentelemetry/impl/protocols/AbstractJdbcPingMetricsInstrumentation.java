@@ -0,0 +1,335 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import org.jgroups.Event;
+import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
+import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.protocols.FILE_PING;
+import org.jgroups.util.Util;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Base class for instrumenting JDBC_PING and JDBC_PING2 with OpenTelemetry metrics.
+ * Times the database operations issued by the protocol by wrapping its {@link DataSource}. Protocols configured
+ * with a connection URL instead of a data source are given a data source opening each connection via the
+ * {@link DriverManager} with the configured URL and credentials, exactly as the protocol would itself.
+ *
+ * <p>Statements are attributed to an operation by matching their SQL against the statements configured
+ * on the protocol. The data source is wrapped once the protocol was initialized, i.e. when the channel connects,
+ * so operations issued during initialization (e.g. schema creation) are not timed.</p>
+ *
+ * @author Radoslav Husar
+ */
+public abstract class AbstractJdbcPingMetricsInstrumentation<T extends FILE_PING> extends AbstractFilePingMetricsInstrumentation<T> {
+
+    @Override
+    public void registerMetrics(InstrumentationContext context) {
+        // Register common FILE_PING metrics (which includes Discovery metrics)
+        super.registerMetrics(context);
+
+        T protocol = getProtocolClass().cast(context.protocol());
+        RegistrationHelper helper = new RegistrationHelper(context);
+
+        JdbcMetrics metrics = new JdbcMetrics(
+                helper.registerDoubleHistogram("select.duration",
+                        "Time in milliseconds to execute the query selecting the discovery information of all members",
+                        ObservableUnit.MILLISECONDS),
+                helper.registerDoubleHistogram("insert.duration",
+                        "Time in milliseconds to execute the statement inserting the discovery information of a member",
+                        ObservableUnit.MILLISECONDS),
+                helper.registerDoubleHistogram("delete.duration",
+                        "Time in milliseconds to execute the statement deleting the discovery information of a member",
+                        ObservableUnit.MILLISECONDS),
+                helper.registerDoubleHistogram("clear.duration",
+                        "Time in milliseconds to execute the statement deleting the discovery information of all members of the cluster",
+                        ObservableUnit.MILLISECONDS),
+                helper.registerDoubleHistogram("connection.duration",
+                        "Time in milliseconds to acquire a database connection from the data source, or to open it via the driver manager if no data source is configured",
+                        ObservableUnit.MILLISECONDS));
+
+        Field dataSourceField = Util.getField(protocol.getClass(), "dataSource");
+        if (dataSourceField != null && helper.isAnyMetricEnabled("select.duration", "insert.duration", "delete.duration", "clear.duration",
+                "connection.duration", "sql.failures")) {
+            new InterceptorProtocol()
+                    .onDownEvent(event -> {
+                        if (isConnect(event)) {
+                            wrapDataSource(dataSourceField, protocol, metrics);
+                        }
+                    })
+                    .insertAbove(protocol);
+        }
+
+        helper.registerLongCounter("sql.failures",
+                "Number of failed attempts to acquire a database connection or to execute a statement",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(metrics.failures.sum()));
+    }
+
+    /**
+     * Wraps the data source of the protocol, or a data source using the driver manager if none is configured, unless already wrapped.
+     */
+    private static void wrapDataSource(Field dataSourceField, FILE_PING protocol, JdbcMetrics metrics) {
+        Object dataSource = Util.getField(dataSourceField, protocol);
+        if (dataSource instanceof InstrumentedDataSource) return;
+        // The protocol falls back to the driver manager only if no data source is configured
+        DataSource target = (dataSource instanceof DataSource configured) ? configured : new DriverManagerDataSource(protocol);
+        Util.setField(dataSourceField, protocol, new InstrumentedDataSource(target, metrics.statements(protocol), metrics));
+    }
+
+    private static boolean isConnect(Event event) {
+        return switch (event.getType()) {
+            case Event.CONNECT, Event.CONNECT_WITH_STATE_TRANSFER -> true;
+            default -> false;
+        };
+    }
+
+    private static class JdbcMetrics {
+        private final DoubleHistogram selectDuration;
+        private final DoubleHistogram insertDuration;
+        private final DoubleHistogram deleteDuration;
+        private final DoubleHistogram clearDuration;
+        private final DoubleHistogram connectionDuration;
+        final LongAdder failures = new LongAdder();
+
+        JdbcMetrics(DoubleHistogram selectDuration, DoubleHistogram insertDuration, DoubleHistogram deleteDuration, DoubleHistogram clearDuration, DoubleHistogram connectionDuration) {
+            this.selectDuration = selectDuration;
+            this.insertDuration = insertDuration;
+            this.deleteDuration = deleteDuration;
+            this.clearDuration = clearDuration;
+            this.connectionDuration = connectionDuration;
+        }
+
+        /**
+         * Maps the statements configured on the protocol to the histogram timing their execution.
+         */
+        Map<String, DoubleHistogram> statements(FILE_PING protocol) {
+            Map<String, DoubleHistogram> statements = new HashMap<>();
+            putStatement(statements, protocol, "select_all_pingdata_sql", selectDuration);
+            putStatement(statements, protocol, "contains_sql", selectDuration);
+            putStatement(statements, protocol, "insert_single_sql", insertDuration);
+            putStatement(statements, protocol, "call_insert_sp", insertDuration);
+            putStatement(statements, protocol, "delete_single_sql", deleteDuration);
+            putStatement(statements, protocol, "clear_sql", clearDuration);
+            return statements;
+        }
+
+        private static void putStatement(Map<String, DoubleHistogram> statements, FILE_PING protocol, String fieldName, DoubleHistogram duration) {
+            Field field = Util.getField(protocol.getClass(), fieldName);
+            if (field != null && Util.getField(field, protocol) instanceof String sql) {
+                statements.put(sql, duration);
+            }
+        }
+    }
+
+    /**
+     * Data source timing the acquisition of connections and the execution of the statements prepared on them.
+     */
+    private static class InstrumentedDataSource implements DataSource {
+        private final DataSource dataSource;
+        private final Map<String, DoubleHistogram> statements;
+        private final JdbcMetrics metrics;
+
+        InstrumentedDataSource(DataSource dataSource, Map<String, DoubleHistogram> statements, JdbcMetrics metrics) {
+            this.dataSource = dataSource;
+            this.statements = statements;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return instrument(dataSource::getConnection);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return instrument(() -> dataSource.getConnection(username, password));
+        }
+
+        private Connection instrument(ConnectionSupplier supplier) throws SQLException {
+            long start = System.nanoTime();
+            Connection connection;
+            try {
+                connection = supplier.get();
+            } catch (SQLException | RuntimeException e) {
+                metrics.failures.increment();
+                throw e;
+            }
+            metrics.connectionDuration.record((System.nanoTime() - start) / 1_000_000.0);
+            return (connection != null) ? (Connection) proxy(Connection.class, new ConnectionHandler(connection, statements, metrics)) : null;
+        }
+
+        @Override
+        public PrintWriter getLogWriter() throws SQLException {
+            return dataSource.getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) throws SQLException {
+            dataSource.setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) throws SQLException {
+            dataSource.setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() throws SQLException {
+            return dataSource.getLoginTimeout();
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            return dataSource.getParentLogger();
+        }
+
+        @Override
+        public <W> W unwrap(Class<W> type) throws SQLException {
+            if (type.isInstance(this)) return type.cast(this);
+            return dataSource.unwrap(type);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> type) throws SQLException {
+            return type.isInstance(this) || dataSource.isWrapperFor(type);
+        }
+    }
+
+    /**
+     * Data source opening a connection via the driver manager with the connection URL and credentials currently
+     * configured on the protocol, as the protocol does itself if no data source is configured.
+     */
+    private static class DriverManagerDataSource implements DataSource {
+        private final FILE_PING protocol;
+        private final Field url;
+        private final Field username;
+        private final Field password;
+        private PrintWriter logWriter;
+        private int loginTimeout;
+
+        DriverManagerDataSource(FILE_PING protocol) {
+            this.protocol = protocol;
+            this.url = Util.getField(protocol.getClass(), "connection_url");
+            this.username = Util.getField(protocol.getClass(), "connection_username");
+            this.password = Util.getField(protocol.getClass(), "connection_password");
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return getConnection((String) Util.getField(username, protocol), (String) Util.getField(password, protocol));
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return DriverManager.getConnection((String) Util.getField(url, protocol), username, password);
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return logWriter;
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {
+            this.logWriter = out;
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) {
+            this.loginTimeout = seconds;
+        }
+
+        @Override
+        public int getLoginTimeout() {
+            return loginTimeout;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        @Override
+        public <W> W unwrap(Class<W> type) throws SQLException {
+            if (type.isInstance(this)) return type.cast(this);
+            throw new SQLException("Not a wrapper for " + type.getName());
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> type) {
+            return type.isInstance(this);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+
+    /**
+     * Wraps the statements prepared on a connection which match one of the configured statements.
+     */
+    private record ConnectionHandler(Connection connection, Map<String, DoubleHistogram> statements, JdbcMetrics metrics) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeTarget(connection, method, args, metrics);
+            if (result instanceof PreparedStatement statement && args != null && args.length > 0 && args[0] instanceof String sql) {
+                DoubleHistogram duration = statements.get(sql);
+                if (duration != null) {
+                    return proxy((statement instanceof CallableStatement) ? CallableStatement.class : PreparedStatement.class, new StatementHandler(statement, duration, metrics));
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Times the execution of a statement.
+     */
+    private record StatementHandler(PreparedStatement statement, DoubleHistogram duration, JdbcMetrics metrics) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                return invokeTarget(statement, method, args, metrics);
+            }
+            long start = System.nanoTime();
+            Object result = invokeTarget(statement, method, args, metrics);
+            duration.record((System.nanoTime() - start) / 1_000_000.0);
+            return result;
+        }
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args, JdbcMetrics metrics) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                metrics.failures.increment();
+            }
+            throw e.getCause();
+        }
+    }
+
+    private static Object proxy(Class<?> type, InvocationHandler handler) {
+        return Proxy.newProxyInstance(AbstractJdbcPingMetricsInstrumentation.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+}
@@ -0,0 +1,262 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import org.jgroups.Message;
+import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
+import org.jgroups.opentelemetry.impl.util.ReflectionHelper;
+import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
+import org.jgroups.opentelemetry.impl.util.SampledStopwatch;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.COMPRESS;
+import org.jgroups.util.Util;
+import org.kohsuke.MetaInfServices;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics instrumentation for {@link COMPRESS} protocol.
+ * <p>
+ * COMPRESS only counts compressions and decompressions, so {@link InterceptorProtocol}s are inserted directly above
+ * and below the protocol to observe the sizes of messages before and after compression, messages which were not
+ * compressed, and the time spent compressing and decompressing. Messages smaller than {@code min_size} are skipped;
+ * larger messages are skipped when their compressed size would not be smaller. Durations are sampled according to
+ * {@link InstrumentationContext#durationSamplingInterval()} and include the time spent waiting for a deflater or an
+ * inflater from the pool. For message batches, the average decompression time per compressed message of the batch
+ * is recorded.
+ * <p>
+ * Compressing or decompressing a message blocks while the respective pool is empty; pool exhaustion is counted when
+ * a message is about to be compressed or decompressed while no deflater or inflater is available.
+ *
+ * @author Radoslav Husar
+ */
+@MetaInfServices(MetricsInstrumentation.class)
+public class COMPRESSMetricsInstrumentation implements MetricsInstrumentation<COMPRESS> {
+
+    @Override
+    public void registerMetrics(InstrumentationContext context) {
+        COMPRESS protocol = (COMPRESS) context.protocol();
+        RegistrationHelper helper = new RegistrationHelper(context);
+
+        Field deflaterPoolField = Util.getField(COMPRESS.class, "deflater_pool");
+        Field inflaterPoolField = Util.getField(COMPRESS.class, "inflater_pool");
+        Field originalSizeField = Util.getField(COMPRESS.CompressHeader.class, "original_size");
+
+        DoubleHistogram deflateDuration = helper.registerDoubleHistogram("deflate.duration",
+                "Sampled time in milliseconds to compress a message, including waiting for a deflater",
+                ObservableUnit.MILLISECONDS);
+        DoubleHistogram inflateDuration = helper.registerDoubleHistogram("inflate.duration",
+                "Sampled time in milliseconds to decompress a message, including waiting for an inflater",
+                ObservableUnit.MILLISECONDS);
+
+        SampledStopwatch deflateStopwatch = new SampledStopwatch(context.durationSamplingInterval());
+        SampledStopwatch inflateStopwatch = new SampledStopwatch(context.durationSamplingInterval());
+        // Number of compressed messages in the message batch currently being decompressed on this thread
+        ThreadLocal<int[]> batchCompressed = ThreadLocal.withInitial(() -> new int[1]);
+
+        LongAdder compressionInput = new LongAdder();
+        LongAdder compressionOutput = new LongAdder();
+        LongAdder decompressionInput = new LongAdder();
+        LongAdder decompressionOutput = new LongAdder();
+        LongAdder skippedMinSize = new LongAdder();
+        LongAdder skippedIncompressible = new LongAdder();
+        LongAdder deflaterPoolExhausted = new LongAdder();
+        LongAdder inflaterPoolExhausted = new LongAdder();
+
+        // The interceptors and the pool lookups are only installed for the metrics they feed
+        boolean deflaterPool = helper.isAnyMetricEnabled("deflater_pool.exhausted");
+        boolean inflaterPool = helper.isAnyMetricEnabled("inflater_pool.exhausted");
+        if (deflaterPool || inflaterPool || helper.isAnyMetricEnabled("deflate.duration", "inflate.duration",
+                "messages.skipped.min_size", "messages.skipped.incompressible", "compression.bytes.input", "compression.bytes.output",
+                "decompression.bytes.input", "decompression.bytes.output", "compression.ratio")) {
+            new InterceptorProtocol()
+                    .onDown(msg -> {
+                        if (msg.getLength() >= protocol.getMinSize()) {
+                            if (deflaterPool && isEmpty(deflaterPoolField, protocol)) {
+                                deflaterPoolExhausted.increment();
+                            }
+                            deflateStopwatch.start();
+                        }
+                    })
+                    .onUp(msg -> {
+                        long nanos = inflateStopwatch.stop();
+                        if (nanos >= 0) {
+                            inflateDuration.record(nanos / 1_000_000.0);
+                        }
+                    })
+                    .onUpBatch(batch -> {
+                        int[] compressed = batchCompressed.get();
+                        if (compressed[0] > 0) {
+                            long nanos = inflateStopwatch.stop();
+                            if (nanos >= 0) {
+                                inflateDuration.record(nanos / 1_000_000.0 / compressed[0]);
+                            }
+                        }
+                    })
+                    .insertAbove(protocol);
+
+            new InterceptorProtocol()
+                    .onDown(msg -> {
+                        long nanos = deflateStopwatch.stop();
+                        if (msg.getHeader(protocol.getId()) instanceof COMPRESS.CompressHeader header) {
+                            compressionInput.add(getOriginalSize(originalSizeField, header));
+                            compressionOutput.add(msg.getLength());
+                            if (nanos >= 0) {
+                                deflateDuration.record(nanos / 1_000_000.0);
+                            }
+                        } else if (msg.getLength() >= protocol.getMinSize()) {
+                            skippedIncompressible.increment();
+                        } else {
+                            skippedMinSize.increment();
+                        }
+                    })
+                    .onUp(msg -> {
+                        if (msg.getHeader(protocol.getId()) instanceof COMPRESS.CompressHeader header) {
+                            decompressionInput.add(msg.getLength());
+                            decompressionOutput.add(getOriginalSize(originalSizeField, header));
+                            // Messages of a batch are timed together
+                            if (batchCompressed.get()[0] == 0) {
+                                if (inflaterPool && isEmpty(inflaterPoolField, protocol)) {
+                                    inflaterPoolExhausted.increment();
+                                }
+                                inflateStopwatch.start();
+                            }
+                        }
+                    })
+                    // Clears the start time of a message which failed to decompress
+                    .onUpCompleted(msg -> inflateStopwatch.stop())
+                    .onUpBatch(batch -> {
+                        int compressed = 0;
+                        for (Message msg : batch) {
+                            if (msg.getHeader(protocol.getId()) instanceof COMPRESS.CompressHeader) {
+                                compressed++;
+                            }
+                        }
+                        batchCompressed.get()[0] = compressed;
+                        if (compressed > 0) {
+                            if (inflaterPool && isEmpty(inflaterPoolField, protocol)) {
+                                inflaterPoolExhausted.increment();
+                            }
+                            inflateStopwatch.start();
+                        }
+                    })
+                    .onUpBatchCompleted(batch -> {
+                        int[] compressed = batchCompressed.get();
+                        if (compressed[0] > 0) {
+                            inflateStopwatch.stop();
+                            compressed[0] = 0;
+                        }
+                    })
+                    .insertBelow(protocol);
+        }
+
+        // Runtime metrics (always exposed)
+        helper.registerLongCounter("messages.compressed",
+                "Number of messages compressed",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.getNumCompressions()));
+
+        helper.registerLongCounter("messages.decompressed",
+                "Number of messages decompressed",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.getNumUncompressions()));
+
+        helper.registerLongCounter("messages.skipped.min_size",
+                "Number of messages sent uncompressed because they were smaller than min_size",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(skippedMinSize.sum()));
+
+        helper.registerLongCounter("messages.skipped.incompressible",
+                "Number of messages sent uncompressed because compressing them would not reduce their size",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(skippedIncompressible.sum()));
+
+        helper.registerLongCounter("compression.bytes.input",
+                "Number of bytes of messages before compression (only messages which were compressed)",
+                ObservableUnit.BYTES,
+                measurement -> measurement.record(compressionInput.sum()));
+
+        helper.registerLongCounter("compression.bytes.output",
+                "Number of bytes of messages after compression",
+                ObservableUnit.BYTES,
+                measurement -> measurement.record(compressionOutput.sum()));
+
+        helper.registerLongCounter("decompression.bytes.input",
+                "Number of bytes of compressed messages received",
+                ObservableUnit.BYTES,
+                measurement -> measurement.record(decompressionInput.sum()));
+
+        helper.registerLongCounter("decompression.bytes.output",
+                "Number of bytes of received messages after decompression",
+                ObservableUnit.BYTES,
+                measurement -> measurement.record(decompressionOutput.sum()));
+
+        helper.registerDoubleGauge("compression.ratio",
+                "Ratio of compressed to uncompressed size of all compressed messages sent (e.g. 0.25 means compressed messages are 4x smaller)",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    long input = compressionInput.sum();
+                    if (input > 0) {
+                        measurement.record((double) compressionOutput.sum() / input);
+                    }
+                });
+
+        helper.registerLongGauge("deflaters.available",
+                "Number of deflaters currently available in the pool. *Critical*: 0 indicates senders are waiting for a deflater",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    if (Util.getField(deflaterPoolField, protocol) instanceof Collection<?> pool) {
+                        measurement.record(pool.size());
+                    }
+                });
+
+        helper.registerLongGauge("inflaters.available",
+                "Number of inflaters currently available in the pool. *Critical*: 0 indicates receivers are waiting for an inflater",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    if (Util.getField(inflaterPoolField, protocol) instanceof Collection<?> pool) {
+                        measurement.record(pool.size());
+                    }
+                });
+
+        helper.registerLongCounter("deflater_pool.exhausted",
+                "Number of messages which found no deflater available in the pool and had to wait for one. *Critical*: Increase pool_size",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(deflaterPoolExhausted.sum()));
+
+        helper.registerLongCounter("inflater_pool.exhausted",
+                "Number of messages or message batches which found no inflater available in the pool and had to wait for one. *Critical*: Increase pool_size",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(inflaterPoolExhausted.sum()));
+
+        // Configuration metrics
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("compression_level",
+                    "Compression level (0-9) used by the deflaters",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(ReflectionHelper.getIntValue(protocol, "compression_level")));
+
+            configuration.registerLongGauge("min_size",
+                    "Minimum number of bytes of a message for it to be compressed",
+                    ObservableUnit.BYTES,
+                    measurement -> measurement.record(protocol.getMinSize()));
+
+            configuration.registerLongGauge("pool_size",
+                    "Number of deflaters and inflaters in each of the pools",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(ReflectionHelper.getIntValue(protocol, "pool_size")));
+        });
+    }
+
+    private static boolean isEmpty(Field poolField, COMPRESS protocol) {
+        return Util.getField(poolField, protocol) instanceof Collection<?> pool && pool.isEmpty();
+    }
+
+    private static int getOriginalSize(Field originalSizeField, COMPRESS.CompressHeader header) {
+        Object value = Util.getField(originalSizeField, header);
+        return value != null ? (int) value : 0;
+    }
+}
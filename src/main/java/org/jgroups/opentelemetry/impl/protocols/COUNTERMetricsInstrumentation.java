@@ -0,0 +1,315 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import org.jgroups.Message;
+import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
+import org.jgroups.opentelemetry.impl.util.ReflectionHelper;
+import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.COUNTER;
+import org.jgroups.util.ByteArrayDataInputStream;
+import org.jgroups.util.Owner;
+import org.jgroups.util.Util;
+import org.kohsuke.MetaInfServices;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics instrumentation for {@link COUNTER} protocol.
+ * <p>
+ * COUNTER implements cluster-wide atomic counters: every counter operation is sent as a request to the coordinator,
+ * which applies it, replicates the new value to its backup coordinators and sends a response back. The protocol keeps
+ * no statistics, so an {@link InterceptorProtocol} is inserted directly below the protocol to observe requests and
+ * responses. Only the kind and type bytes which prefix every request and response are inspected; the owner of a
+ * request is only read for requests sampled according to {@link InstrumentationContext#durationSamplingInterval()}
+ * to measure the latency of the operation from sending the request to receiving its response.
+ *
+ * @author Radoslav Husar
+ */
+@MetaInfServices(MetricsInstrumentation.class)
+public class COUNTERMetricsInstrumentation implements MetricsInstrumentation<COUNTER> {
+
+    private static final AttributeKey<String> OPERATION = AttributeKey.stringKey("operation");
+
+    // Kinds of COUNTER messages, which prefix every request and response
+    private static final byte REQUEST = 1;
+    private static final byte RESPONSE = 2;
+
+    private static final RequestType[] REQUEST_TYPES = RequestType.values();
+    private static final ResponseType[] RESPONSE_TYPES = ResponseType.values();
+
+    /**
+     * Maximum number of sampled requests awaiting a response; requests which never receive one are evicted after the
+     * request timeout of the protocol.
+     */
+    private static final int MAX_SAMPLED_REQUESTS = 1024;
+
+    @Override
+    public void registerMetrics(InstrumentationContext context) {
+        COUNTER protocol = (COUNTER) context.protocol();
+        RegistrationHelper helper = new RegistrationHelper(context);
+
+        Field countersField = Util.getField(COUNTER.class, "counters");
+        Field pendingRequestsField = Util.getField(COUNTER.class, "pending_requests");
+        Field coordField = Util.getField(COUNTER.class, "coord");
+        Field backupCoordsField = Util.getField(COUNTER.class, "backup_coords");
+
+        DoubleHistogram operationDuration = helper.registerDoubleHistogram("operation.duration",
+                "Sampled time in milliseconds from sending a counter operation to the coordinator until receiving its response, per operation",
+                ObservableUnit.MILLISECONDS);
+
+        Attributes[] operations = new Attributes[REQUEST_TYPES.length];
+        LongAdder[] requestsSent = new LongAdder[REQUEST_TYPES.length];
+        LongAdder[] requestsReceived = new LongAdder[REQUEST_TYPES.length];
+        for (RequestType type : REQUEST_TYPES) {
+            operations[type.ordinal()] = Attributes.of(OPERATION, type.name().toLowerCase(Locale.ROOT));
+            requestsSent[type.ordinal()] = new LongAdder();
+            requestsReceived[type.ordinal()] = new LongAdder();
+        }
+        LongAdder failures = new LongAdder();
+        LongAdder reconcileResponsesReceived = new LongAdder();
+
+        int samplingInterval = context.durationSamplingInterval();
+        AtomicLong sampleCount = new AtomicLong();
+        // Sampled requests awaiting a response, keyed by their owner
+        ConcurrentMap<Owner, SampledRequest> sampled = new ConcurrentHashMap<>();
+
+        // Operations are only sampled if their duration is recorded
+        boolean timed = helper.isAnyMetricEnabled("operation.duration");
+        if (timed || helper.isAnyMetricEnabled("operations", "operations.received", "operations.failed", "backup.updates.sent",
+                "backup.updates.received", "reconciliation.requests.sent", "reconciliation.responses.received", "resend_requests.received")) {
+            new InterceptorProtocol()
+                    .onDown(msg -> {
+                        if (msg.getHeader(protocol.getId()) == null || !msg.hasArray() || msg.getLength() < 2) return;
+                        byte[] buf = msg.getArray();
+                        int offset = msg.getOffset();
+                        if (buf[offset] != REQUEST) return;
+                        RequestType type = requestType(buf[offset + 1]);
+                        if (type == null) return;
+                        requestsSent[type.ordinal()].increment();
+                        if (timed && isOperation(type) && sampleCount.incrementAndGet() % samplingInterval == 0) {
+                            if (sampled.size() >= MAX_SAMPLED_REQUESTS) {
+                                // Evict sampled requests which timed out without a response
+                                long timeout = TimeUnit.MILLISECONDS.toNanos(ReflectionHelper.getLongValue(protocol, "timeout"));
+                                long now = System.nanoTime();
+                                sampled.values().removeIf(request -> now - request.start > timeout);
+                                if (sampled.size() >= MAX_SAMPLED_REQUESTS) return;
+                            }
+                            Owner owner = readOwner(msg);
+                            if (owner != null) {
+                                // Requests resent to a new coordinator keep their original start time
+                                sampled.putIfAbsent(owner, new SampledRequest(type, System.nanoTime()));
+                            }
+                        }
+                    })
+                    .onUp(msg -> {
+                        if (msg.getHeader(protocol.getId()) == null || !msg.hasArray() || msg.getLength() < 2) return;
+                        byte[] buf = msg.getArray();
+                        int offset = msg.getOffset();
+                        if (buf[offset] == REQUEST) {
+                            RequestType type = requestType(buf[offset + 1]);
+                            if (type != null) {
+                                requestsReceived[type.ordinal()].increment();
+                            }
+                        } else if (buf[offset] == RESPONSE) {
+                            ResponseType type = responseType(buf[offset + 1]);
+                            if (type == null) return;
+                            switch (type) {
+                                case EXCEPTION -> failures.increment();
+                                case RECONCILE -> {
+                                    reconcileResponsesReceived.increment();
+                                    return;
+                                }
+                            }
+                            if (sampled.isEmpty()) return;
+                            Owner owner = readOwner(msg);
+                            SampledRequest request = owner != null ? sampled.remove(owner) : null;
+                            if (request != null) {
+                                operationDuration.record((System.nanoTime() - request.start) / 1_000_000.0, operations[request.type.ordinal()]);
+                            }
+                        }
+                    })
+                    .insertBelow(protocol);
+        }
+
+        // Runtime metrics (always exposed)
+        helper.registerLongGauge("is_coord",
+                "Indicates whether this member is the coordinator which holds the authoritative counter values (1=coordinator, 0=not coordinator)",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.getAddress() != null && protocol.getAddress().equals(Util.getField(coordField, protocol)) ? 1 : 0));
+
+        helper.registerLongGauge("counters",
+                "Number of counters held by this member",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    if (Util.getField(countersField, protocol) instanceof Map<?, ?> counters) {
+                        measurement.record(counters.size());
+                    }
+                });
+
+        helper.registerLongGauge("requests.pending",
+                "Number of counter operations sent to the coordinator awaiting a response. *Critical*: Growth indicates the coordinator is slow or unreachable",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    if (Util.getField(pendingRequestsField, protocol) instanceof Map<?, ?> pendingRequests) {
+                        measurement.record(pendingRequests.size());
+                    }
+                });
+
+        helper.registerLongGauge("backup_coords",
+                "Number of backup coordinators to which the coordinator replicates counter updates",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    if (Util.getField(backupCoordsField, protocol) instanceof Collection<?> backupCoords) {
+                        measurement.record(backupCoords.size());
+                    }
+                });
+
+        helper.registerLongCounter("operations",
+                "Number of counter operations sent by this member to the coordinator, per operation (including resends after a coordinator change)",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    for (RequestType type : REQUEST_TYPES) {
+                        if (isOperation(type)) {
+                            measurement.record(requestsSent[type.ordinal()].sum(), operations[type.ordinal()]);
+                        }
+                    }
+                });
+
+        helper.registerLongCounter("operations.received",
+                "Number of counter operations received by this member as the coordinator, per operation",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    for (RequestType type : REQUEST_TYPES) {
+                        if (isOperation(type)) {
+                            measurement.record(requestsReceived[type.ordinal()].sum(), operations[type.ordinal()]);
+                        }
+                    }
+                });
+
+        helper.registerLongCounter("operations.failed",
+                "Number of counter operations which failed with an exception response from the coordinator",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(failures.sum()));
+
+        helper.registerLongCounter("backup.updates.sent",
+                "Number of counter updates sent by this member as the coordinator to the backup coordinators",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(requestsSent[RequestType.UPDATE.ordinal()].sum()));
+
+        helper.registerLongCounter("backup.updates.received",
+                "Number of counter updates received by this member as a backup coordinator",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(requestsReceived[RequestType.UPDATE.ordinal()].sum()));
+
+        helper.registerLongCounter("reconciliation.requests.sent",
+                "Number of reconciliation requests sent by this member as a new coordinator to synchronize counter values",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(requestsSent[RequestType.RECONCILE.ordinal()].sum()));
+
+        helper.registerLongCounter("reconciliation.responses.received",
+                "Number of reconciliation responses received by this member as a new coordinator",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(reconcileResponsesReceived.sum()));
+
+        helper.registerLongCounter("resend_requests.received",
+                "Number of requests from a new coordinator to resend pending counter operations",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(requestsReceived[RequestType.RESEND_PENDING_REQUESTS.ordinal()].sum()));
+
+        // Configuration metrics
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("num_backups",
+                    "Number of backup coordinators",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(protocol.getNumberOfBackups()));
+
+            configuration.registerLongGauge("timeout",
+                    "Timeout for a counter operation",
+                    ObservableUnit.MILLISECONDS,
+                    measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "timeout")));
+
+            configuration.registerLongGauge("reconciliation_timeout",
+                    "Timeout for the reconciliation of counter values by a new coordinator",
+                    ObservableUnit.MILLISECONDS,
+                    measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "reconciliation_timeout")));
+
+            configuration.registerLongGauge("bypass_bundling",
+                    "Whether counter messages bypass the bundler of the transport (1=enabled, 0=disabled)",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(protocol.getBypassBundling() ? 1 : 0));
+        });
+    }
+
+    /**
+     * Returns whether the given request type is a counter operation issued by the application.
+     */
+    private static boolean isOperation(RequestType type) {
+        return switch (type) {
+            case GET_OR_CREATE, DELETE, SET, COMPARE_AND_SET, ADD_AND_GET, UPDATE_FUNCTION -> true;
+            default -> false;
+        };
+    }
+
+    private static RequestType requestType(byte ordinal) {
+        return ordinal >= 0 && ordinal < REQUEST_TYPES.length ? REQUEST_TYPES[ordinal] : null;
+    }
+
+    private static ResponseType responseType(byte ordinal) {
+        return ordinal >= 0 && ordinal < RESPONSE_TYPES.length ? RESPONSE_TYPES[ordinal] : null;
+    }
+
+    /**
+     * Reads the owner which follows the kind and type bytes of counter operation requests and of their responses.
+     */
+    private static Owner readOwner(Message msg) {
+        try {
+            ByteArrayDataInputStream in = new ByteArrayDataInputStream(msg.getArray(), msg.getOffset() + 2, msg.getLength() - 2);
+            Owner owner = new Owner();
+            owner.readFrom(in);
+            return owner;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private record SampledRequest(RequestType type, long start) {
+    }
+
+    /**
+     * Mirrors the protected {@code COUNTER.RequestType}, whose ordinals are written on the wire.
+     */
+    private enum RequestType {
+        GET_OR_CREATE,
+        DELETE,
+        SET,
+        COMPARE_AND_SET,
+        ADD_AND_GET,
+        UPDATE,
+        RECONCILE,
+        RESEND_PENDING_REQUESTS,
+        UPDATE_FUNCTION,
+    }
+
+    /**
+     * Mirrors the protected {@code COUNTER.ResponseType}, whose ordinals are written on the wire.
+     */
+    private enum ResponseType {
+        VALUE,
+        EXCEPTION,
+        RECONCILE,
+        UPDATE_FUNCTION,
+    }
+}
@@ -6,68 +6,57 @@ import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
 import org.jgroups.opentelemetry.spi.InstrumentationContext;
 import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
 import org.jgroups.protocols.FD_ALL3;
+import org.jgroups.util.Util;
 import org.kohsuke.MetaInfServices;
 
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 /**
  * Metrics instrumentation for {@link FD_ALL3}.
  *
  * @author Radoslav Husar
  */
 @MetaInfServices(MetricsInstrumentation.class)
-public class FD_ALL3MetricsInstrumentation implements MetricsInstrumentation<FD_ALL3> {
+public class FD_ALL3MetricsInstrumentation extends AbstractFailureDetectionMetricsInstrumentation<FD_ALL3> {
 
-    @Override
-    public void registerMetrics(InstrumentationContext context) {
-        FD_ALL3 protocol = (FD_ALL3) context.protocol();
-        RegistrationHelper helper = new RegistrationHelper(context);
+    private static final Field BITS_FIELD = Util.getField(FD_ALL3.Bitmap.class, "bits");
 
-        // Runtime metrics (always exposed)
-        helper.registerLongCounter("heartbeats.sent",
-                "Number of heartbeats sent",
-                ObservableUnit.UNITY,
-                measurement -> measurement.record(protocol.getHeartbeatsSent()));
-
-        helper.registerLongCounter("heartbeats.received",
-                "Number of heartbeats received",
-                ObservableUnit.UNITY,
-                measurement -> measurement.record(protocol.getHeartbeatsReceived()));
-
-        helper.registerLongCounter("suspect_events",
-                "Number of suspect events sent",
-                ObservableUnit.UNITY,
-                measurement -> measurement.record(protocol.getSuspectEventsSent()));
+    @Override
+    protected HeartbeatAge createHeartbeatAge(FD_ALL3 protocol) {
+        // The age is the number of intervals since the last slot of the member's bitmap which has been set
+        return (member, timestamp) -> {
+            if (!(timestamp instanceof FD_ALL3.Bitmap bitmap) || !(Util.getField(BITS_FIELD, bitmap) instanceof AtomicIntegerArray bits)) return -1;
+            int length = bits.length();
+            int index = bitmap.getIndex();
+            for (int slots = 0; slots < length; slots++) {
+                if (bits.get(Math.floorMod(index - slots, length)) == 1) {
+                    return slots * protocol.getInterval();
+                }
+            }
+            return length * protocol.getInterval();
+        };
+    }
 
-        helper.registerLongGauge("has_suspected_members",
-                "Indicates whether there are currently any suspected members (1=yes, 0=no)",
-                ObservableUnit.UNITY,
-                measurement -> measurement.record(ReflectionHelper.getBooleanValue(protocol, "has_suspected_mbrs") ? 1 : 0));
+    @Override
+    protected HeartbeatAge createLastReceivedAge(FD_ALL3 protocol, HeartbeatAge heartbeatAge) {
+        // The bitmap only has the resolution of the heartbeat interval
+        return trackLastReceived(protocol);
+    }
 
-        helper.registerLongGauge("timeout_checker.running",
-                "Indicates whether the timeout checker task is running (1=running, 0=stopped)",
-                ObservableUnit.UNITY,
-                measurement -> measurement.record(protocol.isTimeoutCheckerRunning() ? 1 : 0));
+    @Override
+    public void registerMetrics(InstrumentationContext context) {
+        super.registerMetrics(context);
 
-        helper.registerLongGauge("heartbeat_sender.running",
-                "Indicates whether the heartbeat sender task is running (1=running, 0=stopped)",
-                ObservableUnit.UNITY,
-                measurement -> measurement.record(protocol.isHeartbeatSenderRunning() ? 1 : 0));
+        FD_ALL3 protocol = (FD_ALL3) context.protocol();
+        RegistrationHelper helper = new RegistrationHelper(context);
 
         // Configuration metrics
-        if (context.exposeConfigurationMetrics()) {
-            helper.registerLongGauge("timeout",
-                    "Timeout in milliseconds after which a node is suspected if no heartbeat or data received",
-                    ObservableUnit.MILLISECONDS,
-                    measurement -> measurement.record(protocol.getTimeout()));
-
-            helper.registerLongGauge("interval",
-                    "Interval in milliseconds at which a heartbeat is sent to the cluster",
-                    ObservableUnit.MILLISECONDS,
-                    measurement -> measurement.record(protocol.getInterval()));
-
-            helper.registerLongGauge("num_bits",
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("num_bits",
                     "Number of bits for each member (timeout / interval)",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(ReflectionHelper.getIntValue(protocol, "num_bits")));
-        }
+        });
     }
 }
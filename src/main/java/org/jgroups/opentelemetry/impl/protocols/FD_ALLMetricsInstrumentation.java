@@ -8,71 +8,40 @@ import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
 import org.jgroups.protocols.FD_ALL;
 import org.kohsuke.MetaInfServices;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Metrics instrumentation for {@link FD_ALL}.
  *
  * @author Radoslav Husar
  */
 @MetaInfServices(MetricsInstrumentation.class)
-public class FD_ALLMetricsInstrumentation implements MetricsInstrumentation<FD_ALL> {
+public class FD_ALLMetricsInstrumentation extends AbstractFailureDetectionMetricsInstrumentation<FD_ALL> {
+
+    @Override
+    protected HeartbeatAge createHeartbeatAge(FD_ALL protocol) {
+        // FD_ALL keeps the System.nanoTime() based timestamp of the last heartbeat of each member
+        return (member, timestamp) -> (timestamp instanceof Long time) ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - time) : -1;
+    }
 
     @Override
     public void registerMetrics(InstrumentationContext context) {
+        super.registerMetrics(context);
+
         FD_ALL protocol = (FD_ALL) context.protocol();
         RegistrationHelper helper = new RegistrationHelper(context);
 
-        // Runtime metrics (always exposed)
-        helper.registerLongCounter("heartbeats.sent",
-                "Number of heartbeats sent",
-                ObservableUnit.UNITY,
-                measurement -> measurement.record(protocol.getHeartbeatsSent()));
-
-        helper.registerLongCounter("heartbeats.received",
-                "Number of heartbeats received",
-                ObservableUnit.UNITY,
-                measurement -> measurement.record(protocol.getHeartbeatsReceived()));
-
-        helper.registerLongCounter("suspect_events",
-                "Number of suspect events sent",
-                ObservableUnit.UNITY,
-                measurement -> measurement.record(protocol.getSuspectEventsSent()));
-
-        helper.registerLongGauge("has_suspected_members",
-                "Indicates whether there are currently any suspected members (1=yes, 0=no)",
-                ObservableUnit.UNITY,
-                measurement -> measurement.record(ReflectionHelper.getBooleanValue(protocol, "has_suspected_mbrs") ? 1 : 0));
-
-        helper.registerLongGauge("timeout_checker.running",
-                "Indicates whether the timeout checker task is running (1=running, 0=stopped)",
-                ObservableUnit.UNITY,
-                measurement -> measurement.record(protocol.isTimeoutCheckerRunning() ? 1 : 0));
-
-        helper.registerLongGauge("heartbeat_sender.running",
-                "Indicates whether the heartbeat sender task is running (1=running, 0=stopped)",
-                ObservableUnit.UNITY,
-                measurement -> measurement.record(protocol.isHeartbeatSenderRunning() ? 1 : 0));
-
         // Configuration metrics
-        if (context.exposeConfigurationMetrics()) {
-            helper.registerLongGauge("timeout",
-                    "Timeout in milliseconds after which a node is suspected if no heartbeat or data received",
-                    ObservableUnit.MILLISECONDS,
-                    measurement -> measurement.record(protocol.getTimeout()));
-
-            helper.registerLongGauge("interval",
-                    "Interval in milliseconds at which a heartbeat is sent to the cluster",
-                    ObservableUnit.MILLISECONDS,
-                    measurement -> measurement.record(protocol.getInterval()));
-
-            helper.registerLongGauge("timeout_check_interval",
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("timeout_check_interval",
                     "Interval in milliseconds at which the heartbeat timeouts are checked",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(protocol.getTimeoutCheckInterval()));
 
-            helper.registerLongGauge("use_time_service",
+            configuration.registerLongGauge("use_time_service",
                     "Whether to use TimeService for timestamps (1=enabled, 0=disabled)",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(ReflectionHelper.getBooleanValue(protocol, "use_time_service") ? 1 : 0));
-        }
+        });
     }
 }
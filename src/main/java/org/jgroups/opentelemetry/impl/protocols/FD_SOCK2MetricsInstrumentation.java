@@ -33,46 +33,46 @@ public class FD_SOCK2MetricsInstrumentation implements MetricsInstrumentation<FD
                 measurement -> measurement.record(ReflectionHelper.getIntValue(protocol, "num_suspect_events")));
 
         // Configuration metrics (only exposed when exposeConfigurationMetrics=true)
-        if (context.exposeConfigurationMetrics()) {
-            helper.registerLongGauge("offset",
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("offset",
                     "Offset from the transport's bind port",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(protocol.getOffset()));
 
-            helper.registerLongGauge("port.range",
+            configuration.registerLongGauge("port.range",
                     "Number of ports to probe for finding a free port",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(protocol.getPortRange()));
 
-            helper.registerLongGauge("port.client_bind",
+            configuration.registerLongGauge("port.client_bind",
                     "Start port for client socket (0 picks random port)",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(protocol.getClientBindPort()));
 
-            helper.registerLongGauge("port.min",
+            configuration.registerLongGauge("port.min",
                     "Lowest port the FD_SOCK2 server can listen on",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(ReflectionHelper.getIntValue(protocol, "min_port")));
 
-            helper.registerLongGauge("port.max",
+            configuration.registerLongGauge("port.max",
                     "Highest port the FD_SOCK2 server can listen on",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(ReflectionHelper.getIntValue(protocol, "max_port")));
 
-            helper.registerLongGauge("interval.suspect_msg",
+            configuration.registerLongGauge("interval.suspect_msg",
                     "Interval in milliseconds for broadcasting suspect messages",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(protocol.getSuspectMsgInterval()));
 
-            helper.registerLongGauge("timeout.connect",
+            configuration.registerLongGauge("timeout.connect",
                     "Maximum time in milliseconds to wait for a connect attempt",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(ReflectionHelper.getIntValue(protocol, "connect_timeout")));
 
-            helper.registerLongGauge("linger",
+            configuration.registerLongGauge("linger",
                     "SO_LINGER in seconds (-1 disables it)",
                     ObservableUnit.SECONDS,
                     measurement -> measurement.record(protocol.getLinger()));
-        }
+        });
     }
 }
@@ -38,56 +38,56 @@ public class FD_SOCKMetricsInstrumentation implements MetricsInstrumentation<FD_
                 measurement -> measurement.record(protocol.isNodeCrashMonitorRunning() ? 1 : 0));
 
         // Configuration metrics (only exposed when exposeConfigurationMetrics=true)
-        if (context.exposeConfigurationMetrics()) {
-            helper.registerLongGauge("timeout.get_cache",
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("timeout.get_cache",
                     "Timeout in milliseconds for getting socket cache from coordinator",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(protocol.getGetCacheTimeout()));
 
-            helper.registerLongGauge("timeout.sock_conn",
+            configuration.registerLongGauge("timeout.sock_conn",
                     "Maximum time in milliseconds to wait for ping Socket.connect() to return",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(ReflectionHelper.getIntValue(protocol, "sock_conn_timeout")));
 
-            helper.registerLongGauge("interval.suspect_msg",
+            configuration.registerLongGauge("interval.suspect_msg",
                     "Interval in milliseconds for broadcasting suspect messages",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(protocol.getSuspectMsgInterval()));
 
-            helper.registerLongGauge("cache.max_elements",
+            configuration.registerLongGauge("cache.max_elements",
                     "Maximum number of elements in the cache until deleted elements are removed",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(protocol.getCacheMaxElements()));
 
-            helper.registerLongGauge("cache.max_age",
+            configuration.registerLongGauge("cache.max_age",
                     "Maximum age in milliseconds an element marked as removed has to have until it is removed",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(protocol.getCacheMaxAge()));
 
-            helper.registerLongGauge("num_tries",
+            configuration.registerLongGauge("num_tries",
                     "Number of attempts coordinator is solicited for socket cache until we give up",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(protocol.getNumTries()));
 
-            helper.registerLongGauge("port.start",
+            configuration.registerLongGauge("port.start",
                     "Start port for server socket (0 picks random port)",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(protocol.getStartPort()));
 
-            helper.registerLongGauge("port.client_bind",
+            configuration.registerLongGauge("port.client_bind",
                     "Start port for client socket (0 picks random port)",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(protocol.getClientBindPort()));
 
-            helper.registerLongGauge("port.range",
+            configuration.registerLongGauge("port.range",
                     "Number of ports to probe for start_port and client_bind_port",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(ReflectionHelper.getIntValue(protocol, "port_range")));
 
-            helper.registerLongGauge("keep_alive",
+            configuration.registerLongGauge("keep_alive",
                     "Whether to use KEEP_ALIVE on the ping socket (1=enabled, 0=disabled)",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(ReflectionHelper.getBooleanValue(protocol, "keep_alive") ? 1 : 0));
-        }
+        });
     }
 }
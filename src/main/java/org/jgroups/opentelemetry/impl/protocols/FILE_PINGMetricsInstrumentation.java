@@ -1,9 +1,15 @@
 package org.jgroups.opentelemetry.impl.protocols;
 
+import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
 import org.jgroups.opentelemetry.spi.InstrumentationContext;
 import org.jgroups.protocols.FILE_PING;
+import org.jgroups.util.Util;
 import org.kohsuke.MetaInfServices;
 
+import java.io.File;
+import java.lang.reflect.Field;
+
 /**
  * Metrics instrumentation for {@link FILE_PING}.
  *
@@ -12,11 +18,25 @@ import org.kohsuke.MetaInfServices;
 @MetaInfServices(org.jgroups.opentelemetry.spi.MetricsInstrumentation.class)
 public class FILE_PINGMetricsInstrumentation extends AbstractFilePingMetricsInstrumentation<FILE_PING> {
 
+    private static final String SUFFIX = ".list";
+
     @Override
     public void registerMetrics(InstrumentationContext context) {
         // Register common FILE_PING metrics (which includes Discovery metrics)
         super.registerMetrics(context);
 
-        // Add FILE_PING-specific metrics here if needed in the future
+        FILE_PING protocol = (FILE_PING) context.protocol();
+        RegistrationHelper helper = new RegistrationHelper(context);
+
+        // Discovery files of the cluster are stored in a subdirectory of the root directory named after the cluster
+        Field rootDirField = Util.getField(FILE_PING.class, "root_dir");
+        helper.registerLongGauge("files",
+                "Number of discovery files of the cluster in the store",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    if (rootDirField == null || !(Util.getField(rootDirField, protocol) instanceof File rootDir) || protocol.getClusterName() == null) return;
+                    File[] files = new File(rootDir, protocol.getClusterName()).listFiles((dir, name) -> name.endsWith(SUFFIX));
+                    measurement.record((files != null) ? files.length : 0);
+                });
     }
 }
@@ -0,0 +1,48 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.Message;
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.FRAG2;
+import org.jgroups.protocols.FragHeader;
+import org.jgroups.util.Util;
+import org.kohsuke.MetaInfServices;
+
+/**
+ * Metrics instrumentation for {@link FRAG2}.
+ *
+ * @author Radoslav Husar
+ */
+@MetaInfServices(MetricsInstrumentation.class)
+public class FRAG2MetricsInstrumentation extends AbstractFragmentationMetricsInstrumentation<FRAG2> {
+
+    @Override
+    protected Fragment getFragment(FRAG2 protocol, Message msg) {
+        return getFragment(msg.getHeader(protocol.getId()));
+    }
+
+    @Override
+    protected long getReassemblyBufferSize(Object entry) {
+        return getReceivedFragmentsSize(entry);
+    }
+
+    static Fragment getFragment(FragHeader header) {
+        return header != null ? new Fragment(header.id, header.frag_id, header.num_frags) : null;
+    }
+
+    /**
+     * FRAG2 and FRAG4 keep the received fragments until the last one arrives,
+     * so the buffered size is the sum of the payloads received so far.
+     */
+    static long getReceivedFragmentsSize(Object entry) {
+        Object value = Util.getField(Util.getField(entry.getClass(), "fragments"), entry);
+        long bytes = 0;
+        if (value instanceof Message[] fragments) {
+            for (Message fragment : fragments) {
+                if (fragment != null) {
+                    bytes += fragment.getLength();
+                }
+            }
+        }
+        return bytes;
+    }
+}
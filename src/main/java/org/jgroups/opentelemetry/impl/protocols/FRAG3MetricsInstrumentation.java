@@ -0,0 +1,40 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.Message;
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.FRAG3;
+import org.jgroups.protocols.Frag3Header;
+import org.jgroups.util.Util;
+import org.kohsuke.MetaInfServices;
+
+import java.lang.reflect.Field;
+
+/**
+ * Metrics instrumentation for {@link FRAG3}.
+ *
+ * @author Radoslav Husar
+ */
+@MetaInfServices(MetricsInstrumentation.class)
+public class FRAG3MetricsInstrumentation extends AbstractFragmentationMetricsInstrumentation<FRAG3> {
+
+    private static final Field ID_FIELD = Util.getField(Frag3Header.class, "id");
+
+    @Override
+    protected Fragment getFragment(FRAG3 protocol, Message msg) {
+        Frag3Header header = msg.getHeader(protocol.getId());
+        if (header == null) {
+            return null;
+        }
+        Object id = Util.getField(ID_FIELD, header);
+        return new Fragment(id != null ? ((Number) id).longValue() : 0, header.getFragId(), header.getNumFrags());
+    }
+
+    /**
+     * FRAG3 allocates a buffer for the whole original message when the first fragment arrives.
+     */
+    @Override
+    protected long getReassemblyBufferSize(Object entry) {
+        Object value = Util.getField(Util.getField(entry.getClass(), "buffer"), entry);
+        return value instanceof byte[] buffer ? buffer.length : 0;
+    }
+}
@@ -0,0 +1,26 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.Message;
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.FRAG4;
+import org.kohsuke.MetaInfServices;
+
+/**
+ * Metrics instrumentation for {@link FRAG4}.
+ * FRAG4 shares the header and the reassembly table with FRAG2.
+ *
+ * @author Radoslav Husar
+ */
+@MetaInfServices(MetricsInstrumentation.class)
+public class FRAG4MetricsInstrumentation extends AbstractFragmentationMetricsInstrumentation<FRAG4> {
+
+    @Override
+    protected Fragment getFragment(FRAG4 protocol, Message msg) {
+        return FRAG2MetricsInstrumentation.getFragment(msg.getHeader(protocol.getId()));
+    }
+
+    @Override
+    protected long getReassemblyBufferSize(Object entry) {
+        return FRAG2MetricsInstrumentation.getReceivedFragmentsSize(entry);
+    }
+}
@@ -11,11 +11,11 @@ import org.kohsuke.MetaInfServices;
  * @author Radoslav Husar
  */
 @MetaInfServices(MetricsInstrumentation.class)
-public class JDBC_PINGMetricsInstrumentation extends AbstractFilePingMetricsInstrumentation<JDBC_PING> {
+public class JDBC_PINGMetricsInstrumentation extends AbstractJdbcPingMetricsInstrumentation<JDBC_PING> {
 
     @Override
     public void registerMetrics(InstrumentationContext context) {
-        // Register common FILE_PING metrics (which includes Discovery metrics)
+        // Register common JDBC metrics (which includes FILE_PING and Discovery metrics)
         super.registerMetrics(context);
 
         // Add JDBC_PING-specific metrics here if needed in the future
@@ -1,6 +1,10 @@
 package org.jgroups.opentelemetry.impl.protocols;
 
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import org.jgroups.Event;
+import org.jgroups.MergeView;
 import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
 import org.jgroups.opentelemetry.impl.util.ReflectionHelper;
 import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
 import org.jgroups.opentelemetry.spi.InstrumentationContext;
@@ -8,6 +12,8 @@ import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
 import org.jgroups.protocols.MERGE3;
 import org.kohsuke.MetaInfServices;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Metrics instrumentation for {@link MERGE3}.
  *
@@ -42,27 +48,52 @@ public class MERGE3MetricsInstrumentation implements MetricsInstrumentation<MERG
                 ObservableUnit.UNITY,
                 measurement -> measurement.record(protocol.isInfoSenderRunning() ? 1 : 0));
 
+        // Merge duration, from MERGE3 detecting inconsistent views (MERGE event passed up to GMS) until a merge view is installed;
+        // any other view installed in the meantime resets the detection
+        DoubleHistogram mergeDuration = helper.registerDoubleHistogram("merge.duration",
+                "Time in milliseconds from detecting inconsistent views until the merge view is installed. Recorded by the member which initiated the merge",
+                ObservableUnit.MILLISECONDS);
+        AtomicLong detected = new AtomicLong();
+
+        if (helper.isAnyMetricEnabled("merge.duration")) {
+            new InterceptorProtocol()
+                    .onUpEvent(event -> {
+                        if (event.getType() == Event.MERGE) {
+                            detected.compareAndSet(0, System.nanoTime());
+                        }
+                    })
+                    .onDownEvent(event -> {
+                        if (event.getType() == Event.VIEW_CHANGE) {
+                            long start = detected.getAndSet(0);
+                            if (start != 0 && event.getArg() instanceof MergeView) {
+                                mergeDuration.record((System.nanoTime() - start) / 1_000_000.0);
+                            }
+                        }
+                    })
+                    .insertAbove(protocol);
+        }
+
         // Configuration metrics (only exposed when exposeConfigurationMetrics=true)
-        if (context.exposeConfigurationMetrics()) {
-            helper.registerLongGauge("interval.min",
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("interval.min",
                     "Minimum time in milliseconds before sending an info message",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "min_interval")));
 
-            helper.registerLongGauge("interval.max",
+            configuration.registerLongGauge("interval.max",
                     "Maximum interval in milliseconds when the next info message will be sent",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "max_interval")));
 
-            helper.registerLongGauge("interval.check",
+            configuration.registerLongGauge("interval.check",
                     "Interval in milliseconds after which we check for view inconsistencies",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "check_interval")));
 
-            helper.registerLongGauge("max_participants_in_merge",
+            configuration.registerLongGauge("max_participants_in_merge",
                     "Maximum number of merge participants to be involved in a merge (0=unlimited)",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(ReflectionHelper.getIntValue(protocol, "max_participants_in_merge")));
-        }
+        });
     }
 }
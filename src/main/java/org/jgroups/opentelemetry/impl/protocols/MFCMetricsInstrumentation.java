@@ -1,11 +1,19 @@
 package org.jgroups.opentelemetry.impl.protocols;
 
+import org.jgroups.Address;
+import org.jgroups.Message;
 import org.jgroups.annotations.observability.ObservableUnit;
 import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
 import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
 import org.jgroups.protocols.MFC;
+import org.jgroups.util.CreditMap;
+import org.jgroups.util.Util;
 import org.kohsuke.MetaInfServices;
 
+import java.lang.reflect.Field;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToLongFunction;
+
 /**
  * Metrics instrumentation for {@link MFC} (Multicast Flow Control).
  *
@@ -14,6 +22,39 @@ import org.kohsuke.MetaInfServices;
 @MetaInfServices(MetricsInstrumentation.class)
 public class MFCMetricsInstrumentation extends AbstractFlowControlMetricsInstrumentation<MFC> {
 
+    private static final Field CREDITS_FIELD = Util.getField(MFC.class, "credits");
+
+    @Override
+    protected ToLongFunction<Message> createAvailableCredits(MFC protocol) {
+        // The credit map is created when the protocol is initialized, so it is resolved on the first multicast message
+        // rather than using reflection on every message
+        CreditMap[] credits = new CreditMap[1];
+        return msg -> {
+            if (msg.getDest() != null && !msg.getDest().isMulticast()) return -1;
+            if (credits[0] == null) {
+                credits[0] = getCredits(protocol);
+            }
+            // A multicast message blocks if the lowest credits of all receivers do not suffice
+            return (credits[0] != null) ? credits[0].getMinCredits() : -1;
+        };
+    }
+
+    @Override
+    protected void forEachSenderCredits(MFC protocol, ObjLongConsumer<Address> credits) {
+        CreditMap map = getCredits(protocol);
+        if (map == null) return;
+        for (Address member : map.keys()) {
+            Long value = map.get(member);
+            if (value != null) {
+                credits.accept(member, value);
+            }
+        }
+    }
+
+    private static CreditMap getCredits(MFC protocol) {
+        return (CREDITS_FIELD != null && Util.getField(CREDITS_FIELD, protocol) instanceof CreditMap credits) ? credits : null;
+    }
+
     /**
      * Override to report MFC's average_time_blocked in nanoseconds (its native unit).
      */
@@ -58,21 +58,21 @@ public class REDMetricsInstrumentation implements MetricsInstrumentation<RED> {
                 });
 
         // Configuration metrics (enabled/thresholds)
-        if (context.exposeConfigurationMetrics()) {
-            helper.registerLongGauge("enabled",
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("enabled",
                     "Whether RED is currently active (1=enabled, 0=disabled)",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(protocol.isEnabled() ? 1 : 0));
 
-            helper.registerLongGauge("threshold.min",
+            configuration.registerLongGauge("threshold.min",
                     "Minimum threshold below which no messages are dropped",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "min")));
 
-            helper.registerLongGauge("threshold.max",
+            configuration.registerLongGauge("threshold.max",
                     "Maximum threshold above which all messages are dropped",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "max")));
-        }
+        });
     }
 }
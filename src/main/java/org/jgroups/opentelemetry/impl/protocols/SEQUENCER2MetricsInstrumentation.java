@@ -0,0 +1,136 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.Address;
+import org.jgroups.Event;
+import org.jgroups.View;
+import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
+import org.jgroups.opentelemetry.impl.util.ReflectionHelper;
+import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.SEQUENCER2;
+import org.jgroups.util.Table;
+import org.jgroups.util.Util;
+import org.kohsuke.MetaInfServices;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics instrumentation for {@link SEQUENCER2} protocol.
+ * <p>
+ * SEQUENCER2 provides total order for multicasts by requesting seqnos from the coordinator (the sequencer).
+ * Messages wait in the forward queue until a seqno is received, and are then broadcast by the sender itself.
+ * Received broadcasts are delivered in seqno order from the receive table.
+ * <p>
+ * Unlike SEQUENCER, SEQUENCER2 does not resend messages after a coordinator change; coordinator changes are
+ * observed by an {@link InterceptorProtocol} inserted directly above the protocol.
+ *
+ * @author Radoslav Husar
+ */
+@MetaInfServices(MetricsInstrumentation.class)
+public class SEQUENCER2MetricsInstrumentation implements MetricsInstrumentation<SEQUENCER2> {
+
+    @Override
+    public void registerMetrics(InstrumentationContext context) {
+        SEQUENCER2 protocol = (SEQUENCER2) context.protocol();
+        RegistrationHelper helper = new RegistrationHelper(context);
+
+        Field seqnoReqsField = Util.getField(SEQUENCER2.class, "seqno_reqs");
+        Field receivedMsgsField = Util.getField(SEQUENCER2.class, "received_msgs");
+
+        LongAdder coordinatorChanges = new LongAdder();
+
+        if (helper.isAnyMetricEnabled("coordinator.changes")) {
+            new InterceptorProtocol()
+                    .onDownEvent(evt -> {
+                        if (evt.getType() == Event.VIEW_CHANGE) {
+                            View view = evt.getArg();
+                            Address coordinator = protocol.getCoordinator();
+                            if (coordinator != null && view.size() > 0 && !coordinator.equals(view.getCoord())) {
+                                coordinatorChanges.increment();
+                            }
+                        }
+                    })
+                    .insertAbove(protocol);
+        }
+
+        // Runtime metrics (always exposed)
+        helper.registerLongGauge("is_coord",
+                "Indicates whether this member is the coordinator acting as the sequencer (1=sequencer, 0=not sequencer)",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.isCoordinator() ? 1 : 0));
+
+        helper.registerLongCounter("seqno.requests.sent",
+                "Number of seqno requests sent to the sequencer",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "sent_requests")));
+
+        helper.registerLongCounter("seqno.requests.received",
+                "Number of seqno requests received by this member as the sequencer",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "received_requests")));
+
+        helper.registerLongCounter("seqno.responses.sent",
+                "Number of seqno responses sent by this member as the sequencer",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "sent_responses")));
+
+        helper.registerLongCounter("seqno.responses.received",
+                "Number of seqno responses received from the sequencer",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "received_responses")));
+
+        helper.registerLongCounter("broadcasts.sent",
+                "Number of messages broadcast by this member after receiving their seqnos",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "bcasts_sent")));
+
+        helper.registerLongCounter("broadcasts.received",
+                "Number of broadcasts received",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "bcasts_received")));
+
+        helper.registerLongCounter("broadcasts.delivered",
+                "Number of broadcasts delivered to the application",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "bcasts_delivered")));
+
+        helper.registerLongGauge("forward_queue.size",
+                "Number of messages waiting for a seqno from the sequencer. *Critical*: Growth indicates the sequencer cannot keep up",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.getFwdQueueSize()));
+
+        helper.registerLongGauge("seqno.requests.pending",
+                "Number of seqnos requested from the sequencer but not yet received",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    Object value = Util.getField(seqnoReqsField, protocol);
+                    measurement.record(value != null ? ((Number) value).longValue() : 0);
+                });
+
+        helper.registerLongGauge("receive_table.size",
+                "Number of received broadcasts held in the receive table awaiting in-order delivery",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    if (Util.getField(receivedMsgsField, protocol) instanceof Table<?> table) {
+                        measurement.record(table.size());
+                    }
+                });
+
+        helper.registerLongGauge("receive_table.missing",
+                "Number of missing broadcasts in the receive table which block in-order delivery",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    if (Util.getField(receivedMsgsField, protocol) instanceof Table<?> table) {
+                        measurement.record(table.getNumMissing());
+                    }
+                });
+
+        helper.registerLongCounter("coordinator.changes",
+                "Number of times the coordinator acting as the sequencer changed",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(coordinatorChanges.sum()));
+    }
+}
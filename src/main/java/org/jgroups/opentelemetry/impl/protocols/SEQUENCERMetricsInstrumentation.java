@@ -0,0 +1,198 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import org.jgroups.Address;
+import org.jgroups.Event;
+import org.jgroups.View;
+import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
+import org.jgroups.opentelemetry.impl.util.ReflectionHelper;
+import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.SEQUENCER;
+import org.jgroups.util.Util;
+import org.kohsuke.MetaInfServices;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics instrumentation for {@link SEQUENCER} protocol.
+ * <p>
+ * SEQUENCER provides total order for multicasts by forwarding them to the coordinator (the sequencer),
+ * which broadcasts them to the cluster. Forwarded messages are kept in the forward table until they are
+ * delivered, and are resent to the new coordinator when the coordinator changes.
+ * <p>
+ * The time from forwarding a message to its delivery, coordinator changes and resends are not tracked by the protocol,
+ * so an {@link InterceptorProtocol} is inserted directly above the protocol (to observe delivery of own messages and
+ * view changes) and directly below it (to observe forwarded messages).
+ *
+ * @author Radoslav Husar
+ */
+@MetaInfServices(MetricsInstrumentation.class)
+public class SEQUENCERMetricsInstrumentation implements MetricsInstrumentation<SEQUENCER> {
+
+    @Override
+    public void registerMetrics(InstrumentationContext context) {
+        SEQUENCER protocol = (SEQUENCER) context.protocol();
+        RegistrationHelper helper = new RegistrationHelper(context);
+
+        Field deliveryTableField = Util.getField(SEQUENCER.class, "delivery_table");
+        Field inFlightSendsField = Util.getField(SEQUENCER.class, "in_flight_sends");
+
+        DoubleHistogram deliveryDuration = helper.registerDoubleHistogram("forward.delivery.duration",
+                "Time in milliseconds from forwarding a message to the sequencer until its delivery to this member",
+                ObservableUnit.MILLISECONDS);
+
+        // Forwarded messages of this member awaiting delivery, keyed by seqno (seqnos are assigned by this member);
+        // cleared when the coordinator changes, so that the duration is only recorded for messages delivered by the same sequencer
+        ConcurrentMap<Long, Long> forwarded = new ConcurrentHashMap<>();
+        LongAdder coordinatorChanges = new LongAdder();
+        LongAdder resent = new LongAdder();
+
+        // The delivery of forwarded messages is only observed if its duration is recorded
+        boolean delivery = helper.isAnyMetricEnabled("forward.delivery.duration");
+        if (delivery || helper.isAnyMetricEnabled("coordinator.changes", "messages.resent")) {
+            InterceptorProtocol above = new InterceptorProtocol()
+                    .onDownEvent(evt -> {
+                        switch (evt.getType()) {
+                            case Event.VIEW_CHANGE -> {
+                                View view = evt.getArg();
+                                Address coordinator = protocol.getCoordinator();
+                                if (coordinator != null && view.size() > 0 && !coordinator.equals(view.getCoord())) {
+                                    coordinatorChanges.increment();
+                                    // All messages in the forward table are resent to (or broadcast by) the new coordinator
+                                    resent.add(protocol.getForwardTableSize());
+                                    // Messages lost with the old coordinator would never be removed, so stop tracking all of them
+                                    forwarded.clear();
+                                }
+                            }
+                            case Event.DISCONNECT -> forwarded.clear();
+                        }
+                    });
+            if (delivery) {
+                above.onUp(msg -> {
+                    if (forwarded.isEmpty()) return;
+                    if (msg.getHeader(protocol.getId()) instanceof SEQUENCER.SequencerHeader header && protocol.getAddress() != null && protocol.getAddress().equals(msg.getSrc())) {
+                        Long start = forwarded.remove(header.getSeqno());
+                        if (start != null) {
+                            deliveryDuration.record((System.nanoTime() - start) / 1_000_000.0);
+                        }
+                    }
+                });
+            }
+            above.insertAbove(protocol);
+        }
+
+        if (delivery) {
+            new InterceptorProtocol()
+                    .onDown(msg -> {
+                        // Only forwarded messages are unicast to the coordinator; broadcasts have no destination
+                        if (msg.getDest() != null && msg.getHeader(protocol.getId()) instanceof SEQUENCER.SequencerHeader header) {
+                            forwarded.putIfAbsent(header.getSeqno(), System.nanoTime());
+                        }
+                    })
+                    .insertBelow(protocol);
+        }
+
+        // Runtime metrics (always exposed)
+        helper.registerLongGauge("is_coord",
+                "Indicates whether this member is the coordinator acting as the sequencer (1=sequencer, 0=not sequencer)",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.isCoordinator() ? 1 : 0));
+
+        helper.registerLongCounter("messages.forwarded",
+                "Number of messages forwarded to the sequencer",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "forwarded_msgs")));
+
+        helper.registerLongCounter("messages.broadcast",
+                "Number of messages broadcast by this member as the sequencer",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "bcast_msgs")));
+
+        helper.registerLongCounter("forwards.received",
+                "Number of forwarded messages received by this member as the sequencer",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "received_forwards")));
+
+        helper.registerLongCounter("broadcasts.received",
+                "Number of broadcasts received from the sequencer",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "received_bcasts")));
+
+        helper.registerLongCounter("broadcasts.delivered",
+                "Number of broadcasts delivered to the application",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(ReflectionHelper.getLongValue(protocol, "delivered_bcasts")));
+
+        helper.registerLongGauge("forward_table.size",
+                "Number of forwarded messages awaiting delivery. *Critical*: Growth indicates the sequencer cannot keep up",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.getForwardTableSize()));
+
+        helper.registerLongGauge("delivery_table.senders",
+                "Number of senders tracked in the delivery table used to discard duplicate broadcasts",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    if (Util.getField(deliveryTableField, protocol) instanceof Map<?, ?> deliveryTable) {
+                        measurement.record(deliveryTable.size());
+                    }
+                });
+
+        helper.registerLongGauge("delivery_table.size",
+                "Total number of seqnos held in the delivery table across all senders",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    if (Util.getField(deliveryTableField, protocol) instanceof Map<?, ?> deliveryTable) {
+                        long size = 0;
+                        for (Object seqnos : deliveryTable.values()) {
+                            if (seqnos instanceof Map<?, ?> map) {
+                                size += map.size();
+                            }
+                        }
+                        measurement.record(size);
+                    }
+                });
+
+        helper.registerLongGauge("in_flight_sends",
+                "Number of messages currently being sent, which have been assigned a seqno but not yet forwarded or broadcast",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    Object value = Util.getField(inFlightSendsField, protocol);
+                    measurement.record(value != null ? ((Number) value).longValue() : 0);
+                });
+
+        helper.registerLongGauge("flushing",
+                "Indicates whether the forward table is being flushed to a new coordinator (1=flushing, 0=not flushing); sends are blocked while flushing",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(ReflectionHelper.getBooleanValue(protocol, "flushing") ? 1 : 0));
+
+        helper.registerLongCounter("coordinator.changes",
+                "Number of times the coordinator acting as the sequencer changed",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(coordinatorChanges.sum()));
+
+        helper.registerLongCounter("messages.resent",
+                "Number of forwarded messages resent to a new coordinator after a coordinator change",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(resent.sum()));
+
+        // Configuration metrics
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("threshold",
+                    "Number of acks needed before going from ack-mode to normal mode; 0 disables ack-mode",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(ReflectionHelper.getIntValue(protocol, "threshold")));
+
+            configuration.registerLongGauge("delivery_table_max_size",
+                    "Maximum number of seqnos per sender kept in the delivery table for duplicate detection",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(ReflectionHelper.getIntValue(protocol, "delivery_table_max_size")));
+        });
+    }
+}
@@ -0,0 +1,17 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.SYM_ENCRYPT;
+import org.kohsuke.MetaInfServices;
+
+/**
+ * Metrics instrumentation for {@link SYM_ENCRYPT} protocol.
+ * <p>
+ * SYM_ENCRYPT encrypts messages with a secret key shared by all members via a keystore, so only the common
+ * encryption metrics are exposed.
+ *
+ * @author Radoslav Husar
+ */
+@MetaInfServices(MetricsInstrumentation.class)
+public class SYM_ENCRYPTMetricsInstrumentation extends AbstractEncryptMetricsInstrumentation<SYM_ENCRYPT> {
+}
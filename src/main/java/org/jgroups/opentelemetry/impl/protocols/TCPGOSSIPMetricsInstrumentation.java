@@ -1,12 +1,23 @@
 package org.jgroups.opentelemetry.impl.protocols;
 
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import org.jgroups.Event;
+import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
+import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
 import org.jgroups.opentelemetry.spi.InstrumentationContext;
 import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.PingHeader;
 import org.jgroups.protocols.TCPGOSSIP;
 import org.kohsuke.MetaInfServices;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Metrics instrumentation for {@link TCPGOSSIP}.
+ * The GossipRouter replies with the registered members asynchronously, upon which the protocol sends discovery
+ * requests to each of them. The round-trip time to the router is therefore measured from the start of a discovery
+ * round until the first discovery request is sent to a member returned by the router.
  *
  * @author Radoslav Husar
  */
@@ -18,6 +29,32 @@ public class TCPGOSSIPMetricsInstrumentation extends AbstractDiscoveryMetricsIns
         // Register common Discovery metrics
         super.registerMetrics(context);
 
-        // Add TCPGOSSIP-specific metrics here if needed in the future
+        TCPGOSSIP protocol = (TCPGOSSIP) context.protocol();
+        RegistrationHelper helper = new RegistrationHelper(context);
+
+        DoubleHistogram routerDuration = helper.registerDoubleHistogram("router.response.duration",
+                "Time in milliseconds from requesting the members from the GossipRouter until the first discovery request was sent to a member returned by the router. Not recorded if no other members are registered",
+                ObservableUnit.MILLISECONDS);
+
+        AtomicLong requested = new AtomicLong();
+        if (helper.isAnyMetricEnabled("router.response.duration")) {
+            new InterceptorProtocol()
+                    .onDownEvent(event -> {
+                        if (event.getType() == Event.FIND_INITIAL_MBRS || event.getType() == Event.FIND_MBRS_ASYNC) {
+                            requested.set(System.nanoTime());
+                        }
+                    })
+                    .insertAbove(protocol);
+
+            new InterceptorProtocol()
+                    .onDown(msg -> {
+                        if (requested.get() == 0 || msg.getDest() == null || !(msg.getHeader(protocol.getId()) instanceof PingHeader header) || header.type() != PingHeader.GET_MBRS_REQ) return;
+                        long start = requested.getAndSet(0);
+                        if (start != 0) {
+                            routerDuration.record((System.nanoTime() - start) / 1_000_000.0);
+                        }
+                    })
+                    .insertBelow(protocol);
+        }
     }
 }
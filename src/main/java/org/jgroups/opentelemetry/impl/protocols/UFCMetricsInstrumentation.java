@@ -1,8 +1,17 @@
 package org.jgroups.opentelemetry.impl.protocols;
 
+import org.jgroups.Address;
+import org.jgroups.Message;
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
 import org.jgroups.protocols.UFC;
+import org.jgroups.util.Credit;
+import org.jgroups.util.Util;
 import org.kohsuke.MetaInfServices;
-import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToLongFunction;
 
 /**
  * Metrics instrumentation for {@link UFC}.
@@ -11,6 +20,29 @@ import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
  */
 @MetaInfServices(MetricsInstrumentation.class)
 public class UFCMetricsInstrumentation extends AbstractFlowControlMetricsInstrumentation<UFC> {
-    // All metrics are inherited from AbstractFlowControlMetricsInstrumentation
     // UFC reports average_time_blocked in milliseconds, so no override needed
+
+    private static final Field SENT_FIELD = Util.getField(UFC.class, "sent");
+
+    @Override
+    protected ToLongFunction<Message> createAvailableCredits(UFC protocol) {
+        Map<Address, ? extends Credit> sent = getSent(protocol);
+        return msg -> {
+            Address dest = msg.getDest();
+            Credit credit = (dest != null && !dest.isMulticast()) ? sent.get(dest) : null;
+            return (credit != null) ? credit.get() : -1;
+        };
+    }
+
+    @Override
+    protected void forEachSenderCredits(UFC protocol, ObjLongConsumer<Address> credits) {
+        for (Address member : getSent(protocol).keySet()) {
+            credits.accept(member, protocol.getSenderCreditsFor(member));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Address, ? extends Credit> getSent(UFC protocol) {
+        return (SENT_FIELD != null && Util.getField(SENT_FIELD, protocol) instanceof Map<?, ?> sent) ? (Map<Address, ? extends Credit>) sent : Map.of();
+    }
 }
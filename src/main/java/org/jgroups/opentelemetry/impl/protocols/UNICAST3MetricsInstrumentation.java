@@ -1,13 +1,19 @@
 package org.jgroups.opentelemetry.impl.protocols;
 
+import org.jgroups.Address;
 import org.jgroups.annotations.observability.ObservableUnit;
 import org.jgroups.opentelemetry.impl.util.ReflectionHelper;
 import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
 import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
 import org.jgroups.opentelemetry.spi.InstrumentationContext;
 import org.jgroups.protocols.UNICAST3;
+import org.jgroups.util.Table;
+import org.jgroups.util.Util;
 import org.kohsuke.MetaInfServices;
 
+import java.lang.reflect.Field;
+import java.util.Map;
+
 /**
  * Metrics instrumentation for {@link UNICAST3}.
  *
@@ -76,5 +82,48 @@ public class UNICAST3MetricsInstrumentation implements MetricsInstrumentation<UN
                 "Number of undelivered messages in all receive windows",
                 ObservableUnit.UNITY,
                 measurement -> measurement.record(protocol.getXmitTableUndeliveredMessages()));
+
+        // Per-member metrics (opt-in)
+        Field sendTableField = Util.getField(UNICAST3.class, "send_table");
+        Field recvTableField = Util.getField(UNICAST3.class, "recv_table");
+        Field msgsField = getEntryTableField();
+
+        helper.registerPerMemberLongGauge("member.messages.unacked",
+                "Number of unacknowledged messages per send connection (per receiving member)",
+                ObservableUnit.UNITY,
+                RegistrationHelper.Ranking.HIGHEST_FIRST,
+                Long::sum,
+                values -> {
+                    if (Util.getField(sendTableField, protocol) instanceof Map<?, ?> sendTable) {
+                        for (Object member : sendTable.keySet()) {
+                            values.accept((Address) member, protocol.getNumUnackedMessages((Address) member));
+                        }
+                    }
+                });
+        helper.registerPerMemberLongGauge("member.messages.missing",
+                "Number of missing messages per receive connection (per sending member)",
+                ObservableUnit.UNITY,
+                RegistrationHelper.Ranking.HIGHEST_FIRST,
+                Long::sum,
+                values -> {
+                    if (Util.getField(recvTableField, protocol) instanceof Map<?, ?> recvTable) {
+                        for (Map.Entry<?, ?> entry : recvTable.entrySet()) {
+                            if (msgsField != null && Util.getField(msgsField, entry.getValue()) instanceof Table<?> msgs) {
+                                values.accept((Address) entry.getKey(), msgs.getNumMissing());
+                            }
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Resolves the table field of the protected {@code UNICAST3.Entry} class.
+     */
+    private static Field getEntryTableField() {
+        try {
+            return Util.getField(Class.forName(UNICAST3.class.getName() + "$Entry"), "msgs");
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
     }
 }
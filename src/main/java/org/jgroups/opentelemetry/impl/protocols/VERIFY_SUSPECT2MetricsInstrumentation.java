@@ -1,6 +1,11 @@
 package org.jgroups.opentelemetry.impl.protocols;
 
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import org.jgroups.Address;
+import org.jgroups.Event;
+import org.jgroups.View;
 import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
 import org.jgroups.opentelemetry.impl.util.ReflectionHelper;
 import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
 import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
@@ -8,8 +13,17 @@ import org.jgroups.opentelemetry.spi.InstrumentationContext;
 import org.jgroups.protocols.VERIFY_SUSPECT2;
 import org.kohsuke.MetaInfServices;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Metrics instrumentation for {@link VERIFY_SUSPECT2}.
+ * Besides the state of the protocol, tracks the removal of failed members through its phases: the suspicion raised
+ * by a failure detection protocol below, its verification by this protocol, and the exclusion of the member
+ * from the view installed by GMS.
  *
  * @author Radoslav Husar
  */
@@ -30,5 +44,140 @@ public class VERIFY_SUSPECT2MetricsInstrumentation implements MetricsInstrumenta
                 "Indicates whether the verification task is currently running (1=running, 0=stopped)",
                 ObservableUnit.UNITY,
                 measurement -> measurement.record(ReflectionHelper.getBooleanValue(protocol, "running") ? 1 : 0));
+
+        // Suspect-to-exclusion pipeline
+        SuspicionTracker tracker = new SuspicionTracker(
+                helper.registerDoubleHistogram("verification.duration",
+                        "Time in milliseconds from a member being suspected by failure detection until the suspicion was confirmed by verification",
+                        ObservableUnit.MILLISECONDS),
+                helper.registerDoubleHistogram("exclusion.duration",
+                        "Time in milliseconds from a suspicion being confirmed until a view excluding the member was installed",
+                        ObservableUnit.MILLISECONDS),
+                helper.registerDoubleHistogram("removal.duration",
+                        "Time in milliseconds from a member being suspected by failure detection until a view excluding the member was installed",
+                        ObservableUnit.MILLISECONDS));
+
+        if (helper.isAnyMetricEnabled("verification.duration", "exclusion.duration", "removal.duration", "suspicions", "suspicions.confirmed", "suspicions.false")) {
+            new InterceptorProtocol()
+                    .onUpEvent(event -> {
+                        if (event.getType() == Event.SUSPECT) {
+                            tracker.suspected(protocol.getAddress(), event.getArg());
+                        }
+                    })
+                    .insertBelow(protocol);
+
+            new InterceptorProtocol()
+                    .onUpEvent(event -> {
+                        switch (event.getType()) {
+                            case Event.SUSPECT -> tracker.confirmed(event.getArg());
+                            case Event.UNSUSPECT -> tracker.unsuspected(event.getArg());
+                        }
+                    })
+                    .onDownEvent(event -> {
+                        if (event.getType() == Event.VIEW_CHANGE) {
+                            tracker.viewInstalled(event.getArg());
+                        }
+                    })
+                    .insertAbove(protocol);
+        }
+
+        helper.registerLongCounter("suspicions",
+                "Number of members suspected by failure detection",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.suspicions.sum()));
+
+        helper.registerLongCounter("suspicions.confirmed",
+                "Number of suspicions confirmed by verification and passed on to GMS",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.confirmations.sum()));
+
+        helper.registerLongCounter("suspicions.false",
+                "Number of false suspicions, where a suspected member responded to verification and was unsuspected",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.falseSuspicions.sum()));
+    }
+
+    /**
+     * Correlates the suspicion, verification and exclusion of members.
+     * Invoked from the threads passing events, which are not performance critical.
+     */
+    private static class SuspicionTracker {
+        private final Map<Address, Suspicion> pending = new ConcurrentHashMap<>();
+        private final DoubleHistogram verificationDuration;
+        private final DoubleHistogram exclusionDuration;
+        private final DoubleHistogram removalDuration;
+        final LongAdder suspicions = new LongAdder();
+        final LongAdder confirmations = new LongAdder();
+        final LongAdder falseSuspicions = new LongAdder();
+
+        SuspicionTracker(DoubleHistogram verificationDuration, DoubleHistogram exclusionDuration, DoubleHistogram removalDuration) {
+            this.verificationDuration = verificationDuration;
+            this.exclusionDuration = exclusionDuration;
+            this.removalDuration = removalDuration;
+        }
+
+        void suspected(Address localAddress, Object members) {
+            if (!(members instanceof Collection<?> suspects)) return;
+            long now = System.nanoTime();
+            for (Object member : suspects) {
+                if (!member.equals(localAddress) && pending.putIfAbsent((Address) member, new Suspicion(now)) == null) {
+                    suspicions.increment();
+                }
+            }
+        }
+
+        void confirmed(Object members) {
+            if (!(members instanceof Collection<?> suspects)) return;
+            long now = System.nanoTime();
+            for (Object member : suspects) {
+                Suspicion suspicion = pending.get(member);
+                if (suspicion != null && suspicion.confirm(now)) {
+                    confirmations.increment();
+                    verificationDuration.record(toMillis(now - suspicion.suspected));
+                }
+            }
+        }
+
+        void unsuspected(Object member) {
+            if (member != null && pending.remove(member) != null) {
+                falseSuspicions.increment();
+            }
+        }
+
+        void viewInstalled(Object arg) {
+            if (!(arg instanceof View view) || pending.isEmpty()) return;
+            long now = System.nanoTime();
+            Iterator<Map.Entry<Address, Suspicion>> entries = pending.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Address, Suspicion> entry = entries.next();
+                if (view.containsMember(entry.getKey())) continue;
+                entries.remove();
+                Suspicion suspicion = entry.getValue();
+                long confirmed = suspicion.confirmed;
+                if (confirmed != 0) {
+                    exclusionDuration.record(toMillis(now - confirmed));
+                }
+                removalDuration.record(toMillis(now - suspicion.suspected));
+            }
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+
+    private static class Suspicion {
+        final long suspected;
+        volatile long confirmed;
+
+        Suspicion(long suspected) {
+            this.suspected = suspected;
+        }
+
+        synchronized boolean confirm(long now) {
+            if (confirmed != 0) return false;
+            confirmed = now;
+            return true;
+        }
     }
 }
@@ -1,13 +1,27 @@
 package org.jgroups.opentelemetry.impl.protocols.dns;
 
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongHistogram;
+import org.jgroups.Address;
+import org.jgroups.Event;
+import org.jgroups.annotations.observability.ObservableUnit;
 import org.jgroups.opentelemetry.impl.protocols.AbstractDiscoveryMetricsInstrumentation;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
+import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
 import org.jgroups.opentelemetry.spi.InstrumentationContext;
 import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.dns.DNSResolver;
 import org.jgroups.protocols.dns.DNS_PING;
+import org.jgroups.util.Util;
 import org.kohsuke.MetaInfServices;
 
+import java.lang.reflect.Field;
+import java.util.List;
+
 /**
  * Metrics instrumentation for {@link DNS_PING}.
+ * The DNS lookups are timed by wrapping the {@link DNSResolver} of the protocol, which is created when the protocol
+ * is initialized and is therefore only wrapped when the first discovery request passes down.
  *
  * @author Radoslav Husar
  */
@@ -19,6 +33,52 @@ public class DNS_PINGMetricsInstrumentation extends AbstractDiscoveryMetricsInst
         // Register common Discovery metrics
         super.registerMetrics(context);
 
-        // Add DNS_PING-specific metrics here if needed in the future
+        DNS_PING protocol = (DNS_PING) context.protocol();
+        RegistrationHelper helper = new RegistrationHelper(context);
+
+        DoubleHistogram lookupDuration = helper.registerDoubleHistogram("lookup.duration",
+                "Time in milliseconds to resolve the members via a DNS lookup",
+                ObservableUnit.MILLISECONDS);
+        LongHistogram lookupRecords = helper.registerLongHistogram("lookup.records",
+                "Number of member addresses returned by a DNS lookup",
+                ObservableUnit.UNITY);
+
+        Field resolverField = Util.getField(DNS_PING.class, "dns_resolver");
+        if (helper.isAnyMetricEnabled("lookup.duration", "lookup.records")) {
+            new InterceptorProtocol()
+                    .onDownEvent(event -> {
+                        if (event.getType() != Event.FIND_INITIAL_MBRS && event.getType() != Event.FIND_MBRS_ASYNC) return;
+                        if (resolverField != null && Util.getField(resolverField, protocol) instanceof DNSResolver resolver && !(resolver instanceof TimedDNSResolver)) {
+                            protocol.setDNSResolver(new TimedDNSResolver(resolver, lookupDuration, lookupRecords));
+                        }
+                    })
+                    .insertAbove(protocol);
+        }
+    }
+
+    private static class TimedDNSResolver implements DNSResolver {
+        private final DNSResolver resolver;
+        private final DoubleHistogram lookupDuration;
+        private final LongHistogram lookupRecords;
+
+        TimedDNSResolver(DNSResolver resolver, DoubleHistogram lookupDuration, LongHistogram lookupRecords) {
+            this.resolver = resolver;
+            this.lookupDuration = lookupDuration;
+            this.lookupRecords = lookupRecords;
+        }
+
+        @Override
+        public List<Address> resolveIps(String dnsQuery, DNSRecordType recordType) {
+            long start = System.nanoTime();
+            List<Address> addresses = resolver.resolveIps(dnsQuery, recordType);
+            lookupDuration.record((System.nanoTime() - start) / 1_000_000.0);
+            lookupRecords.record((addresses != null) ? addresses.size() : 0);
+            return addresses;
+        }
+
+        @Override
+        public void close() {
+            resolver.close();
+        }
     }
 }
@@ -1,14 +1,20 @@
 package org.jgroups.opentelemetry.impl.protocols.pbcast;
 
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongHistogram;
+import org.jgroups.Event;
 import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
 import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
 import org.jgroups.opentelemetry.spi.InstrumentationContext;
 import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
 import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.util.AckCollector;
 import org.jgroups.util.Util;
 import org.kohsuke.MetaInfServices;
 
 import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Metrics instrumentation for {@link GMS} (Group Membership Service).
@@ -70,32 +76,144 @@ public class GMSMetricsInstrumentation implements MetricsInstrumentation<GMS> {
                 ObservableUnit.UNITY,
                 measurement -> measurement.record(protocol.isViewHandlerSuspended() ? 1 : 0));
 
+        // Join and leave durations, measured around the blocking CONNECT and DISCONNECT events
+        DoubleHistogram joinDuration = helper.registerDoubleHistogram("join.duration",
+                "Time in milliseconds for this member to join the cluster, from connecting until the view is installed",
+                ObservableUnit.MILLISECONDS);
+        DoubleHistogram leaveDuration = helper.registerDoubleHistogram("leave.duration",
+                "Time in milliseconds for this member to leave the cluster, from disconnecting until the leave completed or timed out",
+                ObservableUnit.MILLISECONDS);
+
+        if (helper.isAnyMetricEnabled("join.duration", "leave.duration")) {
+            new InterceptorProtocol()
+                    .timeDownEvent(event -> switch (event.getType()) {
+                        case Event.CONNECT, Event.CONNECT_WITH_STATE_TRANSFER, Event.DISCONNECT -> true;
+                        default -> false;
+                    }, (event, result, nanos) -> (event.getType() == Event.DISCONNECT ? leaveDuration : joinDuration).record(nanos / 1_000_000.0))
+                    .insertAbove(protocol);
+        }
+
+        // View installation durations of views cast by this member as coordinator
+        ViewInstallationTracker tracker = new ViewInstallationTracker(protocol,
+                helper.registerDoubleHistogram("view.installation.duration",
+                        "Time in milliseconds to install a view cast by this member as coordinator, from sending the view until all members acknowledged it or the view_ack_collection_timeout elapsed",
+                        ObservableUnit.MILLISECONDS),
+                helper.registerLongHistogram("view.acks.missing",
+                        "Number of members which failed to acknowledge a view cast by this member as coordinator within the view_ack_collection_timeout",
+                        ObservableUnit.UNITY));
+
+        if (helper.isAnyMetricEnabled("view.installation.duration", "view.acks.missing", "view.acks.pending")) {
+            new InterceptorProtocol()
+                    .onDown(msg -> {
+                        if (msg.getHeader(protocol.getId()) instanceof GMS.GmsHeader header && header.getType() == GMS.GmsHeader.VIEW) {
+                            tracker.viewSent();
+                        }
+                    })
+                    .onUpCompleted(msg -> tracker.acksReceived())
+                    .onUpBatchCompleted(batch -> tracker.acksReceived())
+                    .insertBelow(protocol);
+        }
+
+        helper.registerLongGauge("view.acks.pending",
+                "Number of members which have not yet acknowledged the view currently being installed by this member as coordinator",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.pendingAcks()));
+
         // Configuration metrics
-        if (context.exposeConfigurationMetrics()) {
-            helper.registerLongGauge("timeout.join",
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("timeout.join",
                     "Timeout in milliseconds for join operations",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(protocol.getJoinTimeout()));
 
-            helper.registerLongGauge("timeout.leave",
+            configuration.registerLongGauge("timeout.leave",
                     "Timeout in milliseconds for leave operations",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(protocol.getLeaveTimeout()));
 
-            helper.registerLongGauge("timeout.merge",
+            configuration.registerLongGauge("timeout.merge",
                     "Timeout in milliseconds to complete merge operations",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(protocol.getMergeTimeout()));
 
-            helper.registerLongGauge("timeout.view_ack_collection",
+            configuration.registerLongGauge("timeout.view_ack_collection",
                     "Timeout in milliseconds to wait for all VIEW acks (0 means wait forever)",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(protocol.getViewAckCollectionTimeout()));
 
-            helper.registerLongGauge("join_attempts.max",
+            configuration.registerLongGauge("join_attempts.max",
                     "Maximum number of join attempts before giving up and becoming singleton (0 means never give up)",
                     ObservableUnit.UNITY,
                     measurement -> measurement.record(protocol.getMaxJoinAttempts()));
+        });
+    }
+
+    /**
+     * Tracks the installation of views cast by this member as coordinator. The installation of a view completes once
+     * all members acknowledged the view or the coordinator stopped waiting for the acks after view_ack_collection_timeout.
+     * GMS installs one view at a time, so the installation of a view also completes when the next view is cast.
+     */
+    private static class ViewInstallationTracker {
+        private final GMS protocol;
+        private final AckCollector ackCollector;
+        private final DoubleHistogram installationDuration;
+        private final LongHistogram missingAcks;
+        // Start of the installation in progress, or 0 if none
+        private volatile long start;
+        private int missing;
+
+        ViewInstallationTracker(GMS protocol, DoubleHistogram installationDuration, LongHistogram missingAcks) {
+            this.protocol = protocol;
+            this.ackCollector = (AckCollector) Util.getField(Util.getField(GMS.class, "ack_collector"), protocol);
+            this.installationDuration = installationDuration;
+            this.missingAcks = missingAcks;
+        }
+
+        /**
+         * Invoked when the view is about to be sent; the ack collector has already been reset for the new view.
+         */
+        synchronized void viewSent() {
+            if (start != 0) {
+                complete(Math.min(System.nanoTime() - start, timeoutNanos()));
+            }
+            // Views without members to wait for (e.g. a singleton view) are not tracked
+            missing = ackCollector.size();
+            if (missing > 0) {
+                start = System.nanoTime();
+            }
+        }
+
+        void acksReceived() {
+            if (start == 0) return;
+            synchronized (this) {
+                if (start == 0) return;
+                missing = ackCollector.size();
+                if (missing == 0) {
+                    complete(System.nanoTime() - start);
+                }
+            }
+        }
+
+        synchronized long pendingAcks() {
+            if (start == 0) return 0;
+            long elapsed = System.nanoTime() - start;
+            if (elapsed >= timeoutNanos()) {
+                missing = ackCollector.size();
+                complete(timeoutNanos());
+                return 0;
+            }
+            return ackCollector.size();
+        }
+
+        private long timeoutNanos() {
+            long timeout = protocol.getViewAckCollectionTimeout();
+            return (timeout > 0) ? TimeUnit.MILLISECONDS.toNanos(timeout) : Long.MAX_VALUE;
+        }
+
+        private void complete(long nanos) {
+            installationDuration.record(nanos / 1_000_000.0);
+            missingAcks.record(missing);
+            start = 0;
         }
     }
 }
@@ -1,14 +1,26 @@
 package org.jgroups.opentelemetry.impl.protocols.pbcast;
 
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import org.jgroups.Address;
+import org.jgroups.Event;
+import org.jgroups.Message;
 import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
 import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
 import org.jgroups.opentelemetry.spi.InstrumentationContext;
 import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
 import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.util.Digest;
 import org.jgroups.util.Util;
 import org.kohsuke.MetaInfServices;
 
 import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjLongConsumer;
 
 /**
  * Metrics instrumentation for {@link STABLE} protocol.
@@ -16,6 +28,9 @@ import java.lang.reflect.Field;
  * STABLE computes which broadcast messages are stable (delivered by all members) and triggers
  * garbage collection in NAKACK layer. It periodically sends digest messages to coordinator,
  * which sends stability messages when all members have reported their digests.
+ * <p>
+ * Besides the state of the protocol, tracks how far stability lags behind delivery, i.e. the unstable messages
+ * retained by the NAKACK layer for retransmission, and how long the coordinator waits for the votes of members.
  *
  * @author Radoslav Husar
  */
@@ -78,17 +93,200 @@ public class STABLEMetricsInstrumentation implements MetricsInstrumentation<STAB
                 ObservableUnit.UNITY,
                 measurement -> measurement.record(protocol.getStableTaskRunning() ? 1 : 0));
 
+        // Stability lag - unstable messages are retained by the NAKACK layer until they are stable
+        StabilityTracker tracker = new StabilityTracker(protocol,
+                helper.registerDoubleHistogram("stability.interval",
+                        "Time in milliseconds between consecutive STABILITY messages, i.e. between garbage collections of stable messages",
+                        ObservableUnit.MILLISECONDS),
+                helper.registerDoubleHistogram("vote.delay",
+                        "Time in milliseconds from the first STABLE vote of a round until the vote of each member was received. Recorded by the coordinator",
+                        ObservableUnit.MILLISECONDS));
+
+        if (helper.isAnyMetricEnabled("stability.interval", "vote.delay", "seqno.spread.max", "unstable.messages", "unstable.bytes.estimated")
+                || (context.perMemberMetrics() && helper.isAnyMetricEnabled("member.seqno.spread", "member.vote.delay"))) {
+            new InterceptorProtocol()
+                    .onUp(tracker::received)
+                    .onDownEvent(event -> {
+                        switch (event.getType()) {
+                            case Event.STABLE -> tracker.stable(event.getArg());
+                            case Event.VIEW_CHANGE -> tracker.viewChanged();
+                        }
+                    })
+                    .insertBelow(protocol);
+        }
+
+        helper.registerLongGauge("seqno.spread.max",
+                "Largest difference between the highest delivered and the stable seqno of any sender, i.e. the number of delivered messages of the sender furthest behind stability retained for retransmission",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    long max = 0;
+                    for (Digest.Entry entry : tracker.snapshot().digest()) {
+                        max = Math.max(max, tracker.spread(entry));
+                    }
+                    measurement.record(max);
+                });
+
+        helper.registerLongGauge("unstable.messages",
+                "Number of messages received from all senders which are not yet stable and are retained for retransmission",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(tracker.unstableMessages(tracker.snapshot())));
+
+        helper.registerLongGauge("unstable.bytes.estimated",
+                "Estimated size of the unstable messages retained for retransmission, based on the average size of the multicast messages received since the previous collection",
+                ObservableUnit.BYTES,
+                measurement -> {
+                    StabilityTracker.Snapshot snapshot = tracker.snapshot();
+                    measurement.record(tracker.unstableMessages(snapshot) * snapshot.averageMessageSize());
+                });
+
+        // Per-member metrics (opt-in)
+        helper.registerPerMemberLongGauge("member.seqno.spread",
+                "Difference between the highest delivered and the stable seqno of messages per sender",
+                ObservableUnit.UNITY,
+                RegistrationHelper.Ranking.HIGHEST_FIRST,
+                Math::max,
+                values -> {
+                    for (Digest.Entry entry : tracker.snapshot().digest()) {
+                        values.accept(entry.getMember(), tracker.spread(entry));
+                    }
+                });
+
+        helper.registerPerMemberLongGauge("member.vote.delay",
+                "Time in milliseconds from the first STABLE vote until the vote of the member was received in the last completed round. Recorded by the coordinator",
+                ObservableUnit.MILLISECONDS,
+                RegistrationHelper.Ranking.HIGHEST_FIRST,
+                Math::max,
+                tracker::lastVoteDelays);
+
         // Configuration metrics
-        if (context.exposeConfigurationMetrics()) {
-            helper.registerLongGauge("gossip.avg",
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("gossip.avg",
                     "Average interval in milliseconds between STABLE gossip messages (0 disables periodic gossip)",
                     ObservableUnit.MILLISECONDS,
                     measurement -> measurement.record(protocol.getDesiredAverageGossip()));
 
-            helper.registerLongGauge("bytes.max",
+            configuration.registerLongGauge("bytes.max",
                     "Maximum bytes from multicast messages before triggering STABLE message (0 disables byte-based triggering)",
                     ObservableUnit.BYTES,
                     measurement -> measurement.record(protocol.getMaxBytes()));
+        });
+    }
+
+    /**
+     * Tracks the stable digest passed down to the NAKACK layer and the STABLE votes received by the coordinator.
+     * The digest of the NAKACK layer is fetched once per collection into a {@link Snapshot} shared by all gauges,
+     * including the collections of other metric readers within {@link #SNAPSHOT_VALIDITY}.
+     */
+    private static class StabilityTracker {
+        private static final Field TYPE_FIELD = Util.getField(STABLE.StableHeader.class, "type");
+        // The callbacks of a collection are invoked one after another, well within this time
+        private static final long SNAPSHOT_VALIDITY = TimeUnit.MILLISECONDS.toNanos(100);
+
+        private final STABLE protocol;
+        private final DoubleHistogram stabilityInterval;
+        private final DoubleHistogram voteDelay;
+        private final AtomicLong lastStability = new AtomicLong();
+        private final LongAdder multicastBytes = new LongAdder();
+        private final LongAdder multicastMessages = new LongAdder();
+        private volatile Digest stableDigest;
+        // Last snapshot and the cumulative multicast counts it was taken at, guarded by the snapshot lock
+        private final Object snapshotLock = new Object();
+        private Snapshot snapshot;
+        private long snapshotBytes;
+        private long snapshotMessages;
+        // Votes of the current round in order of arrival, guarded by this
+        private final Map<Address, Long> votes = new LinkedHashMap<>();
+        private volatile Map<Address, Long> lastVoteDelays = Map.of();
+
+        StabilityTracker(STABLE protocol, DoubleHistogram stabilityInterval, DoubleHistogram voteDelay) {
+            this.protocol = protocol;
+            this.stabilityInterval = stabilityInterval;
+            this.voteDelay = voteDelay;
+        }
+
+        void received(Message msg) {
+            if (msg.getDest() == null) {
+                multicastBytes.add(msg.getLength());
+                multicastMessages.increment();
+            }
+            if (msg.getHeader(protocol.getId()) instanceof STABLE.StableHeader header && TYPE_FIELD != null
+                    && (byte) Util.getField(TYPE_FIELD, header) == STABLE.StableHeader.STABLE_GOSSIP && msg.getSrc() != null) {
+                long now = System.nanoTime();
+                synchronized (this) {
+                    votes.putIfAbsent(msg.getSrc(), now);
+                }
+            }
+        }
+
+        void stable(Object digest) {
+            if (!(digest instanceof Digest stable)) return;
+            stableDigest = stable;
+            long now = System.nanoTime();
+            long previous = lastStability.getAndSet(now);
+            if (previous != 0) {
+                stabilityInterval.record((now - previous) / 1_000_000.0);
+            }
+            Map<Address, Long> delays = new LinkedHashMap<>();
+            synchronized (this) {
+                if (votes.isEmpty()) return;
+                long first = votes.values().iterator().next();
+                votes.forEach((member, voted) -> delays.put(member, voted - first));
+                votes.clear();
+            }
+            delays.values().forEach(delay -> voteDelay.record(delay / 1_000_000.0));
+            lastVoteDelays = delays;
+        }
+
+        synchronized void viewChanged() {
+            // Votes are discarded by STABLE on view changes
+            votes.clear();
+        }
+
+        /**
+         * Returns the digest of the NAKACK layer and the average size of the multicast messages received since
+         * the previous snapshot, fetching them unless the last snapshot is still valid for the current collection.
+         */
+        Snapshot snapshot() {
+            long now = System.nanoTime();
+            synchronized (snapshotLock) {
+                Snapshot previous = snapshot;
+                if (previous != null && now - previous.timestamp() < SNAPSHOT_VALIDITY) return previous;
+                Object digest = protocol.getDownProtocol().down(Event.GET_DIGEST_EVT);
+                // The counts are cumulative, so that the average does not depend on which reader collects
+                long bytes = multicastBytes.sum();
+                long messages = multicastMessages.sum();
+                long averageMessageSize = (messages > snapshotMessages) ? (bytes - snapshotBytes) / (messages - snapshotMessages)
+                        : (previous != null) ? previous.averageMessageSize() : 0;
+                snapshotBytes = bytes;
+                snapshotMessages = messages;
+                snapshot = new Snapshot(now, (digest instanceof Digest local) ? local : new Digest(), averageMessageSize);
+                return snapshot;
+            }
+        }
+
+        long spread(Digest.Entry entry) {
+            return Math.max(0, entry.getHighestDeliveredSeqno() - stableSeqno(entry.getMember()));
+        }
+
+        long unstableMessages(Snapshot snapshot) {
+            long unstable = 0;
+            for (Digest.Entry entry : snapshot.digest()) {
+                unstable += Math.max(0, entry.getHighestReceivedSeqno() - stableSeqno(entry.getMember()));
+            }
+            return unstable;
+        }
+
+        void lastVoteDelays(ObjLongConsumer<Address> values) {
+            lastVoteDelays.forEach((member, delay) -> values.accept(member, delay / 1_000_000));
+        }
+
+        private long stableSeqno(Address member) {
+            Digest stable = stableDigest;
+            long[] seqnos = (stable != null) ? stable.get(member) : null;
+            return (seqnos != null) ? seqnos[0] : 0;
+        }
+
+        record Snapshot(long timestamp, Digest digest, long averageMessageSize) {
         }
     }
 }
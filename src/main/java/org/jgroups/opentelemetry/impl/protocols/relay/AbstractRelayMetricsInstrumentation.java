@@ -0,0 +1,231 @@
+package org.jgroups.opentelemetry.impl.protocols.relay;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import org.jgroups.Address;
+import org.jgroups.Event;
+import org.jgroups.View;
+import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.BoundedCounterMap;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
+import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.relay.RELAY;
+import org.jgroups.protocols.relay.RelayHeader;
+import org.jgroups.protocols.relay.SiteAddress;
+import org.jgroups.protocols.relay.config.RelayConfig;
+import org.jgroups.util.Util;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+/**
+ * Abstract base class for cross-site replication protocol metrics instrumentation.
+ * Provides common metrics for all {@link RELAY}-based protocols (RELAY2, RELAY3).
+ *
+ * <p>Site master status, the routing table and the aggregate forwarding statistics are read from the protocol.
+ * Per-site traffic is not tracked by the protocols, so {@link InterceptorProtocol}s are inserted directly above
+ * the relay protocol (to observe unicasts sent by this member to remote sites and site-unreachable notifications)
+ * and directly below it (to observe messages which local members forward to this site master for relaying).
+ * Only unicast messages addressed to a remote site are attributed to a site. The number of distinct sites
+ * reported per metric is bounded by {@link InstrumentationContext#attributeCardinalityLimit()}; further sites are
+ * reported in a single series with the {@link BoundedCounterMap#OVERFLOW} attribute instead of a site.</p>
+ *
+ * <p>The relay protocols do not queue messages while a route is down; such messages are dropped and the sender
+ * is notified with a site-unreachable event, which is counted per site instead.</p>
+ *
+ * @author Radoslav Husar
+ */
+public abstract class AbstractRelayMetricsInstrumentation<T extends RELAY> implements MetricsInstrumentation<T> {
+
+    protected static final AttributeKey<String> SITE = AttributeKey.stringKey("site");
+    protected static final AttributeKey<String> BRIDGE = AttributeKey.stringKey("bridge");
+
+    private static final Field SITE_CONFIG_FIELD = Util.getField(RELAY.class, "site_config");
+
+    @Override
+    public void registerMetrics(InstrumentationContext context) {
+        T protocol = getProtocolClass().cast(context.protocol());
+        RegistrationHelper helper = new RegistrationHelper(context);
+        int limit = context.attributeCardinalityLimit();
+
+        BoundedCounterMap sentMessages = new BoundedCounterMap(limit);
+        BoundedCounterMap sentBytes = new BoundedCounterMap(limit);
+        BoundedCounterMap relayedMessages = new BoundedCounterMap(limit);
+        BoundedCounterMap relayedBytes = new BoundedCounterMap(limit);
+        BoundedCounterMap unreachable = new BoundedCounterMap(limit);
+
+        DoubleHistogram forwardingDuration = helper.registerDoubleHistogram("forwarding.duration",
+                "Time in milliseconds to pass a unicast message addressed to a remote site through the relay protocol, " +
+                        "including sending it to the local site master or over the bridge to the remote site",
+                ObservableUnit.MILLISECONDS);
+
+        boolean sent = helper.isAnyMetricEnabled("site.messages.sent", "site.bytes.sent");
+        boolean forwarding = helper.isAnyMetricEnabled("forwarding.duration");
+        if (sent || forwarding || helper.isAnyMetricEnabled("site.unreachable")) {
+            InterceptorProtocol above = new InterceptorProtocol()
+                    .onUpEvent(evt -> {
+                        if (evt.getType() == Event.SITE_UNREACHABLE && evt.getArg() instanceof SiteAddress address) {
+                            unreachable.increment(address.getSite());
+                        }
+                    });
+            if (sent) {
+                above.onDown(msg -> {
+                    String site = getRemoteSite(protocol, msg.getDest());
+                    if (site != null) {
+                        sentMessages.increment(site);
+                        sentBytes.add(site, msg.getLength());
+                    }
+                });
+            }
+            if (forwarding) {
+                above.timeDown(msg -> getRemoteSite(protocol, msg.getDest()) != null,
+                        nanos -> forwardingDuration.record(nanos / 1_000_000.0));
+            }
+            above.insertAbove(protocol);
+        }
+
+        if (helper.isAnyMetricEnabled("site.messages.relayed", "site.bytes.relayed")) {
+            new InterceptorProtocol()
+                    .onUp(msg -> {
+                        if (!protocol.isSiteMaster()) return;
+                        RelayHeader header = msg.getHeader(protocol.getId());
+                        if (header != null && header.getType() == RelayHeader.DATA) {
+                            String site = getRemoteSite(protocol, header.getFinalDest());
+                            if (site != null) {
+                                relayedMessages.increment(site);
+                                relayedBytes.add(site, msg.getLength());
+                            }
+                        }
+                    })
+                    .insertBelow(protocol);
+        }
+
+        // Runtime metrics (always exposed) - common to all RELAY protocols
+        helper.registerLongGauge("is_site_master",
+                "Indicates whether this member is a site master (1=site master, 0=not site master)",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.isSiteMaster() ? 1 : 0));
+
+        helper.registerLongGauge("site_masters",
+                "Number of site masters in the local site",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    List<Address> siteMasters = protocol.siteMasters();
+                    measurement.record(siteMasters != null ? siteMasters.size() : 0);
+                });
+
+        helper.registerLongGauge("routes",
+                "Number of routes to remote sites in the routing table (only maintained by site masters)",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.getNumRoutes()));
+
+        helper.registerLongGauge("bridge.members",
+                "Number of members in the view of the bridge channel per bridge cluster (only maintained by site masters)",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    if (!protocol.isSiteMaster()) return;
+                    Object siteConfig = Util.getField(SITE_CONFIG_FIELD, protocol);
+                    if (siteConfig instanceof RelayConfig.SiteConfig config) {
+                        for (RelayConfig.BridgeConfig bridge : config.getBridges()) {
+                            View view = protocol.getBridgeView(bridge.getClusterName());
+                            if (view != null) {
+                                measurement.record(view.size(), Attributes.of(BRIDGE, bridge.getClusterName()));
+                            }
+                        }
+                    }
+                });
+
+        helper.registerLongCounter("site.messages.sent",
+                "Number of unicast messages sent by this member to a remote site, per remote site",
+                ObservableUnit.UNITY,
+                measurement -> sentMessages.record(measurement, SITE));
+
+        helper.registerLongCounter("site.bytes.sent",
+                "Number of payload bytes of unicast messages sent by this member to a remote site, per remote site",
+                ObservableUnit.BYTES,
+                measurement -> sentBytes.record(measurement, SITE));
+
+        helper.registerLongCounter("site.messages.relayed",
+                "Number of unicast messages received from local members and relayed by this site master to a remote site, per remote site",
+                ObservableUnit.UNITY,
+                measurement -> relayedMessages.record(measurement, SITE));
+
+        helper.registerLongCounter("site.bytes.relayed",
+                "Number of payload bytes of unicast messages received from local members and relayed by this site master to a remote site, per remote site",
+                ObservableUnit.BYTES,
+                measurement -> relayedBytes.record(measurement, SITE));
+
+        helper.registerLongCounter("site.unreachable",
+                "Number of site-unreachable notifications for messages which could not be delivered because no route to the remote site was available, per remote site",
+                ObservableUnit.UNITY,
+                measurement -> unreachable.record(measurement, SITE));
+
+        helper.registerLongCounter("messages.forwarded_to_site_master",
+                "Number of messages forwarded to the local site master for relaying to a remote site",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.getNumForwardedToSiteMaster()));
+
+        helper.registerLongCounter("messages.forwarded_to_site_master.time",
+                "Total time spent forwarding messages to the local site master",
+                ObservableUnit.NANOSECONDS,
+                measurement -> measurement.record(protocol.getTimeForwardingToSM()));
+
+        helper.registerLongCounter("messages.relayed",
+                "Number of messages relayed by this site master to remote sites",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.getNumRelayed()));
+
+        helper.registerLongCounter("messages.relayed.time",
+                "Total time spent relaying messages to remote sites",
+                ObservableUnit.NANOSECONDS,
+                measurement -> measurement.record(protocol.getTimeRelaying()));
+
+        helper.registerLongCounter("messages.forwarded_to_local_member",
+                "Number of messages received from remote sites and forwarded to a local member",
+                ObservableUnit.UNITY,
+                measurement -> measurement.record(protocol.getNumForwardedToLocalMbr()));
+
+        helper.registerLongCounter("messages.forwarded_to_local_member.time",
+                "Total time spent forwarding messages received from remote sites to local members",
+                ObservableUnit.NANOSECONDS,
+                measurement -> measurement.record(protocol.getTimeForwardingToLocalMbr()));
+
+        // Configuration metrics
+        helper.registerConfigurationMetrics(configuration -> {
+            configuration.registerLongGauge("max_site_masters",
+                    "Maximum number of site masters in the local site",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(protocol.getMaxSiteMasters()));
+
+            configuration.registerDoubleGauge("site_masters_ratio",
+                    "Ratio of members of the local site which become site masters; overrides max_site_masters when greater than 0",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(protocol.getSiteMastersRatio()));
+
+            configuration.registerLongGauge("can_become_site_master",
+                    "Whether this member can become a site master (1=enabled, 0=disabled)",
+                    ObservableUnit.UNITY,
+                    measurement -> measurement.record(protocol.canBecomeSiteMaster() ? 1 : 0));
+        });
+    }
+
+    /**
+     * Returns the site of the given destination if it is a site address of a remote site.
+     *
+     * @param protocol the relay protocol instance
+     * @param dest the destination address, may be {@code null}
+     * @return the name of the remote site, or {@code null} if the destination is not in a remote site
+     */
+    private static String getRemoteSite(RELAY protocol, Object dest) {
+        if (dest instanceof SiteAddress address) {
+            String site = address.getSite();
+            if (site != null && !site.equals(protocol.getSite())) {
+                return site;
+            }
+        }
+        return null;
+    }
+}
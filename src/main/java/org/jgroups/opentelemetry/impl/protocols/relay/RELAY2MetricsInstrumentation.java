@@ -0,0 +1,15 @@
+package org.jgroups.opentelemetry.impl.protocols.relay;
+
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.relay.RELAY2;
+import org.kohsuke.MetaInfServices;
+
+/**
+ * Metrics instrumentation for {@link RELAY2}.
+ *
+ * @author Radoslav Husar
+ */
+@MetaInfServices(MetricsInstrumentation.class)
+public class RELAY2MetricsInstrumentation extends AbstractRelayMetricsInstrumentation<RELAY2> {
+    // All metrics are inherited from AbstractRelayMetricsInstrumentation
+}
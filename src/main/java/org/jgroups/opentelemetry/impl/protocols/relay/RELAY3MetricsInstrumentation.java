@@ -0,0 +1,52 @@
+package org.jgroups.opentelemetry.impl.protocols.relay;
+
+import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.util.RegistrationHelper;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
+import org.jgroups.protocols.relay.RELAY3;
+import org.jgroups.protocols.relay.SiteStatus;
+import org.jgroups.util.Util;
+import org.kohsuke.MetaInfServices;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+/**
+ * Metrics instrumentation for {@link RELAY3}.
+ * In addition to the common relay metrics, reports the number of remote sites known to be down.
+ *
+ * @author Radoslav Husar
+ */
+@MetaInfServices(MetricsInstrumentation.class)
+public class RELAY3MetricsInstrumentation extends AbstractRelayMetricsInstrumentation<RELAY3> {
+
+    private static final Field SITES_FIELD = Util.getField(SiteStatus.class, "sites");
+
+    @Override
+    public void registerMetrics(InstrumentationContext context) {
+        super.registerMetrics(context);
+
+        RELAY3 protocol = (RELAY3) context.protocol();
+        RegistrationHelper helper = new RegistrationHelper(context);
+
+        helper.registerLongGauge("sites.down",
+                "Number of remote sites which are currently known to be down",
+                ObservableUnit.UNITY,
+                measurement -> {
+                    SiteStatus siteStatus = protocol.siteStatus();
+                    long down = 0;
+                    // SiteStatus guards its map with its own monitor
+                    synchronized (siteStatus) {
+                        if (Util.getField(SITES_FIELD, siteStatus) instanceof Map<?, ?> sites) {
+                            for (Object status : sites.values()) {
+                                if (status == SiteStatus.Status.down) {
+                                    down++;
+                                }
+                            }
+                        }
+                    }
+                    measurement.record(down);
+                });
+    }
+}
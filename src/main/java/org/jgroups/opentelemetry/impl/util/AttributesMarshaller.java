@@ -0,0 +1,80 @@
+package org.jgroups.opentelemetry.impl.util;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.AttributeType;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import org.jgroups.util.Bits;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of {@link Attributes}, used by metric snapshots sent to the coordinator and by the spool.
+ * Boolean, long and double values keep their types; strings, and arrays which are not used by the instrumentation,
+ * are encoded as strings.
+ *
+ * @author Radoslav Husar
+ */
+public final class AttributesMarshaller {
+
+    private AttributesMarshaller() {
+    }
+
+    /**
+     * Writes the given attributes.
+     *
+     * @param attributes the attributes to write
+     * @param out the output to write to
+     * @throws IOException if writing fails
+     */
+    public static void writeTo(Attributes attributes, DataOutput out) throws IOException {
+        Bits.writeIntCompressed(attributes.size(), out);
+        for (Map.Entry<AttributeKey<?>, Object> entry : attributes.asMap().entrySet()) {
+            AttributeKey<?> key = entry.getKey();
+            Bits.writeString(key.getKey(), out);
+            switch (key.getType()) {
+                case BOOLEAN -> {
+                    out.writeByte(AttributeType.BOOLEAN.ordinal());
+                    out.writeBoolean((Boolean) entry.getValue());
+                }
+                case LONG -> {
+                    out.writeByte(AttributeType.LONG.ordinal());
+                    Bits.writeLongCompressed((Long) entry.getValue(), out);
+                }
+                case DOUBLE -> {
+                    out.writeByte(AttributeType.DOUBLE.ordinal());
+                    Bits.writeDouble((Double) entry.getValue(), out);
+                }
+                default -> {
+                    out.writeByte(AttributeType.STRING.ordinal());
+                    Bits.writeString(String.valueOf(entry.getValue()), out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads attributes written by {@link #writeTo(Attributes, DataOutput)}.
+     *
+     * @param in the input to read from
+     * @return the read attributes
+     * @throws IOException if reading fails
+     */
+    public static Attributes readFrom(DataInput in) throws IOException {
+        int size = Bits.readIntCompressed(in);
+        AttributesBuilder attributes = Attributes.builder();
+        for (int i = 0; i < size; i++) {
+            String key = Bits.readString(in);
+            switch (AttributeType.values()[in.readByte()]) {
+                case BOOLEAN -> attributes.put(AttributeKey.booleanKey(key), in.readBoolean());
+                case LONG -> attributes.put(AttributeKey.longKey(key), Bits.readLongCompressed(in));
+                case DOUBLE -> attributes.put(AttributeKey.doubleKey(key), Bits.readDouble(in));
+                default -> attributes.put(AttributeKey.stringKey(key), Bits.readString(in));
+            }
+        }
+        return attributes.build();
+    }
+}
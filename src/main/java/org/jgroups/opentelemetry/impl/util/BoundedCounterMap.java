@@ -0,0 +1,112 @@
+package org.jgroups.opentelemetry.impl.util;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.ObservableLongMeasurement;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Monotonic counters keyed by an attribute value (e.g., remote site name) with a bounded number of keys.
+ * The first {@code limit} distinct keys are counted separately; counts for any further keys are folded into
+ * a single overflow counter, reported without the keyed attribute and with the {@link #OVERFLOW} attribute instead,
+ * so that it cannot be mistaken for a key of the same name. Keys are never evicted, so each reported series stays
+ * monotonic as required for OpenTelemetry counters.
+ *
+ * <p>The limit is enforced on a best-effort basis: concurrent first-time increments of different keys
+ * may exceed it marginally.</p>
+ *
+ * @author Radoslav Husar
+ */
+public final class BoundedCounterMap {
+
+    /**
+     * Attribute marking the series which aggregates all values beyond the cardinality limit,
+     * like {@code otel.metric.overflow} of the OpenTelemetry SDK.
+     */
+    public static final AttributeKey<Boolean> OVERFLOW = AttributeKey.booleanKey("overflow");
+
+    /**
+     * Attributes of the series which aggregates all values beyond the cardinality limit.
+     */
+    public static final Attributes OVERFLOW_ATTRIBUTES = Attributes.of(OVERFLOW, true);
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final LongAdder overflow = new LongAdder();
+    private volatile boolean overflowed;
+    private final int limit;
+
+    /**
+     * Creates a new counter map.
+     *
+     * @param limit the maximum number of distinct keys counted separately
+     */
+    public BoundedCounterMap(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Adds the given value to the counter of the given key.
+     *
+     * @param key the attribute value
+     * @param value the value to add
+     */
+    public void add(String key, long value) {
+        LongAdder counter = counters.get(key);
+        if (counter == null) {
+            if (counters.size() >= limit) {
+                overflowed = true;
+                overflow.add(value);
+                return;
+            }
+            counter = counters.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.add(value);
+    }
+
+    /**
+     * Increments the counter of the given key by one.
+     *
+     * @param key the attribute value
+     */
+    public void increment(String key) {
+        add(key, 1);
+    }
+
+    /**
+     * Passes the current value of each counter counted separately to the given consumer.
+     *
+     * @param consumer the consumer accepting the key and its counter value
+     */
+    public void forEach(ObjLongConsumer<String> consumer) {
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            consumer.accept(entry.getKey(), entry.getValue().sum());
+        }
+    }
+
+    /**
+     * Returns the sum of the values of all keys beyond the limit.
+     *
+     * @return the overflow counter value, or empty if no key exceeded the limit yet
+     */
+    public OptionalLong getOverflow() {
+        return overflowed ? OptionalLong.of(overflow.sum()) : OptionalLong.empty();
+    }
+
+    /**
+     * Records the value of each counter with the given attribute holding its key, and the overflow counter,
+     * if any key exceeded the limit, with the {@link #OVERFLOW} attribute.
+     *
+     * @param measurement the measurement to record the counters to
+     * @param attributeKey the attribute holding the key
+     */
+    public void record(ObservableLongMeasurement measurement, AttributeKey<String> attributeKey) {
+        forEach((key, value) -> measurement.record(value, Attributes.of(attributeKey, key)));
+        getOverflow().ifPresent(value -> measurement.record(value, OVERFLOW_ATTRIBUTES));
+    }
+}
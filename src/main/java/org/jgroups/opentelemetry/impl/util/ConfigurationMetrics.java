@@ -0,0 +1,222 @@
+package org.jgroups.opentelemetry.impl.util;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.api.metrics.ObservableDoubleMeasurement;
+import io.opentelemetry.api.metrics.ObservableLongMeasurement;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.opentelemetry.spi.InstrumentationContext.ConfigurationMetricsMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Registers the configuration metrics of a protocol according to the {@link ConfigurationMetricsMode} of the context:
+ * <ul>
+ *   <li>{@link ConfigurationMetricsMode#GAUGES} registers a gauge per configuration value, reported on every collection,</li>
+ *   <li>{@link ConfigurationMetricsMode#ON_CHANGE} registers a gauge per configuration value, reported only on the first
+ *   collection and whenever the value changed since it was last reported,</li>
+ *   <li>{@link ConfigurationMetricsMode#INFO} reports all configuration values of the protocol as attributes of a single
+ *   {@value #INFO_METRIC_NAME} series with value 1, with a {@code protocol} attribute holding the protocol name.</li>
+ * </ul>
+ * Configuration values are read on every collection in all modes; the change check only compares the values read
+ * with the previously reported ones, so unchanged values are neither exported nor, for the info metric, re-allocated.
+ * The previously reported values are not tracked per metric reader, so {@link ConfigurationMetricsMode#ON_CHANGE} must
+ * only be used with a meter provider with a single reader; any other reader would miss the values reported to the first.
+ *
+ * @author Radoslav Husar
+ */
+public final class ConfigurationMetrics {
+
+    /**
+     * Name of the metric reporting the configuration values as attributes in the {@link ConfigurationMetricsMode#INFO} mode.
+     */
+    public static final String INFO_METRIC_NAME = "jgroups.config.info";
+
+    /**
+     * Attribute key identifying the protocol of the {@value #INFO_METRIC_NAME} series.
+     */
+    public static final AttributeKey<String> PROTOCOL = AttributeKey.stringKey("protocol");
+
+    private final InstrumentationContext context;
+    private final String prefix;
+    private final List<Setting> settings = new ArrayList<>();
+
+    /**
+     * Creates the configuration metrics of the protocol of the given context.
+     *
+     * @param context the instrumentation context
+     * @param prefix the prefix of the metric names, stripped from the attribute keys of the info metric
+     */
+    public ConfigurationMetrics(InstrumentationContext context, String prefix) {
+        this.context = context;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Registers a long configuration value.
+     *
+     * @param name the full metric name
+     * @param description the description of the metric
+     * @param unit the unit of the metric
+     * @param callback the callback recording the value
+     */
+    public void registerLongGauge(String name, String description, String unit, Consumer<ObservableLongMeasurement> callback) {
+        switch (context.configurationMetricsMode()) {
+            case GAUGES -> context.meter().gaugeBuilder(name).setDescription(description).setUnit(unit).ofLongs().buildWithCallback(callback);
+            case ON_CHANGE -> {
+                Setting setting = new Setting(name, callback);
+                context.meter().gaugeBuilder(name).setDescription(description).setUnit(unit).ofLongs().buildWithCallback(measurement -> {
+                    synchronized (setting) {
+                        if (setting.refresh()) {
+                            measurement.record(setting.value.bits, setting.value.attributes);
+                        }
+                    }
+                });
+            }
+            case INFO -> settings.add(new Setting(name, callback));
+        }
+    }
+
+    /**
+     * Registers a double configuration value.
+     *
+     * @param name the full metric name
+     * @param description the description of the metric
+     * @param unit the unit of the metric
+     * @param callback the callback recording the value
+     */
+    public void registerDoubleGauge(String name, String description, String unit, Consumer<ObservableDoubleMeasurement> callback) {
+        switch (context.configurationMetricsMode()) {
+            case GAUGES -> context.meter().gaugeBuilder(name).setDescription(description).setUnit(unit).buildWithCallback(callback);
+            case ON_CHANGE -> {
+                Setting setting = new Setting(name, callback);
+                context.meter().gaugeBuilder(name).setDescription(description).setUnit(unit).buildWithCallback(measurement -> {
+                    synchronized (setting) {
+                        if (setting.refresh()) {
+                            measurement.record(setting.value.doubleValue(), setting.value.attributes);
+                        }
+                    }
+                });
+            }
+            case INFO -> settings.add(new Setting(name, callback));
+        }
+    }
+
+    /**
+     * Completes the registration, i.e. registers the info metric if any configuration values were registered
+     * in the {@link ConfigurationMetricsMode#INFO} mode.
+     */
+    public void register() {
+        if (settings.isEmpty() || !context.isMetricEnabled(INFO_METRIC_NAME)) return;
+        List<Setting> settings = List.copyOf(this.settings);
+        String protocolName = context.protocol().getName();
+        Attributes[] cached = { null };
+        Attributes[] cachedContextAttributes = { null };
+
+        context.meter()
+            .gaugeBuilder(INFO_METRIC_NAME)
+            .setDescription("Configuration of a protocol; the configuration values are reported as attributes of a series with value 1")
+            .setUnit("1")
+            .ofLongs()
+            .buildWithCallback(measurement -> {
+                // Readers of the meter provider may collect concurrently
+                synchronized (settings) {
+                    Attributes contextAttributes = context.getAttributes();
+                    boolean changed = !contextAttributes.equals(cachedContextAttributes[0]);
+                    for (Setting setting : settings) {
+                        changed |= setting.refresh();
+                    }
+                    if (changed) {
+                        AttributesBuilder builder = contextAttributes.toBuilder().put(PROTOCOL, protocolName);
+                        for (Setting setting : settings) {
+                            if (!setting.value.recorded) continue;
+                            String key = setting.name.startsWith(prefix) ? setting.name.substring(prefix.length()) : setting.name;
+                            if (setting.value.isDouble) {
+                                builder.put(AttributeKey.doubleKey(key), setting.value.doubleValue());
+                            } else {
+                                builder.put(AttributeKey.longKey(key), setting.value.bits);
+                            }
+                        }
+                        cached[0] = builder.build();
+                        cachedContextAttributes[0] = contextAttributes;
+                    }
+                    measurement.record(1, cached[0]);
+                }
+            });
+    }
+
+    /**
+     * Configuration value with the last value read and the last value reported, guarded by the setting itself.
+     */
+    private static final class Setting {
+        final String name;
+        final Consumer<Value> reader;
+        final Value value = new Value();
+        boolean reported;
+        boolean reportedIsDouble;
+        long reportedBits;
+
+        @SuppressWarnings("unchecked")
+        Setting(String name, Consumer<?> callback) {
+            this.name = name;
+            this.reader = (Consumer<Value>) callback;
+        }
+
+        /**
+         * Reads the value and returns whether it changed since it was last reported.
+         */
+        synchronized boolean refresh() {
+            value.recorded = false;
+            reader.accept(value);
+            if (!value.recorded) return false;
+            if (reported && reportedIsDouble == value.isDouble && reportedBits == value.bits) return false;
+            reported = true;
+            reportedIsDouble = value.isDouble;
+            reportedBits = value.bits;
+            return true;
+        }
+    }
+
+    /**
+     * Measurement capturing the value recorded by a callback.
+     */
+    private static final class Value implements ObservableLongMeasurement, ObservableDoubleMeasurement {
+        boolean recorded;
+        boolean isDouble;
+        long bits;
+        Attributes attributes = Attributes.empty();
+
+        double doubleValue() {
+            return isDouble ? Double.longBitsToDouble(bits) : bits;
+        }
+
+        @Override
+        public void record(long value) {
+            record(value, Attributes.empty());
+        }
+
+        @Override
+        public void record(long value, Attributes attributes) {
+            this.recorded = true;
+            this.isDouble = false;
+            this.bits = value;
+            this.attributes = attributes;
+        }
+
+        @Override
+        public void record(double value) {
+            record(value, Attributes.empty());
+        }
+
+        @Override
+        public void record(double value, Attributes attributes) {
+            this.recorded = true;
+            this.isDouble = true;
+            this.bits = Double.doubleToLongBits(value);
+            this.attributes = attributes;
+        }
+    }
+}
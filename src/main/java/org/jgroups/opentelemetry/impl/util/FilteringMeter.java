@@ -0,0 +1,59 @@
+package org.jgroups.opentelemetry.impl.util;
+
+import io.opentelemetry.api.metrics.DoubleGaugeBuilder;
+import io.opentelemetry.api.metrics.DoubleHistogramBuilder;
+import io.opentelemetry.api.metrics.LongCounterBuilder;
+import io.opentelemetry.api.metrics.LongUpDownCounterBuilder;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.MeterProvider;
+
+import java.util.function.Predicate;
+
+/**
+ * Meter which builds instruments via the delegate meter only for metric names accepted by the filter,
+ * and no-op instruments otherwise. Callbacks of filtered asynchronous instruments are never invoked.
+ *
+ * @author Radoslav Husar
+ */
+public final class FilteringMeter implements Meter {
+
+    private static final Meter NOOP_METER = MeterProvider.noop().get(FilteringMeter.class.getName());
+
+    private final Meter delegate;
+    private final Predicate<String> filter;
+
+    /**
+     * Creates a new filtering meter.
+     *
+     * @param delegate the meter building the instruments of accepted metrics
+     * @param filter the filter deciding by full metric name which metrics are registered
+     */
+    public FilteringMeter(Meter delegate, Predicate<String> filter) {
+        this.delegate = delegate;
+        this.filter = filter;
+    }
+
+    private Meter meter(String name) {
+        return filter.test(name) ? delegate : NOOP_METER;
+    }
+
+    @Override
+    public LongCounterBuilder counterBuilder(String name) {
+        return meter(name).counterBuilder(name);
+    }
+
+    @Override
+    public LongUpDownCounterBuilder upDownCounterBuilder(String name) {
+        return meter(name).upDownCounterBuilder(name);
+    }
+
+    @Override
+    public DoubleHistogramBuilder histogramBuilder(String name) {
+        return meter(name).histogramBuilder(name);
+    }
+
+    @Override
+    public DoubleGaugeBuilder gaugeBuilder(String name) {
+        return meter(name).gaugeBuilder(name);
+    }
+}
@@ -0,0 +1,302 @@
+package org.jgroups.opentelemetry.impl.util;
+
+import org.jgroups.Event;
+import org.jgroups.Message;
+import org.jgroups.stack.Protocol;
+import org.jgroups.stack.ProtocolStack;
+import org.jgroups.util.MessageBatch;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Pass-through protocol that is inserted directly above or below an instrumented protocol, allowing
+ * instrumentation to observe the messages and events crossing it without requiring changes to JGroups.
+ * This is used for metrics that cannot be derived from protocol state at collection time, such as
+ * durations (e.g., time to reassemble a fragmented message) or counts of messages a protocol does not track.
+ *
+ * <p>Handlers are invoked on the thread passing the message and must therefore be cheap and non-blocking.
+ * Handlers which are not set are skipped. All handlers must be configured before the interceptor
+ * is inserted into the stack via {@link #insertAbove(Protocol)} or {@link #insertBelow(Protocol)}.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * LongAdder fragmented = new LongAdder();
+ * new InterceptorProtocol()
+ *         .onDown(msg -> fragmented.increment())
+ *         .insertBelow(protocol);
+ * }</pre>
+ *
+ * @author Radoslav Husar
+ */
+public class InterceptorProtocol extends Protocol {
+
+    /**
+     * Handler accepting the time it took to pass an event down the part of the stack below the interceptor.
+     */
+    @FunctionalInterface
+    public interface DownEventTimer {
+        /**
+         * @param event the event
+         * @param result the value returned by the protocols below, or {@code null} if passing the event down failed
+         * @param nanos the elapsed time in nanoseconds
+         */
+        void accept(Event event, Object result, long nanos);
+    }
+
+    private Consumer<Message> downHandler;
+    private Consumer<Message> upHandler;
+    private Consumer<MessageBatch> upBatchHandler;
+    private Consumer<Message> upCompletedHandler;
+    private Consumer<MessageBatch> upBatchCompletedHandler;
+    private Consumer<Event> downEventHandler;
+    private Consumer<Event> upEventHandler;
+    private Predicate<Message> downTimerFilter;
+    private LongConsumer downTimer;
+    private Predicate<Event> downEventTimerFilter;
+    private DownEventTimer downEventTimer;
+
+    /**
+     * Sets the handler invoked for every message passed down through this interceptor,
+     * whether sent synchronously or asynchronously.
+     *
+     * @param handler the handler
+     * @return this interceptor
+     */
+    public InterceptorProtocol onDown(Consumer<Message> handler) {
+        this.downHandler = handler;
+        return this;
+    }
+
+    /**
+     * Sets the handler invoked for every message passed up through this interceptor,
+     * including each message of a received batch.
+     *
+     * @param handler the handler
+     * @return this interceptor
+     */
+    public InterceptorProtocol onUp(Consumer<Message> handler) {
+        this.upHandler = handler;
+        return this;
+    }
+
+    /**
+     * Sets the handler invoked once for every message batch passed up through this interceptor,
+     * before the individual messages are passed to the {@link #onUp(Consumer)} handler.
+     *
+     * @param handler the handler
+     * @return this interceptor
+     */
+    public InterceptorProtocol onUpBatch(Consumer<MessageBatch> handler) {
+        this.upBatchHandler = handler;
+        return this;
+    }
+
+    /**
+     * Sets the handler invoked for every message passed up through this interceptor after the protocols above
+     * have returned, e.g. to determine whether the protocol directly above passed the message on.
+     * Messages of a received batch are not passed to this handler; see {@link #onUpBatchCompleted(Consumer)}.
+     *
+     * @param handler the handler
+     * @return this interceptor
+     */
+    public InterceptorProtocol onUpCompleted(Consumer<Message> handler) {
+        this.upCompletedHandler = handler;
+        return this;
+    }
+
+    /**
+     * Sets the handler invoked for every message batch passed up through this interceptor after the protocols above
+     * have returned. Note that protocols above may have modified the batch.
+     *
+     * @param handler the handler
+     * @return this interceptor
+     */
+    public InterceptorProtocol onUpBatchCompleted(Consumer<MessageBatch> handler) {
+        this.upBatchCompletedHandler = handler;
+        return this;
+    }
+
+    /**
+     * Sets the handler invoked for every event passed down through this interceptor.
+     *
+     * @param handler the handler
+     * @return this interceptor
+     */
+    public InterceptorProtocol onDownEvent(Consumer<Event> handler) {
+        this.downEventHandler = handler;
+        return this;
+    }
+
+    /**
+     * Sets the handler invoked for every event passed up through this interceptor.
+     *
+     * @param handler the handler
+     * @return this interceptor
+     */
+    public InterceptorProtocol onUpEvent(Consumer<Event> handler) {
+        this.upEventHandler = handler;
+        return this;
+    }
+
+    /**
+     * Sets the handler invoked with the time in nanoseconds it took to pass a message down the part of the stack
+     * below this interceptor. Only messages accepted by the filter are timed; the filter is evaluated before the
+     * message is passed down, as protocols below may modify it. Inserted above a protocol, this measures the time
+     * the message spends in that protocol and in the protocols below it. Messages sent asynchronously are timed
+     * until the returned future completes.
+     *
+     * @param filter the predicate selecting the messages to time
+     * @param handler the handler accepting the elapsed time in nanoseconds
+     * @return this interceptor
+     */
+    public InterceptorProtocol timeDown(Predicate<Message> filter, LongConsumer handler) {
+        this.downTimerFilter = filter;
+        this.downTimer = handler;
+        return this;
+    }
+
+    /**
+     * Sets the handler invoked with the time in nanoseconds it took to pass an event down the part of the stack
+     * below this interceptor, e.g. to measure blocking operations such as {@link Event#CONNECT} or
+     * {@link Event#DISCONNECT}. Only events accepted by the filter are timed. The handler also receives the value
+     * returned by the protocols below, e.g. the responses of {@link Event#FIND_INITIAL_MBRS}, and is also invoked
+     * if passing the event down failed.
+     *
+     * @param filter the predicate selecting the events to time
+     * @param handler the handler accepting the event, the returned value and the elapsed time in nanoseconds
+     * @return this interceptor
+     */
+    public InterceptorProtocol timeDownEvent(Predicate<Event> filter, DownEventTimer handler) {
+        this.downEventTimerFilter = filter;
+        this.downEventTimer = handler;
+        return this;
+    }
+
+    /**
+     * Inserts this interceptor directly above the given protocol.
+     *
+     * @param protocol the protocol to intercept
+     * @return this interceptor
+     */
+    public InterceptorProtocol insertAbove(Protocol protocol) {
+        return insert(protocol, ProtocolStack.Position.ABOVE);
+    }
+
+    /**
+     * Inserts this interceptor directly below the given protocol.
+     *
+     * @param protocol the protocol to intercept
+     * @return this interceptor
+     */
+    public InterceptorProtocol insertBelow(Protocol protocol) {
+        return insert(protocol, ProtocolStack.Position.BELOW);
+    }
+
+    private InterceptorProtocol insert(Protocol protocol, ProtocolStack.Position position) {
+        ProtocolStack stack = protocol.getProtocolStack();
+        setProtocolStack(stack);
+        stack.insertProtocolInStack(this, protocol, position);
+        return this;
+    }
+
+    @Override
+    public Object down(Event evt) {
+        if (downEventHandler != null) {
+            downEventHandler.accept(evt);
+        }
+        if (downEventTimer == null || !downEventTimerFilter.test(evt)) {
+            return down_prot.down(evt);
+        }
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = down_prot.down(evt);
+            return result;
+        } finally {
+            downEventTimer.accept(evt, result, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Object down(Message msg) {
+        if (downHandler != null) {
+            downHandler.accept(msg);
+        }
+        if (downTimer == null || !downTimerFilter.test(msg)) {
+            return down_prot.down(msg);
+        }
+        long start = System.nanoTime();
+        try {
+            return down_prot.down(msg);
+        } finally {
+            downTimer.accept(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Object> down(Message msg, boolean async) {
+        if (downHandler != null) {
+            downHandler.accept(msg);
+        }
+        if (downTimer == null || !downTimerFilter.test(msg)) {
+            return down_prot.down(msg, async);
+        }
+        long start = System.nanoTime();
+        CompletableFuture<Object> future;
+        try {
+            future = down_prot.down(msg, async);
+        } catch (RuntimeException | Error e) {
+            downTimer.accept(System.nanoTime() - start);
+            throw e;
+        }
+        future.whenComplete((result, e) -> downTimer.accept(System.nanoTime() - start));
+        return future;
+    }
+
+    @Override
+    public Object up(Event evt) {
+        if (upEventHandler != null) {
+            upEventHandler.accept(evt);
+        }
+        return up_prot.up(evt);
+    }
+
+    @Override
+    public Object up(Message msg) {
+        if (upHandler != null) {
+            upHandler.accept(msg);
+        }
+        if (upCompletedHandler == null) {
+            return up_prot.up(msg);
+        }
+        try {
+            return up_prot.up(msg);
+        } finally {
+            upCompletedHandler.accept(msg);
+        }
+    }
+
+    @Override
+    public void up(MessageBatch batch) {
+        if (upBatchHandler != null) {
+            upBatchHandler.accept(batch);
+        }
+        if (upHandler != null) {
+            for (Message msg : batch) {
+                upHandler.accept(msg);
+            }
+        }
+        if (upBatchCompletedHandler == null) {
+            up_prot.up(batch);
+            return;
+        }
+        try {
+            up_prot.up(batch);
+        } finally {
+            upBatchCompletedHandler.accept(batch);
+        }
+    }
+}
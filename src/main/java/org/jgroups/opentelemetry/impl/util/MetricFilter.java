@@ -0,0 +1,102 @@
+package org.jgroups.opentelemetry.impl.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Filter deciding which metrics are registered, based on include and exclude patterns matched against the full
+ * metric name (e.g., {@code jgroups.unicast3.messages.sent}). A metric is registered if it matches any include pattern,
+ * or no include patterns are configured, and does not match any exclude pattern.
+ *
+ * <p>Patterns are globs, where {@code *} matches any sequence of characters including dots and {@code ?} matches
+ * a single character (e.g., {@code jgroups.unicast3.*}), or regular expressions if prefixed with {@code regex:}
+ * (e.g., {@code regex:jgroups\.fd_all\d?\..*}). Both must match the whole name.</p>
+ *
+ * @author Radoslav Husar
+ */
+public final class MetricFilter implements Predicate<String> {
+
+    /**
+     * Filter registering all metrics.
+     */
+    public static final MetricFilter ALL = new MetricFilter(List.of(), List.of());
+
+    private static final String REGEX_PREFIX = "regex:";
+
+    private final List<Pattern> includes;
+    private final List<Pattern> excludes;
+
+    private MetricFilter(List<Pattern> includes, List<Pattern> excludes) {
+        this.includes = includes;
+        this.excludes = excludes;
+    }
+
+    /**
+     * Creates a filter from comma-separated lists of patterns.
+     *
+     * @param includes the comma-separated include patterns, or null or empty to include all metrics
+     * @param excludes the comma-separated exclude patterns, or null or empty to exclude no metrics
+     * @return the filter
+     * @throws IllegalArgumentException if a regular expression is invalid
+     */
+    public static MetricFilter of(String includes, String excludes) {
+        List<Pattern> includePatterns = parse(includes);
+        List<Pattern> excludePatterns = parse(excludes);
+        return (includePatterns.isEmpty() && excludePatterns.isEmpty()) ? ALL : new MetricFilter(includePatterns, excludePatterns);
+    }
+
+    /**
+     * Indicates whether the metric with the given name should be registered.
+     *
+     * @param name the full metric name
+     * @return true if the metric should be registered, false otherwise
+     */
+    @Override
+    public boolean test(String name) {
+        if (!includes.isEmpty() && !matches(includes, name)) return false;
+        return !matches(excludes, name);
+    }
+
+    private static boolean matches(List<Pattern> patterns, String name) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(name).matches()) return true;
+        }
+        return false;
+    }
+
+    private static List<Pattern> parse(String patterns) {
+        if (patterns == null || patterns.isBlank()) return List.of();
+        List<Pattern> result = new ArrayList<>();
+        for (String pattern : patterns.split(",")) {
+            pattern = pattern.trim();
+            if (pattern.isEmpty()) continue;
+            result.add(pattern.startsWith(REGEX_PREFIX) ? Pattern.compile(pattern.substring(REGEX_PREFIX.length())) : glob(pattern));
+        }
+        return List.copyOf(result);
+    }
+
+    private static Pattern glob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int literalStart = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c != '*' && c != '?') continue;
+            if (i > literalStart) {
+                regex.append(Pattern.quote(glob.substring(literalStart, i)));
+            }
+            regex.append(c == '*' ? ".*" : ".");
+            literalStart = i + 1;
+        }
+        if (literalStart < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(literalStart)));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    @Override
+    public String toString() {
+        return "MetricFilter{includes=" + includes + ", excludes=" + excludes + "}";
+    }
+}
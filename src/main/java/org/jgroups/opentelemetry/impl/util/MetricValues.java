@@ -0,0 +1,68 @@
+package org.jgroups.opentelemetry.impl.util;
+
+import io.opentelemetry.sdk.metrics.data.DoublePointData;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.data.PointData;
+
+import java.util.Collection;
+
+/**
+ * Flattens collected metrics into single values per point, for consumers which record plain numeric series.
+ * Histograms are flattened into the series of their count and sum, with the {@code .count} and {@code .sum} suffixes.
+ *
+ * @author Radoslav Husar
+ */
+public final class MetricValues {
+
+    private MetricValues() {
+    }
+
+    /**
+     * Consumer of the values of the points of collected metrics.
+     */
+    @FunctionalInterface
+    public interface ValueConsumer {
+        /**
+         * @param metric the collected metric
+         * @param name the name of the series, i.e. the metric name with a suffix for histograms
+         * @param point the point, providing the attributes and the collection time
+         * @param value the value of the series
+         */
+        void accept(MetricData metric, String name, PointData point, double value);
+    }
+
+    /**
+     * Passes the values of all points of the given metrics to the consumer.
+     *
+     * @param metrics the collected metrics
+     * @param consumer the consumer of the values
+     */
+    public static void forEach(Collection<MetricData> metrics, ValueConsumer consumer) {
+        for (MetricData metric : metrics) {
+            String name = metric.getName();
+            switch (metric.getType()) {
+                case LONG_GAUGE, LONG_SUM -> {
+                    for (PointData point : metric.getData().getPoints()) {
+                        consumer.accept(metric, name, point, ((LongPointData) point).getValue());
+                    }
+                }
+                case DOUBLE_GAUGE, DOUBLE_SUM -> {
+                    for (PointData point : metric.getData().getPoints()) {
+                        consumer.accept(metric, name, point, ((DoublePointData) point).getValue());
+                    }
+                }
+                case HISTOGRAM -> {
+                    for (HistogramPointData point : metric.getHistogramData().getPoints()) {
+                        consumer.accept(metric, name + ".count", point, point.getCount());
+                        consumer.accept(metric, name + ".sum", point, point.getSum());
+                    }
+                }
+                default -> {
+                    // Exponential histograms and summaries are not recorded by the instrumentation
+                }
+            }
+        }
+    }
+}
@@ -1,24 +1,48 @@
 package org.jgroups.opentelemetry.impl.util;
 
+import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
 import io.opentelemetry.api.metrics.LongHistogram;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.MeterProvider;
 import io.opentelemetry.api.metrics.ObservableDoubleMeasurement;
 import io.opentelemetry.api.metrics.ObservableLongMeasurement;
+import io.opentelemetry.context.Context;
+import org.jgroups.Address;
 import org.jgroups.annotations.observability.ObservableUnit;
 import org.jgroups.opentelemetry.spi.InstrumentationContext;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ObjLongConsumer;
 
 /**
  * Helper class for metric registration operations.
  * Provides methods for registering metrics with OpenTelemetry.
+ * Metrics which are not enabled by {@link InstrumentationContext#isMetricEnabled(String)} are not registered at all,
+ * so their callbacks are never invoked; filtered histograms are returned as no-op instruments.
  *
  * @author Radoslav Husar
  */
 @SuppressWarnings({"resource", "ClassCanBeRecord"})
 public final class RegistrationHelper {
 
+    /**
+     * Attribute key identifying the member of per-member metrics.
+     */
+    public static final AttributeKey<String> MEMBER = AttributeKey.stringKey("member");
+
+
+    // Meter creating histograms which record nothing, returned for histograms filtered out by the context
+    private static final Meter NOOP_METER = MeterProvider.noop().get(RegistrationHelper.class.getName());
+
     private final InstrumentationContext context;
+    private final ConfigurationMetrics configuration;
 
     /**
      * Creates a new registration helper for the given instrumentation context.
@@ -26,7 +50,41 @@ public final class RegistrationHelper {
      * @param context The instrumentation context
      */
     public RegistrationHelper(InstrumentationContext context) {
+        this(context, null);
+    }
+
+    private RegistrationHelper(InstrumentationContext context, ConfigurationMetrics configuration) {
         this.context = context;
+        this.configuration = configuration;
+    }
+
+    /**
+     * Registers the configuration metrics of the protocol (e.g., thresholds, timeouts, capacity limits), if enabled by the context.
+     * The gauges registered via the helper passed to the given function are reported according to the
+     * {@link InstrumentationContext#configurationMetricsMode()}, i.e. as separate gauges, as gauges reported only on change,
+     * or as attributes of a single {@value ConfigurationMetrics#INFO_METRIC_NAME} series.
+     *
+     * @param registrations The function registering the configuration gauges via the passed helper
+     */
+    public void registerConfigurationMetrics(Consumer<RegistrationHelper> registrations) {
+        if (!context.exposeConfigurationMetrics()) return;
+        ConfigurationMetrics configuration = new ConfigurationMetrics(context, context.getPrefix());
+        registrations.accept(new RegistrationHelper(context, configuration));
+        configuration.register();
+    }
+
+    /**
+     * Returns whether any of the given metrics is enabled by the context, so that interceptors and trackers which only
+     * feed metrics which are all filtered out need not be installed.
+     *
+     * @param nameComponents The metric name components, without the protocol prefix
+     * @return true if at least one of the metrics is enabled
+     */
+    public boolean isAnyMetricEnabled(String... nameComponents) {
+        for (String nameComponent : nameComponents) {
+            if (context.isMetricEnabled(context.getPrefix() + nameComponent)) return true;
+        }
+        return false;
     }
 
     /**
@@ -43,13 +101,19 @@ public final class RegistrationHelper {
      */
     public void registerLongGauge(String nameComponent, String description, ObservableUnit unit, Consumer<ObservableLongMeasurement> callback) {
         String fullName = context.getPrefix() + nameComponent;
+        if (!context.isMetricEnabled(fullName)) return;
+        if (configuration != null) {
+            configuration.registerLongGauge(fullName, description, unit.toString(), measurement -> callback.accept(new AttributeAppendingObservableLongMeasurementWrapper(measurement, context)));
+            return;
+        }
+        Consumer<ObservableLongMeasurement> staggered = context.adaptLongCallback(callback);
 
         context.meter()
             .gaugeBuilder(fullName)
             .setDescription(description)
             .setUnit(unit.toString())
             .ofLongs()
-            .buildWithCallback(measurement -> callback.accept(new AttributeAppendingObservableLongMeasurementWrapper(measurement, context)));
+            .buildWithCallback(measurement -> staggered.accept(new AttributeAppendingObservableLongMeasurementWrapper(measurement, context)));
     }
 
     /**
@@ -66,12 +130,18 @@ public final class RegistrationHelper {
      */
     public void registerDoubleGauge(String nameComponent, String description, ObservableUnit unit, Consumer<ObservableDoubleMeasurement> callback) {
         String fullName = context.getPrefix() + nameComponent;
+        if (!context.isMetricEnabled(fullName)) return;
+        if (configuration != null) {
+            configuration.registerDoubleGauge(fullName, description, unit.toString(), measurement -> callback.accept(new AttributeAppendingObservableDoubleMeasurementWrapper(measurement, context)));
+            return;
+        }
+        Consumer<ObservableDoubleMeasurement> staggered = context.adaptDoubleCallback(callback);
 
         context.meter()
             .gaugeBuilder(fullName)
             .setDescription(description)
             .setUnit(unit.toString())
-            .buildWithCallback(measurement -> callback.accept(new AttributeAppendingObservableDoubleMeasurementWrapper(measurement, context)));
+            .buildWithCallback(measurement -> staggered.accept(new AttributeAppendingObservableDoubleMeasurementWrapper(measurement, context)));
     }
 
     /**
@@ -87,12 +157,14 @@ public final class RegistrationHelper {
      */
     public void registerLongCounter(String nameComponent, String description, ObservableUnit unit, Consumer<ObservableLongMeasurement> callback) {
         String fullName = context.getPrefix() + nameComponent;
+        if (!context.isMetricEnabled(fullName)) return;
+        Consumer<ObservableLongMeasurement> staggered = context.adaptLongCallback(callback);
 
         context.meter()
             .counterBuilder(fullName)
             .setDescription(description)
             .setUnit(unit.toString())
-            .buildWithCallback(measurement -> callback.accept(new AttributeAppendingObservableLongMeasurementWrapper(measurement, context)));
+            .buildWithCallback(measurement -> staggered.accept(new AttributeAppendingObservableLongMeasurementWrapper(measurement, context)));
     }
 
     /**
@@ -108,18 +180,79 @@ public final class RegistrationHelper {
      */
     public void registerLongUpDownCounter(String nameComponent, String description, ObservableUnit unit, Consumer<ObservableLongMeasurement> callback) {
         String fullName = context.getPrefix() + nameComponent;
+        if (!context.isMetricEnabled(fullName)) return;
+        Consumer<ObservableLongMeasurement> staggered = context.adaptLongCallback(callback);
 
         context.meter()
             .upDownCounterBuilder(fullName)
             .setDescription(description)
             .setUnit(unit.toString())
-            .buildWithCallback(measurement -> callback.accept(new AttributeAppendingObservableLongMeasurementWrapper(measurement, context)));
+            .buildWithCallback(measurement -> staggered.accept(new AttributeAppendingObservableLongMeasurementWrapper(measurement, context)));
+    }
+
+    /**
+     * Registers a long gauge metric with a per-member attribute, if per-member metrics are enabled by the context.
+     * On each collection the callback reports a value per member; at most {@link InstrumentationContext#attributeCardinalityLimit()}
+     * members with the most severe values (according to the given ranking) are recorded with a {@code member} attribute
+     * holding the member's address (logical name), and the values of the remaining members are aggregated into
+     * a single series with the {@link BoundedCounterMap#OVERFLOW} attribute instead of a member.
+     * The full metric name is constructed by prepending the protocol prefix from the context.
+     *
+     * @param nameComponent The metric name component (e.g., "member.messages.unacked"), will be prefixed with the protocol prefix
+     * @param description A human-readable description of the metric
+     * @param unit The unit of measurement from {@link ObservableUnit}
+     * @param ranking Whether higher or lower values are more severe
+     * @param otherAggregator The function aggregating the values of members folded into the overflow series (e.g., {@code Long::sum}, {@code Math::max})
+     * @param callback The callback that passes the value of each member to the given consumer
+     */
+    public void registerPerMemberLongGauge(String nameComponent, String description, ObservableUnit unit, Ranking ranking,
+                                           LongBinaryOperator otherAggregator, Consumer<ObjLongConsumer<Address>> callback) {
+        if (!context.perMemberMetrics() || !context.isMetricEnabled(context.getPrefix() + nameComponent)) return;
+        int limit = context.attributeCardinalityLimit();
+
+        registerLongGauge(nameComponent, description, unit, measurement -> {
+            List<Map.Entry<Address, Long>> values = new ArrayList<>();
+            callback.accept((member, value) -> values.add(Map.entry(member, value)));
+            if (values.size() > limit) {
+                Comparator<Map.Entry<Address, Long>> comparator = Map.Entry.comparingByValue();
+                values.sort(ranking == Ranking.HIGHEST_FIRST ? comparator.reversed() : comparator);
+            }
+            int count = 0;
+            boolean folded = false;
+            long other = 0;
+            for (Map.Entry<Address, Long> entry : values) {
+                if (count++ < limit) {
+                    measurement.record(entry.getValue(), Attributes.of(MEMBER, String.valueOf(entry.getKey())));
+                } else {
+                    other = folded ? otherAggregator.applyAsLong(other, entry.getValue()) : entry.getValue();
+                    folded = true;
+                }
+            }
+            if (folded) {
+                measurement.record(other, BoundedCounterMap.OVERFLOW_ATTRIBUTES);
+            }
+        });
+    }
+
+    /**
+     * Ranking of per-member values by severity, determining which members are reported separately.
+     */
+    public enum Ranking {
+        /**
+         * Higher values are more severe (e.g., unacknowledged messages, time since last heartbeat).
+         */
+        HIGHEST_FIRST,
+        /**
+         * Lower values are more severe (e.g., remaining credits).
+         */
+        LOWEST_FIRST,
     }
 
     /**
      * Registers a synchronous long histogram metric with the OpenTelemetry meter.
      * Histograms record distributions of values (e.g., latency measurements).
      * The full metric name is constructed by prepending the protocol prefix from the context.
+     * The returned histogram automatically attaches context attributes (e.g., cluster name) to recorded values.
      *
      * @param nameComponent The metric name component (e.g., "latency"), will be prefixed with the protocol prefix
      * @param description A human-readable description of the metric
@@ -128,13 +261,83 @@ public final class RegistrationHelper {
      */
     public LongHistogram registerLongHistogram(String nameComponent, String description, ObservableUnit unit) {
         String fullName = context.getPrefix() + nameComponent;
+        if (!context.isMetricEnabled(fullName)) return NOOP_METER.histogramBuilder(fullName).ofLongs().build();
 
-        return context.meter()
+        LongHistogram histogram = context.meter()
             .histogramBuilder(fullName)
             .setDescription(description)
             .setUnit(unit.toString())
             .ofLongs()
             .build();
+        return new AttributeAppendingLongHistogramWrapper(histogram, context);
+    }
+
+    /**
+     * Registers a synchronous double histogram metric with the OpenTelemetry meter.
+     * Use this variant for durations where sub-unit precision matters (e.g., sub-millisecond latencies recorded in milliseconds).
+     * The full metric name is constructed by prepending the protocol prefix from the context.
+     * The returned histogram automatically attaches context attributes (e.g., cluster name) to recorded values.
+     *
+     * @param nameComponent The metric name component (e.g., "reassembly.duration"), will be prefixed with the protocol prefix
+     * @param description A human-readable description of the metric
+     * @param unit The unit of measurement from {@link ObservableUnit}
+     * @return The DoubleHistogram instrument that can be used to record values
+     */
+    public DoubleHistogram registerDoubleHistogram(String nameComponent, String description, ObservableUnit unit) {
+        String fullName = context.getPrefix() + nameComponent;
+        if (!context.isMetricEnabled(fullName)) return NOOP_METER.histogramBuilder(fullName).build();
+
+        DoubleHistogram histogram = context.meter()
+            .histogramBuilder(fullName)
+            .setDescription(description)
+            .setUnit(unit.toString())
+            .build();
+        return new AttributeAppendingDoubleHistogramWrapper(histogram, context);
+    }
+
+    /**
+     * Registers a synchronous double histogram metric with explicit bucket boundaries.
+     * Use this variant for values whose range does not suit the default bucket boundaries (e.g., ratios between 0 and 1).
+     * The full metric name is constructed by prepending the protocol prefix from the context.
+     * The returned histogram automatically attaches context attributes (e.g., cluster name) to recorded values.
+     *
+     * @param nameComponent The metric name component (e.g., "heartbeat.age.ratio"), will be prefixed with the protocol prefix
+     * @param description A human-readable description of the metric
+     * @param unit The unit of measurement from {@link ObservableUnit}
+     * @param bucketBoundaries The advised explicit bucket boundaries in increasing order
+     * @return The DoubleHistogram instrument that can be used to record values
+     */
+    public DoubleHistogram registerDoubleHistogram(String nameComponent, String description, ObservableUnit unit, List<Double> bucketBoundaries) {
+        String fullName = context.getPrefix() + nameComponent;
+        if (!context.isMetricEnabled(fullName)) return NOOP_METER.histogramBuilder(fullName).build();
+
+        DoubleHistogram histogram = context.meter()
+            .histogramBuilder(fullName)
+            .setDescription(description)
+            .setUnit(unit.toString())
+            .setExplicitBucketBoundariesAdvice(bucketBoundaries)
+            .build();
+        return new AttributeAppendingDoubleHistogramWrapper(histogram, context);
+    }
+
+    /**
+     * Registers a hook invoked on every metric collection which records a sample of the protocol state into
+     * a synchronous instrument, e.g. the distribution of a value across members into a histogram, which has no
+     * callback of its own. The hook is only registered if the metric it records is enabled by the context.
+     *
+     * @param nameComponent The metric name component of the instrument recorded by the hook (e.g., "heartbeat.age.ratio")
+     * @param hook The hook recording the instrument
+     */
+    public void registerCollectionHook(String nameComponent, Runnable hook) {
+        String fullName = context.getPrefix() + nameComponent;
+        if (!context.isMetricEnabled(fullName)) return;
+
+        // A batch callback requires an observable instrument; nothing is recorded to it, so it is never exported
+        ObservableLongMeasurement observer = context.meter()
+            .gaugeBuilder(fullName + ".collection")
+            .ofLongs()
+            .buildObserver();
+        context.meter().batchCallback(hook, observer);
     }
 
     /**
@@ -156,7 +359,7 @@ public final class RegistrationHelper {
 
         @Override
         public void record(long value, Attributes attributes) {
-            delegate.record(value, attributes);
+            delegate.record(value, this.attributes.toBuilder().putAll(attributes).build());
         }
     }
 
@@ -179,7 +382,87 @@ public final class RegistrationHelper {
 
         @Override
         public void record(double value, Attributes attributes) {
-            delegate.record(value, attributes);
+            delegate.record(value, this.attributes.toBuilder().putAll(attributes).build());
+        }
+    }
+
+    /**
+     * Caches the context attributes for synchronous instruments which record on hot paths.
+     * The attributes are resolved lazily, since the cluster name is only known once the channel is connected,
+     * and re-resolved whenever the channel is reconnected under a different cluster name.
+     */
+    private static class ContextAttributes {
+        private final InstrumentationContext context;
+        private volatile String clusterName;
+        private volatile Attributes attributes = Attributes.empty();
+
+        ContextAttributes(InstrumentationContext context) {
+            this.context = context;
+        }
+
+        Attributes get() {
+            String currentClusterName = context.protocol().getProtocolStack().getChannel().getClusterName();
+            if (currentClusterName != clusterName) {
+                attributes = context.getAttributes();
+                clusterName = currentClusterName;
+            }
+            return attributes;
+        }
+    }
+
+    /**
+     * Wrapper for LongHistogram that automatically attaches context attributes.
+     */
+    private static class AttributeAppendingLongHistogramWrapper implements LongHistogram {
+        private final LongHistogram delegate;
+        private final ContextAttributes attributes;
+
+        AttributeAppendingLongHistogramWrapper(LongHistogram delegate, InstrumentationContext context) {
+            this.delegate = delegate;
+            this.attributes = new ContextAttributes(context);
+        }
+
+        @Override
+        public void record(long value) {
+            delegate.record(value, attributes.get());
+        }
+
+        @Override
+        public void record(long value, Attributes attributes) {
+            delegate.record(value, this.attributes.get().toBuilder().putAll(attributes).build());
+        }
+
+        @Override
+        public void record(long value, Attributes attributes, Context context) {
+            delegate.record(value, this.attributes.get().toBuilder().putAll(attributes).build(), context);
+        }
+    }
+
+    /**
+     * Wrapper for DoubleHistogram that automatically attaches context attributes.
+     */
+    private static class AttributeAppendingDoubleHistogramWrapper implements DoubleHistogram {
+        private final DoubleHistogram delegate;
+        private final ContextAttributes attributes;
+
+        AttributeAppendingDoubleHistogramWrapper(DoubleHistogram delegate, InstrumentationContext context) {
+            this.delegate = delegate;
+            this.attributes = new ContextAttributes(context);
+        }
+
+        @Override
+        public void record(double value) {
+            delegate.record(value, attributes.get());
+        }
+
+        @Override
+        public void record(double value, Attributes attributes) {
+            delegate.record(value, this.attributes.get().toBuilder().putAll(attributes).build());
+        }
+
+        @Override
+        public void record(double value, Attributes attributes, Context context) {
+            delegate.record(value, this.attributes.get().toBuilder().putAll(attributes).build(), context);
         }
     }
 }
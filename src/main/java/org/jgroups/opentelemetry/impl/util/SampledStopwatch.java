@@ -0,0 +1,75 @@
+package org.jgroups.opentelemetry.impl.util;
+
+/**
+ * Thread-confined stopwatch which times one in every {@code N} operations, used to measure the time a message spends
+ * in a protocol between a pair of {@link InterceptorProtocol}s inserted above and below it.
+ * Since protocols process a message on the calling thread, the start time recorded by one interceptor is read
+ * by the other one on the same thread. The sampling counter is kept per thread to avoid contention.
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * SampledStopwatch stopwatch = new SampledStopwatch(context.durationSamplingInterval());
+ * new InterceptorProtocol().onDown(msg -> stopwatch.start()).insertAbove(protocol);
+ * new InterceptorProtocol().onDown(msg -> {
+ *     long nanos = stopwatch.stop();
+ *     if (nanos >= 0) histogram.record(nanos / 1_000_000.0);
+ * }).insertBelow(protocol);
+ * }</pre>
+ *
+ * @author Radoslav Husar
+ */
+public final class SampledStopwatch {
+
+    private static final long NOT_STARTED = -1;
+
+    private final int interval;
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    /**
+     * Creates a new stopwatch.
+     *
+     * @param interval the sampling interval; one in every {@code interval} operations is timed
+     */
+    public SampledStopwatch(int interval) {
+        this.interval = Math.max(1, interval);
+    }
+
+    /**
+     * Starts timing an operation on the current thread if it is sampled; otherwise clears any previous start time.
+     */
+    public void start() {
+        State state = this.state.get();
+        state.start = (++state.count % interval == 0) ? System.nanoTime() : NOT_STARTED;
+    }
+
+    /**
+     * Returns whether the next operation on the current thread is sampled, for operations timed by the caller within
+     * a single method. Unlike {@link #start()}, no start time is retained, so such operations may nest on the same thread.
+     *
+     * @return {@code true} if the operation should be timed
+     */
+    public boolean sample() {
+        State state = this.state.get();
+        return ++state.count % interval == 0;
+    }
+
+    /**
+     * Stops timing the operation on the current thread.
+     *
+     * @return the elapsed time in nanoseconds, or a negative value if the operation was not sampled
+     */
+    public long stop() {
+        State state = this.state.get();
+        long start = state.start;
+        if (start == NOT_STARTED) {
+            return NOT_STARTED;
+        }
+        state.start = NOT_STARTED;
+        return Math.max(0, System.nanoTime() - start);
+    }
+
+    private static class State {
+        private long start = NOT_STARTED;
+        private long count;
+    }
+}
@@ -0,0 +1,200 @@
+package org.jgroups.opentelemetry.impl.util;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.ObservableDoubleMeasurement;
+import io.opentelemetry.api.metrics.ObservableLongMeasurement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Spreads the collection of the values of asynchronous instruments of the protocols across the export interval.
+ * Instead of invoking the callbacks of all protocols when the metrics are collected, the callbacks of one protocol
+ * are invoked per tick, with the ticks evenly spaced across the interval, and the collection replays the values
+ * recorded at the last tick. This smooths the CPU cost of the collection, at the cost of values which are up to one
+ * interval old. Callbacks are invoked directly until their protocol was sampled for the first time.
+ *
+ * <p>The groups are sampled on a dedicated thread once {@link #start(long)} is called, so that slow callbacks
+ * never delay the tasks of the timer of the transport.</p>
+ *
+ * @author Radoslav Husar
+ */
+public final class StaggeredCollection {
+
+    private final List<Group> groups = new CopyOnWriteArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService executor;
+
+    /**
+     * Creates the group of callbacks of a protocol.
+     *
+     * @return the new group
+     */
+    public Group createGroup() {
+        Group group = new Group();
+        groups.add(group);
+        return group;
+    }
+
+    /**
+     * Returns the number of groups, i.e. the number of ticks per interval.
+     *
+     * @return the number of groups
+     */
+    public int size() {
+        return groups.size();
+    }
+
+    /**
+     * Starts sampling one group per tick on a dedicated thread, with the ticks evenly spaced across the given interval,
+     * so that every group is sampled once per interval. Does nothing if there are no groups or sampling already started.
+     *
+     * @param interval the interval in milliseconds
+     */
+    public synchronized void start(long interval) {
+        int size = groups.size();
+        if (executor != null || size == 0) return;
+        long tick = Math.max(1, interval / size);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "StaggeredCollection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::sampleNext, tick, tick, TimeUnit.MILLISECONDS);
+        this.executor = executor;
+    }
+
+    /**
+     * Stops sampling the groups; collections keep replaying the values recorded at the last tick of each group.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Invokes the callbacks of the next group and records their values.
+     */
+    public void sampleNext() {
+        int size = groups.size();
+        if (size == 0) return;
+        groups.get(Math.floorMod(next.getAndIncrement(), size)).sample();
+    }
+
+    /**
+     * Callbacks of the asynchronous instruments of a protocol.
+     */
+    public static final class Group {
+
+        private final List<Callback> callbacks = new CopyOnWriteArrayList<>();
+
+        private Group() {
+        }
+
+        /**
+         * Returns a callback replaying the values recorded by the given callback when this group was last sampled.
+         *
+         * @param callback the callback recording the values of a long instrument
+         * @return the callback to register with the instrument
+         */
+        public Consumer<ObservableLongMeasurement> longCallback(Consumer<ObservableLongMeasurement> callback) {
+            Callback staggered = new Callback(callback::accept);
+            callbacks.add(staggered);
+            return measurement -> {
+                Recording recording = staggered.recording;
+                if (recording == null) {
+                    callback.accept(measurement);
+                    return;
+                }
+                for (int i = 0; i < recording.size; i++) {
+                    measurement.record(recording.values[i], recording.attributes.get(i));
+                }
+            };
+        }
+
+        /**
+         * Returns a callback replaying the values recorded by the given callback when this group was last sampled.
+         *
+         * @param callback the callback recording the values of a double instrument
+         * @return the callback to register with the instrument
+         */
+        public Consumer<ObservableDoubleMeasurement> doubleCallback(Consumer<ObservableDoubleMeasurement> callback) {
+            Callback staggered = new Callback(callback::accept);
+            callbacks.add(staggered);
+            return measurement -> {
+                Recording recording = staggered.recording;
+                if (recording == null) {
+                    callback.accept(measurement);
+                    return;
+                }
+                for (int i = 0; i < recording.size; i++) {
+                    measurement.record(Double.longBitsToDouble(recording.values[i]), recording.attributes.get(i));
+                }
+            };
+        }
+
+        void sample() {
+            for (Callback callback : callbacks) {
+                Recording recording = new Recording();
+                try {
+                    callback.callback.accept(recording);
+                } catch (RuntimeException e) {
+                    // Same as a failing callback invoked by the SDK, the values of this instrument are not reported
+                }
+                callback.recording = recording;
+            }
+        }
+    }
+
+    private static final class Callback {
+        // The callback of a long or double instrument, both of which accept the recording
+        final Consumer<Recording> callback;
+        volatile Recording recording;
+
+        Callback(Consumer<Recording> callback) {
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * Measurement recording the values of a callback, which are stored as bits of doubles for double instruments.
+     */
+    private static final class Recording implements ObservableLongMeasurement, ObservableDoubleMeasurement {
+        long[] values = new long[2];
+        final List<Attributes> attributes = new ArrayList<>(2);
+        int size;
+
+        @Override
+        public void record(long value) {
+            record(value, Attributes.empty());
+        }
+
+        @Override
+        public void record(long value, Attributes attributes) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            this.attributes.add(attributes);
+        }
+
+        @Override
+        public void record(double value) {
+            record(value, Attributes.empty());
+        }
+
+        @Override
+        public void record(double value, Attributes attributes) {
+            record(Double.doubleToLongBits(value), attributes);
+        }
+    }
+}
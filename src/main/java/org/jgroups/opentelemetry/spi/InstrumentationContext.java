@@ -3,9 +3,13 @@ package org.jgroups.opentelemetry.spi;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableDoubleMeasurement;
+import io.opentelemetry.api.metrics.ObservableLongMeasurement;
 import org.jgroups.Global;
 import org.jgroups.stack.Protocol;
 
+import java.util.function.Consumer;
+
 /**
  * Context passed to {@link MetricsInstrumentation#registerMetrics(InstrumentationContext)}
  * containing all dependencies needed to register metrics for a protocol.
@@ -20,6 +24,16 @@ import org.jgroups.stack.Protocol;
  */
 public interface InstrumentationContext {
 
+    /**
+     * Default maximum number of distinct values of a per-entity attribute (e.g., remote site) reported by a single metric.
+     */
+    int DEFAULT_ATTRIBUTE_CARDINALITY_LIMIT = 20;
+
+    /**
+     * Default sampling interval of sampled duration histograms; the duration of one in every 10 operations is recorded.
+     */
+    int DEFAULT_DURATION_SAMPLING_INTERVAL = 10;
+
     /**
      * Gets the protocol instance to instrument.
      *
@@ -79,4 +93,99 @@ public interface InstrumentationContext {
      * @return true if configuration metrics should be exposed, false otherwise
      */
     boolean exposeConfigurationMetrics();
+
+    /**
+     * Gets the maximum number of distinct values of a per-entity attribute (e.g., remote site or peer address)
+     * which are reported as separate series by a single metric. Values beyond this limit are folded
+     * into a single {@code other} series to bound the cardinality of exported metrics.
+     *
+     * @return the maximum number of distinct attribute values per metric
+     */
+    default int attributeCardinalityLimit() {
+        return DEFAULT_ATTRIBUTE_CARDINALITY_LIMIT;
+    }
+
+    /**
+     * Gets the sampling interval of duration histograms which would be too expensive to record for every message
+     * (e.g., encryption or compression time). The duration of one in every {@code N} operations is recorded;
+     * a value of 1 records every operation.
+     *
+     * @return the sampling interval, at least 1
+     */
+    default int durationSamplingInterval() {
+        return DEFAULT_DURATION_SAMPLING_INTERVAL;
+    }
+
+    /**
+     * Indicates whether metrics with a per-member attribute (e.g., unacknowledged messages per connection) should be
+     * registered. Per-member metrics report at most {@link #attributeCardinalityLimit()} members, ranked by the
+     * severity of their value, and fold the remaining members into a single {@code other} series.
+     *
+     * @return true if per-member metrics should be registered, false otherwise
+     */
+    default boolean perMemberMetrics() {
+        return false;
+    }
+
+    /**
+     * Indicates whether the metric with the given full name should be registered, according to the include and
+     * exclude filters configured by the user. Instrumentation must not register metrics which are not enabled,
+     * so that filtered metrics incur no collection cost.
+     *
+     * @param name the full metric name, including the prefix (e.g., "jgroups.unicast3.messages.sent")
+     * @return true if the metric should be registered, false otherwise
+     */
+    default boolean isMetricEnabled(String name) {
+        return true;
+    }
+
+    /**
+     * Adapts the callback of an asynchronous long instrument before it is registered, e.g. to invoke it at a different
+     * time than on collection and replay its values on collection. The default implementation returns the callback as is.
+     *
+     * @param callback the callback recording the values of the instrument
+     * @return the callback to register with the instrument
+     */
+    default Consumer<ObservableLongMeasurement> adaptLongCallback(Consumer<ObservableLongMeasurement> callback) {
+        return callback;
+    }
+
+    /**
+     * Adapts the callback of an asynchronous double instrument before it is registered, e.g. to invoke it at a different
+     * time than on collection and replay its values on collection. The default implementation returns the callback as is.
+     *
+     * @param callback the callback recording the values of the instrument
+     * @return the callback to register with the instrument
+     */
+    default Consumer<ObservableDoubleMeasurement> adaptDoubleCallback(Consumer<ObservableDoubleMeasurement> callback) {
+        return callback;
+    }
+
+    /**
+     * Gets how configuration metrics are reported, if {@link #exposeConfigurationMetrics()} is enabled.
+     *
+     * @return the configuration metrics mode
+     */
+    default ConfigurationMetricsMode configurationMetricsMode() {
+        return ConfigurationMetricsMode.GAUGES;
+    }
+
+    /**
+     * Modes of reporting configuration metrics.
+     */
+    enum ConfigurationMetricsMode {
+        /**
+         * Each configuration value is reported as a gauge on every collection.
+         */
+        GAUGES,
+        /**
+         * Each configuration value is reported as a gauge only on the first collection and whenever it changed.
+         * The last reported values are shared by all collections, so this mode requires a single metric reader.
+         */
+        ON_CHANGE,
+        /**
+         * All configuration values of a protocol are reported as attributes of a single {@code jgroups.config.info} series.
+         */
+        INFO,
+    }
 }
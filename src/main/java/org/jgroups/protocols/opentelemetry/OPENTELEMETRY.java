@@ -2,23 +2,80 @@ package org.jgroups.protocols.opentelemetry;
 
 import io.opentelemetry.api.GlobalOpenTelemetry;
 import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
 import io.opentelemetry.api.metrics.LongHistogram;
 import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.exporter.otlp.http.metrics.OtlpHttpMetricExporter;
 import io.opentelemetry.exporter.otlp.metrics.OtlpGrpcMetricExporter;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.common.export.MemoryMode;
 import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.SdkMeterProviderBuilder;
+import io.opentelemetry.sdk.metrics.export.AggregationTemporalitySelector;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.metrics.export.MetricReader;
 import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
+import io.opentelemetry.sdk.metrics.export.PeriodicMetricReaderBuilder;
+import org.jgroups.Address;
+import org.jgroups.BytesMessage;
+import org.jgroups.EmptyMessage;
+import org.jgroups.Event;
 import org.jgroups.Message;
+import org.jgroups.View;
 import org.jgroups.annotations.MBean;
+import org.jgroups.annotations.ManagedOperation;
 import org.jgroups.annotations.Property;
 import org.jgroups.conf.AttributeType;
+import org.jgroups.conf.ClassConfigurator;
+import org.jgroups.opentelemetry.impl.InstrumentationOptions;
 import org.jgroups.opentelemetry.impl.MetricsRegistrar;
+import org.jgroups.opentelemetry.impl.aggregation.ClusterMetricsAggregator;
+import org.jgroups.opentelemetry.impl.aggregation.ClusterMetricsHeader;
+import org.jgroups.opentelemetry.impl.aggregation.MetricSnapshotWriter;
+import org.jgroups.opentelemetry.impl.aggregation.SnapshotMetricReader;
+import org.jgroups.opentelemetry.impl.export.BoundedMetricExporter;
+import org.jgroups.opentelemetry.impl.export.MetricSpool;
+import org.jgroups.opentelemetry.impl.export.PhasedScheduledExecutor;
+import org.jgroups.opentelemetry.impl.export.PrometheusMetricReader;
+import org.jgroups.opentelemetry.impl.export.SpoolingMetricExporter;
+import org.jgroups.opentelemetry.impl.history.HistoryMetricReader;
+import org.jgroups.opentelemetry.impl.history.TimeSeriesStore;
+import org.jgroups.opentelemetry.impl.jfr.JfrMetricReader;
+import org.jgroups.opentelemetry.impl.jfr.JfrRecorder;
+import org.jgroups.opentelemetry.impl.util.FilteringMeter;
+import org.jgroups.opentelemetry.impl.util.MetricFilter;
+import org.jgroups.opentelemetry.impl.util.SampledStopwatch;
+import org.jgroups.opentelemetry.impl.util.StaggeredCollection;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.opentelemetry.spi.InstrumentationContext.ConfigurationMetricsMode;
 import org.jgroups.opentelemetry.spi.MetricsInstrumentation;
 import org.jgroups.stack.Protocol;
+import org.jgroups.util.ByteArray;
 import org.jgroups.util.MessageBatch;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * JGroups protocol that provides OpenTelemetry metrics integration.
@@ -31,13 +88,28 @@ import java.util.concurrent.CompletableFuture;
  *
  * <p>The protocol can either use a programmatically configured OpenTelemetry instance via
  * {@link #setOpenTelemetry(OpenTelemetry)}, or automatically configure an OTLP exporter
- * by setting the {@code endpoint} property.</p>
+ * by setting the {@code endpoint} property and/or an embedded Prometheus scrape endpoint
+ * by setting the {@code prometheusPort} property.</p>
+ *
+ * <p>With {@code clusterAggregation} enabled, the members send their metrics to the coordinator as periodic snapshots,
+ * and only the coordinator exports cluster-level aggregates, which reduces the number of exporting nodes and series.</p>
+ *
+ * <p>With a positive {@code historyRetention}, the metrics of this member are also recorded in a compressed in-process store,
+ * which can be queried via {@link #queryHistory(String, String, long)}, e.g. by probe or JMX, after an incident.</p>
+ *
+ * <p>With {@code jfrEvents} enabled, the protocol emits JDK Flight Recorder events for the metrics, sampled messages,
+ * views and suspicions, for analysis at a finer resolution than the export interval alongside the events of the JVM.</p>
  *
  * @author Radoslav Husar
  */
 @MBean(description = "Protocol that instruments JGroups protocols with OpenTelemetry metrics")
 public class OPENTELEMETRY extends Protocol {
 
+    /**
+     * Protocol ID identifying the headers of the cluster metric aggregation messages.
+     */
+    public static final short ID = 2100;
+
     @Property(description = "Instrumentation scope name for OpenTelemetry meter",
             systemProperty = {"jgroups.opentelemetry.scope_name", "JGROUPS_OPENTELEMETRY_SCOPE_NAME"})
     protected String instrumentationScopeName = "org.jgroups";
@@ -46,6 +118,38 @@ public class OPENTELEMETRY extends Protocol {
             systemProperty = {"jgroups.opentelemetry.expose_configuration_metrics", "JGROUPS_OPENTELEMETRY_EXPOSE_CONFIGURATION_METRICS"})
     protected boolean exposeConfigurationMetrics = true;
 
+    @Property(description = "How configuration metrics are reported if exposed: gauges reports a gauge per value on every export, " +
+            "on_change reports a gauge per value only on the first export and whenever the value changed, " +
+            "info reports all values of a protocol as attributes of a single jgroups.config.info series",
+            systemProperty = {"jgroups.opentelemetry.configuration_metrics_mode", "JGROUPS_OPENTELEMETRY_CONFIGURATION_METRICS_MODE"})
+    protected String configurationMetricsMode = "gauges";
+
+    @Property(description = "Maximum number of distinct values of a per-entity attribute (e.g., remote site) reported by a single metric. " +
+            "Further values are folded into a single series with the 'overflow=true' attribute",
+            systemProperty = {"jgroups.opentelemetry.attribute_cardinality_limit", "JGROUPS_OPENTELEMETRY_ATTRIBUTE_CARDINALITY_LIMIT"})
+    protected int attributeCardinalityLimit = InstrumentationContext.DEFAULT_ATTRIBUTE_CARDINALITY_LIMIT;
+
+    @Property(description = "Sampling interval of duration histograms which are too expensive to record for every message (e.g., encryption or compression time). " +
+            "The duration of one in every N operations is recorded; 1 records every operation",
+            systemProperty = {"jgroups.opentelemetry.duration_sampling_interval", "JGROUPS_OPENTELEMETRY_DURATION_SAMPLING_INTERVAL"})
+    protected int durationSamplingInterval = InstrumentationContext.DEFAULT_DURATION_SAMPLING_INTERVAL;
+
+    @Property(description = "Whether to register metrics with a per-member attribute (e.g., UNICAST3 unacknowledged messages per connection). " +
+            "At most attributeCardinalityLimit members ranked by the severity of their value are reported; the remaining members are folded into a single series with the 'overflow=true' attribute",
+            systemProperty = {"jgroups.opentelemetry.per_member_metrics", "JGROUPS_OPENTELEMETRY_PER_MEMBER_METRICS"})
+    protected boolean perMemberMetrics = false;
+
+    @Property(description = "Comma-separated patterns of the full names of metrics to register (e.g., jgroups.unicast3.*,jgroups.pbcast.gms.*). " +
+            "Patterns are globs where * matches any characters, or regular expressions if prefixed with regex:. If not set, all metrics are registered. " +
+            "Metrics which are not registered incur no collection cost",
+            systemProperty = {"jgroups.opentelemetry.include_metrics", "JGROUPS_OPENTELEMETRY_INCLUDE_METRICS"})
+    protected String includeMetrics;
+
+    @Property(description = "Comma-separated patterns of the full names of metrics not to register, applied after includeMetrics. " +
+            "Patterns are globs where * matches any characters, or regular expressions if prefixed with regex:",
+            systemProperty = {"jgroups.opentelemetry.exclude_metrics", "JGROUPS_OPENTELEMETRY_EXCLUDE_METRICS"})
+    protected String excludeMetrics;
+
     @Property(description = "OTLP endpoint URL for metrics export (e.g., http://localhost:4317). If set, OpenTelemetry SDK will be automatically configured",
             systemProperty = {"jgroups.opentelemetry.endpoint", "JGROUPS_OPENTELEMETRY_ENDPOINT"})
     protected String endpoint;
@@ -55,6 +159,115 @@ public class OPENTELEMETRY extends Protocol {
             systemProperty = {"jgroups.opentelemetry.export_interval", "JGROUPS_OPENTELEMETRY_EXPORT_INTERVAL"})
     protected long exportInterval = 60000; // 60 seconds default
 
+    @Property(description = "Whether the first periodic export to the OTLP endpoint happens at a random offset within the export interval " +
+            "instead of after a full interval, so that members started together, e.g. by a rolling restart, do not export in bursts",
+            systemProperty = {"jgroups.opentelemetry.export_jitter", "JGROUPS_OPENTELEMETRY_EXPORT_JITTER"})
+    protected boolean exportJitter = true;
+
+    @Property(description = "Whether the values of the protocols are collected one protocol at a time, spread evenly across the export interval " +
+            "(the cluster aggregation interval if clusterAggregation is enabled), instead of all at once on export. " +
+            "Smooths the cost of the collection at the cost of values which are up to one interval old",
+            systemProperty = {"jgroups.opentelemetry.staggered_collection", "JGROUPS_OPENTELEMETRY_STAGGERED_COLLECTION"})
+    protected boolean staggeredCollection = false;
+
+    @Property(description = "OTLP transport protocol used to export metrics to the endpoint: grpc or http/protobuf. " +
+            "For http/protobuf, the /v1/metrics path is appended to an endpoint URL without a path",
+            systemProperty = {"jgroups.opentelemetry.export_protocol", "JGROUPS_OPENTELEMETRY_EXPORT_PROTOCOL"})
+    protected String exportProtocol = "grpc";
+
+    @Property(description = "Compression of exported metrics: none or gzip",
+            systemProperty = {"jgroups.opentelemetry.export_compression", "JGROUPS_OPENTELEMETRY_EXPORT_COMPRESSION"})
+    protected String exportCompression = "none";
+
+    @Property(description = "Maximum time in milliseconds to wait for an export to the OTLP endpoint to complete",
+            type = AttributeType.TIME,
+            systemProperty = {"jgroups.opentelemetry.export_timeout", "JGROUPS_OPENTELEMETRY_EXPORT_TIMEOUT"})
+    protected long exportTimeout = 10000;
+
+    @Property(description = "Aggregation temporality of metrics exported to the OTLP endpoint, per instrument type: " +
+            "cumulative for all instruments, delta for counters and histograms (cumulative for up-down counters), " +
+            "or lowmemory for synchronous counters and histograms (cumulative otherwise)",
+            systemProperty = {"jgroups.opentelemetry.export_temporality", "JGROUPS_OPENTELEMETRY_EXPORT_TEMPORALITY"})
+    protected String exportTemporality = "cumulative";
+
+    @Property(description = "Memory mode of the export to the OTLP endpoint: immutable_data allocates new metric data on every export, " +
+            "reusable_data reuses metric data between exports to reduce allocation on nodes with many series",
+            systemProperty = {"jgroups.opentelemetry.export_memory_mode", "JGROUPS_OPENTELEMETRY_EXPORT_MEMORY_MODE"})
+    protected String exportMemoryMode = "immutable_data";
+
+    @Property(description = "Maximum number of collected batches waiting to be exported to the OTLP endpoint. If positive, batches are queued " +
+            "and exported by a dedicated thread, so that a slow endpoint never blocks the collection; 0 exports directly",
+            systemProperty = {"jgroups.opentelemetry.export_queue_size", "JGROUPS_OPENTELEMETRY_EXPORT_QUEUE_SIZE"})
+    protected int exportQueueSize = 0;
+
+    @Property(description = "What to do with a batch collected while the export queue is full: drop_oldest discards the oldest queued batch, " +
+            "drop_newest discards the new batch, coalesce merges the new batch into the newest queued batch (intended for cumulative temporality)",
+            systemProperty = {"jgroups.opentelemetry.export_queue_policy", "JGROUPS_OPENTELEMETRY_EXPORT_QUEUE_POLICY"})
+    protected String exportQueuePolicy = "drop_oldest";
+
+    @Property(description = "Path of a file spooling the batches which fail to export to the OTLP endpoint, e.g. while the collector is unreachable " +
+            "during a network partition. Spooled batches are exported in order once an export succeeds again, also after a restart. If not set, failed batches are lost",
+            systemProperty = {"jgroups.opentelemetry.spool_file", "JGROUPS_OPENTELEMETRY_SPOOL_FILE"})
+    protected String spoolFile;
+
+    @Property(description = "Size in bytes of the memory-mapped spool file. If the spool is full, the oldest batches are discarded",
+            type = AttributeType.BYTES,
+            systemProperty = {"jgroups.opentelemetry.spool_size", "JGROUPS_OPENTELEMETRY_SPOOL_SIZE"})
+    protected int spoolSize = 16 * 1024 * 1024;
+
+    @Property(description = "Port of an embedded HTTP endpoint serving the metrics for Prometheus to scrape at /metrics. If set, OpenTelemetry SDK will be automatically configured. " +
+            "Metrics are only collected when scraped. Channels in the same JVM configured with the same bind address and port share the endpoint. " +
+            "0 binds an ephemeral port; a negative value disables the endpoint",
+            systemProperty = {"jgroups.opentelemetry.prometheus_port", "JGROUPS_OPENTELEMETRY_PROMETHEUS_PORT"})
+    protected int prometheusPort = -1;
+
+    @Property(description = "Bind address of the embedded Prometheus endpoint. If not set, the endpoint listens on all interfaces",
+            systemProperty = {"jgroups.opentelemetry.prometheus_bind_address", "JGROUPS_OPENTELEMETRY_PROMETHEUS_BIND_ADDRESS"})
+    protected String prometheusBindAddress;
+
+    @Property(description = "Whether the embedded Prometheus endpoint serves the OpenMetrics text format to scrapers which request it. " +
+            "Otherwise, the Prometheus text format is always served",
+            systemProperty = {"jgroups.opentelemetry.prometheus_open_metrics", "JGROUPS_OPENTELEMETRY_PROMETHEUS_OPEN_METRICS"})
+    protected boolean prometheusOpenMetrics = false;
+
+    @Property(description = "Whether members send their metrics to the coordinator instead of exporting them. The members periodically send compact, " +
+            "delta-encoded snapshots as OOB messages, and only the coordinator exports cluster-level aggregates (sum, min, max, percentiles) and per-member outliers. " +
+            "All members need to be configured with an exporter, as any member can become the coordinator",
+            systemProperty = {"jgroups.opentelemetry.cluster_aggregation", "JGROUPS_OPENTELEMETRY_CLUSTER_AGGREGATION"})
+    protected boolean clusterAggregation = false;
+
+    @Property(description = "Interval in milliseconds at which members send their metric snapshots to the coordinator if clusterAggregation is enabled",
+            type = AttributeType.TIME,
+            systemProperty = {"jgroups.opentelemetry.cluster_aggregation_interval", "JGROUPS_OPENTELEMETRY_CLUSTER_AGGREGATION_INTERVAL"})
+    protected long clusterAggregationInterval = 10000;
+
+    @Property(description = "Maximum number of members deviating most from the median which are reported as outliers per aggregated series; 0 disables outliers",
+            systemProperty = {"jgroups.opentelemetry.cluster_aggregation_outliers", "JGROUPS_OPENTELEMETRY_CLUSTER_AGGREGATION_OUTLIERS"})
+    protected int clusterAggregationOutliers = 1;
+
+    @Property(description = "How long in milliseconds the metrics of this member are kept in an in-process store for queries after an incident, " +
+            "also if they were not exported; 0 disables the store. If no OpenTelemetry instance is provided, the SDK is configured automatically. " +
+            "The store is queried by the queryHistory operation via probe or JMX",
+            type = AttributeType.TIME,
+            systemProperty = {"jgroups.opentelemetry.history_retention", "JGROUPS_OPENTELEMETRY_HISTORY_RETENTION"})
+    protected long historyRetention = 0;
+
+    @Property(description = "Interval in milliseconds at which the metrics are recorded in the history store",
+            type = AttributeType.TIME,
+            systemProperty = {"jgroups.opentelemetry.history_interval", "JGROUPS_OPENTELEMETRY_HISTORY_INTERVAL"})
+    protected long historyInterval = 10000;
+
+    @Property(description = "Age in milliseconds after which the samples of the history store are downsampled to one sample per historyDownsampleInterval; " +
+            "0 keeps all samples for the whole retention",
+            type = AttributeType.TIME,
+            systemProperty = {"jgroups.opentelemetry.history_downsample_age", "JGROUPS_OPENTELEMETRY_HISTORY_DOWNSAMPLE_AGE"})
+    protected long historyDownsampleAge = 900000;
+
+    @Property(description = "Interval in milliseconds of which the last sample is kept when the history store is downsampled",
+            type = AttributeType.TIME,
+            systemProperty = {"jgroups.opentelemetry.history_downsample_interval", "JGROUPS_OPENTELEMETRY_HISTORY_DOWNSAMPLE_INTERVAL"})
+    protected long historyDownsampleInterval = 60000;
+
     @Property(description = "Enable message size histogram tracking (OpenTelemetry-native replacement for SIZE/SIZE2 protocols). " +
             "Records distribution of sent and received message sizes for performance analysis. Disabled by default due to performance overhead.",
             systemProperty = {"jgroups.opentelemetry.enable_message_size_histogram", "JGROUPS_OPENTELEMETRY_ENABLE_MESSAGE_SIZE_HISTOGRAM"})
@@ -63,14 +276,79 @@ public class OPENTELEMETRY extends Protocol {
     @Property(description = "When true, use Message.size() for histogram, otherwise Message.getLength()")
     protected boolean useTotalSize = false;
 
+    @Property(description = "Enable message statistics (OpenTelemetry-native replacement for STATS protocol). " +
+            "Counts messages and bytes sent and received by this protocol, split into unicast and multicast messages.",
+            systemProperty = {"jgroups.opentelemetry.enable_message_statistics", "JGROUPS_OPENTELEMETRY_ENABLE_MESSAGE_STATISTICS"})
+    protected boolean enableMessageStatistics = false;
+
+    @Property(description = "Enable delivery time histogram tracking (OpenTelemetry-native replacement for TIME and DELIVERY_TIME protocols). " +
+            "Records the time from this protocol passing a message or message batch up until the application returns, and the time to send a message down the stack. " +
+            "Durations are sampled according to durationSamplingInterval.",
+            systemProperty = {"jgroups.opentelemetry.enable_delivery_time_histogram", "JGROUPS_OPENTELEMETRY_ENABLE_DELIVERY_TIME_HISTOGRAM"})
+    protected boolean enableDeliveryTimeHistogram = false;
+
+    @Property(description = "Emit JDK Flight Recorder events: periodic org.jgroups.Metric events with the values of the metrics, " +
+            "org.jgroups.MessageSend, org.jgroups.MessageDelivery and org.jgroups.BatchDelivery events for messages sampled according to durationSamplingInterval, " +
+            "and org.jgroups.ViewChange and org.jgroups.Suspect events. Events are only recorded while a recording enables them, otherwise they cost a check of their state",
+            systemProperty = {"jgroups.opentelemetry.jfr_events", "JGROUPS_OPENTELEMETRY_JFR_EVENTS"})
+    protected boolean jfrEvents = false;
+
+    protected static final AttributeKey<String> DESTINATION = AttributeKey.stringKey("destination");
+    protected static final Attributes UNICAST = Attributes.of(DESTINATION, "unicast");
+    protected static final Attributes MULTICAST = Attributes.of(DESTINATION, "multicast");
+
     protected OpenTelemetry openTelemetry;
     protected SdkMeterProvider meterProvider;
+    protected BoundedMetricExporter exportQueue;
+    protected SpoolingMetricExporter spoolingExporter;
+
+    // Cluster metric aggregation: instrumentation is registered with a local meter provider which is only read for snapshots
+    protected SdkMeterProvider snapshotMeterProvider;
+    protected SnapshotMetricReader snapshotReader;
+    protected MetricSnapshotWriter snapshotWriter;
+    protected ClusterMetricsAggregator aggregator;
+    protected volatile Address coord;
+    protected Future<?> snapshotTask;
+    protected StaggeredCollection collection;
+    protected HistoryMetricReader historyReader;
+    protected Future<?> historyTask;
+    protected JfrRecorder jfrRecorder;
+    protected JfrMetricReader jfrMetricReader;
     protected boolean sdkCreatedByProtocol = false;
 
     // Message size histograms
     protected LongHistogram messageSizeSent;
     protected LongHistogram messageSizeReceived;
 
+    // Message statistics
+    protected final LongAdder unicastsSent = new LongAdder();
+    protected final LongAdder multicastsSent = new LongAdder();
+    protected final LongAdder unicastBytesSent = new LongAdder();
+    protected final LongAdder multicastBytesSent = new LongAdder();
+    protected final LongAdder unicastsReceived = new LongAdder();
+    protected final LongAdder multicastsReceived = new LongAdder();
+    protected final LongAdder unicastBytesReceived = new LongAdder();
+    protected final LongAdder multicastBytesReceived = new LongAdder();
+    protected final LongAdder batchesReceived = new LongAdder();
+
+    // Delivery time histograms
+    protected SampledStopwatch deliveryStopwatch;
+    protected DoubleHistogram deliveryDuration;
+    protected DoubleHistogram batchDeliveryDuration;
+    protected LongHistogram batchSize;
+    protected DoubleHistogram sendDuration;
+
+    // Pass messages on via the JFR recorder without allocating a method reference per message
+    private final Function<Message, Object> passDown = this::passDown;
+    private final BiFunction<Message, Boolean, CompletableFuture<Object>> passDownAsync = this::passDown;
+    private final Function<Message, Object> passUp = this::passUp;
+    private final Consumer<MessageBatch> passUpBatch = this::passUp;
+
+    static {
+        ClassConfigurator.addProtocol(ID, OPENTELEMETRY.class);
+        ClassConfigurator.add(ClusterMetricsHeader.MAGIC_ID, ClusterMetricsHeader.class);
+    }
+
     public OPENTELEMETRY() {
     }
 
@@ -97,6 +375,60 @@ public class OPENTELEMETRY extends Protocol {
         return this;
     }
 
+    public String getConfigurationMetricsMode() {
+        return configurationMetricsMode;
+    }
+
+    public OPENTELEMETRY setConfigurationMetricsMode(String configurationMetricsMode) {
+        this.configurationMetricsMode = configurationMetricsMode;
+        return this;
+    }
+
+    public int getAttributeCardinalityLimit() {
+        return attributeCardinalityLimit;
+    }
+
+    public OPENTELEMETRY setAttributeCardinalityLimit(int attributeCardinalityLimit) {
+        this.attributeCardinalityLimit = attributeCardinalityLimit;
+        return this;
+    }
+
+    public int getDurationSamplingInterval() {
+        return durationSamplingInterval;
+    }
+
+    public OPENTELEMETRY setDurationSamplingInterval(int durationSamplingInterval) {
+        this.durationSamplingInterval = durationSamplingInterval;
+        return this;
+    }
+
+    public boolean isPerMemberMetrics() {
+        return perMemberMetrics;
+    }
+
+    public OPENTELEMETRY setPerMemberMetrics(boolean perMemberMetrics) {
+        this.perMemberMetrics = perMemberMetrics;
+        return this;
+    }
+
+    public String getIncludeMetrics() {
+        return includeMetrics;
+    }
+
+    public OPENTELEMETRY setIncludeMetrics(String includeMetrics) {
+        this.includeMetrics = includeMetrics;
+        return this;
+    }
+
+    public String getExcludeMetrics() {
+        return excludeMetrics;
+    }
+
+    public OPENTELEMETRY setExcludeMetrics(String excludeMetrics) {
+        this.excludeMetrics = excludeMetrics;
+        return this;
+    }
+
     public String getEndpoint() {
         return endpoint;
     }
@@ -115,6 +447,204 @@ public class OPENTELEMETRY extends Protocol {
         return this;
     }
 
+    public int getExportQueueSize() {
+        return exportQueueSize;
+    }
+
+    public OPENTELEMETRY setExportQueueSize(int exportQueueSize) {
+        this.exportQueueSize = exportQueueSize;
+        return this;
+    }
+
+    public String getExportQueuePolicy() {
+        return exportQueuePolicy;
+    }
+
+    public OPENTELEMETRY setExportQueuePolicy(String exportQueuePolicy) {
+        this.exportQueuePolicy = exportQueuePolicy;
+        return this;
+    }
+
+    public String getSpoolFile() {
+        return spoolFile;
+    }
+
+    public OPENTELEMETRY setSpoolFile(String spoolFile) {
+        this.spoolFile = spoolFile;
+        return this;
+    }
+
+    public int getSpoolSize() {
+        return spoolSize;
+    }
+
+    public OPENTELEMETRY setSpoolSize(int spoolSize) {
+        this.spoolSize = spoolSize;
+        return this;
+    }
+
+    public boolean isExportJitter() {
+        return exportJitter;
+    }
+
+    public OPENTELEMETRY setExportJitter(boolean exportJitter) {
+        this.exportJitter = exportJitter;
+        return this;
+    }
+
+    public boolean isStaggeredCollection() {
+        return staggeredCollection;
+    }
+
+    public OPENTELEMETRY setStaggeredCollection(boolean staggeredCollection) {
+        this.staggeredCollection = staggeredCollection;
+        return this;
+    }
+
+    public String getExportProtocol() {
+        return exportProtocol;
+    }
+
+    public OPENTELEMETRY setExportProtocol(String exportProtocol) {
+        this.exportProtocol = exportProtocol;
+        return this;
+    }
+
+    public String getExportCompression() {
+        return exportCompression;
+    }
+
+    public OPENTELEMETRY setExportCompression(String exportCompression) {
+        this.exportCompression = exportCompression;
+        return this;
+    }
+
+    public long getExportTimeout() {
+        return exportTimeout;
+    }
+
+    public OPENTELEMETRY setExportTimeout(long exportTimeout) {
+        this.exportTimeout = exportTimeout;
+        return this;
+    }
+
+    public String getExportTemporality() {
+        return exportTemporality;
+    }
+
+    public OPENTELEMETRY setExportTemporality(String exportTemporality) {
+        this.exportTemporality = exportTemporality;
+        return this;
+    }
+
+    public String getExportMemoryMode() {
+        return exportMemoryMode;
+    }
+
+    public OPENTELEMETRY setExportMemoryMode(String exportMemoryMode) {
+        this.exportMemoryMode = exportMemoryMode;
+        return this;
+    }
+
+    public int getPrometheusPort() {
+        return prometheusPort;
+    }
+
+    public OPENTELEMETRY setPrometheusPort(int prometheusPort) {
+        this.prometheusPort = prometheusPort;
+        return this;
+    }
+
+    public String getPrometheusBindAddress() {
+        return prometheusBindAddress;
+    }
+
+    public OPENTELEMETRY setPrometheusBindAddress(String prometheusBindAddress) {
+        this.prometheusBindAddress = prometheusBindAddress;
+        return this;
+    }
+
+    public boolean isPrometheusOpenMetrics() {
+        return prometheusOpenMetrics;
+    }
+
+    public OPENTELEMETRY setPrometheusOpenMetrics(boolean prometheusOpenMetrics) {
+        this.prometheusOpenMetrics = prometheusOpenMetrics;
+        return this;
+    }
+
+    public boolean isClusterAggregation() {
+        return clusterAggregation;
+    }
+
+    public OPENTELEMETRY setClusterAggregation(boolean clusterAggregation) {
+        this.clusterAggregation = clusterAggregation;
+        return this;
+    }
+
+    public long getClusterAggregationInterval() {
+        return clusterAggregationInterval;
+    }
+
+    public OPENTELEMETRY setClusterAggregationInterval(long clusterAggregationInterval) {
+        this.clusterAggregationInterval = clusterAggregationInterval;
+        return this;
+    }
+
+    public int getClusterAggregationOutliers() {
+        return clusterAggregationOutliers;
+    }
+
+    public OPENTELEMETRY setClusterAggregationOutliers(int clusterAggregationOutliers) {
+        this.clusterAggregationOutliers = clusterAggregationOutliers;
+        return this;
+    }
+
+    public long getHistoryRetention() {
+        return historyRetention;
+    }
+
+    public OPENTELEMETRY setHistoryRetention(long historyRetention) {
+        this.historyRetention = historyRetention;
+        return this;
+    }
+
+    public long getHistoryInterval() {
+        return historyInterval;
+    }
+
+    public OPENTELEMETRY setHistoryInterval(long historyInterval) {
+        this.historyInterval = historyInterval;
+        return this;
+    }
+
+    public long getHistoryDownsampleAge() {
+        return historyDownsampleAge;
+    }
+
+    public OPENTELEMETRY setHistoryDownsampleAge(long historyDownsampleAge) {
+        this.historyDownsampleAge = historyDownsampleAge;
+        return this;
+    }
+
+    public long getHistoryDownsampleInterval() {
+        return historyDownsampleInterval;
+    }
+
+    public OPENTELEMETRY setHistoryDownsampleInterval(long historyDownsampleInterval) {
+        this.historyDownsampleInterval = historyDownsampleInterval;
+        return this;
+    }
+
+    /**
+     * Returns the store recording the metrics of this member if {@code historyRetention} is positive.
+     *
+     * @return the history store, or null if disabled or not initialized
+     */
+    public TimeSeriesStore getHistoryStore() {
+        return (historyReader != null) ? historyReader.getStore() : null;
+    }
+
     public boolean isEnableMessageSizeHistogram() {
         return enableMessageSizeHistogram;
     }
@@ -133,27 +663,95 @@ public class OPENTELEMETRY extends Protocol {
         return this;
     }
 
+    public boolean isEnableMessageStatistics() {
+        return enableMessageStatistics;
+    }
+
+    public OPENTELEMETRY setEnableMessageStatistics(boolean enableMessageStatistics) {
+        this.enableMessageStatistics = enableMessageStatistics;
+        return this;
+    }
+
+    public boolean isEnableDeliveryTimeHistogram() {
+        return enableDeliveryTimeHistogram;
+    }
+
+    public OPENTELEMETRY setEnableDeliveryTimeHistogram(boolean enableDeliveryTimeHistogram) {
+        this.enableDeliveryTimeHistogram = enableDeliveryTimeHistogram;
+        return this;
+    }
+
+    public boolean isJfrEvents() {
+        return jfrEvents;
+    }
+
+    public OPENTELEMETRY setJfrEvents(boolean jfrEvents) {
+        this.jfrEvents = jfrEvents;
+        return this;
+    }
+
     @Override
     public void init() throws Exception {
         super.init();
 
-        // If no OpenTelemetry instance provided and endpoint is configured, create SDK automatically
-        if (openTelemetry == null && endpoint != null && !endpoint.isEmpty()) {
+        // Parse the filters and modes first, so that invalid values are rejected before the SDK is created
+        MetricFilter metricFilter = MetricFilter.of(includeMetrics, excludeMetrics);
+        ConfigurationMetricsMode configurationMetricsMode = parseConfigurationMetricsMode(this.configurationMetricsMode);
+        if (historyRetention > 0) {
+            historyReader = new HistoryMetricReader(new TimeSeriesStore(historyRetention, historyDownsampleAge, historyDownsampleInterval));
+        }
+        if (jfrEvents) {
+            jfrRecorder = new JfrRecorder(durationSamplingInterval, () -> getTransport().getClusterName());
+            jfrMetricReader = jfrRecorder.getMetricReader();
+        }
+
+        // If no OpenTelemetry instance provided and an OTLP or Prometheus endpoint, the history or JFR events are configured, create SDK automatically
+        if (openTelemetry == null && ((endpoint != null && !endpoint.isEmpty()) || prometheusPort >= 0 || historyReader != null || jfrMetricReader != null)) {
             openTelemetry = createOpenTelemetrySdk();
             sdkCreatedByProtocol = true;
         }
 
+        // The local readers can only be registered with a meter provider created by this protocol
+        if (!sdkCreatedByProtocol && !clusterAggregation) {
+            if (historyReader != null) {
+                log.warn("History of metrics (history_retention=%d) requires the SDK configured by this protocol or cluster aggregation, ignoring", historyRetention);
+                historyReader = null;
+            }
+            if (jfrMetricReader != null) {
+                log.warn("JFR metric events require the SDK configured by this protocol or cluster aggregation, emitting only message, view and suspect events");
+                jfrMetricReader = null;
+            }
+        }
+
         // Fall back to global instance if still null
         if (openTelemetry == null) {
             openTelemetry = GlobalOpenTelemetry.get();
         }
 
         if (openTelemetry != null) {
-            MetricsRegistrar.registerMetrics(openTelemetry, getProtocolStack(), instrumentationScopeName, exposeConfigurationMetrics);
+            // With cluster aggregation, metrics are recorded locally and only the aggregates of the coordinator are exported
+            OpenTelemetry instrumented = clusterAggregation ? createSnapshotSdk() : openTelemetry;
+            collection = staggeredCollection ? new StaggeredCollection() : null;
+            // The values last reported on change are shared, so readers other than the first would miss them
+            int readers = getMetricReaderCount();
+            if (configurationMetricsMode == ConfigurationMetricsMode.ON_CHANGE && readers > 1) {
+                log.warn("Reporting configuration metrics on change requires a single metric reader, reporting them on every collection to the %d readers instead", readers);
+                configurationMetricsMode = ConfigurationMetricsMode.GAUGES;
+            }
+            InstrumentationOptions options = InstrumentationOptions.builder()
+                    .setExposeConfigurationMetrics(exposeConfigurationMetrics)
+                    .setAttributeCardinalityLimit(attributeCardinalityLimit)
+                    .setDurationSamplingInterval(durationSamplingInterval)
+                    .setPerMemberMetrics(perMemberMetrics)
+                    .setMetricFilter(metricFilter)
+                    .setConfigurationMetricsMode(configurationMetricsMode)
+                    .setCollection(collection)
+                    .build();
+            MetricsRegistrar.registerMetrics(instrumented, getProtocolStack(), instrumentationScopeName, options);
+            Meter meter = new FilteringMeter(instrumented.getMeter(instrumentationScopeName), metricFilter);
 
             // Initialize message size histograms if enabled
             if (enableMessageSizeHistogram) {
-                Meter meter = openTelemetry.getMeter(instrumentationScopeName);
                 messageSizeSent = meter.histogramBuilder("jgroups.opentelemetry.message.size.sent")
                     .setDescription("Distribution of sent message sizes")
                     .setUnit("By")
@@ -168,27 +766,169 @@ public class OPENTELEMETRY extends Protocol {
 
                 log.info("Message size histogram tracking enabled (useTotalSize=%b)", useTotalSize);
             }
+
+            if (exportQueue != null) {
+                registerExportQueueMetrics(meter);
+            }
+
+            if (spoolingExporter != null) {
+                registerSpoolMetrics(meter);
+            }
+
+            if (historyReader != null) {
+                registerHistoryMetrics(meter);
+            }
+
+            if (enableMessageStatistics) {
+                registerMessageStatistics(meter);
+            }
+
+            if (enableDeliveryTimeHistogram) {
+                deliveryStopwatch = new SampledStopwatch(durationSamplingInterval);
+                deliveryDuration = meter.histogramBuilder("jgroups.opentelemetry.delivery.duration")
+                    .setDescription("Sampled time from passing a received message up the stack until the application returns")
+                    .setUnit("ms")
+                    .build();
+
+                batchDeliveryDuration = meter.histogramBuilder("jgroups.opentelemetry.batch.delivery.duration")
+                    .setDescription("Sampled time from passing a received message batch up the stack until the application returns")
+                    .setUnit("ms")
+                    .build();
+
+                batchSize = meter.histogramBuilder("jgroups.opentelemetry.batch.size")
+                    .setDescription("Distribution of the number of messages in received message batches")
+                    .setUnit("1")
+                    .ofLongs()
+                    .build();
+
+                sendDuration = meter.histogramBuilder("jgroups.opentelemetry.send.duration")
+                    .setDescription("Sampled time to pass a message down the stack until the transport returns")
+                    .setUnit("ms")
+                    .build();
+
+                log.info("Delivery time histogram tracking enabled (durationSamplingInterval=%d)", durationSamplingInterval);
+            }
         }
     }
 
+    @Override
+    public void start() throws Exception {
+        super.start();
+        if (snapshotReader != null) {
+            snapshotTask = getTransport().getTimer().scheduleWithFixedDelay(this::sendSnapshot, clusterAggregationInterval, clusterAggregationInterval, TimeUnit.MILLISECONDS, true);
+        }
+        if (collection != null) {
+            collection.start((snapshotReader != null) ? clusterAggregationInterval : exportInterval);
+        }
+        if (historyReader != null) {
+            historyTask = getTransport().getTimer().scheduleAtFixedRate(this::recordHistory, historyInterval, historyInterval, TimeUnit.MILLISECONDS, true);
+        }
+        if (jfrMetricReader != null) {
+            jfrMetricReader.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        if (snapshotTask != null) {
+            snapshotTask.cancel(false);
+            snapshotTask = null;
+        }
+        if (collection != null) {
+            collection.stop();
+        }
+        if (historyTask != null) {
+            historyTask.cancel(false);
+            historyTask = null;
+        }
+        if (jfrMetricReader != null) {
+            jfrMetricReader.stop();
+        }
+        if (aggregator != null) {
+            aggregator.deactivate();
+        }
+        coord = null;
+    }
+
     @Override
     public void destroy() {
         super.destroy();
+        if (snapshotMeterProvider != null) {
+            snapshotMeterProvider.close();
+            snapshotMeterProvider = null;
+            snapshotReader = null;
+            snapshotWriter = null;
+            aggregator = null;
+        }
+        historyReader = null;
+        jfrRecorder = null;
+        jfrMetricReader = null;
         // Clean up SDK if we created it
         if (sdkCreatedByProtocol && meterProvider != null) {
             meterProvider.close();
             meterProvider = null;
+            exportQueue = null;
+            spoolingExporter = null;
             openTelemetry = null;
             sdkCreatedByProtocol = false;
         }
     }
 
+    @Override
+    public Object down(Event evt) {
+        if (evt.getType() == Event.VIEW_CHANGE) {
+            if (snapshotReader != null) {
+                handleView(evt.getArg());
+            }
+            if (jfrRecorder != null) {
+                jfrRecorder.viewChange(evt.getArg());
+            }
+        }
+        return down_prot.down(evt);
+    }
+
+    @Override
+    public Object up(Event evt) {
+        switch (evt.getType()) {
+            case Event.VIEW_CHANGE -> {
+                if (snapshotReader != null) {
+                    handleView(evt.getArg());
+                }
+                if (jfrRecorder != null) {
+                    jfrRecorder.viewChange(evt.getArg());
+                }
+            }
+            case Event.SUSPECT -> {
+                if (jfrRecorder != null) {
+                    jfrRecorder.suspect(evt.getArg());
+                }
+            }
+        }
+        return up_prot.up(evt);
+    }
+
     @Override
     public Object down(Message msg) {
         if (enableMessageSizeHistogram && messageSizeSent != null) {
             recordMessageSize(msg, messageSizeSent);
         }
-        return down_prot.down(msg);
+        if (enableMessageStatistics) {
+            recordSent(msg);
+        }
+        return (jfrRecorder != null) ? jfrRecorder.down(msg, passDown) : passDown(msg);
+    }
+
+    protected Object passDown(Message msg) {
+        if (sendDuration == null || !deliveryStopwatch.sample()) {
+            return down_prot.down(msg);
+        }
+        long start = System.nanoTime();
+        try {
+            return down_prot.down(msg);
+        } finally {
+            sendDuration.record((System.nanoTime() - start) / 1_000_000.0);
+        }
     }
 
     @Override
@@ -196,25 +936,318 @@ public class OPENTELEMETRY extends Protocol {
         if (enableMessageSizeHistogram && messageSizeSent != null) {
             recordMessageSize(msg, messageSizeSent);
         }
-        return down_prot.down(msg, async);
+        if (enableMessageStatistics) {
+            recordSent(msg);
+        }
+        return (jfrRecorder != null) ? jfrRecorder.down(msg, async, passDownAsync) : passDown(msg, async);
+    }
+
+    protected CompletableFuture<Object> passDown(Message msg, boolean async) {
+        if (sendDuration == null || !deliveryStopwatch.sample()) {
+            return down_prot.down(msg, async);
+        }
+        // Asynchronous sends are timed until the returned future completes
+        long start = System.nanoTime();
+        CompletableFuture<Object> future;
+        try {
+            future = down_prot.down(msg, async);
+        } catch (RuntimeException | Error e) {
+            sendDuration.record((System.nanoTime() - start) / 1_000_000.0);
+            throw e;
+        }
+        future.whenComplete((result, e) -> sendDuration.record((System.nanoTime() - start) / 1_000_000.0));
+        return future;
     }
 
     @Override
     public Object up(Message msg) {
+        if (snapshotReader != null) {
+            ClusterMetricsHeader header = msg.getHeader(id);
+            if (header != null) {
+                handleClusterMetrics(msg, header);
+                return null;
+            }
+        }
         if (enableMessageSizeHistogram && messageSizeReceived != null) {
             recordMessageSize(msg, messageSizeReceived);
         }
-        return up_prot.up(msg);
+        if (enableMessageStatistics) {
+            recordReceived(msg);
+        }
+        return (jfrRecorder != null) ? jfrRecorder.up(msg, passUp) : passUp(msg);
+    }
+
+    protected Object passUp(Message msg) {
+        if (deliveryDuration == null || !deliveryStopwatch.sample()) {
+            return up_prot.up(msg);
+        }
+        long start = System.nanoTime();
+        try {
+            return up_prot.up(msg);
+        } finally {
+            deliveryDuration.record((System.nanoTime() - start) / 1_000_000.0);
+        }
     }
 
     @Override
     public void up(MessageBatch batch) {
+        if (snapshotReader != null) {
+            for (Iterator<Message> iterator = batch.iterator(); iterator.hasNext(); ) {
+                Message msg = iterator.next();
+                ClusterMetricsHeader header = msg.getHeader(id);
+                if (header != null) {
+                    iterator.remove();
+                    handleClusterMetrics(msg, header);
+                }
+            }
+            if (batch.isEmpty()) return;
+        }
         if (enableMessageSizeHistogram && messageSizeReceived != null) {
             for (Message msg : batch) {
                 recordMessageSize(msg, messageSizeReceived);
             }
         }
-        up_prot.up(batch);
+        if (enableMessageStatistics) {
+            batchesReceived.increment();
+            for (Message msg : batch) {
+                recordReceived(msg);
+            }
+        }
+        if (jfrRecorder != null) {
+            jfrRecorder.up(batch, passUpBatch);
+        } else {
+            passUp(batch);
+        }
+    }
+
+    protected void passUp(MessageBatch batch) {
+        if (batchDeliveryDuration == null) {
+            up_prot.up(batch);
+            return;
+        }
+        batchSize.record(batch.size());
+        if (!deliveryStopwatch.sample()) {
+            up_prot.up(batch);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            up_prot.up(batch);
+        } finally {
+            batchDeliveryDuration.record((System.nanoTime() - start) / 1_000_000.0);
+        }
+    }
+
+    /**
+     * Tracks the coordinator the snapshots are sent to, and aggregates the snapshots of the members if this member is the coordinator.
+     */
+    protected void handleView(View view) {
+        Address newCoord = view.getCoord();
+        if (!Objects.equals(coord, newCoord)) {
+            // The new coordinator has no state of this member yet
+            snapshotWriter.requestKeyframe();
+            coord = newCoord;
+        }
+        if (Objects.equals(local_addr, newCoord)) {
+            aggregator.activate(view.getMembers());
+        } else if (aggregator.isActive()) {
+            aggregator.deactivate();
+        }
+    }
+
+    /**
+     * Collects the metrics of this member and sends them to the coordinator, or applies them directly if this member is the coordinator.
+     */
+    protected void sendSnapshot() {
+        Address target = coord;
+        if (target == null) return;
+        try {
+            MetricSnapshotWriter.Snapshot snapshot = snapshotWriter.write(snapshotReader.collect());
+            ByteArray payload = snapshot.payload();
+            if (target.equals(local_addr)) {
+                aggregator.apply(local_addr, snapshot.header(), payload.getArray(), payload.getOffset(), payload.getLength());
+                return;
+            }
+            Message msg = new BytesMessage(target, payload.getArray(), payload.getOffset(), payload.getLength())
+                .putHeader(id, snapshot.header())
+                .setFlag(Message.Flag.OOB);
+            down_prot.down(msg);
+        } catch (Exception e) {
+            log.warn("%s: failed sending metric snapshot to %s: %s", local_addr, target, e);
+        }
+    }
+
+    /**
+     * Records the metrics of this member in the history store.
+     */
+    protected void recordHistory() {
+        try {
+            historyReader.collect();
+        } catch (RuntimeException e) {
+            log.warn("%s: failed recording metric history: %s", local_addr, e);
+        }
+    }
+
+    /**
+     * Returns the recorded samples of the metrics matching the given names and attributes over the given number of seconds, e.g. by
+     * {@code probe.sh op=OPENTELEMETRY.queryHistory["jgroups.unicast3.*","",600]}.
+     *
+     * @param names comma-separated name patterns, as globs or regular expressions prefixed with {@code regex:}; all metrics if empty
+     * @param attributes comma-separated {@code key=value} pairs the series need to have; all series if empty
+     * @param seconds how many seconds back from now to return samples for
+     * @return a series name and attributes per line, followed by a line per sample with its time and value
+     * @throws IllegalStateException if the history is not enabled
+     */
+    @ManagedOperation(description = "Returns the recorded samples of the metrics matching comma-separated name patterns and key=value attributes over the last given number of seconds")
+    public String queryHistory(String names, String attributes, long seconds) {
+        TimeSeriesStore store = getHistoryStore();
+        if (store == null) throw new IllegalStateException("History of metrics is not enabled (history_retention=" + historyRetention + ")");
+        long now = System.currentTimeMillis();
+        List<TimeSeriesStore.TimeSeries> result = store.query((names != null && !names.isEmpty()) ? names : null, parseAttributes(attributes), now - TimeUnit.SECONDS.toMillis(seconds), now);
+        StringBuilder builder = new StringBuilder();
+        for (TimeSeriesStore.TimeSeries series : result) {
+            builder.append(series.name()).append(series.attributes().isEmpty() ? "" : series.attributes().toString()).append('\n');
+            for (TimeSeriesStore.Sample sample : series.samples()) {
+                builder.append("  ").append(Instant.ofEpochMilli(sample.timestamp())).append(' ').append(sample.value()).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    protected void handleClusterMetrics(Message msg, ClusterMetricsHeader header) {
+        if (header.getType() == ClusterMetricsHeader.RESEND) {
+            snapshotWriter.requestKeyframe();
+            return;
+        }
+        try {
+            if (!aggregator.apply(msg.getSrc(), header, msg.getArray(), msg.getOffset(), msg.getLength())) {
+                log.trace("%s: missed metric snapshot of %s, requesting keyframe", local_addr, msg.getSrc());
+                Message resend = new EmptyMessage(msg.getSrc())
+                    .putHeader(id, new ClusterMetricsHeader(ClusterMetricsHeader.RESEND, header.getSeqno()))
+                    .setFlag(Message.Flag.OOB);
+                down_prot.down(resend);
+            }
+        } catch (IOException e) {
+            log.warn("%s: failed applying metric snapshot of %s: %s", local_addr, msg.getSrc(), e);
+        }
+    }
+
+    protected void recordSent(Message msg) {
+        if (msg.getDest() == null) {
+            multicastsSent.increment();
+            multicastBytesSent.add(msg.getLength());
+        } else {
+            unicastsSent.increment();
+            unicastBytesSent.add(msg.getLength());
+        }
+    }
+
+    protected void recordReceived(Message msg) {
+        if (msg.getDest() == null) {
+            multicastsReceived.increment();
+            multicastBytesReceived.add(msg.getLength());
+        } else {
+            unicastsReceived.increment();
+            unicastBytesReceived.add(msg.getLength());
+        }
+    }
+
+    protected void registerMessageStatistics(Meter meter) {
+        meter.counterBuilder("jgroups.opentelemetry.messages.sent")
+            .setDescription("Number of messages sent, per destination (unicast or multicast)")
+            .setUnit("1")
+            .buildWithCallback(measurement -> {
+                measurement.record(unicastsSent.sum(), UNICAST);
+                measurement.record(multicastsSent.sum(), MULTICAST);
+            });
+
+        meter.counterBuilder("jgroups.opentelemetry.bytes.sent")
+            .setDescription("Number of payload bytes of messages sent, per destination (unicast or multicast)")
+            .setUnit("By")
+            .buildWithCallback(measurement -> {
+                measurement.record(unicastBytesSent.sum(), UNICAST);
+                measurement.record(multicastBytesSent.sum(), MULTICAST);
+            });
+
+        meter.counterBuilder("jgroups.opentelemetry.messages.received")
+            .setDescription("Number of messages received, per destination (unicast or multicast)")
+            .setUnit("1")
+            .buildWithCallback(measurement -> {
+                measurement.record(unicastsReceived.sum(), UNICAST);
+                measurement.record(multicastsReceived.sum(), MULTICAST);
+            });
+
+        meter.counterBuilder("jgroups.opentelemetry.bytes.received")
+            .setDescription("Number of payload bytes of messages received, per destination (unicast or multicast)")
+            .setUnit("By")
+            .buildWithCallback(measurement -> {
+                measurement.record(unicastBytesReceived.sum(), UNICAST);
+                measurement.record(multicastBytesReceived.sum(), MULTICAST);
+            });
+
+        meter.counterBuilder("jgroups.opentelemetry.batches.received")
+            .setDescription("Number of message batches received")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(batchesReceived.sum()));
+
+        log.info("Message statistics enabled");
+    }
+
+    protected void registerExportQueueMetrics(Meter meter) {
+        BoundedMetricExporter exportQueue = this.exportQueue;
+
+        meter.counterBuilder("jgroups.opentelemetry.export.dropped")
+            .setDescription("Number of collected metric batches discarded because the export queue was full")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(exportQueue.getDropped()));
+
+        meter.counterBuilder("jgroups.opentelemetry.export.coalesced")
+            .setDescription("Number of collected metric batches merged into a queued batch because the export queue was full")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(exportQueue.getCoalesced()));
+
+        meter.upDownCounterBuilder("jgroups.opentelemetry.export.queue.size")
+            .setDescription("Number of collected metric batches waiting to be exported")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(exportQueue.getQueueSize()));
+    }
+
+    protected void registerSpoolMetrics(Meter meter) {
+        SpoolingMetricExporter spoolingExporter = this.spoolingExporter;
+
+        meter.counterBuilder("jgroups.opentelemetry.spool.spooled")
+            .setDescription("Number of metric batches stored in the spool because their export failed")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(spoolingExporter.getSpooled()));
+
+        meter.counterBuilder("jgroups.opentelemetry.spool.replayed")
+            .setDescription("Number of spooled metric batches exported after the export succeeded again")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(spoolingExporter.getReplayed()));
+
+        meter.counterBuilder("jgroups.opentelemetry.spool.dropped")
+            .setDescription("Number of spooled metric batches discarded to make room for newer batches")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(spoolingExporter.getDropped()));
+
+        meter.upDownCounterBuilder("jgroups.opentelemetry.spool.pending")
+            .setDescription("Number of metric batches held by the spool")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(spoolingExporter.getPending()));
+    }
+
+    protected void registerHistoryMetrics(Meter meter) {
+        TimeSeriesStore store = historyReader.getStore();
+
+        meter.upDownCounterBuilder("jgroups.opentelemetry.history.series")
+            .setDescription("Number of series recorded in the history store")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(store.getSeriesCount()));
+
+        meter.upDownCounterBuilder("jgroups.opentelemetry.history.size")
+            .setDescription("Number of bytes of the compressed samples held by the history store")
+            .setUnit("By")
+            .buildWithCallback(measurement -> measurement.record(store.getBytes()));
     }
 
     protected void recordMessageSize(Message msg, LongHistogram histogram) {
@@ -223,29 +1256,224 @@ public class OPENTELEMETRY extends Protocol {
     }
 
     /**
-     * Creates an OpenTelemetry SDK instance configured with OTLP gRPC exporter.
+     * Creates an OpenTelemetry SDK instance configured with OTLP gRPC exporter and/or the embedded Prometheus endpoint.
      *
      * @return configured OpenTelemetry SDK instance
+     * @throws IOException if the spool file cannot be opened or the Prometheus endpoint cannot be started
      */
-    protected OpenTelemetry createOpenTelemetrySdk() {
-        log.info("Creating OpenTelemetry SDK with OTLP endpoint: %s, export interval: %d ms",
-                endpoint, exportInterval);
+    protected OpenTelemetry createOpenTelemetrySdk() throws IOException {
+        SdkMeterProviderBuilder builder = SdkMeterProvider.builder();
+        // Shut down if a later part of the setup fails, e.g. if the Prometheus port is in use
+        MetricExporter metricExporter = null;
+        List<MetricReader> metricReaders = new ArrayList<>(2);
 
-        OtlpGrpcMetricExporter metricExporter = OtlpGrpcMetricExporter.builder()
-                .setEndpoint(endpoint)
-                .build();
+        try {
+            if (endpoint != null && !endpoint.isEmpty()) {
+                log.info("Creating OpenTelemetry SDK with OTLP endpoint: %s (%s, compression: %s, temporality: %s, memory mode: %s), export interval: %d ms",
+                        endpoint, exportProtocol, exportCompression, exportTemporality, exportMemoryMode, exportInterval);
 
-        PeriodicMetricReader metricReader = PeriodicMetricReader.builder(metricExporter)
-                .setInterval(Duration.ofMillis(exportInterval))
-                .build();
+                BoundedMetricExporter.OverflowPolicy policy = (exportQueueSize > 0) ? parseExportQueuePolicy(exportQueuePolicy) : null;
+                metricExporter = createMetricExporter();
+                if (spoolFile != null && !spoolFile.isEmpty()) {
+                    spoolingExporter = new SpoolingMetricExporter(metricExporter, MetricSpool.open(Path.of(spoolFile), spoolSize));
+                    metricExporter = spoolingExporter;
+                    log.info("Spooling failed exports to %s (%d bytes)", spoolFile, spoolSize);
+                }
+                if (policy != null) {
+                    if (policy == BoundedMetricExporter.OverflowPolicy.COALESCE && !exportTemporality.equalsIgnoreCase("cumulative")) {
+                        log.warn("Coalescing the export queue discards values of metrics with delta temporality (export_temporality=%s)", exportTemporality);
+                    }
+                    exportQueue = new BoundedMetricExporter(metricExporter, exportQueueSize, policy, Duration.ofMillis(exportTimeout));
+                    metricExporter = exportQueue;
+                }
 
-        meterProvider = SdkMeterProvider.builder()
-                .registerMetricReader(metricReader)
-                .build();
+                PeriodicMetricReaderBuilder readerBuilder = PeriodicMetricReader.builder(metricExporter)
+                        .setInterval(Duration.ofMillis(exportInterval));
+                if (exportJitter) {
+                    // The reader owns the executor and shuts it down with the meter provider
+                    readerBuilder.setExecutor(new PhasedScheduledExecutor("PeriodicMetricReader"));
+                }
+                PeriodicMetricReader metricReader = readerBuilder.build();
+                // The reader owns the exporter and shuts it down with itself
+                metricExporter = null;
+                metricReaders.add(metricReader);
+
+                builder.registerMetricReader(metricReader);
+            }
+
+            if (prometheusPort >= 0) {
+                InetSocketAddress address = (prometheusBindAddress != null && !prometheusBindAddress.isEmpty())
+                        ? new InetSocketAddress(InetAddress.getByName(prometheusBindAddress), prometheusPort)
+                        : new InetSocketAddress(prometheusPort);
+                PrometheusMetricReader metricReader = PrometheusMetricReader.create(address, prometheusOpenMetrics);
+                metricReaders.add(metricReader);
+                log.info("Creating OpenTelemetry SDK with Prometheus endpoint: %s", metricReader.getAddress());
+
+                builder.registerMetricReader(metricReader);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Stops the export queue worker and releases the spool file, which are otherwise only released with the meter provider
+            if (metricExporter != null) {
+                metricExporter.shutdown();
+            }
+            for (MetricReader metricReader : metricReaders) {
+                metricReader.shutdown();
+            }
+            exportQueue = null;
+            spoolingExporter = null;
+            throw e;
+        }
+
+        if (!clusterAggregation) {
+            // With cluster aggregation, the local readers read the metrics of this member from the local meter provider instead
+            registerLocalMetricReaders(builder);
+        }
+
+        meterProvider = builder.build();
 
         return OpenTelemetrySdk.builder()
                 .setMeterProvider(meterProvider)
                 .build();
     }
 
+    /**
+     * Creates the local OpenTelemetry SDK with which the instrumentation is registered if cluster aggregation is enabled,
+     * and the aggregator exporting the cluster-level aggregates via the configured OpenTelemetry instance.
+     *
+     * @return local OpenTelemetry SDK instance which is only read for snapshots
+     */
+    protected OpenTelemetry createSnapshotSdk() {
+        snapshotReader = new SnapshotMetricReader();
+        snapshotWriter = new MetricSnapshotWriter();
+        SdkMeterProviderBuilder builder = SdkMeterProvider.builder()
+                .registerMetricReader(snapshotReader);
+        registerLocalMetricReaders(builder);
+        snapshotMeterProvider = builder.build();
+        aggregator = new ClusterMetricsAggregator(openTelemetry.getMeter(instrumentationScopeName), clusterAggregationOutliers);
+        log.info("Cluster metric aggregation enabled (interval: %d ms, outliers: %d)", clusterAggregationInterval, clusterAggregationOutliers);
+
+        return OpenTelemetrySdk.builder()
+                .setMeterProvider(snapshotMeterProvider)
+                .build();
+    }
+
+    /**
+     * Returns the number of metric readers of the meter provider the instrumentation is registered with, as far as they
+     * are configured by this protocol; the readers of an OpenTelemetry instance set or registered globally are not known.
+     *
+     * @return the number of known metric readers
+     */
+    protected int getMetricReaderCount() {
+        int readers = clusterAggregation ? 1 : sdkCreatedByProtocol ? (((endpoint != null && !endpoint.isEmpty()) ? 1 : 0) + ((prometheusPort >= 0) ? 1 : 0)) : 0;
+        return readers + ((historyReader != null) ? 1 : 0) + ((jfrMetricReader != null) ? 1 : 0);
+    }
+
+    /**
+     * Registers the readers of the metrics of this member which are not exported, i.e. the history and the JFR metric events.
+     *
+     * @param builder the builder of the meter provider the instrumentation is registered with
+     */
+    protected void registerLocalMetricReaders(SdkMeterProviderBuilder builder) {
+        if (historyReader != null) {
+            log.info("Recording metric history (retention: %d ms, interval: %d ms)", historyRetention, historyInterval);
+            builder.registerMetricReader(historyReader);
+        }
+        if (jfrMetricReader != null) {
+            log.info("Emitting JFR metric events");
+            builder.registerMetricReader(jfrMetricReader);
+        }
+    }
+
+    /**
+     * Creates the OTLP metric exporter for the configured endpoint, transport protocol, compression, timeout,
+     * temporality and memory mode.
+     *
+     * @return configured metric exporter
+     * @throws IllegalArgumentException if any of the export properties has an unsupported value
+     */
+    protected MetricExporter createMetricExporter() {
+        AggregationTemporalitySelector temporality = parseTemporality(exportTemporality);
+        MemoryMode memoryMode = parseMemoryMode(exportMemoryMode);
+        String compression = parseCompression(exportCompression);
+        Duration timeout = Duration.ofMillis(exportTimeout);
+
+        return switch (exportProtocol.toLowerCase(Locale.ROOT)) {
+            case "grpc" -> OtlpGrpcMetricExporter.builder()
+                    .setEndpoint(endpoint)
+                    .setCompression(compression)
+                    .setTimeout(timeout)
+                    .setAggregationTemporalitySelector(temporality)
+                    .setMemoryMode(memoryMode)
+                    .build();
+            case "http/protobuf" -> OtlpHttpMetricExporter.builder()
+                    .setEndpoint(httpEndpoint(endpoint))
+                    .setCompression(compression)
+                    .setTimeout(timeout)
+                    .setAggregationTemporalitySelector(temporality)
+                    .setMemoryMode(memoryMode)
+                    .build();
+            default -> throw new IllegalArgumentException("Unsupported export_protocol '" + exportProtocol + "', expected grpc or http/protobuf");
+        };
+    }
+
+    private static ConfigurationMetricsMode parseConfigurationMetricsMode(String mode) {
+        return switch (mode.toLowerCase(Locale.ROOT)) {
+            case "gauges" -> ConfigurationMetricsMode.GAUGES;
+            case "on_change" -> ConfigurationMetricsMode.ON_CHANGE;
+            case "info" -> ConfigurationMetricsMode.INFO;
+            default -> throw new IllegalArgumentException("Unsupported configuration_metrics_mode '" + mode + "', expected gauges, on_change or info");
+        };
+    }
+
+    private static BoundedMetricExporter.OverflowPolicy parseExportQueuePolicy(String policy) {
+        return switch (policy.toLowerCase(Locale.ROOT)) {
+            case "drop_oldest" -> BoundedMetricExporter.OverflowPolicy.DROP_OLDEST;
+            case "drop_newest" -> BoundedMetricExporter.OverflowPolicy.DROP_NEWEST;
+            case "coalesce" -> BoundedMetricExporter.OverflowPolicy.COALESCE;
+            default -> throw new IllegalArgumentException("Unsupported export_queue_policy '" + policy + "', expected drop_oldest, drop_newest or coalesce");
+        };
+    }
+
+    private static Map<String, String> parseAttributes(String attributes) {
+        Map<String, String> result = new HashMap<>();
+        if (attributes == null || attributes.isBlank()) return result;
+        for (String attribute : attributes.split(",")) {
+            int index = attribute.indexOf('=');
+            if (index <= 0) throw new IllegalArgumentException("Unsupported attribute '" + attribute + "', expected key=value");
+            result.put(attribute.substring(0, index).trim(), attribute.substring(index + 1).trim());
+        }
+        return result;
+    }
+
+    private static String httpEndpoint(String endpoint) {
+        String path = URI.create(endpoint).getPath();
+        if (path != null && !path.isEmpty() && !path.equals("/")) return endpoint;
+        return (endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint) + "/v1/metrics";
+    }
+
+    private static AggregationTemporalitySelector parseTemporality(String temporality) {
+        return switch (temporality.toLowerCase(Locale.ROOT)) {
+            case "cumulative" -> AggregationTemporalitySelector.alwaysCumulative();
+            case "delta" -> AggregationTemporalitySelector.deltaPreferred();
+            case "lowmemory" -> AggregationTemporalitySelector.lowMemory();
+            default -> throw new IllegalArgumentException("Unsupported export_temporality '" + temporality + "', expected cumulative, delta or lowmemory");
+        };
+    }
+
+    private static MemoryMode parseMemoryMode(String memoryMode) {
+        return switch (memoryMode.toLowerCase(Locale.ROOT)) {
+            case "immutable_data" -> MemoryMode.IMMUTABLE_DATA;
+            case "reusable_data" -> MemoryMode.REUSABLE_DATA;
+            default -> throw new IllegalArgumentException("Unsupported export_memory_mode '" + memoryMode + "', expected immutable_data or reusable_data");
+        };
+    }
+
+    private static String parseCompression(String compression) {
+        return switch (compression.toLowerCase(Locale.ROOT)) {
+            case "none" -> "none";
+            case "gzip" -> "gzip";
+            default -> throw new IllegalArgumentException("Unsupported export_compression '" + compression + "', expected none or gzip");
+        };
+    }
+
 }
@@ -87,6 +87,17 @@ public abstract class AbstractMetricsInstrumentationTestCase {
         return 2;
     }
 
+    /**
+     * Exercises the formed cluster before metrics are collected, e.g. by sending messages so that
+     * metrics which are only recorded on activity (such as histograms) are exported.
+     * Default implementation does nothing. Can be overridden by subclasses.
+     *
+     * @param channels the connected channels of the test cluster
+     * @throws Exception if exercising the cluster fails
+     */
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+    }
+
     @BeforeEach
     void setUp() {
         channels = new ArrayList<>();
@@ -148,6 +159,8 @@ public abstract class AbstractMetricsInstrumentationTestCase {
         }
         System.out.println("=========================\n");
 
+        exerciseCluster(channels);
+
         // Allow time for metrics to be collected
         Thread.sleep(500);
 
@@ -0,0 +1,172 @@
+package org.jgroups.opentelemetry.impl.aggregation;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.DoublePointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import org.jgroups.Address;
+import org.jgroups.util.ByteArray;
+import org.jgroups.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link MetricSnapshotWriter} and {@link ClusterMetricsAggregator} merging member snapshots.
+ *
+ * @author Radoslav Husar
+ */
+public class ClusterMetricsAggregatorTestCase {
+
+    private static final AttributeKey<String> NODE = AttributeKey.stringKey("node");
+
+    private final List<SdkMeterProvider> meterProviders = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        meterProviders.forEach(SdkMeterProvider::close);
+        meterProviders.clear();
+    }
+
+    @Test
+    public void testAggregation() throws Exception {
+        SnapshotMetricReader coordinatorReader = new SnapshotMetricReader();
+        ClusterMetricsAggregator aggregator = new ClusterMetricsAggregator(createMeter(coordinatorReader), 1);
+        Address[] members = {UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()};
+        aggregator.activate(List.of(members));
+
+        // Member i sends (i + 1) * 10 messages, and records a duration of (i + 1) ms
+        for (int i = 0; i < members.length; i++) {
+            SnapshotMetricReader reader = new SnapshotMetricReader();
+            Meter meter = createMeter(reader);
+            LongCounter counter = meter.counterBuilder("jgroups.test.messages.sent").setUnit("1").build();
+            DoubleHistogram histogram = meter.histogramBuilder("jgroups.test.duration").setUnit("ms").build();
+            counter.add((i + 1) * 10L, Attributes.of(NODE, "member" + i));
+            histogram.record(i + 1);
+
+            MetricSnapshotWriter writer = new MetricSnapshotWriter();
+            assertTrue(apply(aggregator, members[i], writer.write(reader.collect())));
+        }
+
+        Collection<MetricData> metrics = coordinatorReader.collect();
+        assertEquals(3.0, value(metrics, ClusterMetricsAggregator.MEMBERS_METRIC_NAME, null));
+        assertEquals(60.0, value(metrics, "jgroups.test.messages.sent", "sum"));
+        assertEquals(10.0, value(metrics, "jgroups.test.messages.sent", "min"));
+        assertEquals(30.0, value(metrics, "jgroups.test.messages.sent", "max"));
+        assertEquals(20.0, value(metrics, "jgroups.test.messages.sent", "p50"));
+        assertEquals(3.0, value(metrics, "jgroups.test.duration", "count"));
+        assertEquals(6.0, value(metrics, "jgroups.test.duration", "sum"));
+
+        // Members 0 and 2 deviate equally from the median; one outlier is reported, identified by the node attribute
+        List<DoublePointData> outliers = points(metrics, "jgroups.test.messages.sent", "outlier");
+        assertEquals(1, outliers.size());
+        assertNotNull(outliers.get(0).getAttributes().get(NODE));
+        assertTrue(outliers.get(0).getValue() == 10 || outliers.get(0).getValue() == 30);
+
+        // Members which left the cluster drop out of the aggregates
+        aggregator.activate(List.of(members[0], members[1]));
+        assertEquals(30.0, value(coordinatorReader.collect(), "jgroups.test.messages.sent", "sum"));
+
+        // The former coordinator reports no aggregates
+        aggregator.deactivate();
+        assertTrue(points(coordinatorReader.collect(), "jgroups.test.messages.sent", "sum").isEmpty());
+    }
+
+    @Test
+    public void testDeltas() throws Exception {
+        SnapshotMetricReader coordinatorReader = new SnapshotMetricReader();
+        ClusterMetricsAggregator aggregator = new ClusterMetricsAggregator(createMeter(coordinatorReader), 0);
+        Address member = UUID.randomUUID();
+        aggregator.activate(List.of(member));
+
+        SnapshotMetricReader reader = new SnapshotMetricReader();
+        Meter meter = createMeter(reader);
+        LongCounter sent = meter.counterBuilder("jgroups.test.messages.sent").setUnit("1").build();
+        LongCounter received = meter.counterBuilder("jgroups.test.messages.received").setUnit("1").build();
+        sent.add(1000);
+        received.add(1000);
+        MetricSnapshotWriter writer = new MetricSnapshotWriter();
+
+        MetricSnapshotWriter.Snapshot keyframe = writer.write(reader.collect());
+        assertEquals(ClusterMetricsHeader.KEYFRAME, keyframe.header().getType());
+        assertTrue(apply(aggregator, member, keyframe));
+
+        // Only the changed series is sent, as the difference to the previous value
+        sent.add(1);
+        MetricSnapshotWriter.Snapshot delta = writer.write(reader.collect());
+        assertEquals(ClusterMetricsHeader.DELTA, delta.header().getType());
+        assertTrue(delta.payload().getLength() < keyframe.payload().getLength() / 10, "Delta should be much smaller than the keyframe");
+        assertTrue(apply(aggregator, member, delta));
+        assertEquals(1001.0, value(coordinatorReader.collect(), "jgroups.test.messages.sent", "sum"));
+
+        // A delta following a missed snapshot cannot be applied, and the value is kept until the next keyframe
+        sent.add(1);
+        writer.write(reader.collect());
+        sent.add(1);
+        assertFalse(apply(aggregator, member, writer.write(reader.collect())));
+        assertEquals(1001.0, value(coordinatorReader.collect(), "jgroups.test.messages.sent", "sum"));
+
+        writer.requestKeyframe();
+        MetricSnapshotWriter.Snapshot resent = writer.write(reader.collect());
+        assertEquals(ClusterMetricsHeader.KEYFRAME, resent.header().getType());
+        assertTrue(apply(aggregator, member, resent));
+        assertEquals(1003.0, value(coordinatorReader.collect(), "jgroups.test.messages.sent", "sum"));
+
+        // A new series requires a keyframe
+        meter.counterBuilder("jgroups.test.bytes.sent").setUnit("By").build().add(1);
+        assertEquals(ClusterMetricsHeader.KEYFRAME, writer.write(reader.collect()).header().getType());
+    }
+
+    @Test
+    public void testPercentile() {
+        List<Double> boundaries = List.of(10.0, 20.0, 30.0);
+        long[] counts = {0, 10, 10, 0};
+        assertEquals(15, ClusterMetricsAggregator.percentile(boundaries, counts, 20, 0.25), 0.001);
+        assertEquals(20, ClusterMetricsAggregator.percentile(boundaries, counts, 20, 0.5), 0.001);
+        assertEquals(29, ClusterMetricsAggregator.percentile(boundaries, counts, 20, 0.95), 0.001);
+        // Values in the overflow bucket are reported as its lower bound
+        assertEquals(30, ClusterMetricsAggregator.percentile(boundaries, new long[] {0, 0, 0, 5}, 5, 0.5), 0.001);
+    }
+
+    private Meter createMeter(SnapshotMetricReader reader) {
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder().registerMetricReader(reader).build();
+        meterProviders.add(meterProvider);
+        return meterProvider.get("org.jgroups.test");
+    }
+
+    private static boolean apply(ClusterMetricsAggregator aggregator, Address member, MetricSnapshotWriter.Snapshot snapshot) throws Exception {
+        ByteArray payload = snapshot.payload();
+        return aggregator.apply(member, snapshot.header(), payload.getArray(), payload.getOffset(), payload.getLength());
+    }
+
+    private static List<DoublePointData> points(Collection<MetricData> metrics, String name, String aggregation) {
+        return metrics.stream()
+            .filter(metric -> metric.getName().equals(name))
+            .flatMap(metric -> metric.getDoubleGaugeData().getPoints().stream())
+            .filter(point -> aggregation.equals(point.getAttributes().get(ClusterMetricsAggregator.AGGREGATION)))
+            .toList();
+    }
+
+    private static double value(Collection<MetricData> metrics, String name, String aggregation) {
+        if (aggregation == null) {
+            return metrics.stream()
+                .filter(metric -> metric.getName().equals(name))
+                .flatMap(metric -> metric.getLongGaugeData().getPoints().stream())
+                .findFirst()
+                .orElseThrow()
+                .getValue();
+        }
+        List<DoublePointData> points = points(metrics, name, aggregation);
+        assertEquals(1, points.size(), name + " " + aggregation + ": " + points);
+        return points.get(0).getValue();
+    }
+}
@@ -0,0 +1,205 @@
+package org.jgroups.opentelemetry.impl.export;
+
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.export.MemoryMode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import org.jgroups.opentelemetry.impl.aggregation.SnapshotMetricReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link BoundedMetricExporter} queuing batches for a stalled exporter according to the overflow policy.
+ *
+ * @author Radoslav Husar
+ */
+public class BoundedMetricExporterTestCase {
+
+    private SdkMeterProvider meterProvider;
+    private SnapshotMetricReader reader;
+    private Meter meter;
+    private BlockingExporter delegate;
+
+    @BeforeEach
+    public void setUp() {
+        reader = new SnapshotMetricReader();
+        meterProvider = SdkMeterProvider.builder().registerMetricReader(reader).build();
+        meter = meterProvider.get("org.jgroups.test");
+        delegate = new BlockingExporter();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        delegate.release.countDown();
+        meterProvider.close();
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        BoundedMetricExporter exporter = new BoundedMetricExporter(delegate, 2, BoundedMetricExporter.OverflowPolicy.DROP_OLDEST, Duration.ofSeconds(10));
+        LongCounter sent = meter.counterBuilder("jgroups.test.messages.sent").build();
+
+        // The first batch is taken by the stalled exporter, the next two are queued, and the fourth displaces the second
+        for (int i = 1; i <= 4; i++) {
+            sent.add(1);
+            assertTrue(exporter.export(reader.collect()).isSuccess());
+            if (i == 1) assertNotNull(delegate.exports.poll(10, TimeUnit.SECONDS));
+        }
+        assertEquals(2, exporter.getQueueSize());
+        assertEquals(1, exporter.getDropped());
+
+        delegate.release.countDown();
+        assertEquals(3L, value(delegate.exports.poll(10, TimeUnit.SECONDS), "jgroups.test.messages.sent"));
+        assertEquals(4L, value(delegate.exports.poll(10, TimeUnit.SECONDS), "jgroups.test.messages.sent"));
+        assertTrue(exporter.flush().join(10, TimeUnit.SECONDS).isSuccess());
+        assertTrue(exporter.shutdown().join(10, TimeUnit.SECONDS).isSuccess());
+        assertTrue(delegate.shutdown);
+        assertFalse(exporter.export(reader.collect()).isSuccess());
+    }
+
+    @Test
+    public void testDropNewest() throws Exception {
+        BoundedMetricExporter exporter = new BoundedMetricExporter(delegate, 1, BoundedMetricExporter.OverflowPolicy.DROP_NEWEST, Duration.ofSeconds(10));
+        LongCounter sent = meter.counterBuilder("jgroups.test.messages.sent").build();
+
+        for (int i = 1; i <= 3; i++) {
+            sent.add(1);
+            exporter.export(reader.collect());
+            if (i == 1) assertNotNull(delegate.exports.poll(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, exporter.getDropped());
+
+        delegate.release.countDown();
+        assertEquals(2L, value(delegate.exports.poll(10, TimeUnit.SECONDS), "jgroups.test.messages.sent"));
+        assertTrue(exporter.shutdown().join(10, TimeUnit.SECONDS).isSuccess());
+        assertTrue(delegate.exports.isEmpty());
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        BoundedMetricExporter exporter = new BoundedMetricExporter(delegate, 1, BoundedMetricExporter.OverflowPolicy.COALESCE, Duration.ofSeconds(10));
+        LongCounter sent = meter.counterBuilder("jgroups.test.messages.sent").build();
+
+        sent.add(1);
+        exporter.export(reader.collect());
+        assertNotNull(delegate.exports.poll(10, TimeUnit.SECONDS));
+
+        // The queued batch holds a metric which is not contained in the later batch, which is kept when coalescing
+        LongCounter received = meter.counterBuilder("jgroups.test.messages.received").build();
+        received.add(5);
+        exporter.export(reader.collect());
+        sent.add(1);
+        exporter.export(List.of(reader.collect().stream().filter(metric -> metric.getName().equals("jgroups.test.messages.sent")).findFirst().orElseThrow()));
+        sent.add(1);
+        exporter.export(List.of(reader.collect().stream().filter(metric -> metric.getName().equals("jgroups.test.messages.sent")).findFirst().orElseThrow()));
+        assertEquals(2, exporter.getCoalesced());
+        assertEquals(0, exporter.getDropped());
+
+        delegate.release.countDown();
+        Collection<MetricData> coalesced = delegate.exports.poll(10, TimeUnit.SECONDS);
+        assertEquals(2, coalesced.size());
+        assertEquals(3L, value(coalesced, "jgroups.test.messages.sent"));
+        assertEquals(5L, value(coalesced, "jgroups.test.messages.received"));
+        assertTrue(exporter.shutdown().join(10, TimeUnit.SECONDS).isSuccess());
+    }
+
+    @Test
+    public void testCoalesceScopes() throws Exception {
+        BoundedMetricExporter exporter = new BoundedMetricExporter(delegate, 1, BoundedMetricExporter.OverflowPolicy.COALESCE, Duration.ofSeconds(10));
+        LongCounter sent = meter.counterBuilder("jgroups.test.messages.sent").build();
+        LongCounter other = meterProvider.get("org.jgroups.other").counterBuilder("jgroups.test.messages.sent").build();
+
+        sent.add(1);
+        exporter.export(reader.collect());
+        assertNotNull(delegate.exports.poll(10, TimeUnit.SECONDS));
+
+        // Metrics of the same name are only merged within the same instrumentation scope
+        other.add(10);
+        exporter.export(reader.collect());
+        sent.add(1);
+        exporter.export(List.of(reader.collect().stream().filter(metric -> metric.getInstrumentationScopeInfo().getName().equals("org.jgroups.test")).findFirst().orElseThrow()));
+        assertEquals(1, exporter.getCoalesced());
+
+        delegate.release.countDown();
+        Collection<MetricData> coalesced = delegate.exports.poll(10, TimeUnit.SECONDS);
+        assertNotNull(coalesced);
+        assertEquals(2, coalesced.size());
+        for (MetricData metric : coalesced) {
+            long expected = metric.getInstrumentationScopeInfo().getName().equals("org.jgroups.test") ? 2 : 10;
+            assertEquals(expected, metric.getLongSumData().getPoints().iterator().next().getValue());
+        }
+        assertTrue(exporter.shutdown().join(10, TimeUnit.SECONDS).isSuccess());
+    }
+
+    @Test
+    public void testDelegation() {
+        BoundedMetricExporter exporter = new BoundedMetricExporter(delegate, 1, BoundedMetricExporter.OverflowPolicy.DROP_OLDEST, Duration.ofSeconds(10));
+        assertEquals(AggregationTemporality.DELTA, exporter.getAggregationTemporality(InstrumentType.COUNTER));
+        // Queued batches outlive the export call, so reusable data must not be requested
+        assertEquals(MemoryMode.IMMUTABLE_DATA, exporter.getMemoryMode());
+        assertThrows(IllegalArgumentException.class, () -> new BoundedMetricExporter(delegate, 0, BoundedMetricExporter.OverflowPolicy.DROP_OLDEST, Duration.ofSeconds(10)));
+        exporter.shutdown();
+    }
+
+    private static long value(Collection<MetricData> metrics, String name) {
+        assertNotNull(metrics, "Expected an export");
+        return metrics.stream()
+            .filter(metric -> metric.getName().equals(name))
+            .flatMap(metric -> metric.getLongSumData().getPoints().stream())
+            .findFirst()
+            .orElseThrow()
+            .getValue();
+    }
+
+    /**
+     * Exporter stalling on every export until released, e.g. like an exporter of an unavailable endpoint.
+     */
+    private static class BlockingExporter implements MetricExporter {
+        final BlockingQueue<Collection<MetricData>> exports = new LinkedBlockingQueue<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile boolean shutdown;
+
+        @Override
+        public CompletableResultCode export(Collection<MetricData> metrics) {
+            exports.add(metrics);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            shutdown = true;
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+            return AggregationTemporality.DELTA;
+        }
+    }
+}
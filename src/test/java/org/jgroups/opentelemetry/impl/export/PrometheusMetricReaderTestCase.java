@@ -0,0 +1,190 @@
+package org.jgroups.opentelemetry.impl.export;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import org.jgroups.opentelemetry.impl.aggregation.SnapshotMetricReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link PrometheusMetricReader} scraping metrics via the embedded HTTP endpoint, and for the exposition
+ * written by {@link PrometheusTextWriter}.
+ *
+ * @author Radoslav Husar
+ */
+public class PrometheusMetricReaderTestCase {
+
+    private static final AttributeKey<String> CLUSTER = AttributeKey.stringKey("cluster");
+
+    private final List<SdkMeterProvider> meterProviders = new ArrayList<>();
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @AfterEach
+    public void tearDown() {
+        meterProviders.forEach(SdkMeterProvider::close);
+        meterProviders.clear();
+    }
+
+    @Test
+    public void testTextFormat() throws Exception {
+        PrometheusMetricReader reader = createReader(0, false);
+        Meter meter = createMeter(reader);
+
+        meter.counterBuilder("jgroups.test.messages.sent").setDescription("Messages sent").setUnit("1")
+                .buildWithCallback(measurement -> measurement.record(42, Attributes.of(CLUSTER, "a\"b")));
+        meter.gaugeBuilder("jgroups.test.queue.size").setDescription("Queue size\nin bytes").setUnit("By").ofLongs()
+                .buildWithCallback(measurement -> measurement.record(7));
+        DoubleHistogram histogram = meter.histogramBuilder("jgroups.test.duration").setDescription("Duration").setUnit("ms")
+                .setExplicitBucketBoundariesAdvice(List.of(1.0, 10.0)).build();
+        histogram.record(0.5);
+        histogram.record(5);
+        histogram.record(50);
+
+        HttpResponse<String> response = scrape(reader, "text/plain");
+        assertEquals(200, response.statusCode());
+        assertEquals(PrometheusTextWriter.TEXT_CONTENT_TYPE, response.headers().firstValue("Content-Type").orElse(null));
+
+        String body = response.body();
+        assertTrue(body.contains("# TYPE jgroups_test_messages_sent_total counter\n"), body);
+        assertTrue(body.contains("# HELP jgroups_test_messages_sent_total Messages sent\n"), body);
+        assertTrue(body.contains("jgroups_test_messages_sent_total{cluster=\"a\\\"b\"} 42\n"), body);
+        assertTrue(body.contains("# TYPE jgroups_test_queue_size_bytes gauge\n"), body);
+        assertTrue(body.contains("# HELP jgroups_test_queue_size_bytes Queue size\\nin bytes\n"), body);
+        assertTrue(body.contains("jgroups_test_queue_size_bytes 7\n"), body);
+        assertTrue(body.contains("# TYPE jgroups_test_duration_milliseconds histogram\n"), body);
+        assertTrue(body.contains("jgroups_test_duration_milliseconds_bucket{le=\"1.0\"} 1\n"), body);
+        assertTrue(body.contains("jgroups_test_duration_milliseconds_bucket{le=\"10.0\"} 2\n"), body);
+        assertTrue(body.contains("jgroups_test_duration_milliseconds_bucket{le=\"+Inf\"} 3\n"), body);
+        assertTrue(body.contains("jgroups_test_duration_milliseconds_sum 55.5\n"), body);
+        assertTrue(body.contains("jgroups_test_duration_milliseconds_count 3\n"), body);
+        assertFalse(body.contains("# EOF"), body);
+    }
+
+    @Test
+    public void testTextWriter() throws Exception {
+        SnapshotMetricReader reader = new SnapshotMetricReader();
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder().registerMetricReader(reader).build();
+        meterProviders.add(meterProvider);
+        Meter meter = meterProvider.get("org.jgroups.test");
+
+        // Unit suffixes and the counter suffix are not duplicated
+        meter.counterBuilder("jgroups.test.received.bytes").setUnit("By")
+                .buildWithCallback(measurement -> measurement.record(3));
+        meter.counterBuilder("jgroups.test.retries.total").setUnit("1")
+                .buildWithCallback(measurement -> measurement.record(4));
+        // Non-monotonic sums are gauges
+        meter.upDownCounterBuilder("jgroups.test.queue.size").setUnit("1")
+                .buildWithCallback(measurement -> measurement.record(-2, Attributes.of(AttributeKey.stringKey("member.name"), "a\\b")));
+        meter.gaugeBuilder("jgroups.test.ratio").setUnit("1")
+                .buildWithCallback(measurement -> {
+                    measurement.record(Double.NEGATIVE_INFINITY, Attributes.of(CLUSTER, "-inf"));
+                    measurement.record(Double.POSITIVE_INFINITY, Attributes.of(CLUSTER, "inf"));
+                });
+        DoubleHistogram histogram = meter.histogramBuilder("jgroups.test.duration").setUnit("s")
+                .setExplicitBucketBoundariesAdvice(List.of(1.0)).build();
+        histogram.record(2, Attributes.of(CLUSTER, "x"));
+
+        StringWriter out = new StringWriter();
+        new PrometheusTextWriter(out, false).write(reader.collect());
+        String body = out.toString();
+        assertTrue(body.contains("# TYPE jgroups_test_received_bytes_total counter\n"), body);
+        assertTrue(body.contains("jgroups_test_received_bytes_total 3\n"), body);
+        assertTrue(body.contains("# TYPE jgroups_test_retries_total counter\n"), body);
+        assertTrue(body.contains("jgroups_test_retries_total 4\n"), body);
+        assertTrue(body.contains("# TYPE jgroups_test_queue_size gauge\n"), body);
+        assertTrue(body.contains("jgroups_test_queue_size{member_name=\"a\\\\b\"} -2\n"), body);
+        assertTrue(body.contains("jgroups_test_ratio{cluster=\"-inf\"} -Inf\n"), body);
+        assertTrue(body.contains("jgroups_test_ratio{cluster=\"inf\"} +Inf\n"), body);
+        assertTrue(body.contains("jgroups_test_duration_seconds_bucket{cluster=\"x\",le=\"1.0\"} 0\n"), body);
+        assertTrue(body.contains("jgroups_test_duration_seconds_bucket{cluster=\"x\",le=\"+Inf\"} 1\n"), body);
+        assertTrue(body.contains("jgroups_test_duration_seconds_count{cluster=\"x\"} 1\n"), body);
+
+        out = new StringWriter();
+        new PrometheusTextWriter(out, true).write(reader.collect());
+        body = out.toString();
+        assertTrue(body.contains("# TYPE jgroups_test_retries counter\n"), body);
+        assertTrue(body.contains("# TYPE jgroups_test_received_bytes counter\n# UNIT jgroups_test_received_bytes bytes\n"), body);
+        assertTrue(body.endsWith("# EOF\n"), body);
+    }
+
+    @Test
+    public void testOpenMetricsFormat() throws Exception {
+        PrometheusMetricReader reader = createReader(0, true);
+        Meter meter = createMeter(reader);
+
+        meter.counterBuilder("jgroups.test.messages.sent").setDescription("Messages sent").setUnit("1")
+                .buildWithCallback(measurement -> measurement.record(42));
+        meter.gaugeBuilder("jgroups.test.queue.size").setUnit("By").ofLongs()
+                .buildWithCallback(measurement -> measurement.record(7));
+
+        HttpResponse<String> response = scrape(reader, "application/openmetrics-text;version=1.0.0,text/plain;version=0.0.4;q=0.5");
+        assertEquals(PrometheusTextWriter.OPEN_METRICS_CONTENT_TYPE, response.headers().firstValue("Content-Type").orElse(null));
+
+        String body = response.body();
+        assertTrue(body.contains("# TYPE jgroups_test_messages_sent counter\n"), body);
+        assertTrue(body.contains("jgroups_test_messages_sent_total 42\n"), body);
+        assertTrue(body.contains("# UNIT jgroups_test_queue_size_bytes bytes\n"), body);
+        assertTrue(body.endsWith("# EOF\n"), body);
+    }
+
+    @Test
+    public void testSharedEndpoint() throws Exception {
+        PrometheusMetricReader reader1 = createReader(0, false);
+        createMeter(reader1).counterBuilder("jgroups.test.messages.sent").setUnit("1")
+                .buildWithCallback(measurement -> measurement.record(1, Attributes.of(CLUSTER, "one")));
+
+        PrometheusMetricReader reader2 = createReader(0, false);
+        createMeter(reader2).counterBuilder("jgroups.test.messages.sent").setUnit("1")
+                .buildWithCallback(measurement -> measurement.record(2, Attributes.of(CLUSTER, "two")));
+
+        assertEquals(reader1.getAddress(), reader2.getAddress());
+
+        String body = scrape(reader1, "text/plain").body();
+        assertEquals(body.indexOf("# TYPE jgroups_test_messages_sent_total counter"), body.lastIndexOf("# TYPE jgroups_test_messages_sent_total counter"), body);
+        assertTrue(body.contains("jgroups_test_messages_sent_total{cluster=\"one\"} 1\n"), body);
+        assertTrue(body.contains("jgroups_test_messages_sent_total{cluster=\"two\"} 2\n"), body);
+
+        // Endpoint stays up until the last reader is shut down
+        meterProviders.remove(0).close();
+        body = scrape(reader2, "text/plain").body();
+        assertFalse(body.contains("cluster=\"one\""), body);
+        assertTrue(body.contains("jgroups_test_messages_sent_total{cluster=\"two\"} 2\n"), body);
+
+        meterProviders.remove(0).close();
+        assertThrows(IOException.class, () -> scrape(reader2, "text/plain"));
+    }
+
+    private PrometheusMetricReader createReader(int port, boolean openMetrics) throws IOException {
+        return PrometheusMetricReader.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), openMetrics);
+    }
+
+    private Meter createMeter(PrometheusMetricReader reader) {
+        SdkMeterProvider meterProvider = SdkMeterProvider.builder().registerMetricReader(reader).build();
+        meterProviders.add(meterProvider);
+        return meterProvider.get("org.jgroups.test");
+    }
+
+    private HttpResponse<String> scrape(PrometheusMetricReader reader, String accept) throws IOException, InterruptedException {
+        InetSocketAddress address = reader.getAddress();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://" + address.getHostString() + ":" + address.getPort() + "/metrics"))
+                .header("Accept", accept)
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
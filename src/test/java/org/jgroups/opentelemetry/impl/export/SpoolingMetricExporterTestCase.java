@@ -0,0 +1,306 @@
+package org.jgroups.opentelemetry.impl.export;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.resources.Resource;
+import org.jgroups.opentelemetry.impl.aggregation.SnapshotMetricReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link MetricSpool} and {@link SpoolingMetricExporter} storing batches which fail to export and replaying them in order.
+ *
+ * @author Radoslav Husar
+ */
+public class SpoolingMetricExporterTestCase {
+
+    private static final AttributeKey<String> DESTINATION = AttributeKey.stringKey("destination");
+
+    private Path file;
+    private SdkMeterProvider meterProvider;
+    private SnapshotMetricReader reader;
+    private Meter meter;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        file = Files.createTempFile("jgroups-metrics", ".spool");
+        Files.delete(file);
+        reader = new SnapshotMetricReader();
+        meterProvider = SdkMeterProvider.builder()
+            .setResource(Resource.create(Attributes.of(AttributeKey.stringKey("service.name"), "jgroups")))
+            .registerMetricReader(reader)
+            .build();
+        meter = meterProvider.get("org.jgroups.test");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        meterProvider.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testSpool() throws Exception {
+        // Room for 4 records of 40 bytes (56 bytes framed)
+        try (MetricSpool spool = MetricSpool.open(file, 24 + 4 * 56)) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(spool.append(record(i)));
+            }
+            spool.remove();
+            assertEquals(2, spool.size());
+            assertFalse(spool.append(new byte[1024]));
+        }
+
+        // Records survive reopening, and appending wraps around, discarding the oldest record once full
+        try (MetricSpool spool = MetricSpool.open(file, 24 + 4 * 56)) {
+            assertEquals(2, spool.size());
+            assertEquals(1, spool.peek()[0]);
+            for (int i = 3; i < 6; i++) {
+                assertTrue(spool.append(record(i)));
+            }
+            assertEquals(4, spool.size());
+            assertEquals(1, spool.getDropped());
+            assertEquals(2, spool.peek()[0]);
+            // The file is locked by the open spool
+            assertThrows(IOException.class, () -> MetricSpool.open(file, 24 + 4 * 56));
+        }
+
+        // A record torn by a crash is discarded along with anything behind it
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            // The data area holds records 4, 5, 2 and 3, as appending wrapped around; corrupt the payload of record 5
+            raf.seek(24 + 56 + 16 + 10);
+            raf.write(0xFF);
+        }
+        try (MetricSpool spool = MetricSpool.open(file, 24 + 4 * 56)) {
+            assertEquals(3, spool.size());
+            for (int i = 2; i < 5; i++) {
+                assertEquals(i, spool.peek()[0]);
+                spool.remove();
+            }
+            assertNull(spool.peek());
+        }
+
+        // Consumed records are not recovered, even though their frames are intact
+        try (MetricSpool spool = MetricSpool.open(file, 24 + 4 * 56)) {
+            assertEquals(0, spool.size());
+            assertTrue(spool.append(record(6)));
+        }
+        try (MetricSpool spool = MetricSpool.open(file, 24 + 4 * 56)) {
+            assertEquals(1, spool.size());
+            assertEquals(6, spool.peek()[0]);
+            assertTrue(spool.append(record(7)));
+        }
+
+        // A record whose length was not written yet is not recovered, and the next record takes its place
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            // Record 6 took the place of record 5, so record 7 follows it
+            raf.seek(24 + 2 * 56);
+            raf.writeInt(0);
+        }
+        try (MetricSpool spool = MetricSpool.open(file, 24 + 4 * 56)) {
+            assertEquals(1, spool.size());
+            assertTrue(spool.append(record(8)));
+        }
+        try (MetricSpool spool = MetricSpool.open(file, 24 + 4 * 56)) {
+            assertEquals(2, spool.size());
+            assertEquals(6, spool.peek()[0]);
+            spool.remove();
+            assertEquals(8, spool.peek()[0]);
+        }
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        StandInReceiver receiver = new StandInReceiver();
+        SpoolingMetricExporter exporter = new SpoolingMetricExporter(receiver, MetricSpool.open(file, 1024 * 1024));
+        LongCounter sent = meter.counterBuilder("jgroups.test.messages.sent").setDescription("Messages sent").setUnit("1").build();
+        DoubleHistogram duration = meter.histogramBuilder("jgroups.test.duration").setUnit("ms").build();
+        meter.gaugeBuilder("jgroups.test.queue.size").buildWithCallback(measurement -> measurement.record(1.5));
+
+        sent.add(1, Attributes.of(DESTINATION, "unicast"));
+        assertTrue(exporter.export(reader.collect()).isSuccess());
+        assertEquals(1, receiver.accepted.size());
+
+        // The receiver refuses the exports during the partition, and the batches are spooled
+        receiver.refusing = true;
+        for (int i = 0; i < 3; i++) {
+            sent.add(1, Attributes.of(DESTINATION, "unicast"));
+            duration.record(i + 1);
+            assertTrue(exporter.export(reader.collect()).isSuccess(), "Spooled exports should not be reported as failed");
+        }
+        assertEquals(3, exporter.getPending());
+        assertEquals(3, exporter.getSpooled());
+
+        // Once accepted again, the spooled batches are exported in order before the new batch
+        receiver.refusing = false;
+        sent.add(1, Attributes.of(DESTINATION, "unicast"));
+        exporter.export(reader.collect());
+        assertEquals(0, exporter.getPending());
+        assertEquals(4, exporter.getReplayed());
+        assertEquals(5, receiver.accepted.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i + 1L, sum(receiver.accepted.get(i)));
+        }
+
+        // The replayed metrics are equivalent to the collected ones
+        Collection<MetricData> replayed = receiver.accepted.get(3);
+        MetricData counter = find(replayed, "jgroups.test.messages.sent");
+        assertEquals("Messages sent", counter.getDescription());
+        assertEquals("1", counter.getUnit());
+        assertTrue(counter.getLongSumData().isMonotonic());
+        assertEquals(AggregationTemporality.CUMULATIVE, counter.getLongSumData().getAggregationTemporality());
+        assertEquals("unicast", counter.getLongSumData().getPoints().iterator().next().getAttributes().get(DESTINATION));
+        assertEquals("jgroups", counter.getResource().getAttribute(AttributeKey.stringKey("service.name")));
+        assertEquals("org.jgroups.test", counter.getInstrumentationScopeInfo().getName());
+        HistogramPointData histogram = find(replayed, "jgroups.test.duration").getHistogramData().getPoints().iterator().next();
+        assertEquals(3, histogram.getCount());
+        assertEquals(6.0, histogram.getSum());
+        assertEquals(1.0, histogram.getMin());
+        assertEquals(3.0, histogram.getMax());
+        assertEquals(histogram.getBoundaries().size() + 1, histogram.getCounts().size());
+        assertEquals(1.5, find(replayed, "jgroups.test.queue.size").getDoubleGaugeData().getPoints().iterator().next().getValue());
+        exporter.shutdown();
+    }
+
+    @Test
+    public void testAsynchronousFailure() throws Exception {
+        StandInReceiver receiver = new StandInReceiver();
+        SpoolingMetricExporter exporter = new SpoolingMetricExporter(receiver, MetricSpool.open(file, 1024 * 1024));
+        LongCounter sent = meter.counterBuilder("jgroups.test.messages.sent").build();
+
+        // Batches exported while an export is in flight wait for it
+        receiver.deferring = true;
+        sent.add(1, Attributes.of(DESTINATION, "unicast"));
+        CompletableResultCode first = exporter.export(reader.collect());
+        receiver.deferring = false;
+        sent.add(1, Attributes.of(DESTINATION, "unicast"));
+        assertTrue(exporter.export(reader.collect()).isSuccess());
+        assertEquals(1, receiver.deferred.size());
+        assertTrue(receiver.accepted.isEmpty());
+        assertFalse(first.isDone());
+
+        // Once the export in flight fails, it is spooled before the waiting batch
+        receiver.deferred.get(0).fail();
+        assertTrue(first.isSuccess(), "Spooled exports should not be reported as failed");
+        assertEquals(2, exporter.getPending());
+
+        sent.add(1, Attributes.of(DESTINATION, "unicast"));
+        exporter.export(reader.collect());
+        assertEquals(0, exporter.getPending());
+        assertEquals(3, receiver.accepted.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1L, sum(receiver.accepted.get(i)));
+        }
+
+        // Once the export in flight succeeds, the waiting batch is exported after it
+        receiver.deferring = true;
+        sent.add(1, Attributes.of(DESTINATION, "unicast"));
+        exporter.export(reader.collect());
+        receiver.deferring = false;
+        sent.add(1, Attributes.of(DESTINATION, "unicast"));
+        exporter.export(reader.collect());
+        receiver.accepted.add(receiver.deferredMetrics.get(1));
+        receiver.deferred.get(1).succeed();
+        assertEquals(0, exporter.getPending());
+        assertEquals(5, receiver.accepted.size());
+        assertEquals(4L, sum(receiver.accepted.get(3)));
+        assertEquals(5L, sum(receiver.accepted.get(4)));
+        exporter.shutdown();
+    }
+
+    @Test
+    public void testReplayAfterRestart() throws Exception {
+        StandInReceiver receiver = new StandInReceiver();
+        receiver.refusing = true;
+        SpoolingMetricExporter exporter = new SpoolingMetricExporter(receiver, MetricSpool.open(file, 1024 * 1024));
+        LongCounter sent = meter.counterBuilder("jgroups.test.messages.sent").build();
+        sent.add(1, Attributes.of(DESTINATION, "unicast"));
+        exporter.export(reader.collect());
+        assertTrue(exporter.shutdown().isSuccess());
+
+        receiver.refusing = false;
+        exporter = new SpoolingMetricExporter(receiver, MetricSpool.open(file, 1024 * 1024));
+        assertEquals(1, exporter.getPending());
+        sent.add(1, Attributes.of(DESTINATION, "unicast"));
+        exporter.export(reader.collect());
+        assertEquals(2, receiver.accepted.size());
+        assertEquals(1L, sum(receiver.accepted.get(0)));
+        assertEquals(2L, sum(receiver.accepted.get(1)));
+        exporter.shutdown();
+    }
+
+    private static byte[] record(int id) {
+        byte[] record = new byte[40];
+        record[0] = (byte) id;
+        return record;
+    }
+
+    private static MetricData find(Collection<MetricData> metrics, String name) {
+        return metrics.stream().filter(metric -> metric.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static long sum(Collection<MetricData> metrics) {
+        return find(metrics, "jgroups.test.messages.sent").getLongSumData().getPoints().iterator().next().getValue();
+    }
+
+    /**
+     * Stand-in for the collector, refusing exports while partitioned and accepting them otherwise.
+     */
+    private static class StandInReceiver implements MetricExporter {
+        final List<Collection<MetricData>> accepted = new ArrayList<>();
+        final List<CompletableResultCode> deferred = new ArrayList<>();
+        final List<Collection<MetricData>> deferredMetrics = new ArrayList<>();
+        volatile boolean refusing;
+        volatile boolean deferring;
+
+        @Override
+        public CompletableResultCode export(Collection<MetricData> metrics) {
+            if (refusing) return CompletableResultCode.ofFailure();
+            if (deferring) {
+                // Completed by the test, as an export still waiting for the response of the collector
+                CompletableResultCode result = new CompletableResultCode();
+                deferred.add(result);
+                deferredMetrics.add(metrics);
+                return result;
+            }
+            accepted.add(metrics);
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+            return AggregationTemporality.CUMULATIVE;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package org.jgroups.opentelemetry.impl.history;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.common.Clock;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link TimeSeriesStore} and the compression of its {@link Chunk}s.
+ *
+ * @author Radoslav Husar
+ */
+public class TimeSeriesStoreTestCase {
+
+    private static final AttributeKey<String> DESTINATION = AttributeKey.stringKey("destination");
+    private static final long HOUR = 3600_000;
+
+    private final ManualClock clock = new ManualClock();
+    private SdkMeterProvider meterProvider;
+    private TimeSeriesStore store;
+    private HistoryMetricReader reader;
+    private Meter meter;
+
+    @BeforeEach
+    public void setUp() {
+        store = new TimeSeriesStore(HOUR, 15 * 60_000, 60_000);
+        reader = new HistoryMetricReader(store, clock);
+        meterProvider = SdkMeterProvider.builder()
+            .setClock(clock)
+            .registerMetricReader(reader)
+            .build();
+        meter = meterProvider.get("org.jgroups.test");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        meterProvider.close();
+    }
+
+    @Test
+    public void testChunk() {
+        // Irregular timestamps and arbitrary values are restored exactly
+        Random random = new Random(42);
+        Chunk chunk = new Chunk(false);
+        List<long[]> expected = new ArrayList<>();
+        long timestamp = 1_700_000_000_000L;
+        for (int i = 0; i < Chunk.MAX_SAMPLES; i++) {
+            timestamp += switch (i % 4) {
+                case 0 -> 10_000;
+                case 1 -> 10_000 + random.nextInt(100);
+                case 2 -> random.nextInt(5000);
+                default -> random.nextInt(1_000_000);
+            };
+            double value = switch (i % 3) {
+                case 0 -> random.nextDouble();
+                case 1 -> i;
+                default -> (i % 2 == 0) ? Double.NaN : -random.nextLong();
+            };
+            chunk.append(timestamp, value);
+            expected.add(new long[] { timestamp, Double.doubleToRawLongBits(value) });
+        }
+        assertTrue(chunk.isFull());
+        chunk.seal();
+        List<long[]> actual = new ArrayList<>();
+        chunk.forEach((t, v) -> actual.add(new long[] { t, Double.doubleToRawLongBits(v) }));
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i)[0], actual.get(i)[0], "Timestamp " + i);
+            assertEquals(expected.get(i)[1], actual.get(i)[1], "Value " + i);
+        }
+
+        // A counter collected at a fixed interval compresses to a few bits per sample
+        Chunk counter = new Chunk(false);
+        for (int i = 0; i < Chunk.MAX_SAMPLES; i++) {
+            counter.append(1_700_000_000_000L + i * 10_000L, i / 10);
+        }
+        counter.seal();
+        assertTrue(counter.bytes() < 100, "Compressed size: " + counter.bytes());
+    }
+
+    @Test
+    public void testChunkBoundaries() {
+        // Deltas of deltas at both ends of every encoded range are restored exactly
+        long[] dods = { 63, 64, -64, -65, 255, 256, -256, -257, 2047, 2048, -2048, -2049 };
+        Chunk chunk = new Chunk(false);
+        List<Long> expected = new ArrayList<>();
+        long timestamp = 1_700_000_000_000L;
+        long delta = 10_000;
+        chunk.append(timestamp, 0);
+        expected.add(timestamp);
+        for (long dod : dods) {
+            // Every boundary is reached from the base delta and back
+            for (long change : new long[] { dod, -dod }) {
+                delta += change;
+                timestamp += delta;
+                chunk.append(timestamp, expected.size());
+                expected.add(timestamp);
+            }
+        }
+        chunk.seal();
+        List<long[]> actual = new ArrayList<>();
+        chunk.forEach((t, v) -> actual.add(new long[] { t, (long) v }));
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).longValue(), actual.get(i)[0], "Timestamp " + i);
+            assertEquals(i, actual.get(i)[1], "Value " + i);
+        }
+    }
+
+    @Test
+    public void testQuery() {
+        LongCounter sent = meter.counterBuilder("jgroups.test.messages.sent").build();
+        DoubleHistogram duration = meter.histogramBuilder("jgroups.test.duration").build();
+        meter.gaugeBuilder("jgroups.test.queue.size").buildWithCallback(measurement -> measurement.record(1.5));
+        long start = clock.millis;
+        for (int i = 0; i < 10; i++) {
+            sent.add(1, Attributes.of(DESTINATION, "unicast"));
+            sent.add(2, Attributes.of(DESTINATION, "multicast"));
+            duration.record(i);
+            collect();
+        }
+        assertEquals(5, store.getSeriesCount());
+
+        List<TimeSeriesStore.TimeSeries> result = store.query("jgroups.test.messages.*", Map.of("destination", "unicast"), start, clock.millis);
+        assertEquals(1, result.size());
+        List<TimeSeriesStore.Sample> samples = result.get(0).samples();
+        assertEquals(10, samples.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(start + (i + 1) * 10_000L, samples.get(i).timestamp());
+            assertEquals(i + 1.0, samples.get(i).value());
+        }
+
+        // The range is inclusive, and histograms are stored as their count and sum
+        assertEquals(3, store.query("jgroups.test.messages.sent", Map.of(), start + 50_000, start + 70_000).get(0).samples().size());
+        result = store.query("jgroups.test.duration.*", Map.of(), start, clock.millis);
+        assertEquals(List.of("jgroups.test.duration.count", "jgroups.test.duration.sum"), result.stream().map(TimeSeriesStore.TimeSeries::name).toList());
+        assertEquals(45.0, result.get(1).samples().get(9).value());
+        assertEquals(5, store.query(null, Map.of(), start, clock.millis).size());
+        assertTrue(store.query("jgroups.test.queue.size", Map.of("destination", "unicast"), start, clock.millis).isEmpty());
+    }
+
+    @Test
+    public void testRetentionAndDownsampling() {
+        LongCounter sent = meter.counterBuilder("jgroups.test.messages.sent").build();
+        long start = clock.millis;
+        // Two hours of samples every 10 seconds
+        for (int i = 0; i < 720; i++) {
+            sent.add(1);
+            collect();
+        }
+        long end = clock.millis;
+        List<TimeSeriesStore.Sample> samples = store.query(null, Map.of(), start, end).get(0).samples();
+
+        // Samples older than the retention are discarded, up to a chunk
+        assertTrue(samples.get(0).timestamp() >= end - HOUR - Chunk.MAX_SAMPLES * 10_000L, "Oldest sample: " + (end - samples.get(0).timestamp()));
+
+        // Samples older than the downsample age are kept about once per minute, the recent ones every 10 seconds
+        long previous = Long.MIN_VALUE;
+        long previousValue = 0;
+        long downsampleCutoff = end - 15 * 60_000 - Chunk.MAX_SAMPLES * 10_000L;
+        int downsampled = 0;
+        for (TimeSeriesStore.Sample sample : samples) {
+            assertTrue(sample.timestamp() > previous);
+            assertTrue((long) sample.value() > previousValue, "Counter should be monotonic");
+            if (sample.timestamp() < downsampleCutoff) {
+                downsampled++;
+            }
+            previous = sample.timestamp();
+            previousValue = (long) sample.value();
+        }
+        // The last sample of every chunk is kept in addition
+        long minutes = (downsampleCutoff - samples.get(0).timestamp()) / 60_000;
+        assertTrue(downsampled > 0 && downsampled <= minutes + 4, "Downsampled samples: " + downsampled + " over " + minutes + " minutes");
+        assertEquals(10_000, samples.get(samples.size() - 1).timestamp() - samples.get(samples.size() - 2).timestamp());
+        assertEquals(720.0, samples.get(samples.size() - 1).value());
+        assertTrue(samples.size() < 360, "Samples: " + samples.size());
+
+        // Series which are no longer collected expire
+        meterProvider.close();
+        store.compact(end + 2 * HOUR);
+        assertEquals(0, store.getSeriesCount());
+        assertEquals(0, store.getBytes());
+    }
+
+    private void collect() {
+        clock.millis += 10_000;
+        reader.collect();
+    }
+
+    private static class ManualClock implements Clock {
+        long millis = 1_700_000_000_000L;
+
+        @Override
+        public long now() {
+            return millis * 1_000_000;
+        }
+
+        @Override
+        public long nanoTime() {
+            return millis * 1_000_000;
+        }
+    }
+}
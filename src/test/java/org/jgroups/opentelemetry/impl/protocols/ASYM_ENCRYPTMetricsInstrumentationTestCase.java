@@ -0,0 +1,87 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.BytesMessage;
+import org.jgroups.JChannel;
+import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
+import org.jgroups.protocols.*;
+import org.jgroups.protocols.opentelemetry.OPENTELEMETRY;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.stack.Protocol;
+
+import java.util.List;
+
+/**
+ * Test case for {@link ASYM_ENCRYPTMetricsInstrumentation}.
+ *
+ * @author Radoslav Husar
+ */
+class ASYM_ENCRYPTMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTestCase {
+
+    @Override
+    protected Protocol createProtocolInstance() {
+        return new ASYM_ENCRYPT();
+    }
+
+    @Override
+    protected List<String> getExpectedMetrics() {
+        return List.of(
+            // Runtime metrics
+            "jgroups.asym_encrypt.messages.encrypted",
+            "jgroups.asym_encrypt.bytes.encrypted",
+            "jgroups.asym_encrypt.messages.decrypted",
+            "jgroups.asym_encrypt.bytes.decrypted",
+            "jgroups.asym_encrypt.decrypt.failures",
+            "jgroups.asym_encrypt.version_mismatch.drops",
+            "jgroups.asym_encrypt.key.rotations",
+            "jgroups.asym_encrypt.ciphers.encoding.available",
+            "jgroups.asym_encrypt.ciphers.decoding.available",
+            "jgroups.asym_encrypt.keys.cached",
+            "jgroups.asym_encrypt.encrypt.duration",
+            "jgroups.asym_encrypt.decrypt.duration",
+            "jgroups.asym_encrypt.is_key_server",
+            "jgroups.asym_encrypt.public_keys",
+            "jgroups.asym_encrypt.key.requests.sent",
+            "jgroups.asym_encrypt.key.requests.received",
+            "jgroups.asym_encrypt.key.installs.sent",
+            "jgroups.asym_encrypt.key.installs.received",
+            "jgroups.asym_encrypt.key.external_exchanges",
+            // Configuration metrics
+            "jgroups.asym_encrypt.cipher_pool_size",
+            "jgroups.asym_encrypt.sym_keylength",
+            "jgroups.asym_encrypt.key_map_max_size",
+            "jgroups.asym_encrypt.asym_keylength",
+            "jgroups.asym_encrypt.change_key_on_leave",
+            "jgroups.asym_encrypt.change_key_on_coord_leave",
+            "jgroups.asym_encrypt.use_external_key_exchange"
+        );
+    }
+
+    @Override
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+        for (JChannel channel : channels) {
+            channel.send(new BytesMessage(null, new byte[100]));
+        }
+    }
+
+    /**
+     * ASYM_ENCRYPT is placed below NAKACK2; every duration is sampled.
+     */
+    @Override
+    protected JChannel createChannel(OPENTELEMETRY otelProtocol) throws Exception {
+        Protocol protocolUnderTest = createProtocolInstance();
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            protocolUnderTest,           // ASYM_ENCRYPT
+            new NAKACK2(),
+            otelProtocol.setDurationSamplingInterval(1),
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            new FRAG2()
+        );
+    }
+}
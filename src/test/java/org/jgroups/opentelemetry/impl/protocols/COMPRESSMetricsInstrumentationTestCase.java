@@ -0,0 +1,83 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.BytesMessage;
+import org.jgroups.JChannel;
+import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
+import org.jgroups.protocols.*;
+import org.jgroups.protocols.opentelemetry.OPENTELEMETRY;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.stack.Protocol;
+
+import java.util.List;
+
+/**
+ * Test case for {@link COMPRESSMetricsInstrumentation}.
+ *
+ * @author Radoslav Husar
+ */
+class COMPRESSMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTestCase {
+
+    @Override
+    protected Protocol createProtocolInstance() {
+        return new COMPRESS();
+    }
+
+    @Override
+    protected List<String> getExpectedMetrics() {
+        return List.of(
+            // Runtime metrics
+            "jgroups.compress.messages.compressed",
+            "jgroups.compress.messages.decompressed",
+            "jgroups.compress.messages.skipped.min_size",
+            "jgroups.compress.messages.skipped.incompressible",
+            "jgroups.compress.compression.bytes.input",
+            "jgroups.compress.compression.bytes.output",
+            "jgroups.compress.decompression.bytes.input",
+            "jgroups.compress.decompression.bytes.output",
+            "jgroups.compress.compression.ratio",
+            "jgroups.compress.deflaters.available",
+            "jgroups.compress.inflaters.available",
+            "jgroups.compress.deflater_pool.exhausted",
+            "jgroups.compress.inflater_pool.exhausted",
+            "jgroups.compress.deflate.duration",
+            "jgroups.compress.inflate.duration",
+            // Configuration metrics
+            "jgroups.compress.compression_level",
+            "jgroups.compress.min_size",
+            "jgroups.compress.pool_size"
+        );
+    }
+
+    /**
+     * Sends a compressible message larger than min_size and a small message from every member.
+     */
+    @Override
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+        for (JChannel channel : channels) {
+            channel.send(new BytesMessage(null, new byte[2000]));
+            channel.send(new BytesMessage(null, new byte[10]));
+        }
+    }
+
+    /**
+     * COMPRESS is placed above GMS; every duration is sampled.
+     */
+    @Override
+    protected JChannel createChannel(OPENTELEMETRY otelProtocol) throws Exception {
+        Protocol protocolUnderTest = createProtocolInstance();
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            new NAKACK2(),
+            otelProtocol.setDurationSamplingInterval(1),
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            protocolUnderTest,           // COMPRESS
+            new FRAG2()
+        );
+    }
+}
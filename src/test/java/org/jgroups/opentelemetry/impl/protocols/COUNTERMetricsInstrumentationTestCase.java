@@ -0,0 +1,83 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.JChannel;
+import org.jgroups.blocks.atomic.Counter;
+import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
+import org.jgroups.protocols.*;
+import org.jgroups.protocols.opentelemetry.OPENTELEMETRY;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.stack.Protocol;
+
+import java.util.List;
+
+/**
+ * Test case for {@link COUNTERMetricsInstrumentation}.
+ *
+ * @author Radoslav Husar
+ */
+class COUNTERMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTestCase {
+
+    @Override
+    protected Protocol createProtocolInstance() {
+        return new COUNTER();
+    }
+
+    @Override
+    protected List<String> getExpectedMetrics() {
+        return List.of(
+            // Runtime metrics
+            "jgroups.counter.is_coord",
+            "jgroups.counter.counters",
+            "jgroups.counter.requests.pending",
+            "jgroups.counter.backup_coords",
+            "jgroups.counter.operations",
+            "jgroups.counter.operations.received",
+            "jgroups.counter.operations.failed",
+            "jgroups.counter.operation.duration",
+            "jgroups.counter.backup.updates.sent",
+            "jgroups.counter.backup.updates.received",
+            "jgroups.counter.reconciliation.requests.sent",
+            "jgroups.counter.reconciliation.responses.received",
+            "jgroups.counter.resend_requests.received",
+            // Configuration metrics
+            "jgroups.counter.num_backups",
+            "jgroups.counter.timeout",
+            "jgroups.counter.reconciliation_timeout",
+            "jgroups.counter.bypass_bundling"
+        );
+    }
+
+    /**
+     * Increments a shared counter from every member.
+     */
+    @Override
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+        for (JChannel channel : channels) {
+            COUNTER protocol = channel.getProtocolStack().findProtocol(COUNTER.class);
+            Counter counter = protocol.getOrCreateCounter("test-counter", 0);
+            counter.incrementAndGet();
+        }
+    }
+
+    /**
+     * COUNTER is placed at the top of the stack; every duration is sampled.
+     */
+    @Override
+    protected JChannel createChannel(OPENTELEMETRY otelProtocol) throws Exception {
+        Protocol protocolUnderTest = createProtocolInstance();
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            new NAKACK2(),
+            otelProtocol.setDurationSamplingInterval(1),
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            new FRAG2(),
+            protocolUnderTest            // COUNTER
+        );
+    }
+}
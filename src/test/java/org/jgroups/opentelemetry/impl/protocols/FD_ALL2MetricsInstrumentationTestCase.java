@@ -33,6 +33,8 @@ class FD_ALL2MetricsInstrumentationTestCase extends AbstractMetricsInstrumentati
             "jgroups.fd_all2.has_suspected_members",
             "jgroups.fd_all2.timeout_checker.running",
             "jgroups.fd_all2.heartbeat_sender.running",
+            "jgroups.fd_all2.heartbeat.age.max",
+            "jgroups.fd_all2.heartbeat.age.ratio",
             // Configuration metrics
             "jgroups.fd_all2.timeout",
             "jgroups.fd_all2.interval"
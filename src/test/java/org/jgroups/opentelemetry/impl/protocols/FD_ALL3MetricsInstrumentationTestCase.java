@@ -33,6 +33,10 @@ class FD_ALL3MetricsInstrumentationTestCase extends AbstractMetricsInstrumentati
             "jgroups.fd_all3.has_suspected_members",
             "jgroups.fd_all3.timeout_checker.running",
             "jgroups.fd_all3.heartbeat_sender.running",
+            "jgroups.fd_all3.heartbeat.age.max",
+            "jgroups.fd_all3.heartbeat.age.ratio",
+            // Per-member metrics
+            "jgroups.fd_all3.member.heartbeat.age",
             // Configuration metrics
             "jgroups.fd_all3.timeout",
             "jgroups.fd_all3.interval",
@@ -41,10 +45,11 @@ class FD_ALL3MetricsInstrumentationTestCase extends AbstractMetricsInstrumentati
     }
 
     /**
-     * FD_ALL3 requires a discovery protocol and GMS.
+     * FD_ALL3 requires a discovery protocol and GMS. Per-member metrics are enabled to cover them as well.
      */
     @Override
     protected JChannel createChannel(OPENTELEMETRY otelProtocol) throws Exception {
+        otelProtocol.setPerMemberMetrics(true);
         Protocol protocolUnderTest = createProtocolInstance();
 
         return new JChannel(
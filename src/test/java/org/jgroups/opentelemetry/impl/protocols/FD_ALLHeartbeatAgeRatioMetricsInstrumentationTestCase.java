@@ -0,0 +1,24 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.JChannel;
+import org.jgroups.protocols.opentelemetry.OPENTELEMETRY;
+
+import java.util.List;
+
+/**
+ * Test case for {@link FD_ALLMetricsInstrumentation} recording the heartbeat age ratio while the maximum heartbeat age is filtered out.
+ *
+ * @author Radoslav Husar
+ */
+class FD_ALLHeartbeatAgeRatioMetricsInstrumentationTestCase extends FD_ALLMetricsInstrumentationTestCase {
+
+    @Override
+    protected List<String> getExpectedMetrics() {
+        return List.of("jgroups.fd_all.heartbeat.age.ratio");
+    }
+
+    @Override
+    protected JChannel createChannel(OPENTELEMETRY otelProtocol) throws Exception {
+        return super.createChannel(otelProtocol.setExcludeMetrics("jgroups.fd_all.heartbeat.age.max"));
+    }
+}
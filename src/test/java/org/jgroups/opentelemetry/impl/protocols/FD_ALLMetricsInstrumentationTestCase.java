@@ -8,6 +8,7 @@ import org.jgroups.protocols.pbcast.GMS;
 import org.jgroups.protocols.pbcast.NAKACK2;
 import org.jgroups.protocols.pbcast.STABLE;
 import org.jgroups.stack.Protocol;
+import org.jgroups.util.Util;
 
 import java.util.List;
 
@@ -20,7 +21,7 @@ class FD_ALLMetricsInstrumentationTestCase extends AbstractMetricsInstrumentatio
 
     @Override
     protected Protocol createProtocolInstance() {
-        return new FD_ALL();
+        return new FD_ALL().setTimeoutCheckInterval(200).setTimeout(1000).setInterval(200);
     }
 
     @Override
@@ -33,6 +34,9 @@ class FD_ALLMetricsInstrumentationTestCase extends AbstractMetricsInstrumentatio
             "jgroups.fd_all.has_suspected_members",
             "jgroups.fd_all.timeout_checker.running",
             "jgroups.fd_all.heartbeat_sender.running",
+            "jgroups.fd_all.heartbeat.age.max",
+            "jgroups.fd_all.heartbeat.age.ratio",
+            "jgroups.fd_all.detection.duration",
             // Configuration metrics
             "jgroups.fd_all.timeout",
             "jgroups.fd_all.interval",
@@ -42,7 +46,18 @@ class FD_ALLMetricsInstrumentationTestCase extends AbstractMetricsInstrumentatio
     }
 
     /**
-     * FD_ALL requires a discovery protocol and GMS.
+     * Makes the last node unreachable so that it gets suspected and the detection latency is recorded.
+     */
+    @Override
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+        DISCARD discard = channels.get(channels.size() - 1).getProtocolStack().findProtocol(DISCARD.class);
+        discard.discardAll(true);
+        FD_ALL protocol = channels.get(0).getProtocolStack().findProtocol(FD_ALL.class);
+        Util.waitUntil(10000, 100, () -> protocol.getSuspectEventsSent() > 0);
+    }
+
+    /**
+     * FD_ALL requires a discovery protocol and GMS. DISCARD is used to simulate a failed node.
      */
     @Override
     protected JChannel createChannel(OPENTELEMETRY otelProtocol) throws Exception {
@@ -51,6 +66,7 @@ class FD_ALLMetricsInstrumentationTestCase extends AbstractMetricsInstrumentatio
         return new JChannel(
             new SHARED_LOOPBACK(),
             new SHARED_LOOPBACK_PING(),
+            new DISCARD(),
             protocolUnderTest,           // FD_ALL
             new NAKACK2(),
             otelProtocol,
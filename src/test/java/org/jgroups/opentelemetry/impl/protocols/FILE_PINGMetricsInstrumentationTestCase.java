@@ -22,6 +22,9 @@ class FILE_PINGMetricsInstrumentationTestCase extends AbstractMetricsInstrumenta
     protected List<String> getExpectedMetrics() {
         // FILE_PING extends Discovery and adds file-based storage metrics
         return List.of("jgroups.file_ping.is_coord", "jgroups.file_ping.discovery_requests",
-                       "jgroups.file_ping.writes", "jgroups.file_ping.reads");
+                       "jgroups.file_ping.writes", "jgroups.file_ping.reads",
+                       "jgroups.file_ping.discovery.duration", "jgroups.file_ping.discovery.responses",
+                       "jgroups.file_ping.read.duration", "jgroups.file_ping.write.duration",
+                       "jgroups.file_ping.files");
     }
 }
@@ -0,0 +1,69 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.BytesMessage;
+import org.jgroups.JChannel;
+import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
+import org.jgroups.protocols.*;
+import org.jgroups.protocols.opentelemetry.OPENTELEMETRY;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.stack.Protocol;
+
+import java.util.List;
+
+/**
+ * Test case for {@link FRAG3MetricsInstrumentation}.
+ *
+ * @author Radoslav Husar
+ */
+class FRAG3MetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTestCase {
+
+    @Override
+    protected Protocol createProtocolInstance() {
+        return new FRAG3().setFragSize(1000);
+    }
+
+    @Override
+    protected List<String> getExpectedMetrics() {
+        return List.of(
+            // Runtime metrics
+            "jgroups.frag3.fragments.sent",
+            "jgroups.frag3.fragments.received",
+            "jgroups.frag3.messages.fragmented",
+            "jgroups.frag3.messages.reassembled",
+            "jgroups.frag3.reassembly.duration",
+            "jgroups.frag3.reassembly.entries",
+            "jgroups.frag3.reassembly.bytes",
+            // Configuration metrics
+            "jgroups.frag3.frag_size"
+        );
+    }
+
+    /**
+     * Sends a message larger than frag_size so that it gets fragmented and reassembled.
+     */
+    @Override
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+        channels.get(0).send(new BytesMessage(null, new byte[10_000]));
+    }
+
+    /**
+     * FRAG3 replaces the FRAG2 protocol at the top of the default stack.
+     */
+    @Override
+    protected JChannel createChannel(OPENTELEMETRY otelProtocol) throws Exception {
+        Protocol protocolUnderTest = createProtocolInstance();
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            new NAKACK2(),
+            otelProtocol,
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            protocolUnderTest            // FRAG3
+        );
+    }
+}
@@ -0,0 +1,69 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.BytesMessage;
+import org.jgroups.JChannel;
+import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
+import org.jgroups.protocols.*;
+import org.jgroups.protocols.opentelemetry.OPENTELEMETRY;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.stack.Protocol;
+
+import java.util.List;
+
+/**
+ * Test case for {@link FRAG4MetricsInstrumentation}.
+ *
+ * @author Radoslav Husar
+ */
+class FRAG4MetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTestCase {
+
+    @Override
+    protected Protocol createProtocolInstance() {
+        return new FRAG4().setFragSize(1000);
+    }
+
+    @Override
+    protected List<String> getExpectedMetrics() {
+        return List.of(
+            // Runtime metrics
+            "jgroups.frag4.fragments.sent",
+            "jgroups.frag4.fragments.received",
+            "jgroups.frag4.messages.fragmented",
+            "jgroups.frag4.messages.reassembled",
+            "jgroups.frag4.reassembly.duration",
+            "jgroups.frag4.reassembly.entries",
+            "jgroups.frag4.reassembly.bytes",
+            // Configuration metrics
+            "jgroups.frag4.frag_size"
+        );
+    }
+
+    /**
+     * Sends a message larger than frag_size so that it gets fragmented and reassembled.
+     */
+    @Override
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+        channels.get(0).send(new BytesMessage(null, new byte[10_000]));
+    }
+
+    /**
+     * FRAG4 replaces the FRAG2 protocol at the top of the default stack.
+     */
+    @Override
+    protected JChannel createChannel(OPENTELEMETRY otelProtocol) throws Exception {
+        Protocol protocolUnderTest = createProtocolInstance();
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            new NAKACK2(),
+            otelProtocol,
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            protocolUnderTest            // FRAG4
+        );
+    }
+}
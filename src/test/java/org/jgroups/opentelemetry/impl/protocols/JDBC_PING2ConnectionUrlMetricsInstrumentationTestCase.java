@@ -0,0 +1,33 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
+import org.jgroups.protocols.JDBC_PING2;
+import org.jgroups.stack.Protocol;
+
+import java.util.List;
+
+/**
+ * Test case for {@link JDBC_PING2MetricsInstrumentation} timing the database operations of a protocol configured with a connection URL.
+ *
+ * @author Radoslav Husar
+ */
+class JDBC_PING2ConnectionUrlMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTestCase {
+
+    @Override
+    protected Protocol createProtocolInstance() {
+        // Use H2 in-memory database for testing; connections are opened via the driver manager
+        return new JDBC_PING2()
+            .setConnectionUrl("jdbc:h2:mem:test2_url;DB_CLOSE_DELAY=-1")
+            .setConnectionDriver("org.h2.Driver");
+    }
+
+    @Override
+    protected List<String> getExpectedMetrics() {
+        return List.of(
+            "jgroups.jdbc_ping2.select.duration",
+            "jgroups.jdbc_ping2.insert.duration",
+            "jgroups.jdbc_ping2.connection.duration",
+            "jgroups.jdbc_ping2.sql.failures"
+        );
+    }
+}
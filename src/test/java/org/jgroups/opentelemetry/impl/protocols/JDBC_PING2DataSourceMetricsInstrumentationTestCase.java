@@ -0,0 +1,34 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
+import org.jgroups.protocols.JDBC_PING2;
+import org.jgroups.stack.Protocol;
+
+import java.util.List;
+
+/**
+ * Test case for {@link JDBC_PING2MetricsInstrumentation} timing the database operations of a protocol configured with a data source.
+ *
+ * @author Radoslav Husar
+ */
+class JDBC_PING2DataSourceMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTestCase {
+
+    @Override
+    protected Protocol createProtocolInstance() {
+        // Use H2 in-memory database for testing
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:test2_datasource;DB_CLOSE_DELAY=-1");
+        return new JDBC_PING2().setDataSource(dataSource);
+    }
+
+    @Override
+    protected List<String> getExpectedMetrics() {
+        return List.of(
+            "jgroups.jdbc_ping2.select.duration",
+            "jgroups.jdbc_ping2.insert.duration",
+            "jgroups.jdbc_ping2.connection.duration",
+            "jgroups.jdbc_ping2.sql.failures"
+        );
+    }
+}
@@ -0,0 +1,33 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
+import org.jgroups.protocols.JDBC_PING;
+import org.jgroups.stack.Protocol;
+
+import java.util.List;
+
+/**
+ * Test case for {@link JDBC_PINGMetricsInstrumentation} timing the database operations of a protocol configured with a connection URL.
+ *
+ * @author Radoslav Husar
+ */
+class JDBC_PINGConnectionUrlMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTestCase {
+
+    @Override
+    protected Protocol createProtocolInstance() {
+        // Use H2 in-memory database for testing; connections are opened via the driver manager
+        return new JDBC_PING()
+            .setConnectionUrl("jdbc:h2:mem:test_url;DB_CLOSE_DELAY=-1")
+            .setConnectionDriver("org.h2.Driver");
+    }
+
+    @Override
+    protected List<String> getExpectedMetrics() {
+        return List.of(
+            "jgroups.jdbc_ping.select.duration",
+            "jgroups.jdbc_ping.insert.duration",
+            "jgroups.jdbc_ping.connection.duration",
+            "jgroups.jdbc_ping.sql.failures"
+        );
+    }
+}
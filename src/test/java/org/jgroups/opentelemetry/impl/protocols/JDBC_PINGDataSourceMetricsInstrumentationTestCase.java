@@ -0,0 +1,34 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
+import org.jgroups.protocols.JDBC_PING;
+import org.jgroups.stack.Protocol;
+
+import java.util.List;
+
+/**
+ * Test case for {@link JDBC_PINGMetricsInstrumentation} timing the database operations of a protocol configured with a data source.
+ *
+ * @author Radoslav Husar
+ */
+class JDBC_PINGDataSourceMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTestCase {
+
+    @Override
+    protected Protocol createProtocolInstance() {
+        // Use H2 in-memory database for testing
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:test_datasource;DB_CLOSE_DELAY=-1");
+        return new JDBC_PING().setDataSource(dataSource);
+    }
+
+    @Override
+    protected List<String> getExpectedMetrics() {
+        return List.of(
+            "jgroups.jdbc_ping.select.duration",
+            "jgroups.jdbc_ping.insert.duration",
+            "jgroups.jdbc_ping.connection.duration",
+            "jgroups.jdbc_ping.sql.failures"
+        );
+    }
+}
@@ -28,7 +28,10 @@ class LOCAL_PINGMetricsInstrumentationTestCase extends AbstractMetricsInstrument
         return List.of(
             // Discovery metrics
             "jgroups.local_ping.is_coord",
-            "jgroups.local_ping.discovery_requests"
+            "jgroups.local_ping.discovery_requests",
+            "jgroups.local_ping.discovery.duration",
+            "jgroups.local_ping.discovery.responses",
+            "jgroups.local_ping.discovery.rounds.in_progress"
         );
     }
 
@@ -1,6 +1,7 @@
 package org.jgroups.opentelemetry.impl.protocols;
 
 import org.jgroups.JChannel;
+import org.jgroups.View;
 import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
 import org.jgroups.protocols.*;
 import org.jgroups.protocols.opentelemetry.OPENTELEMETRY;
@@ -8,6 +9,7 @@ import org.jgroups.protocols.pbcast.GMS;
 import org.jgroups.protocols.pbcast.NAKACK2;
 import org.jgroups.protocols.pbcast.STABLE;
 import org.jgroups.stack.Protocol;
+import org.jgroups.util.Util;
 
 import java.util.List;
 
@@ -20,7 +22,7 @@ class MERGE3MetricsInstrumentationTestCase extends AbstractMetricsInstrumentatio
 
     @Override
     protected Protocol createProtocolInstance() {
-        return new MERGE3();
+        return new MERGE3().setMinInterval(100).setMaxInterval(500).setCheckInterval(1000);
     }
 
     @Override
@@ -31,6 +33,7 @@ class MERGE3MetricsInstrumentationTestCase extends AbstractMetricsInstrumentatio
             "jgroups.merge3.merge_events",
             "jgroups.merge3.view_consistency_checker.running",
             "jgroups.merge3.info_sender.running",
+            "jgroups.merge3.merge.duration",
             // Configuration metrics
             "jgroups.merge3.interval.min",
             "jgroups.merge3.interval.max",
@@ -39,6 +42,20 @@ class MERGE3MetricsInstrumentationTestCase extends AbstractMetricsInstrumentatio
         );
     }
 
+    /**
+     * Splits the cluster by installing a singleton view in each node and waits for MERGE3 to merge it again,
+     * so that the merge duration is recorded.
+     */
+    @Override
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+        long viewId = channels.get(0).getView().getViewId().getId() + 1;
+        for (JChannel channel : channels) {
+            GMS gms = channel.getProtocolStack().findProtocol(GMS.class);
+            gms.installView(View.create(channel.getAddress(), viewId, channel.getAddress()));
+        }
+        Util.waitUntilAllChannelsHaveSameView(20000, 100, channels.toArray(new JChannel[0]));
+    }
+
     /**
      * MERGE3 requires a discovery protocol and GMS to be in the stack.
      */
@@ -1,6 +1,9 @@
 package org.jgroups.opentelemetry.impl.protocols;
 
 import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.ObjectMessage;
+import org.jgroups.Receiver;
 import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
 import org.jgroups.protocols.*;
 import org.jgroups.protocols.opentelemetry.OPENTELEMETRY;
@@ -8,6 +11,7 @@ import org.jgroups.protocols.pbcast.GMS;
 import org.jgroups.protocols.pbcast.NAKACK2;
 import org.jgroups.protocols.pbcast.STABLE;
 import org.jgroups.stack.Protocol;
+import org.jgroups.util.Util;
 
 import java.util.List;
 
@@ -20,7 +24,8 @@ class MFCMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTe
 
     @Override
     protected Protocol createProtocolInstance() {
-        return new MFC();
+        // Small credits and block time so that a slow receiver blocks the sender
+        return new MFC().setMaxCredits(5_000).setMaxBlockTime(50);
     }
 
     @Override
@@ -33,6 +38,13 @@ class MFCMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTe
             "jgroups.mfc.credit.responses.sent",
             "jgroups.mfc.blocked",
             "jgroups.mfc.blocked.avg",
+            "jgroups.mfc.blocked.duration",
+            "jgroups.mfc.blocked.credit.requests",
+            "jgroups.mfc.credits.lowest",
+            "jgroups.mfc.credits.low.members",
+            // Per-member metrics
+            "jgroups.mfc.member.credits",
+            "jgroups.mfc.member.credits.low",
             // Configuration metrics
             "jgroups.mfc.credits.max",
             "jgroups.mfc.credits.min",
@@ -42,10 +54,27 @@ class MFCMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTe
     }
 
     /**
-     * MFC requires a transport and GMS.
+     * Sends multicast messages to a slow receiver so that the sender runs out of credits and blocks.
+     */
+    @Override
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+        channels.get(channels.size() - 1).setReceiver(new Receiver() {
+            @Override
+            public void receive(Message msg) {
+                Util.sleep(20);
+            }
+        });
+        for (int i = 0; i < 20; i++) {
+            channels.get(0).send(new ObjectMessage(null, new byte[1_000]));
+        }
+    }
+
+    /**
+     * MFC requires a transport and GMS. Per-member metrics are enabled to cover them as well.
      */
     @Override
     protected JChannel createChannel(OPENTELEMETRY otelProtocol) throws Exception {
+        otelProtocol.setPerMemberMetrics(true);
         Protocol protocolUnderTest = createProtocolInstance();
 
         return new JChannel(
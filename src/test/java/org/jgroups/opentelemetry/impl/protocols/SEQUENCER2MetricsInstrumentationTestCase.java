@@ -0,0 +1,76 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.BytesMessage;
+import org.jgroups.JChannel;
+import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
+import org.jgroups.protocols.*;
+import org.jgroups.protocols.opentelemetry.OPENTELEMETRY;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.stack.Protocol;
+
+import java.util.List;
+
+/**
+ * Test case for {@link SEQUENCER2MetricsInstrumentation}.
+ *
+ * @author Radoslav Husar
+ */
+class SEQUENCER2MetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTestCase {
+
+    @Override
+    protected Protocol createProtocolInstance() {
+        return new SEQUENCER2();
+    }
+
+    @Override
+    protected List<String> getExpectedMetrics() {
+        return List.of(
+            // Runtime metrics
+            "jgroups.sequencer2.is_coord",
+            "jgroups.sequencer2.seqno.requests.sent",
+            "jgroups.sequencer2.seqno.requests.received",
+            "jgroups.sequencer2.seqno.responses.sent",
+            "jgroups.sequencer2.seqno.responses.received",
+            "jgroups.sequencer2.broadcasts.sent",
+            "jgroups.sequencer2.broadcasts.received",
+            "jgroups.sequencer2.broadcasts.delivered",
+            "jgroups.sequencer2.forward_queue.size",
+            "jgroups.sequencer2.seqno.requests.pending",
+            "jgroups.sequencer2.receive_table.size",
+            "jgroups.sequencer2.receive_table.missing",
+            "jgroups.sequencer2.coordinator.changes"
+        );
+    }
+
+    /**
+     * Sends a multicast from every member, so that members other than the coordinator go through the sequencer.
+     */
+    @Override
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+        for (JChannel channel : channels) {
+            channel.send(new BytesMessage(null, new byte[100]));
+        }
+    }
+
+    /**
+     * SEQUENCER2 must be placed above GMS.
+     */
+    @Override
+    protected JChannel createChannel(OPENTELEMETRY otelProtocol) throws Exception {
+        Protocol protocolUnderTest = createProtocolInstance();
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            new NAKACK2(),
+            otelProtocol,
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            protocolUnderTest,           // SEQUENCER2
+            new FRAG2()
+        );
+    }
+}
@@ -0,0 +1,80 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.BytesMessage;
+import org.jgroups.JChannel;
+import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
+import org.jgroups.protocols.*;
+import org.jgroups.protocols.opentelemetry.OPENTELEMETRY;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.stack.Protocol;
+
+import java.util.List;
+
+/**
+ * Test case for {@link SEQUENCERMetricsInstrumentation}.
+ *
+ * @author Radoslav Husar
+ */
+class SEQUENCERMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTestCase {
+
+    @Override
+    protected Protocol createProtocolInstance() {
+        return new SEQUENCER();
+    }
+
+    @Override
+    protected List<String> getExpectedMetrics() {
+        return List.of(
+            // Runtime metrics
+            "jgroups.sequencer.is_coord",
+            "jgroups.sequencer.messages.forwarded",
+            "jgroups.sequencer.messages.broadcast",
+            "jgroups.sequencer.forwards.received",
+            "jgroups.sequencer.broadcasts.received",
+            "jgroups.sequencer.broadcasts.delivered",
+            "jgroups.sequencer.forward_table.size",
+            "jgroups.sequencer.delivery_table.senders",
+            "jgroups.sequencer.delivery_table.size",
+            "jgroups.sequencer.in_flight_sends",
+            "jgroups.sequencer.flushing",
+            "jgroups.sequencer.coordinator.changes",
+            "jgroups.sequencer.messages.resent",
+            "jgroups.sequencer.forward.delivery.duration",
+            // Configuration metrics
+            "jgroups.sequencer.threshold",
+            "jgroups.sequencer.delivery_table_max_size"
+        );
+    }
+
+    /**
+     * Sends a multicast from every member, so that members other than the coordinator go through the sequencer.
+     */
+    @Override
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+        for (JChannel channel : channels) {
+            channel.send(new BytesMessage(null, new byte[100]));
+        }
+    }
+
+    /**
+     * SEQUENCER must be placed above GMS.
+     */
+    @Override
+    protected JChannel createChannel(OPENTELEMETRY otelProtocol) throws Exception {
+        Protocol protocolUnderTest = createProtocolInstance();
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            new NAKACK2(),
+            otelProtocol,
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            protocolUnderTest,           // SEQUENCER
+            new FRAG2()
+        );
+    }
+}
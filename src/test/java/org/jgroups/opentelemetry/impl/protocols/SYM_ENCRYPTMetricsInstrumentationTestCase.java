@@ -0,0 +1,80 @@
+package org.jgroups.opentelemetry.impl.protocols;
+
+import org.jgroups.BytesMessage;
+import org.jgroups.JChannel;
+import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
+import org.jgroups.protocols.*;
+import org.jgroups.protocols.opentelemetry.OPENTELEMETRY;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.stack.Protocol;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.List;
+
+/**
+ * Test case for {@link SYM_ENCRYPTMetricsInstrumentation}.
+ *
+ * @author Radoslav Husar
+ */
+class SYM_ENCRYPTMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTestCase {
+
+    private static final SecretKey SECRET_KEY = new SecretKeySpec(new byte[16], "AES");
+
+    @Override
+    protected Protocol createProtocolInstance() {
+        return new SYM_ENCRYPT().setSecretKey(SECRET_KEY);
+    }
+
+    @Override
+    protected List<String> getExpectedMetrics() {
+        return List.of(
+            // Runtime metrics
+            "jgroups.sym_encrypt.messages.encrypted",
+            "jgroups.sym_encrypt.bytes.encrypted",
+            "jgroups.sym_encrypt.messages.decrypted",
+            "jgroups.sym_encrypt.bytes.decrypted",
+            "jgroups.sym_encrypt.decrypt.failures",
+            "jgroups.sym_encrypt.version_mismatch.drops",
+            "jgroups.sym_encrypt.key.rotations",
+            "jgroups.sym_encrypt.ciphers.encoding.available",
+            "jgroups.sym_encrypt.ciphers.decoding.available",
+            "jgroups.sym_encrypt.keys.cached",
+            "jgroups.sym_encrypt.encrypt.duration",
+            "jgroups.sym_encrypt.decrypt.duration",
+            // Configuration metrics
+            "jgroups.sym_encrypt.cipher_pool_size",
+            "jgroups.sym_encrypt.sym_keylength",
+            "jgroups.sym_encrypt.key_map_max_size"
+        );
+    }
+
+    @Override
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+        for (JChannel channel : channels) {
+            channel.send(new BytesMessage(null, new byte[100]));
+        }
+    }
+
+    /**
+     * SYM_ENCRYPT is placed below NAKACK2; every duration is sampled.
+     */
+    @Override
+    protected JChannel createChannel(OPENTELEMETRY otelProtocol) throws Exception {
+        Protocol protocolUnderTest = createProtocolInstance();
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            protocolUnderTest,           // SYM_ENCRYPT
+            new NAKACK2(),
+            otelProtocol.setDurationSamplingInterval(1),
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            new FRAG2()
+        );
+    }
+}
@@ -33,6 +33,12 @@ class UFCMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTe
             "jgroups.ufc.credit.responses.sent",
             "jgroups.ufc.blocked",
             "jgroups.ufc.blocked.avg",
+            "jgroups.ufc.blocked.credit.requests",
+            "jgroups.ufc.credits.lowest",
+            "jgroups.ufc.credits.low.members",
+            // Per-member metrics
+            "jgroups.ufc.member.credits",
+            "jgroups.ufc.member.credits.low",
             // Configuration metrics
             "jgroups.ufc.credits.max",
             "jgroups.ufc.credits.min",
@@ -42,10 +48,11 @@ class UFCMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTe
     }
 
     /**
-     * UFC requires a transport and GMS.
+     * UFC requires a transport and GMS. Per-member metrics are enabled to cover them as well.
      */
     @Override
     protected JChannel createChannel(OPENTELEMETRY otelProtocol) throws Exception {
+        otelProtocol.setPerMemberMetrics(true);
         Protocol protocolUnderTest = createProtocolInstance();
 
         return new JChannel(
@@ -8,6 +8,7 @@ import org.jgroups.protocols.pbcast.GMS;
 import org.jgroups.protocols.pbcast.NAKACK2;
 import org.jgroups.protocols.pbcast.STABLE;
 import org.jgroups.stack.Protocol;
+import org.jgroups.util.Util;
 
 import java.util.List;
 
@@ -20,7 +21,7 @@ class VERIFY_SUSPECT2MetricsInstrumentationTestCase extends AbstractMetricsInstr
 
     @Override
     protected Protocol createProtocolInstance() {
-        return new VERIFY_SUSPECT2();
+        return new VERIFY_SUSPECT2().setTimeout(500);
     }
 
     @Override
@@ -28,14 +29,33 @@ class VERIFY_SUSPECT2MetricsInstrumentationTestCase extends AbstractMetricsInstr
         // VERIFY_SUSPECT2 should expose:
         // - suspects: number of currently suspected members
         // - verification_task_running: whether verification task is running
+        // - the suspect-to-exclusion pipeline timings and counts
         return List.of(
             "jgroups.verify_suspect2.suspects",
-            "jgroups.verify_suspect2.verification_task_running"
+            "jgroups.verify_suspect2.verification_task_running",
+            "jgroups.verify_suspect2.verification.duration",
+            "jgroups.verify_suspect2.exclusion.duration",
+            "jgroups.verify_suspect2.removal.duration",
+            "jgroups.verify_suspect2.suspicions",
+            "jgroups.verify_suspect2.suspicions.confirmed",
+            "jgroups.verify_suspect2.suspicions.false"
         );
     }
 
+    /**
+     * Makes the last node unreachable so that it gets suspected, verified and excluded from the view.
+     */
+    @Override
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+        DISCARD discard = channels.get(channels.size() - 1).getProtocolStack().findProtocol(DISCARD.class);
+        discard.discardAll(true);
+        JChannel first = channels.get(0);
+        Util.waitUntil(10000, 100, () -> first.getView().size() == channels.size() - 1);
+    }
+
     /**
      * VERIFY_SUSPECT2 needs to be placed after the discovery protocol and before GMS.
+     * FD_ALL with short timeouts and DISCARD are used to simulate a failed node.
      * Override to customize the protocol stack order.
      */
     @Override
@@ -45,6 +65,8 @@ class VERIFY_SUSPECT2MetricsInstrumentationTestCase extends AbstractMetricsInstr
         return new JChannel(
             new SHARED_LOOPBACK(),
             new SHARED_LOOPBACK_PING(),  // Discovery protocol
+            new DISCARD(),
+            new FD_ALL().setTimeoutCheckInterval(200).setTimeout(1000).setInterval(200),
             protocolUnderTest,  // VERIFY_SUSPECT2 must be after discovery, before GMS
             new NAKACK2(),
             otelProtocol,
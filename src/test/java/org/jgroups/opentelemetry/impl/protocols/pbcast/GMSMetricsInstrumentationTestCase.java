@@ -8,6 +8,7 @@ import org.jgroups.protocols.pbcast.GMS;
 import org.jgroups.protocols.pbcast.NAKACK2;
 import org.jgroups.protocols.pbcast.STABLE;
 import org.jgroups.stack.Protocol;
+import org.jgroups.util.Util;
 
 import java.util.List;
 
@@ -35,6 +36,11 @@ class GMSMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTe
             "jgroups.pbcast.gms.merge.killer.running",
             "jgroups.pbcast.gms.view_handler.queue",
             "jgroups.pbcast.gms.view_handler.suspended",
+            "jgroups.pbcast.gms.join.duration",
+            "jgroups.pbcast.gms.leave.duration",
+            "jgroups.pbcast.gms.view.installation.duration",
+            "jgroups.pbcast.gms.view.acks.missing",
+            "jgroups.pbcast.gms.view.acks.pending",
             // Configuration metrics
             "jgroups.pbcast.gms.timeout.join",
             "jgroups.pbcast.gms.timeout.leave",
@@ -44,6 +50,20 @@ class GMSMetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTe
         );
     }
 
+    /**
+     * Uses a third node which leaves the cluster, so that the leave duration is recorded.
+     */
+    @Override
+    protected int getNumberOfNodes() {
+        return 3;
+    }
+
+    @Override
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+        channels.get(channels.size() - 1).disconnect();
+        Util.waitUntilAllChannelsHaveSameView(10000, 100, channels.subList(0, channels.size() - 1).toArray(new JChannel[0]));
+    }
+
     /**
      * GMS requires a complete stack including transport.
      */
@@ -1,6 +1,7 @@
 package org.jgroups.opentelemetry.impl.protocols.pbcast;
 
 import org.jgroups.JChannel;
+import org.jgroups.ObjectMessage;
 import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
 import org.jgroups.protocols.*;
 import org.jgroups.protocols.opentelemetry.OPENTELEMETRY;
@@ -8,6 +9,7 @@ import org.jgroups.protocols.pbcast.GMS;
 import org.jgroups.protocols.pbcast.NAKACK2;
 import org.jgroups.protocols.pbcast.STABLE;
 import org.jgroups.stack.Protocol;
+import org.jgroups.util.Util;
 
 import java.util.List;
 
@@ -20,7 +22,7 @@ class STABLEMetricsInstrumentationTestCase extends AbstractMetricsInstrumentatio
 
     @Override
     protected Protocol createProtocolInstance() {
-        return new STABLE();
+        return new STABLE().setDesiredAverageGossip(100);
     }
 
     @Override
@@ -35,17 +37,40 @@ class STABLEMetricsInstrumentationTestCase extends AbstractMetricsInstrumentatio
             "jgroups.pbcast.stable.votes",
             "jgroups.pbcast.stable.suspended",
             "jgroups.pbcast.stable.stable_task.running",
+            "jgroups.pbcast.stable.seqno.spread.max",
+            "jgroups.pbcast.stable.unstable.messages",
+            "jgroups.pbcast.stable.unstable.bytes.estimated",
+            "jgroups.pbcast.stable.stability.interval",
+            "jgroups.pbcast.stable.vote.delay",
+            // Per-member metrics
+            "jgroups.pbcast.stable.member.seqno.spread",
+            "jgroups.pbcast.stable.member.vote.delay",
             // Configuration metrics
             "jgroups.pbcast.stable.gossip.avg",
             "jgroups.pbcast.stable.bytes.max"
         );
     }
 
+    /**
+     * Sends multicast messages and waits for garbage collection rounds to complete.
+     */
+    @Override
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+        for (JChannel channel : channels) {
+            for (int i = 0; i < 10; i++) {
+                channel.send(new ObjectMessage(null, "message-" + i));
+            }
+        }
+        STABLE stable = channels.get(0).getProtocolStack().findProtocol(STABLE.class);
+        Util.waitUntil(10000, 100, () -> stable.getStabilityReceived() >= 3);
+    }
+
     /**
      * STABLE requires a complete stack including NAKACK2.
      */
     @Override
     protected JChannel createChannel(OPENTELEMETRY otelProtocol) throws Exception {
+        otelProtocol.setPerMemberMetrics(true);
         Protocol protocolUnderTest = createProtocolInstance();
 
         return new JChannel(
@@ -0,0 +1,86 @@
+package org.jgroups.opentelemetry.impl.protocols.relay;
+
+import org.jgroups.BytesMessage;
+import org.jgroups.JChannel;
+import org.jgroups.opentelemetry.impl.AbstractMetricsInstrumentationTestCase;
+import org.jgroups.protocols.*;
+import org.jgroups.protocols.opentelemetry.OPENTELEMETRY;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.protocols.relay.RELAY3;
+import org.jgroups.protocols.relay.SiteMaster;
+import org.jgroups.protocols.relay.config.RelayConfig;
+import org.jgroups.stack.Protocol;
+
+import java.util.List;
+
+/**
+ * Test case for {@link RELAY3MetricsInstrumentation}.
+ *
+ * @author Radoslav Husar
+ */
+class RELAY3MetricsInstrumentationTestCase extends AbstractMetricsInstrumentationTestCase {
+
+    @Override
+    protected Protocol createProtocolInstance() {
+        return new RELAY3().setSite("lon").addSite("lon", new RelayConfig.SiteConfig("lon"));
+    }
+
+    @Override
+    protected List<String> getExpectedMetrics() {
+        return List.of(
+            // Runtime metrics
+            "jgroups.relay.relay3.is_site_master",
+            "jgroups.relay.relay3.site_masters",
+            "jgroups.relay.relay3.routes",
+            "jgroups.relay.relay3.site.messages.sent",
+            "jgroups.relay.relay3.site.bytes.sent",
+            "jgroups.relay.relay3.site.messages.relayed",
+            "jgroups.relay.relay3.site.bytes.relayed",
+            "jgroups.relay.relay3.forwarding.duration",
+            "jgroups.relay.relay3.messages.forwarded_to_site_master",
+            "jgroups.relay.relay3.messages.forwarded_to_site_master.time",
+            "jgroups.relay.relay3.messages.relayed",
+            "jgroups.relay.relay3.messages.relayed.time",
+            "jgroups.relay.relay3.messages.forwarded_to_local_member",
+            "jgroups.relay.relay3.messages.forwarded_to_local_member.time",
+            "jgroups.relay.relay3.sites.down",
+            // Configuration metrics
+            "jgroups.relay.relay3.max_site_masters",
+            "jgroups.relay.relay3.site_masters_ratio",
+            "jgroups.relay.relay3.can_become_site_master"
+        );
+    }
+
+    /**
+     * Sends messages from every member to a remote site which has no route, so that they are forwarded
+     * to the local site master and reported as unreachable.
+     */
+    @Override
+    protected void exerciseCluster(List<JChannel> channels) throws Exception {
+        for (JChannel channel : channels) {
+            channel.send(new BytesMessage(new SiteMaster("nyc"), new byte[100]));
+        }
+    }
+
+    /**
+     * RELAY3 must be placed at the top of the stack.
+     */
+    @Override
+    protected JChannel createChannel(OPENTELEMETRY otelProtocol) throws Exception {
+        Protocol protocolUnderTest = createProtocolInstance();
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            new NAKACK2(),
+            otelProtocol,
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            new FRAG2(),
+            protocolUnderTest            // RELAY3
+        );
+    }
+}
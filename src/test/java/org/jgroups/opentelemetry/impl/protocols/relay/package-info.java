@@ -0,0 +1,4 @@
+/**
+ * Test cases for metrics instrumentation of JGroups cross-site replication (relay) protocols.
+ */
+package org.jgroups.opentelemetry.impl.protocols.relay;
@@ -0,0 +1,78 @@
+package org.jgroups.opentelemetry.impl.util;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import org.jgroups.opentelemetry.impl.aggregation.SnapshotMetricReader;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link BoundedCounterMap} folding keys beyond its limit into a single overflow series.
+ *
+ * @author Radoslav Husar
+ */
+public class BoundedCounterMapTestCase {
+
+    @Test
+    public void testLimit() {
+        BoundedCounterMap counters = new BoundedCounterMap(2);
+        counters.increment("lon");
+        counters.add("nyc", 5);
+
+        // Further keys are folded into the other series
+        counters.increment("sfo");
+        counters.add("tok", 3);
+        assertEquals(Map.of("lon", 1L, "nyc", 5L), snapshot(counters));
+        assertEquals(4L, counters.getOverflow().orElseThrow());
+
+        // Keys counted separately stay separate and further keys stay folded, so every series stays monotonic
+        counters.increment("lon");
+        counters.increment("sfo");
+        assertEquals(Map.of("lon", 2L, "nyc", 5L), snapshot(counters));
+        assertEquals(5L, counters.getOverflow().orElseThrow());
+    }
+
+    @Test
+    public void testOverflowCollision() {
+        // A key named like an overflow series is counted separately from the overflow counter
+        BoundedCounterMap counters = new BoundedCounterMap(1);
+        counters.add("other", 2);
+        counters.add("lon", 3);
+        assertEquals(Map.of("other", 2L), snapshot(counters));
+        assertEquals(3L, counters.getOverflow().orElseThrow());
+
+        SnapshotMetricReader reader = new SnapshotMetricReader();
+        try (SdkMeterProvider meterProvider = SdkMeterProvider.builder().registerMetricReader(reader).build()) {
+            AttributeKey<String> site = AttributeKey.stringKey("site");
+            meterProvider.get("org.jgroups.test").counterBuilder("jgroups.test.site.messages.sent")
+                    .buildWithCallback(measurement -> counters.record(measurement, site));
+            Map<Attributes, Long> points = new HashMap<>();
+            for (MetricData metric : reader.collect()) {
+                metric.getLongSumData().getPoints().forEach(point -> points.put(point.getAttributes(), point.getValue()));
+            }
+            assertEquals(Map.of(Attributes.of(site, "other"), 2L, BoundedCounterMap.OVERFLOW_ATTRIBUTES, 3L), points);
+        }
+    }
+
+    @Test
+    public void testWithinLimit() {
+        BoundedCounterMap counters = new BoundedCounterMap(2);
+        counters.increment("lon");
+        counters.increment("lon");
+        counters.increment("nyc");
+        assertEquals(Map.of("lon", 2L, "nyc", 1L), snapshot(counters));
+        assertTrue(counters.getOverflow().isEmpty());
+    }
+
+    private static Map<String, Long> snapshot(BoundedCounterMap counters) {
+        Map<String, Long> snapshot = new HashMap<>();
+        counters.forEach(snapshot::put);
+        return snapshot;
+    }
+}
@@ -0,0 +1,143 @@
+package org.jgroups.opentelemetry.impl.util;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import org.jgroups.opentelemetry.impl.aggregation.SnapshotMetricReader;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.opentelemetry.spi.InstrumentationContext.ConfigurationMetricsMode;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.stack.Protocol;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ConfigurationMetrics} reporting configuration values on change and as a single info series.
+ *
+ * @author Radoslav Husar
+ */
+public class ConfigurationMetricsTestCase {
+
+    private static final String PREFIX = "jgroups.pbcast.stable.";
+    private static final Attributes ATTRIBUTES = Attributes.of(AttributeKey.stringKey("cluster"), "test");
+
+    private SdkMeterProvider meterProvider;
+    private SnapshotMetricReader reader;
+    private Meter meter;
+
+    @BeforeEach
+    public void setUp() {
+        reader = new SnapshotMetricReader();
+        meterProvider = SdkMeterProvider.builder().registerMetricReader(reader).build();
+        meter = meterProvider.get("org.jgroups.test");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        meterProvider.close();
+    }
+
+    @Test
+    public void testOnChange() {
+        AtomicLong maxBytes = new AtomicLong(1000);
+        ConfigurationMetrics configuration = new ConfigurationMetrics(new TestContext(ConfigurationMetricsMode.ON_CHANGE), PREFIX);
+        configuration.registerLongGauge(PREFIX + "bytes.max", "Maximum bytes", "By", measurement -> measurement.record(maxBytes.get(), ATTRIBUTES));
+        configuration.registerDoubleGauge(PREFIX + "ratio", "Ratio", "1", measurement -> measurement.record(0.5));
+        configuration.register();
+
+        // Values are reported on the first collection
+        Collection<MetricData> metrics = reader.collect();
+        assertEquals(1000L, longValue(metrics, PREFIX + "bytes.max"));
+        assertEquals(ATTRIBUTES, point(metrics, PREFIX + "bytes.max").getAttributes());
+        assertTrue(metrics.stream().anyMatch(metric -> metric.getName().equals(PREFIX + "ratio")));
+
+        // Unchanged values are not reported again
+        assertTrue(reader.collect().isEmpty());
+
+        // A changed value is reported once
+        maxBytes.set(2000);
+        metrics = reader.collect();
+        assertEquals(1, metrics.size());
+        assertEquals(2000L, longValue(metrics, PREFIX + "bytes.max"));
+        assertTrue(reader.collect().isEmpty());
+    }
+
+    @Test
+    public void testInfo() {
+        AtomicLong maxBytes = new AtomicLong(1000);
+        ConfigurationMetrics configuration = new ConfigurationMetrics(new TestContext(ConfigurationMetricsMode.INFO), PREFIX);
+        configuration.registerLongGauge(PREFIX + "bytes.max", "Maximum bytes", "By", measurement -> measurement.record(maxBytes.get()));
+        configuration.registerDoubleGauge(PREFIX + "ratio", "Ratio", "1", measurement -> measurement.record(0.5));
+        configuration.register();
+
+        // The info series is reported on every collection, with the values as attributes without the prefix
+        for (int i = 0; i < 2; i++) {
+            Collection<MetricData> metrics = reader.collect();
+            assertEquals(1, metrics.size());
+            LongPointData point = point(metrics, ConfigurationMetrics.INFO_METRIC_NAME);
+            assertEquals(1L, point.getValue());
+            assertEquals("STABLE", point.getAttributes().get(ConfigurationMetrics.PROTOCOL));
+            assertEquals("test", point.getAttributes().get(AttributeKey.stringKey("cluster")));
+            assertEquals(1000L, point.getAttributes().get(AttributeKey.longKey("bytes.max")).longValue());
+            assertEquals(0.5, point.getAttributes().get(AttributeKey.doubleKey("ratio")).doubleValue());
+        }
+
+        maxBytes.set(2000);
+        assertEquals(2000L, point(reader.collect(), ConfigurationMetrics.INFO_METRIC_NAME).getAttributes().get(AttributeKey.longKey("bytes.max")).longValue());
+    }
+
+    private static long longValue(Collection<MetricData> metrics, String name) {
+        return point(metrics, name).getValue();
+    }
+
+    private static LongPointData point(Collection<MetricData> metrics, String name) {
+        return metrics.stream()
+            .filter(metric -> metric.getName().equals(name))
+            .flatMap(metric -> metric.getLongGaugeData().getPoints().stream())
+            .findFirst()
+            .orElseThrow();
+    }
+
+    private class TestContext implements InstrumentationContext {
+        private final Protocol protocol = new STABLE();
+        private final ConfigurationMetricsMode mode;
+
+        TestContext(ConfigurationMetricsMode mode) {
+            this.mode = mode;
+        }
+
+        @Override
+        public Protocol protocol() {
+            return protocol;
+        }
+
+        @Override
+        public Meter meter() {
+            return meter;
+        }
+
+        @Override
+        public Attributes getAttributes() {
+            return ATTRIBUTES;
+        }
+
+        @Override
+        public boolean exposeConfigurationMetrics() {
+            return true;
+        }
+
+        @Override
+        public ConfigurationMetricsMode configurationMetricsMode() {
+            return mode;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.jgroups.opentelemetry.impl.util;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import org.jgroups.Address;
+import org.jgroups.annotations.observability.ObservableUnit;
+import org.jgroups.opentelemetry.impl.aggregation.SnapshotMetricReader;
+import org.jgroups.opentelemetry.spi.InstrumentationContext;
+import org.jgroups.protocols.UNICAST3;
+import org.jgroups.stack.Protocol;
+import org.jgroups.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link RegistrationHelper} bounding the number of members reported by per-member metrics.
+ *
+ * @author Radoslav Husar
+ */
+public class RegistrationHelperTestCase {
+
+    // Key of the overflow series in the collected values, which cannot be a logical name
+    private static final String OVERFLOW = "";
+    private static final Attributes ATTRIBUTES = Attributes.of(AttributeKey.stringKey("cluster"), "test");
+
+    private SdkMeterProvider meterProvider;
+    private SnapshotMetricReader reader;
+    private Meter meter;
+    private final Map<Address, Long> values = new LinkedHashMap<>();
+
+    @BeforeEach
+    public void setUp() {
+        reader = new SnapshotMetricReader();
+        meterProvider = SdkMeterProvider.builder().registerMetricReader(reader).build();
+        meter = meterProvider.get("org.jgroups.test");
+        for (long value : new long[] { 1, 7, 3, 5 }) {
+            values.put(UUID.randomUUID(), value);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        meterProvider.close();
+    }
+
+    @Test
+    public void testHighestFirst() {
+        new RegistrationHelper(new TestContext(true, 2)).registerPerMemberLongGauge("member.messages.unacked", "Unacknowledged messages",
+                ObservableUnit.UNITY, RegistrationHelper.Ranking.HIGHEST_FIRST, Long::sum, consumer -> values.forEach(consumer::accept));
+
+        // The members with the highest values are reported, the remaining members are summed into the overflow series
+        Map<String, Long> reported = collect();
+        assertEquals(3, reported.size(), reported.toString());
+        assertEquals(7L, reported.get(member(7)).longValue());
+        assertEquals(5L, reported.get(member(5)).longValue());
+        assertEquals(4L, reported.get(OVERFLOW).longValue());
+    }
+
+    @Test
+    public void testLowestFirst() {
+        new RegistrationHelper(new TestContext(true, 2)).registerPerMemberLongGauge("member.credits", "Remaining credits",
+                ObservableUnit.BYTES, RegistrationHelper.Ranking.LOWEST_FIRST, Math::max, consumer -> values.forEach(consumer::accept));
+
+        Map<String, Long> reported = collect();
+        assertEquals(3, reported.size(), reported.toString());
+        assertEquals(1L, reported.get(member(1)).longValue());
+        assertEquals(3L, reported.get(member(3)).longValue());
+        assertEquals(7L, reported.get(OVERFLOW).longValue());
+    }
+
+    @Test
+    public void testWithinLimit() {
+        new RegistrationHelper(new TestContext(true, 4)).registerPerMemberLongGauge("member.messages.unacked", "Unacknowledged messages",
+                ObservableUnit.UNITY, RegistrationHelper.Ranking.HIGHEST_FIRST, Long::sum, consumer -> values.forEach(consumer::accept));
+
+        // No overflow series is reported while all members fit within the limit
+        Map<String, Long> reported = collect();
+        assertEquals(4, reported.size(), reported.toString());
+        assertFalse(reported.containsKey(OVERFLOW));
+    }
+
+    @Test
+    public void testDisabled() {
+        new RegistrationHelper(new TestContext(false, 2)).registerPerMemberLongGauge("member.messages.unacked", "Unacknowledged messages",
+                ObservableUnit.UNITY, RegistrationHelper.Ranking.HIGHEST_FIRST, Long::sum, consumer -> values.forEach(consumer::accept));
+
+        assertTrue(reader.collect().isEmpty());
+    }
+
+    private String member(long value) {
+        return values.entrySet().stream().filter(entry -> entry.getValue() == value).map(entry -> String.valueOf(entry.getKey())).findFirst().orElseThrow();
+    }
+
+    private Map<String, Long> collect() {
+        Collection<MetricData> metrics = reader.collect();
+        Map<String, Long> reported = new HashMap<>();
+        for (MetricData metric : metrics) {
+            assertTrue(metric.getName().startsWith("jgroups.unicast3.member."), metric.getName());
+            for (LongPointData point : metric.getLongGaugeData().getPoints()) {
+                assertEquals("test", point.getAttributes().get(AttributeKey.stringKey("cluster")));
+                boolean overflow = Boolean.TRUE.equals(point.getAttributes().get(BoundedCounterMap.OVERFLOW));
+                assertTrue(overflow != (point.getAttributes().get(RegistrationHelper.MEMBER) != null), point.getAttributes().toString());
+                reported.put(overflow ? OVERFLOW : point.getAttributes().get(RegistrationHelper.MEMBER), point.getValue());
+            }
+        }
+        return reported;
+    }
+
+    private class TestContext implements InstrumentationContext {
+        private final Protocol protocol = new UNICAST3();
+        private final boolean perMemberMetrics;
+        private final int limit;
+
+        TestContext(boolean perMemberMetrics, int limit) {
+            this.perMemberMetrics = perMemberMetrics;
+            this.limit = limit;
+        }
+
+        @Override
+        public Protocol protocol() {
+            return protocol;
+        }
+
+        @Override
+        public Meter meter() {
+            return meter;
+        }
+
+        @Override
+        public Attributes getAttributes() {
+            return ATTRIBUTES;
+        }
+
+        @Override
+        public boolean exposeConfigurationMetrics() {
+            return false;
+        }
+
+        @Override
+        public boolean perMemberMetrics() {
+            return perMemberMetrics;
+        }
+
+        @Override
+        public int attributeCardinalityLimit() {
+            return limit;
+        }
+    }
+}
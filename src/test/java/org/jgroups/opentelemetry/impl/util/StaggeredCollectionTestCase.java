@@ -0,0 +1,138 @@
+package org.jgroups.opentelemetry.impl.util;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import org.jgroups.opentelemetry.impl.aggregation.SnapshotMetricReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link StaggeredCollection} replaying the values sampled per protocol on collection.
+ *
+ * @author Radoslav Husar
+ */
+public class StaggeredCollectionTestCase {
+
+    private static final AttributeKey<String> DESTINATION = AttributeKey.stringKey("destination");
+
+    private SdkMeterProvider meterProvider;
+    private SnapshotMetricReader reader;
+    private Meter meter;
+
+    @BeforeEach
+    public void setUp() {
+        reader = new SnapshotMetricReader();
+        meterProvider = SdkMeterProvider.builder().registerMetricReader(reader).build();
+        meter = meterProvider.get("org.jgroups.test");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        meterProvider.close();
+    }
+
+    @Test
+    public void testStaggeredCollection() {
+        StaggeredCollection collection = new StaggeredCollection();
+        StaggeredCollection.Group first = collection.createGroup();
+        StaggeredCollection.Group second = collection.createGroup();
+        assertEquals(2, collection.size());
+
+        AtomicLong sent = new AtomicLong(1);
+        AtomicLong invocations = new AtomicLong();
+        AtomicLong queued = new AtomicLong(5);
+        meter.counterBuilder("jgroups.test.messages.sent")
+            .buildWithCallback(first.longCallback(measurement -> {
+                invocations.incrementAndGet();
+                measurement.record(sent.get(), Attributes.of(DESTINATION, "unicast"));
+                measurement.record(sent.get() * 10, Attributes.of(DESTINATION, "multicast"));
+            }));
+        meter.gaugeBuilder("jgroups.test.queue.size")
+            .buildWithCallback(second.doubleCallback(measurement -> measurement.record(queued.get() / 2.0)));
+
+        // Callbacks are invoked on collection until their group is sampled
+        Collection<MetricData> metrics = reader.collect();
+        assertEquals(1, invocations.get());
+        assertEquals(1L, longValue(metrics, "jgroups.test.messages.sent", "unicast"));
+        assertEquals(2.5, doubleValue(metrics, "jgroups.test.queue.size"));
+
+        // The first tick samples the first group only; collections replay its sampled values without invoking it
+        sent.set(2);
+        queued.set(7);
+        collection.sampleNext();
+        assertEquals(2, invocations.get());
+        sent.set(3);
+        metrics = reader.collect();
+        assertEquals(2, invocations.get());
+        assertEquals(2L, longValue(metrics, "jgroups.test.messages.sent", "unicast"));
+        assertEquals(20L, longValue(metrics, "jgroups.test.messages.sent", "multicast"));
+        assertEquals(3.5, doubleValue(metrics, "jgroups.test.queue.size"));
+
+        // The second tick samples the second group, and the third wraps around to the first
+        collection.sampleNext();
+        queued.set(9);
+        assertEquals(3.5, doubleValue(reader.collect(), "jgroups.test.queue.size"));
+        collection.sampleNext();
+        assertEquals(3L, longValue(reader.collect(), "jgroups.test.messages.sent", "unicast"));
+        assertEquals(3, invocations.get());
+    }
+
+    @Test
+    public void testStartStop() throws InterruptedException {
+        StaggeredCollection collection = new StaggeredCollection();
+        StaggeredCollection.Group group = collection.createGroup();
+        CountDownLatch sampled = new CountDownLatch(3);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        meter.gaugeBuilder("jgroups.test.queue.size")
+            .buildWithCallback(group.doubleCallback(measurement -> {
+                thread.set(Thread.currentThread());
+                sampled.countDown();
+                measurement.record(1.0);
+            }));
+
+        // The groups are sampled on a dedicated daemon thread until stopped
+        collection.start(10);
+        assertTrue(sampled.await(10, TimeUnit.SECONDS));
+        collection.stop();
+        assertEquals("StaggeredCollection", thread.get().getName());
+        assertTrue(thread.get().isDaemon());
+        thread.get().join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(thread.get().isAlive());
+        assertEquals(1.0, doubleValue(reader.collect(), "jgroups.test.queue.size"));
+
+        // Sampling can be restarted after being stopped
+        collection.start(10);
+        collection.stop();
+    }
+
+    private static long longValue(Collection<MetricData> metrics, String name, String destination) {
+        return metrics.stream()
+            .filter(metric -> metric.getName().equals(name))
+            .flatMap(metric -> metric.getLongSumData().getPoints().stream())
+            .filter(point -> destination.equals(point.getAttributes().get(DESTINATION)))
+            .findFirst()
+            .orElseThrow()
+            .getValue();
+    }
+
+    private static double doubleValue(Collection<MetricData> metrics, String name) {
+        return metrics.stream()
+            .filter(metric -> metric.getName().equals(name))
+            .flatMap(metric -> metric.getDoubleGaugeData().getPoints().stream())
+            .findFirst()
+            .orElseThrow()
+            .getValue();
+    }
+}
@@ -1,14 +1,28 @@
 package org.jgroups.protocols.opentelemetry;
 
+import com.sun.net.httpserver.HttpServer;
 import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.common.export.MemoryMode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
 import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.DoublePointData;
 import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
 import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
 import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.jgroups.JChannel;
 import org.jgroups.ObjectMessage;
 import org.jgroups.opentelemetry.TestMetricExporter;
+import org.jgroups.opentelemetry.impl.aggregation.ClusterMetricsAggregator;
+import org.jgroups.opentelemetry.impl.util.ConfigurationMetrics;
+import org.jgroups.opentelemetry.impl.util.InterceptorProtocol;
 import org.jgroups.protocols.*;
 import org.jgroups.protocols.pbcast.GMS;
 import org.jgroups.protocols.pbcast.NAKACK2;
@@ -18,10 +32,23 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -195,6 +222,328 @@ class OPENTELEMETRYTestCase {
         assertEquals("Distribution of received message sizes", receivedHistogram.getDescription());
     }
 
+    @Test
+    void testMessageStatisticsAndDeliveryTimeHistogram() throws Exception {
+        JChannel channel1 = createChannelWithStatistics("Node1");
+        JChannel channel2 = createChannelWithStatistics("Node2");
+
+        channels.add(channel1);
+        channels.add(channel2);
+
+        channel1.connect("statistics-cluster");
+        channel2.connect("statistics-cluster");
+
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, channel1, channel2);
+
+        // Send multicasts and a unicast
+        for (int i = 0; i < 10; i++) {
+            channel1.send(new ObjectMessage(null, new byte[100]));
+        }
+        channel2.send(new ObjectMessage(channel1.getAddress(), new byte[100]));
+
+        // Allow time for metrics to be collected and exported
+        Thread.sleep(500);
+
+        Collection<MetricData> metrics = metricExporter.getExports().stream()
+            .flatMap(Collection::stream)
+            .toList();
+
+        for (String name : List.of("jgroups.opentelemetry.messages.sent", "jgroups.opentelemetry.bytes.sent",
+                "jgroups.opentelemetry.messages.received", "jgroups.opentelemetry.bytes.received",
+                "jgroups.opentelemetry.batches.received")) {
+            assertTrue(metrics.stream().anyMatch(m -> m.getName().equals(name)), "Missing metric " + name);
+        }
+
+        // Multicasts sent must be reported with the destination attribute
+        assertTrue(metrics.stream()
+            .filter(m -> m.getName().equals("jgroups.opentelemetry.messages.sent"))
+            .flatMap(m -> m.getLongSumData().getPoints().stream())
+            .anyMatch(point -> "multicast".equals(point.getAttributes().get(AttributeKey.stringKey("destination"))) && point.getValue() >= 10),
+            "Multicasts sent should be counted");
+
+        MetricData deliveryHistogram = metrics.stream()
+            .filter(m -> m.getName().equals("jgroups.opentelemetry.delivery.duration"))
+            .findFirst()
+            .orElse(null);
+        assertNotNull(deliveryHistogram, "Delivery time histogram should exist");
+        assertTrue(deliveryHistogram.getHistogramData().getPoints().iterator().next().getCount() > 0, "Delivery time histogram should have samples");
+        assertEquals("ms", deliveryHistogram.getUnit());
+
+        assertTrue(metrics.stream().anyMatch(m -> m.getName().equals("jgroups.opentelemetry.send.duration")), "Send time histogram should exist");
+    }
+
+    @Test
+    void testMetricFilters() throws Exception {
+        JChannel channel1 = createChannelWithFilters("Node1");
+        JChannel channel2 = createChannelWithFilters("Node2");
+
+        channels.add(channel1);
+        channels.add(channel2);
+
+        channel1.connect("filter-cluster");
+        channel2.connect("filter-cluster");
+
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, channel1, channel2);
+
+        channel1.send(new ObjectMessage(channel2.getAddress(), "Hello"));
+
+        // Allow time for metrics to be collected and exported
+        Thread.sleep(500);
+
+        List<String> names = metricExporter.getExports().stream()
+            .flatMap(Collection::stream)
+            .map(MetricData::getName)
+            .distinct()
+            .toList();
+
+        assertTrue(names.contains("jgroups.unicast3.messages.sent"), "Included metric should be registered");
+        assertTrue(names.contains("jgroups.opentelemetry.messages.sent"), "Included protocol metric should be registered");
+        assertFalse(names.contains("jgroups.unicast3.xmit_requests.sent"), "Excluded metric should not be registered");
+        assertFalse(names.contains("jgroups.opentelemetry.bytes.sent"), "Excluded protocol metric should not be registered");
+        assertTrue(names.stream().allMatch(name -> name.startsWith("jgroups.unicast3.") || name.startsWith("jgroups.opentelemetry.")),
+            "Only included metrics should be registered: " + names);
+
+        // No interceptors are inserted for the filtered metrics of STABLE, GMS, FRAG2 and discovery
+        assertTrue(channel1.getProtocolStack().getProtocols().stream().noneMatch(InterceptorProtocol.class::isInstance),
+            "No interceptors should be inserted: " + channel1.getProtocolStack().printProtocolSpec(false));
+    }
+
+    @Test
+    void testConfigurationInfoMetric() throws Exception {
+        JChannel channel = createChannelWithConfigurationInfo("Node1");
+        channels.add(channel);
+        channel.connect("config-cluster");
+
+        // Allow time for metrics to be collected and exported
+        Thread.sleep(500);
+
+        List<MetricData> metrics = metricExporter.getExports().stream()
+            .flatMap(Collection::stream)
+            .toList();
+
+        assertFalse(metrics.stream().anyMatch(m -> m.getName().equals("jgroups.pbcast.stable.gossip.avg")), "Configuration gauges should not be registered");
+
+        LongPointData stable = metrics.stream()
+            .filter(m -> m.getName().equals(ConfigurationMetrics.INFO_METRIC_NAME))
+            .flatMap(m -> m.getLongGaugeData().getPoints().stream())
+            .filter(point -> "STABLE".equals(point.getAttributes().get(ConfigurationMetrics.PROTOCOL)))
+            .findFirst()
+            .orElse(null);
+        assertNotNull(stable, "Configuration info metric of STABLE should exist");
+        assertEquals(1, stable.getValue());
+        STABLE protocol = channel.getProtocolStack().findProtocol(STABLE.class);
+        assertEquals((Long) protocol.getDesiredAverageGossip(), stable.getAttributes().get(AttributeKey.longKey("gossip.avg")));
+        assertEquals((Long) protocol.getMaxBytes(), stable.getAttributes().get(AttributeKey.longKey("bytes.max")));
+
+        // Unsupported values are rejected
+        OPENTELEMETRY otel = new OPENTELEMETRY().setOpenTelemetry(openTelemetry).setConfigurationMetricsMode("sometimes");
+        assertThrows(IllegalArgumentException.class, otel::init);
+    }
+
+    @Test
+    void testStaggeredCollection() throws Exception {
+        JChannel channel = createChannelWithStaggeredCollection("Node1");
+        channels.add(channel);
+        channel.connect("staggered-cluster");
+
+        // Allow time for every protocol to be sampled and the metrics to be exported
+        Thread.sleep(500);
+
+        List<MetricData> metrics = metricExporter.getExports().stream()
+            .flatMap(Collection::stream)
+            .toList();
+        assertTrue(metrics.stream().anyMatch(m -> m.getName().startsWith("jgroups.unicast3.")), "UNICAST3 metrics should be exported");
+        assertTrue(metrics.stream().anyMatch(m -> m.getName().startsWith("jgroups.pbcast.stable.")), "STABLE metrics should be exported");
+    }
+
+    @Test
+    void testHistory() throws Exception {
+        JChannel channel = createChannelWithHistory("Node1");
+        channels.add(channel);
+        channel.connect("history-cluster");
+        channel.send(new ObjectMessage(channel.getAddress(), "Hello"));
+
+        // The metrics are recorded without any exporter
+        OPENTELEMETRY otel = channel.getProtocolStack().findProtocol(OPENTELEMETRY.class);
+        long deadline = System.currentTimeMillis() + 10000;
+        String history = otel.queryHistory("jgroups.opentelemetry.messages.sent", "destination=unicast", 60);
+        while (history.split("\n").length < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            history = otel.queryHistory("jgroups.opentelemetry.messages.sent", "destination=unicast", 60);
+        }
+        String[] lines = history.split("\n");
+        assertTrue(lines.length >= 3, "Multiple samples should be recorded: " + history);
+        assertTrue(lines[0].startsWith("jgroups.opentelemetry.messages.sent"), history);
+        assertTrue(lines[0].contains("unicast"), history);
+        assertFalse(history.contains("multicast"), history);
+        assertTrue(lines[lines.length - 1].endsWith(" 1.0"), "The unicast message should be counted: " + history);
+        assertTrue(otel.getHistoryStore().getSeriesCount() > 1);
+        assertThrows(IllegalArgumentException.class, () -> otel.queryHistory("", "destination", 60));
+    }
+
+    @Test
+    void testJfrEvents() throws Exception {
+        Path file = Files.createTempFile("jgroups", ".jfr");
+        JChannel channel1 = createChannelWithJfrEvents("Node1");
+        JChannel channel2 = createChannelWithJfrEvents("Node2");
+        channels.add(channel1);
+        channels.add(channel2);
+        // The period of the recording only applies to the periodic metric event if registered before the recording starts
+        channel1.connect("jfr-cluster");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.jgroups.MessageSend");
+            recording.enable("org.jgroups.MessageDelivery");
+            recording.enable("org.jgroups.BatchDelivery");
+            recording.enable("org.jgroups.ViewChange");
+            recording.enable("org.jgroups.Metric").withPeriod(Duration.ofMillis(100));
+            recording.start();
+
+            channel2.connect("jfr-cluster");
+            Util.waitUntilAllChannelsHaveSameView(10000, 500, channel1, channel2);
+            channel1.send(new ObjectMessage(channel2.getAddress(), "Hello"));
+
+            // Allow time for the periodic metric events
+            Thread.sleep(500);
+            recording.stop();
+            recording.dump(file);
+        }
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("org.jgroups.MessageSend")
+                && event.getString("destination").equals("unicast") && event.getString("cluster").equals("jfr-cluster")), "Sent messages should be recorded");
+            // Depending on the transport, received messages are passed up individually or in batches
+            assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().matches("org.jgroups.(Message|Batch)Delivery")
+                && "Node1".equals(event.getString("sender")) && event.getString("destination").equals("unicast")), "Delivered messages should be recorded");
+            assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("org.jgroups.ViewChange")
+                && event.getInt("members") == 2 && event.getString("coordinator").equals("Node1")), "The view should be recorded");
+            assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("org.jgroups.Metric")
+                && event.getString("metric").startsWith("jgroups.unicast3.")), "Metric values should be recorded");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testClusterAggregation() throws Exception {
+        JChannel channel1 = createChannelWithClusterAggregation("Node1");
+        JChannel channel2 = createChannelWithClusterAggregation("Node2");
+        JChannel channel3 = createChannelWithClusterAggregation("Node3");
+
+        channels.add(channel1);
+        channels.add(channel2);
+        channels.add(channel3);
+
+        channel1.connect("aggregation-cluster");
+        channel2.connect("aggregation-cluster");
+        channel3.connect("aggregation-cluster");
+
+        Util.waitUntilAllChannelsHaveSameView(10000, 500, channel1, channel2, channel3);
+
+        channel2.send(new ObjectMessage(channel3.getAddress(), "Hello"));
+
+        // The coordinator aggregates the snapshots of all members
+        // The aggregated gauges are registered on the first snapshot which contains them, so they may miss a collection
+        Collection<MetricData> export = awaitExport(metrics -> aggregatedMembers(metrics) == 3
+            && metrics.stream().anyMatch(m -> m.getName().equals("jgroups.opentelemetry.messages.sent")));
+        List<MetricData> messagesSent = export.stream().filter(m -> m.getName().equals("jgroups.opentelemetry.messages.sent")).toList();
+        assertEquals(1, messagesSent.size(), "Only the coordinator should export the aggregated metric");
+        Collection<DoublePointData> points = messagesSent.get(0).getDoubleGaugeData().getPoints();
+        assertTrue(points.stream().allMatch(point -> point.getAttributes().get(ClusterMetricsAggregator.AGGREGATION) != null), "Only aggregates should be exported: " + points);
+        assertTrue(points.stream().anyMatch(point -> "sum".equals(point.getAttributes().get(ClusterMetricsAggregator.AGGREGATION))
+            && "unicast".equals(point.getAttributes().get(AttributeKey.stringKey("destination"))) && point.getValue() > 0), "Sum of unicasts sent should be exported: " + points);
+        assertTrue(points.stream().filter(point -> point.getAttributes().get(AttributeKey.stringKey("node")) != null)
+            .allMatch(point -> "outlier".equals(point.getAttributes().get(ClusterMetricsAggregator.AGGREGATION))), "Only outliers should identify a member: " + points);
+
+        // After the coordinator leaves, the new coordinator takes over the aggregation
+        channel1.close();
+        awaitExport(metrics -> aggregatedMembers(metrics) == 2);
+    }
+
+    @Test
+    void testHttpProtobufExport() throws Exception {
+        // In-process OTLP/HTTP receiver capturing the export requests
+        record ExportRequest(String contentType, String contentEncoding, byte[] body) {
+        }
+        BlockingQueue<ExportRequest> requests = new LinkedBlockingQueue<>();
+        HttpServer receiver = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        receiver.createContext("/v1/metrics", exchange -> {
+            try (exchange; InputStream in = exchange.getRequestBody()) {
+                requests.add(new ExportRequest(exchange.getRequestHeaders().getFirst("Content-Type"), exchange.getRequestHeaders().getFirst("Content-Encoding"), in.readAllBytes()));
+                exchange.getResponseHeaders().set("Content-Type", "application/x-protobuf");
+                exchange.sendResponseHeaders(200, -1);
+            }
+        });
+        receiver.start();
+        try {
+            OPENTELEMETRY otel = new OPENTELEMETRY()
+                .setEndpoint("http://" + receiver.getAddress().getHostString() + ":" + receiver.getAddress().getPort())
+                .setExportProtocol("http/protobuf")
+                .setExportCompression("gzip")
+                .setExportTemporality("delta")
+                .setExportMemoryMode("reusable_data")
+                .setExportInterval(100);
+
+            JChannel channel = new JChannel(
+                new SHARED_LOOPBACK(),
+                new SHARED_LOOPBACK_PING(),
+                new NAKACK2(),
+                otel,
+                new UNICAST3(),
+                new STABLE(),
+                new GMS(),
+                new FRAG2()
+            ).name("Node1");
+            channels.add(channel);
+            channel.connect("otlp-cluster");
+
+            ExportRequest request = requests.poll(10, TimeUnit.SECONDS);
+            assertNotNull(request, "Receiver should have received an export");
+            assertEquals("application/x-protobuf", request.contentType());
+            assertEquals("gzip", request.contentEncoding());
+
+            // Protobuf encodes strings as UTF-8, so metric names are readable in the decompressed payload
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(request.body()))) {
+                in.transferTo(payload);
+            }
+            assertTrue(payload.toString(StandardCharsets.ISO_8859_1).contains("jgroups.unicast3."), "Export should contain UNICAST3 metrics");
+        } finally {
+            receiver.stop(0);
+        }
+    }
+
+    @Test
+    void testExporterConfiguration() {
+        OPENTELEMETRY otel = new OPENTELEMETRY()
+            .setEndpoint("http://localhost:4317")
+            .setExportTemporality("delta")
+            .setExportMemoryMode("reusable_data");
+
+        MetricExporter exporter = otel.createMetricExporter();
+        try {
+            assertEquals(AggregationTemporality.DELTA, exporter.getAggregationTemporality(InstrumentType.COUNTER));
+            assertEquals(AggregationTemporality.DELTA, exporter.getAggregationTemporality(InstrumentType.HISTOGRAM));
+            assertEquals(AggregationTemporality.CUMULATIVE, exporter.getAggregationTemporality(InstrumentType.UP_DOWN_COUNTER));
+            assertEquals(MemoryMode.REUSABLE_DATA, exporter.getMemoryMode());
+        } finally {
+            exporter.shutdown();
+        }
+
+        otel.setExportTemporality("lowmemory").setExportMemoryMode("immutable_data");
+        exporter = otel.createMetricExporter();
+        try {
+            assertEquals(AggregationTemporality.DELTA, exporter.getAggregationTemporality(InstrumentType.COUNTER));
+            assertEquals(AggregationTemporality.CUMULATIVE, exporter.getAggregationTemporality(InstrumentType.OBSERVABLE_COUNTER));
+            assertEquals(MemoryMode.IMMUTABLE_DATA, exporter.getMemoryMode());
+        } finally {
+            exporter.shutdown();
+        }
+
+        // Unsupported values are rejected
+        assertThrows(IllegalArgumentException.class, () -> otel.setExportProtocol("http/json").createMetricExporter());
+        assertThrows(IllegalArgumentException.class, () -> otel.setExportProtocol("grpc").setExportCompression("zstd").createMetricExporter());
+    }
+
     /**
      * Creates a JChannel with a protocol stack that includes OPENTELEMETRY.
      */
@@ -214,6 +563,158 @@ class OPENTELEMETRYTestCase {
         ).name(name);
     }
 
+    /**
+     * Creates a JChannel with OPENTELEMETRY protocol registering only UNICAST3 metrics and message statistics,
+     * except for retransmission requests and byte counts.
+     */
+    private JChannel createChannelWithFilters(String name) throws Exception {
+        OPENTELEMETRY otel = new OPENTELEMETRY()
+            .setOpenTelemetry(openTelemetry)
+            .setEnableMessageStatistics(true)
+            .setIncludeMetrics("jgroups.unicast3.*, regex:jgroups\\.opentelemetry\\..+")
+            .setExcludeMetrics("jgroups.unicast3.xmit_requests.*,jgroups.opentelemetry.bytes.*");
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            new NAKACK2(),
+            otel,  // Add OpenTelemetry protocol to the stack
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            new FRAG2()
+        ).name(name);
+    }
+
+    /**
+     * Creates a JChannel with OPENTELEMETRY protocol reporting configuration metrics as a single info metric per protocol.
+     */
+    private JChannel createChannelWithConfigurationInfo(String name) throws Exception {
+        OPENTELEMETRY otel = new OPENTELEMETRY()
+            .setOpenTelemetry(openTelemetry)
+            .setConfigurationMetricsMode("info");
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            new NAKACK2(),
+            otel,  // Add OpenTelemetry protocol to the stack
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            new FRAG2()
+        ).name(name);
+    }
+
+    /**
+     * Creates a JChannel with OPENTELEMETRY protocol collecting the values of one protocol at a time across the interval.
+     */
+    private JChannel createChannelWithStaggeredCollection(String name) throws Exception {
+        OPENTELEMETRY otel = new OPENTELEMETRY()
+            .setOpenTelemetry(openTelemetry)
+            .setExportInterval(100)
+            .setStaggeredCollection(true);
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            new NAKACK2(),
+            otel,  // Add OpenTelemetry protocol to the stack
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            new FRAG2()
+        ).name(name);
+    }
+
+    /**
+     * Creates a JChannel with OPENTELEMETRY protocol emitting JFR events for every message.
+     */
+    private JChannel createChannelWithJfrEvents(String name) throws Exception {
+        OPENTELEMETRY otel = new OPENTELEMETRY()
+            .setJfrEvents(true)
+            .setDurationSamplingInterval(1);
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            new NAKACK2(),
+            otel,  // Add OpenTelemetry protocol to the stack
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            new FRAG2()
+        ).name(name);
+    }
+
+    /**
+     * Creates a JChannel with OPENTELEMETRY protocol recording the metrics in the history store only.
+     */
+    private JChannel createChannelWithHistory(String name) throws Exception {
+        OPENTELEMETRY otel = new OPENTELEMETRY()
+            .setEnableMessageStatistics(true)
+            .setHistoryRetention(60000)
+            .setHistoryInterval(50);
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            new NAKACK2(),
+            otel,  // Add OpenTelemetry protocol to the stack
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            new FRAG2()
+        ).name(name);
+    }
+
+    /**
+     * Creates a JChannel with OPENTELEMETRY protocol sending metric snapshots to the coordinator for aggregation.
+     */
+    private JChannel createChannelWithClusterAggregation(String name) throws Exception {
+        OPENTELEMETRY otel = new OPENTELEMETRY()
+            .setOpenTelemetry(openTelemetry)
+            .setEnableMessageStatistics(true)
+            .setClusterAggregation(true)
+            .setClusterAggregationInterval(100);
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            new NAKACK2(),
+            otel,  // Add OpenTelemetry protocol to the stack
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            new FRAG2()
+        ).name(name);
+    }
+
+    /**
+     * Waits for an export matching the condition.
+     */
+    private Collection<MetricData> awaitExport(Predicate<Collection<MetricData>> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        int checked = 0;
+        while (System.currentTimeMillis() < deadline) {
+            List<Collection<MetricData>> exports = metricExporter.getExports();
+            for (int size = exports.size(); checked < size; checked++) {
+                if (condition.test(exports.get(checked))) return exports.get(checked);
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("No export matched the condition");
+    }
+
+    private static long aggregatedMembers(Collection<MetricData> metrics) {
+        return metrics.stream()
+            .filter(m -> m.getName().equals(ClusterMetricsAggregator.MEMBERS_METRIC_NAME))
+            .flatMap(m -> m.getLongGaugeData().getPoints().stream())
+            .mapToLong(LongPointData::getValue)
+            .max()
+            .orElse(0);
+    }
+
     /**
      * Creates a JChannel with OPENTELEMETRY protocol with histogram enabled.
      */
@@ -233,4 +734,27 @@ class OPENTELEMETRYTestCase {
             new FRAG2()
         ).name(name);
     }
+
+    /**
+     * Creates a JChannel with OPENTELEMETRY protocol with message statistics and delivery time histograms enabled,
+     * sampling every duration.
+     */
+    private JChannel createChannelWithStatistics(String name) throws Exception {
+        OPENTELEMETRY otel = new OPENTELEMETRY()
+            .setOpenTelemetry(openTelemetry)
+            .setEnableMessageStatistics(true)
+            .setEnableDeliveryTimeHistogram(true)
+            .setDurationSamplingInterval(1);
+
+        return new JChannel(
+            new SHARED_LOOPBACK(),
+            new SHARED_LOOPBACK_PING(),
+            new NAKACK2(),
+            otel,  // Add OpenTelemetry protocol to the stack
+            new UNICAST3(),
+            new STABLE(),
+            new GMS(),
+            new FRAG2()
+        ).name(name);
+    }
 }